@@ -41,6 +41,7 @@ public class SecurityConfig {
                 .requestMatchers("/", "/about").permitAll()
                 .requestMatchers("/login", "/register").permitAll()
                 .requestMatchers("/payment-result").permitAll() // Payment result page
+                .requestMatchers("/api/payment/vnpay-ipn").permitAll() // IPN từ máy chủ VNPay (xác thực bằng chữ ký)
                 // Protected endpoints - cần đăng nhập
                 .requestMatchers("/home").authenticated()
                 .requestMatchers("/forgot-password", "/reset-password").permitAll()
@@ -49,6 +50,7 @@ public class SecurityConfig {
                 .requestMatchers("/oauth2/**").permitAll()
                 .requestMatchers("/api/vaccines/**").permitAll() // Cho phép xem vaccine API
                 .requestMatchers("/api/appointment-slots/available/**").permitAll()
+                .requestMatchers("/api/vaccination-records/verify").permitAll() // Link xác minh chứng nhận trong QR code
                 .requestMatchers("/api/appointments/consultation-request").permitAll() // Cho phép guest gửi yêu cầu tư vấn
                 .requestMatchers("/public/vaccines/**").permitAll() // Cho phép xem chi tiết vaccine công khai (cho trang about)
                 .requestMatchers("/vaccines/*").permitAll() // Cho phép xem chi tiết vaccine (public) - pattern /vaccines/{id}
@@ -84,10 +86,15 @@ public class SecurityConfig {
                 .requestMatchers("/api/center-working-hours/**").hasRole("ADMIN") // Center working hours endpoints - chỉ admin
                 .requestMatchers("/api/center-vaccines/**").hasRole("ADMIN") // Center vaccines endpoints - chỉ admin
                 .requestMatchers("/api/phone/**").authenticated() // Phone verification endpoints
+                .requestMatchers("/api/payment/simulator/callback", "/api/payment/simulator/burst").hasRole("ADMIN") // VNPay giả lập: tạo callback đã ký - chỉ admin
                 .requestMatchers("/api/payment/**").authenticated() // Payment endpoints
                 .requestMatchers("/api/vaccine-lots/**").hasAnyRole("ADMIN", "NURSE")
                 .requestMatchers("/api/appointment-slots/**").authenticated()
                 .requestMatchers("/api/appointments/approved").hasAnyRole("NURSE", "ADMIN")
+                // Chứng nhận - đặt trước rule chung /api/vaccination-records/** (controller kiểm tra quyền sở hữu)
+                .requestMatchers("/api/vaccination-records/certificates/center/**").hasAnyRole("ADMIN", "NURSE", "RECEPTIONIST")
+                .requestMatchers("/api/vaccination-records/certificates/**").authenticated()
+                .requestMatchers("/api/vaccination-records/*/certificate").authenticated()
                 .requestMatchers("/api/vaccination-records/**").hasAnyRole("NURSE", "ADMIN", "DOCTOR")
                 .requestMatchers("/api/doctor/**").hasRole("DOCTOR")
                 // Tất cả các request khác cần đăng nhập
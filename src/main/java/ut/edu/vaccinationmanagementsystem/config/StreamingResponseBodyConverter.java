@@ -0,0 +1,43 @@
+package ut.edu.vaccinationmanagementsystem.config;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Ghi StreamingResponseBody trả về trong ResponseEntity<?> (file export CSV/XLSX/ZIP)
+ * Spring chỉ xử lý StreamingResponseBody khi kiểu trả về khai báo là ResponseEntity<StreamingResponseBody>;
+ * các API trả về ResponseEntity<?> (để trả JSON lỗi) sẽ lỗi "No converter" nếu không có converter này
+ * Nội dung được ghi thẳng ra response, không giữ toàn bộ file trong bộ nhớ
+ */
+public class StreamingResponseBodyConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+
+    public StreamingResponseBodyConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingResponseBody cannot be read from a request", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(StreamingResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
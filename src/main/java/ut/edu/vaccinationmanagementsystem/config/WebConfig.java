@@ -2,6 +2,7 @@ package ut.edu.vaccinationmanagementsystem.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import ut.edu.vaccinationmanagementsystem.interceptor.UserStatusInterceptor;
@@ -29,5 +30,13 @@ public class WebConfig implements WebMvcConfigurer {
                     "/logout"
                 );
     }
+    
+    /**
+     * Cho phép các API export trả StreamingResponseBody trong ResponseEntity<?>
+     */
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.addCustomConverter(new StreamingResponseBodyConverter());
+    }
 }
 
@@ -7,16 +7,30 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import ut.edu.vaccinationmanagementsystem.dto.AdminUserDTO;
+import ut.edu.vaccinationmanagementsystem.dto.SlotGenerationDTO;
 import ut.edu.vaccinationmanagementsystem.dto.VaccineDTO;
 import ut.edu.vaccinationmanagementsystem.entity.*;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
 import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
 import java.math.BigDecimal;
 import ut.edu.vaccinationmanagementsystem.service.UserService;
 import ut.edu.vaccinationmanagementsystem.service.VaccineService;
 import ut.edu.vaccinationmanagementsystem.service.VaccinationRecordService;
+import ut.edu.vaccinationmanagementsystem.service.DashboardStatisticsService;
+import ut.edu.vaccinationmanagementsystem.service.SlotReservationService;
+import ut.edu.vaccinationmanagementsystem.service.AppointmentSearchIndexService;
+import ut.edu.vaccinationmanagementsystem.service.AdminListingService;
+import ut.edu.vaccinationmanagementsystem.service.CleanupService;
+import ut.edu.vaccinationmanagementsystem.service.SlotGenerationService;
+import ut.edu.vaccinationmanagementsystem.service.VaccineIncompatibilityCacheService;
+import ut.edu.vaccinationmanagementsystem.service.NotificationCounterService;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
+import ut.edu.vaccinationmanagementsystem.service.StaffActivityService;
+import ut.edu.vaccinationmanagementsystem.service.InventoryPositionService;
+import ut.edu.vaccinationmanagementsystem.service.SmsOutboxService;
 import ut.edu.vaccinationmanagementsystem.repository.*;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
@@ -62,6 +76,18 @@ public class AdminRestController {
     @Autowired
     private VaccinationRecordService vaccinationRecordService;
     
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+    
+    @Autowired
+    private SlotReservationService slotReservationService;
+    
+    @Autowired
+    private AppointmentSearchIndexService appointmentSearchIndexService;
+    
+    @Autowired
+    private AdminListingService adminListingService;
+    
     @Autowired
     private VaccinationRecordRepository vaccinationRecordRepository;
     
@@ -69,13 +95,31 @@ public class AdminRestController {
     private ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository staffInfoRepository;
     
     @Autowired
-    private NotificationRepository notificationRepository;
+    private NotificationCounterService notificationCounterService;
     
     @Autowired
     private VaccineLotRepository vaccineLotRepository;
     
     @Autowired
-    private ScreeningRepository screeningRepository;
+    private CleanupService cleanupService;
+    
+    @Autowired
+    private SlotGenerationService slotGenerationService;
+    
+    @Autowired
+    private VaccineIncompatibilityCacheService vaccineIncompatibilityCacheService;
+    
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
+    @Autowired
+    private StaffActivityService staffActivityService;
+    
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
+    
+    @Autowired
+    private SmsOutboxService smsOutboxService;
     
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
@@ -113,69 +157,76 @@ public class AdminRestController {
         }
     }
     
+    /**
+     * Phần trăm thay đổi so với kỳ trước (kỳ trước bằng 0 thì coi là tăng 100% nếu kỳ này có dữ liệu)
+     */
+    private double percentChange(long current, long previous) {
+        if (previous == 0) {
+            return current > 0 ? 100 : 0;
+        }
+        return (double) (current - previous) / previous * 100;
+    }
+    
+    /**
+     * Số ca của nhân viên theo role từ số liệu của StaffActivityService.getActivityBetween (null = không có công việc)
+     */
+    private long performanceOf(Role role, Map<String, Long> activity) {
+        if (activity == null) {
+            return 0;
+        }
+        if (role == Role.DOCTOR) {
+            return activity.get("screenings");
+        } else if (role == Role.NURSE) {
+            return activity.get("injections");
+        } else if (role == Role.RECEPTIONIST) {
+            return activity.get("receptions");
+        }
+        return 0;
+    }
+    
     /**
      * GET /api/admin/users
-     * Lấy danh sách tất cả users (cho admin)
+     * Lấy danh sách users (cho admin), lọc và phân trang keyset trong database
+     * Query params: role, status, search (tên/email/số điện thoại), size (mặc định 20, tối đa 100),
+     * cursor (nextCursor của trang trước)
+     * Response: items, nextCursor, hasMore, size, total (chỉ có ở trang đầu)
      */
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers(
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") int size) {
         try {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<User> users = userRepository.findAll();
-            
-            // Filter theo role
+            // Filter theo role (role không hợp lệ thì bỏ qua)
+            Role roleEnum = null;
             if (role != null && !role.trim().isEmpty()) {
                 try {
-                    Role roleEnum = Role.valueOf(role.toUpperCase());
-                    users = users.stream()
-                            .filter(u -> u.getRole() == roleEnum)
-                            .collect(Collectors.toList());
+                    roleEnum = Role.valueOf(role.toUpperCase());
                 } catch (IllegalArgumentException e) {
                     // Invalid role, ignore filter
                 }
             }
             
-            // Filter theo status
+            // Filter theo status (status không hợp lệ thì bỏ qua)
+            UserStatus statusEnum = null;
             if (status != null && !status.trim().isEmpty()) {
                 try {
-                    UserStatus statusEnum = UserStatus.valueOf(status.toUpperCase());
-                    users = users.stream()
-                            .filter(u -> u.getStatus() == statusEnum)
-                            .collect(Collectors.toList());
+                    statusEnum = UserStatus.valueOf(status.toUpperCase());
                 } catch (IllegalArgumentException e) {
                     // Invalid status, ignore filter
                 }
             }
             
-            // Filter theo search (tên, email)
-            if (search != null && !search.trim().isEmpty()) {
-                String searchLower = search.toLowerCase();
-                users = users.stream()
-                        .filter(u -> (u.getFullName() != null && u.getFullName().toLowerCase().contains(searchLower)) ||
-                                   (u.getEmail() != null && u.getEmail().toLowerCase().contains(searchLower)))
-                        .collect(Collectors.toList());
-            }
-            
-            List<Map<String, Object>> result = users.stream().map(user -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", user.getId());
-                map.put("email", user.getEmail());
-                map.put("fullName", user.getFullName());
-                map.put("phoneNumber", user.getPhoneNumber());
-                map.put("role", user.getRole().name());
-                map.put("status", user.getStatus().name());
-                map.put("createAt", user.getCreateAt());
-                map.put("dayOfBirth", user.getDayOfBirth());
-                map.put("gender", user.getGender() != null ? user.getGender().name() : null);
-                return map;
-            }).collect(Collectors.toList());
-            
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(adminListingService.listUsers(roleEnum, statusEnum, search, cursor, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -456,105 +507,42 @@ public class AdminRestController {
     
     /**
      * GET /api/admin/appointments
-     * Lấy danh sách tất cả appointments (cho admin)
+     * Lấy danh sách appointments (cho admin), lọc và phân trang keyset trong database
+     * Query params: status, startDate, endDate, search (mã booking/tên bệnh nhân), size (mặc định 20, tối đa 100),
+     * cursor (nextCursor của trang trước)
+     * Response: items, nextCursor, hasMore, size, total (chỉ có ở trang đầu)
      */
     @GetMapping("/appointments")
     public ResponseEntity<?> getAllAppointments(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") int size) {
         try {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<Appointment> appointments = appointmentRepository.findAll();
-            
-            // Filter theo status
+            // Filter theo status (status không hợp lệ thì bỏ qua)
+            AppointmentStatus statusEnum = null;
             if (status != null && !status.trim().isEmpty()) {
                 try {
-                    AppointmentStatus statusEnum = AppointmentStatus.valueOf(status.toUpperCase());
-                    appointments = appointments.stream()
-                            .filter(apt -> apt.getStatus() == statusEnum)
-                            .collect(Collectors.toList());
+                    statusEnum = AppointmentStatus.valueOf(status.toUpperCase());
                 } catch (IllegalArgumentException e) {
                     // Invalid status, ignore filter
                 }
             }
             
             // Filter theo date range
-            if (startDate != null && !startDate.trim().isEmpty()) {
-                LocalDate start = LocalDate.parse(startDate);
-                appointments = appointments.stream()
-                        .filter(apt -> apt.getAppointmentDate() != null && 
-                                     apt.getAppointmentDate().isAfter(start.minusDays(1)))
-                        .collect(Collectors.toList());
-            }
-            if (endDate != null && !endDate.trim().isEmpty()) {
-                LocalDate end = LocalDate.parse(endDate);
-                appointments = appointments.stream()
-                        .filter(apt -> apt.getAppointmentDate() != null && 
-                                     apt.getAppointmentDate().isBefore(end.plusDays(1)))
-                        .collect(Collectors.toList());
-            }
-            
-            // Filter theo search (booking code, tên bệnh nhân)
-            if (search != null && !search.trim().isEmpty()) {
-                String searchLower = search.toLowerCase();
-                appointments = appointments.stream()
-                        .filter(apt -> (apt.getBookingCode() != null && apt.getBookingCode().toLowerCase().contains(searchLower)) ||
-                                     (apt.getBookedForUser() != null && apt.getBookedForUser().getFullName() != null && 
-                                      apt.getBookedForUser().getFullName().toLowerCase().contains(searchLower)) ||
-                                     (apt.getBookedByUser() != null && apt.getBookedByUser().getFullName() != null && 
-                                      apt.getBookedByUser().getFullName().toLowerCase().contains(searchLower)) ||
-                                     (apt.getFamilyMember() != null && apt.getFamilyMember().getFullName() != null && 
-                                      apt.getFamilyMember().getFullName().toLowerCase().contains(searchLower)))
-                        .collect(Collectors.toList());
-            }
-            
-            List<Map<String, Object>> result = appointments.stream().map(apt -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", apt.getId());
-                map.put("bookingCode", apt.getBookingCode());
-                map.put("appointmentDate", apt.getAppointmentDate());
-                map.put("appointmentTime", apt.getAppointmentTime());
-                map.put("status", apt.getStatus().name());
-                map.put("doseNumber", apt.getDoseNumber());
-                
-                // Thông tin bệnh nhân
-                Map<String, Object> patientInfo = new HashMap<>();
-                if (apt.getBookedForUser() != null) {
-                    patientInfo.put("fullName", apt.getBookedForUser().getFullName());
-                    patientInfo.put("email", apt.getBookedForUser().getEmail());
-                    patientInfo.put("phoneNumber", apt.getBookedForUser().getPhoneNumber());
-                } else if (apt.getFamilyMember() != null) {
-                    patientInfo.put("fullName", apt.getFamilyMember().getFullName());
-                    patientInfo.put("phoneNumber", apt.getFamilyMember().getPhoneNumber());
-                } else if (apt.getBookedByUser() != null) {
-                    patientInfo.put("fullName", apt.getBookedByUser().getFullName());
-                    patientInfo.put("email", apt.getBookedByUser().getEmail());
-                    patientInfo.put("phoneNumber", apt.getBookedByUser().getPhoneNumber());
-                }
-                map.put("patientInfo", patientInfo);
-                
-                // Thông tin vaccine
-                if (apt.getVaccine() != null) {
-                    Map<String, Object> vaccineInfo = new HashMap<>();
-                    vaccineInfo.put("id", apt.getVaccine().getId());
-                    vaccineInfo.put("name", apt.getVaccine().getName());
-                    map.put("vaccineInfo", vaccineInfo);
-                }
-                
-                // Thông tin trung tâm
-                if (apt.getCenter() != null) {
-                    map.put("centerId", apt.getCenter().getId());
-                    map.put("centerName", apt.getCenter().getName());
-                }
-                
-                return map;
-            }).collect(Collectors.toList());
+            LocalDate start = startDate != null && !startDate.trim().isEmpty() ? LocalDate.parse(startDate) : null;
+            LocalDate end = endDate != null && !endDate.trim().isEmpty() ? LocalDate.parse(endDate) : null;
             
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(adminListingService.listAppointments(statusEnum, start, end, search, cursor, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -576,26 +564,36 @@ public class AdminRestController {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<User> staff = userRepository.findAll().stream()
-                    .filter(u -> u.getRole() == Role.DOCTOR || 
-                               u.getRole() == Role.NURSE || 
-                               u.getRole() == Role.RECEPTIONIST)
-                    .collect(Collectors.toList());
+            List<Role> roles = List.of(Role.DOCTOR, Role.NURSE, Role.RECEPTIONIST);
             
             // Filter theo role nếu có
             if (role != null && !role.trim().isEmpty()) {
                 try {
                     Role roleEnum = Role.valueOf(role.toUpperCase());
-                    staff = staff.stream()
-                            .filter(u -> u.getRole() == roleEnum)
-                            .collect(Collectors.toList());
+                    if (roles.contains(roleEnum)) {
+                        roles = List.of(roleEnum);
+                    }
                 } catch (IllegalArgumentException e) {
                     // Invalid role, ignore filter
                 }
             }
+            List<User> staff = userRepository.findByRoleIn(roles);
+            
+            // Trung tâm làm việc của tất cả nhân viên trong một truy vấn
+            Map<Long, Object[]> centerRows = new HashMap<>();
+            if (!staff.isEmpty()) {
+                List<Long> staffIds = staff.stream().map(User::getId).collect(Collectors.toList());
+                for (Object[] row : staffInfoRepository.findCenterRowsByUserIds(staffIds)) {
+                    centerRows.put((Long) row[0], row);
+                }
+            }
             
+            // Hiệu suất tháng này và tuần này của tất cả nhân viên từ bảng hiệu suất theo ngày
             LocalDate today = LocalDate.now();
             LocalDate firstDayOfMonth = today.withDayOfMonth(1);
+            LocalDate firstDayOfWeek = today.with(java.time.DayOfWeek.MONDAY);
+            Map<Long, Map<String, Long>> monthActivity = staffActivityService.getActivityBetween(firstDayOfMonth, today);
+            Map<Long, Map<String, Long>> weekActivity = staffActivityService.getActivityBetween(firstDayOfWeek, today);
             
             List<Map<String, Object>> result = staff.stream().map(user -> {
                 Map<String, Object> map = new HashMap<>();
@@ -609,67 +607,14 @@ public class AdminRestController {
                 map.put("dayOfBirth", user.getDayOfBirth());
                 map.put("gender", user.getGender() != null ? user.getGender().name() : null);
                 
-                // Lấy thông tin StaffInfo (center)
-                Optional<StaffInfo> staffInfoOpt = staffInfoRepository.findByUser(user);
-                if (staffInfoOpt.isPresent()) {
-                    StaffInfo staffInfo = staffInfoOpt.get();
-                    if (staffInfo.getCenter() != null) {
-                        map.put("centerId", staffInfo.getCenter().getId());
-                        map.put("centerName", staffInfo.getCenter().getName());
-                    } else {
-                        map.put("centerId", null);
-                        map.put("centerName", null);
-                    }
-                } else {
-                    map.put("centerId", null);
-                    map.put("centerName", null);
-                }
+                Object[] centerRow = centerRows.get(user.getId());
+                map.put("centerId", centerRow != null ? centerRow[1] : null);
+                map.put("centerName", centerRow != null ? centerRow[2] : null);
                 
-                // Tính performance (số ca/tháng) dựa trên role
-                int performanceThisMonth = 0;
-                if (user.getRole() == Role.DOCTOR) {
-                    // Doctor: đếm số screenings trong tháng này
-                    List<Screening> screenings = screeningRepository.findByDoctorIdOrderByScreenedAtDesc(user.getId());
-                    performanceThisMonth = (int) screenings.stream()
-                            .filter(s -> s.getScreenedAt() != null && 
-                                       s.getScreenedAt().toLocalDate().isAfter(firstDayOfMonth.minusDays(1)) &&
-                                       !s.getScreenedAt().toLocalDate().isAfter(today))
-                            .count();
-                } else if (user.getRole() == Role.NURSE) {
-                    // Nurse: đếm số vaccination records trong tháng này
-                    List<VaccinationRecord> records = vaccinationRecordRepository.findAll().stream()
-                            .filter(vr -> vr.getNurse() != null && vr.getNurse().getId().equals(user.getId()))
-                            .filter(vr -> vr.getInjectionDate() != null && 
-                                       vr.getInjectionDate().isAfter(firstDayOfMonth.minusDays(1)) &&
-                                       !vr.getInjectionDate().isAfter(today))
-                            .collect(Collectors.toList());
-                    performanceThisMonth = records.size();
-                } else if (user.getRole() == Role.RECEPTIONIST) {
-                    // Receptionist: đếm số appointments đã xử lý trong tháng này
-                    // Lấy trung tâm của receptionist (nếu có)
-                    Optional<StaffInfo> receptionistInfoOpt = staffInfoRepository.findByUser(user);
-                    final Long finalCenterId;
-                    if (receptionistInfoOpt.isPresent() && receptionistInfoOpt.get().getCenter() != null) {
-                        finalCenterId = receptionistInfoOpt.get().getCenter().getId();
-                    } else {
-                        finalCenterId = null;
-                    }
-                    
-                    // Đếm appointments đã được confirm/check-in trong tháng này tại trung tâm của receptionist
-                    List<Appointment> appointments = appointmentRepository.findAll().stream()
-                            .filter(apt -> apt.getAppointmentDate() != null &&
-                                         apt.getAppointmentDate().isAfter(firstDayOfMonth.minusDays(1)) &&
-                                         !apt.getAppointmentDate().isAfter(today))
-                            .filter(apt -> finalCenterId == null || (apt.getCenter() != null && apt.getCenter().getId().equals(finalCenterId)))
-                            .filter(apt -> apt.getStatus() == AppointmentStatus.CONFIRMED || 
-                                         apt.getStatus() == AppointmentStatus.CHECKED_IN ||
-                                         apt.getStatus() == AppointmentStatus.SCREENING ||
-                                         apt.getStatus() == AppointmentStatus.APPROVED ||
-                                         apt.getStatus() == AppointmentStatus.COMPLETED)
-                            .collect(Collectors.toList());
-                    performanceThisMonth = appointments.size();
-                }
-                map.put("performanceThisMonth", performanceThisMonth);
+                // Hiệu suất (số ca) theo role: bác sĩ - số ca khám sàng lọc, y tá - số mũi tiêm,
+                // lễ tân - số lịch hẹn đã xác nhận/check-in
+                map.put("performanceThisMonth", performanceOf(user.getRole(), monthActivity.get(user.getId())));
+                map.put("performanceThisWeek", performanceOf(user.getRole(), weekActivity.get(user.getId())));
                 
                 return map;
             }).collect(Collectors.toList());
@@ -819,43 +764,31 @@ public class AdminRestController {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            // Sử dụng DashboardController logic hoặc tạo mới
-            // Tạm thời tạo stats đơn giản
-            long totalUsers = userRepository.findAll().size();
-            long totalAppointments = appointmentRepository.findAll().size();
-            long totalVaccines = vaccineRepository.findAll().size();
-            long totalCenters = vaccinationCenterRepository.findAll().size();
+            // Đọc từ bảng thống kê tổng hợp (daily_statistics) thay vì quét toàn bộ bảng
+            long totalUsers = dashboardStatisticsService.getTotalUserCount();
+            long totalAppointments = dashboardStatisticsService.getTotalCount(StatisticMetric.APPOINTMENTS)
+                    + dashboardStatisticsService.getTotalCount(StatisticMetric.CONSULTATION_REQUESTS);
+            long totalVaccines = vaccineRepository.count();
+            long totalCenters = vaccinationCenterRepository.count();
             
             // Đếm users theo role
-            long totalCustomers = userRepository.findAll().stream()
-                    .filter(u -> u.getRole() == Role.CUSTOMER)
-                    .count();
-            long totalDoctors = userRepository.findAll().stream()
-                    .filter(u -> u.getRole() == Role.DOCTOR)
-                    .count();
+            Map<Role, Long> usersByRole = dashboardStatisticsService.getUserCountByRole();
+            long totalCustomers = usersByRole.getOrDefault(Role.CUSTOMER, 0L);
+            long totalDoctors = usersByRole.getOrDefault(Role.DOCTOR, 0L);
             
             // Đếm appointments hôm nay
             LocalDate today = LocalDate.now();
-            long todayAppointments = appointmentRepository.findAll().stream()
-                    .filter(apt -> apt.getAppointmentDate() != null && apt.getAppointmentDate().equals(today))
-                    .count();
+            long todayAppointments = dashboardStatisticsService.getCountBetween(StatisticMetric.APPOINTMENTS, today, today);
             
             // Tính phần trăm tăng trưởng người dùng (so sánh tháng này với tháng trước)
             LocalDate firstDayOfThisMonth = today.withDayOfMonth(1);
             LocalDate firstDayOfLastMonth = firstDayOfThisMonth.minusMonths(1);
             LocalDate lastDayOfLastMonth = firstDayOfThisMonth.minusDays(1);
             
-            long usersThisMonth = userRepository.findAll().stream()
-                    .filter(u -> u.getCreateAt() != null && 
-                            !u.getCreateAt().isBefore(firstDayOfThisMonth) &&
-                            !u.getCreateAt().isAfter(today))
-                    .count();
-            
-            long usersLastMonth = userRepository.findAll().stream()
-                    .filter(u -> u.getCreateAt() != null && 
-                            !u.getCreateAt().isBefore(firstDayOfLastMonth) &&
-                            !u.getCreateAt().isAfter(lastDayOfLastMonth))
-                    .count();
+            long usersThisMonth = dashboardStatisticsService.getCountBetween(
+                    StatisticMetric.USER_REGISTRATIONS, firstDayOfThisMonth, today);
+            long usersLastMonth = dashboardStatisticsService.getCountBetween(
+                    StatisticMetric.USER_REGISTRATIONS, firstDayOfLastMonth, lastDayOfLastMonth);
             
             double userGrowthPercent = 0.0;
             if (usersLastMonth > 0) {
@@ -865,17 +798,10 @@ public class AdminRestController {
             }
             
             // Tính phần trăm tăng trưởng lịch hẹn (so sánh tháng này với tháng trước)
-            long appointmentsThisMonth = appointmentRepository.findAll().stream()
-                    .filter(apt -> apt.getAppointmentDate() != null &&
-                            !apt.getAppointmentDate().isBefore(firstDayOfThisMonth) &&
-                            !apt.getAppointmentDate().isAfter(today))
-                    .count();
-            
-            long appointmentsLastMonth = appointmentRepository.findAll().stream()
-                    .filter(apt -> apt.getAppointmentDate() != null &&
-                            !apt.getAppointmentDate().isBefore(firstDayOfLastMonth) &&
-                            !apt.getAppointmentDate().isAfter(lastDayOfLastMonth))
-                    .count();
+            long appointmentsThisMonth = dashboardStatisticsService.getCountBetween(
+                    StatisticMetric.APPOINTMENTS, firstDayOfThisMonth, today);
+            long appointmentsLastMonth = dashboardStatisticsService.getCountBetween(
+                    StatisticMetric.APPOINTMENTS, firstDayOfLastMonth, lastDayOfLastMonth);
             
             double appointmentGrowthPercent = 0.0;
             if (appointmentsLastMonth > 0) {
@@ -884,12 +810,9 @@ public class AdminRestController {
                 appointmentGrowthPercent = 100.0; // Nếu tháng trước = 0 và tháng này > 0
             }
             
-            // Đếm số tỉnh thành unique từ địa chỉ trung tâm
-            // Giả sử địa chỉ có format: "Số nhà, Đường, Phường/Xã, Quận/Huyện, Tỉnh/TP"
-            // Hoặc đơn giản là đếm số trung tâm active
-            long activeCenters = vaccinationCenterRepository.findAll().stream()
-                    .filter(c -> c.getStatus() == ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus.ACTIVE)
-                    .count();
+            // Đếm số trung tâm đang hoạt động
+            long activeCenters = vaccinationCenterRepository.countByStatus(
+                    ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus.ACTIVE);
             
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalUsers", totalUsers);
@@ -1058,10 +981,11 @@ public class AdminRestController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            userService.deleteUserByAdmin(id);
+            Map<String, Long> deleted = userService.deleteUserByAdmin(id);
             
-            Map<String, String> result = new HashMap<>();
+            Map<String, Object> result = new HashMap<>();
             result.put("message", "User deleted successfully");
+            result.put("deleted", deleted);
             
             return ResponseEntity.ok(result);
         } catch (RuntimeException e) {
@@ -1075,6 +999,85 @@ public class AdminRestController {
         }
     }
     
+    /**
+     * POST /api/admin/maintenance/cleanup-inactive-users?dryRun=true
+     * Dọn dẹp user INACTIVE quá 30 ngày (theo lô, như job 2 giờ sáng)
+     * dryRun = true (mặc định): chỉ trả về số user và số bản ghi liên quan sẽ bị xóa
+     */
+    @PostMapping("/maintenance/cleanup-inactive-users")
+    public ResponseEntity<?> cleanupInactiveUsers(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
+            
+            Map<String, Object> result = cleanupService.cleanupInactiveUsers(dryRun);
+            if (Boolean.TRUE.equals(result.get("skipped"))) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * POST /api/admin/appointment-slots/generate
+     * Tạo slot hàng loạt từ giờ làm việc của trung tâm
+     * Body: { "centerIds": [1, 2] (để trống = tất cả trung tâm ACTIVE), "startDate": "2026-11-01",
+     *         "endDate": "2027-01-31", "slotMinutes": 30, "maxCapacity": 10 }
+     * Slot trùng với slot đã có của trung tâm trong cùng ngày được bỏ qua
+     */
+    @PostMapping("/appointment-slots/generate")
+    public ResponseEntity<?> generateAppointmentSlots(@RequestBody SlotGenerationDTO dto) {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
+            
+            Map<String, Object> result = slotGenerationService.generate(dto);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * POST /api/admin/vaccine-incompatibilities/reload
+     * Đọc lại ma trận vaccine không tương thích dùng khi kiểm tra đặt lịch
+     * Gọi sau khi sửa bảng vaccine_incompatibility (nếu không, ma trận tự đọc lại sau tối đa 10 phút)
+     */
+    @PostMapping("/vaccine-incompatibilities/reload")
+    public ResponseEntity<?> reloadVaccineIncompatibilities() {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
+            
+            int pairCount = vaccineIncompatibilityCacheService.reload();
+            Map<String, Object> result = new HashMap<>();
+            result.put("pairCount", pairCount);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     /**
      * PUT /api/admin/appointments/{id}/status
      * Cập nhật trạng thái appointment (cho admin)
@@ -1139,20 +1142,12 @@ public class AdminRestController {
             appointment.setStatus(newStatus);
             appointment.setUpdatedAt(java.time.LocalDateTime.now());
             appointmentRepository.save(appointment);
+            dashboardStatisticsService.recordAppointmentStatusChanged(appointment, oldStatus);
+            patientTimelineService.appointmentChanged(appointment);
             
             // Nếu chuyển sang CANCELLED, rollback slot booking count
             if (newStatus == AppointmentStatus.CANCELLED && oldStatus != AppointmentStatus.CANCELLED) {
-                AppointmentSlot slot = appointment.getSlot();
-                if (slot != null) {
-                    int currentBookings = slot.getCurrentBookings();
-                    if (currentBookings > 0) {
-                        slot.setCurrentBookings(currentBookings - 1);
-                    }
-                    if (!slot.getIsAvailable() && slot.getCurrentBookings() < slot.getMaxCapacity()) {
-                        slot.setIsAvailable(true);
-                    }
-                    appointmentSlotRepository.save(slot);
-                }
+                slotReservationService.release(appointment.getSlot());
             }
             
             Map<String, Object> response = new HashMap<>();
@@ -1205,25 +1200,19 @@ public class AdminRestController {
             }
             
             // Rollback slot booking count
-            AppointmentSlot slot = appointment.getSlot();
-            if (slot != null) {
-                int currentBookings = slot.getCurrentBookings();
-                if (currentBookings > 0) {
-                    slot.setCurrentBookings(currentBookings - 1);
-                }
-                if (!slot.getIsAvailable() && slot.getCurrentBookings() < slot.getMaxCapacity()) {
-                    slot.setIsAvailable(true);
-                }
-                appointmentSlotRepository.save(slot);
-            }
+            slotReservationService.release(appointment.getSlot());
             
             // Xóa payment nếu có
             if (appointment.getPayment() != null) {
+                dashboardStatisticsService.recordPaymentDeleted(appointment.getPayment());
                 paymentRepository.delete(appointment.getPayment());
             }
             
             // Xóa appointment
             appointmentRepository.delete(appointment);
+            dashboardStatisticsService.recordAppointmentDeleted(appointment);
+            appointmentSearchIndexService.remove(appointment.getId());
+            patientTimelineService.appointmentChanged(appointment);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Appointment deleted successfully");
@@ -1371,19 +1360,20 @@ public class AdminRestController {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<Notification> allNotifications = notificationRepository.findAll();
-            
-            long totalNotifications = allNotifications.size();
-            long readCount = allNotifications.stream().filter(n -> n.getIsRead() != null && n.getIsRead()).count();
+            // Đọc từ bộ đếm theo ngày thay vì load toàn bộ bảng notifications
+            long[] totals = notificationCounterService.getTotals();
+            long totalNotifications = totals[0];
+            long readCount = totals[1];
             long unreadCount = totalNotifications - readCount;
             double readRate = totalNotifications > 0 ? (double) readCount / totalNotifications * 100 : 0;
             
-            // Tính toán thay đổi so với tháng trước (tạm thời dùng dữ liệu hiện tại)
-            // TODO: Có thể cải thiện bằng cách so sánh với dữ liệu tháng trước
-            long lastMonthTotal = totalNotifications; // Placeholder
-            double totalChange = lastMonthTotal > 0 ? ((double)(totalNotifications - lastMonthTotal) / lastMonthTotal) * 100 : 0;
-            double readChange = readCount > 0 ? 5.2 : 0; // Placeholder
-            double unreadChange = unreadCount > 0 ? -2.1 : 0; // Placeholder
+            // Thay đổi của tháng này so với tháng trước (theo ngày tạo thông báo)
+            LocalDate thisMonthStart = LocalDate.now().withDayOfMonth(1);
+            long[] thisMonth = notificationCounterService.getTotalsBetween(thisMonthStart, LocalDate.now());
+            long[] lastMonth = notificationCounterService.getTotalsBetween(thisMonthStart.minusMonths(1), thisMonthStart.minusDays(1));
+            double totalChange = percentChange(thisMonth[0], lastMonth[0]);
+            double readChange = percentChange(thisMonth[1], lastMonth[1]);
+            double unreadChange = percentChange(thisMonth[0] - thisMonth[1], lastMonth[0] - lastMonth[1]);
             
             Map<String, Object> stats = new HashMap<>();
             stats.put("total", totalNotifications);
@@ -1391,8 +1381,8 @@ public class AdminRestController {
             stats.put("unread", unreadCount);
             stats.put("readRate", Math.round(readRate * 10.0) / 10.0);
             stats.put("totalChange", Math.round(totalChange * 10.0) / 10.0);
-            stats.put("readChange", readChange);
-            stats.put("unreadChange", unreadChange);
+            stats.put("readChange", Math.round(readChange * 10.0) / 10.0);
+            stats.put("unreadChange", Math.round(unreadChange * 10.0) / 10.0);
             
             return ResponseEntity.ok(stats);
         } catch (RuntimeException e) {
@@ -1419,18 +1409,8 @@ public class AdminRestController {
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days - 1);
             
-            List<Notification> notifications = notificationRepository.findAll().stream()
-                    .filter(n -> n.getCreatedAt() != null && 
-                            n.getCreatedAt().toLocalDate().isAfter(startDate.minusDays(1)) &&
-                            n.getCreatedAt().toLocalDate().isBefore(endDate.plusDays(1)))
-                    .collect(Collectors.toList());
-            
-            // Nhóm theo ngày
-            Map<LocalDate, Long> dailyCounts = notifications.stream()
-                    .collect(Collectors.groupingBy(
-                            n -> n.getCreatedAt().toLocalDate(),
-                            Collectors.counting()
-                    ));
+            // Số thông báo theo ngày lấy từ bộ đếm
+            Map<LocalDate, Long> dailyCounts = notificationCounterService.getDailyCreated(startDate, endDate);
             
             // Tạo mảng cho 7 ngày
             List<Map<String, Object>> trend = new java.util.ArrayList<>();
@@ -1465,15 +1445,9 @@ public class AdminRestController {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<Notification> allNotifications = notificationRepository.findAll();
-            long total = allNotifications.size();
-            
-            // Phân loại theo type
-            Map<String, Long> typeCounts = allNotifications.stream()
-                    .collect(Collectors.groupingBy(
-                            n -> n.getType() != null ? n.getType().name() : "UNKNOWN",
-                            Collectors.counting()
-                    ));
+            // Phân loại theo type từ bộ đếm
+            Map<String, Long> typeCounts = notificationCounterService.getCreatedByType();
+            long total = typeCounts.values().stream().mapToLong(Long::longValue).sum();
             
             // Tính phần trăm
             Map<String, Object> classification = new HashMap<>();
@@ -1503,74 +1477,24 @@ public class AdminRestController {
     
     /**
      * GET /api/admin/notifications
-     * Lấy danh sách tất cả notifications (cho admin)
+     * Lấy danh sách notifications (cho admin), mới nhất trước
+     * Query params: search, page + size (phân trang theo số trang), hoặc cursor (nextCursor của trang trước)
      */
     @GetMapping("/notifications")
     public ResponseEntity<?> getAllNotifications(
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "10") int size) {
         try {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            List<Notification> notifications = notificationRepository.findAll();
-            
-            // Filter theo search
-            if (search != null && !search.trim().isEmpty()) {
-                String searchLower = search.toLowerCase();
-                notifications = notifications.stream()
-                        .filter(n -> (n.getTitle() != null && n.getTitle().toLowerCase().contains(searchLower)) ||
-                                   (n.getUser() != null && n.getUser().getFullName() != null && 
-                                    n.getUser().getFullName().toLowerCase().contains(searchLower)) ||
-                                   (n.getUser() != null && n.getUser().getEmail() != null && 
-                                    n.getUser().getEmail().toLowerCase().contains(searchLower)))
-                        .collect(Collectors.toList());
-            }
-            
-            // Sắp xếp theo thời gian tạo giảm dần
-            notifications = notifications.stream()
-                    .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                    .collect(Collectors.toList());
-            
-            // Pagination
-            int total = notifications.size();
-            int start = page * size;
-            int end = Math.min(start + size, total);
-            List<Notification> pageNotifications = start < total ? notifications.subList(start, end) : new java.util.ArrayList<>();
-            
-            List<Map<String, Object>> result = pageNotifications.stream().map(n -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", n.getId());
-                map.put("title", n.getTitle());
-                map.put("content", n.getContent());
-                map.put("type", n.getType() != null ? n.getType().name() : "UNKNOWN");
-                map.put("status", n.getStatus() != null ? n.getStatus().name() : "UNKNOWN");
-                map.put("isRead", n.getIsRead() != null ? n.getIsRead() : false);
-                map.put("createdAt", n.getCreatedAt());
-                map.put("sentAt", n.getSentAt());
-                
-                // Thông tin user
-                if (n.getUser() != null) {
-                    Map<String, Object> userInfo = new HashMap<>();
-                    userInfo.put("id", n.getUser().getId());
-                    userInfo.put("fullName", n.getUser().getFullName());
-                    userInfo.put("email", n.getUser().getEmail());
-                    userInfo.put("phoneNumber", n.getUser().getPhoneNumber());
-                    map.put("user", userInfo);
-                }
-                
-                return map;
-            }).collect(Collectors.toList());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("notifications", result);
-            response.put("total", total);
-            response.put("page", page);
-            response.put("size", size);
-            response.put("totalPages", (int) Math.ceil((double) total / size));
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(adminListingService.listNotifications(search, cursor, page, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -1818,8 +1742,8 @@ public class AdminRestController {
     
     /**
      * GET /api/admin/dashboard/inventory-alerts
-     * Lấy cảnh báo tồn kho (vaccine sắp hết hoặc hết hàng)
-     * Kiểm tra tất cả vaccine, tính tổng stock từ CenterVaccine (ưu tiên trung tâm tổng) và VaccineLot
+     * Lấy cảnh báo tồn kho từ bảng tồn kho trong bộ nhớ (InventoryPositionService)
+     * status: OUT_OF_STOCK/LOW_STOCK theo tồn kho của từng (trung tâm, vaccine), EXPIRING_SOON theo lô của vaccine
      */
     @GetMapping("/dashboard/inventory-alerts")
     public ResponseEntity<?> getInventoryAlerts(@RequestParam(defaultValue = "10") int limit) {
@@ -1827,102 +1751,54 @@ public class AdminRestController {
             User currentUser = getCurrentUser();
             checkAdminPermission(currentUser);
             
-            LocalDate today = LocalDate.now();
+            List<Map<String, Object>> alerts = inventoryPositionService.getAlerts(limit);
             
-            // Lấy trung tâm tổng (centerId = 1) để ưu tiên kiểm tra
-            ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter tempMainCenter = vaccinationCenterRepository.findById(1L).orElse(null);
-            if (tempMainCenter == null) {
-                // Nếu không có centerId = 1, lấy trung tâm đầu tiên
-                List<ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter> centers = vaccinationCenterRepository.findAll();
-                if (!centers.isEmpty()) {
-                    tempMainCenter = centers.get(0);
-                }
-            }
+            return ResponseEntity.ok(alerts);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/admin/dashboard/inventory-alerts/feed?since={version}
+     * Các thay đổi cảnh báo tồn kho sau số thứ tự since (version của lần hỏi trước, 0 = từ đầu)
+     * Response: version, resync (true = cần tải lại toàn bộ cảnh báo), events [{sequence, type, occurredAt, alert}]
+     */
+    @GetMapping("/dashboard/inventory-alerts/feed")
+    public ResponseEntity<?> getInventoryAlertFeed(@RequestParam(defaultValue = "0") long since) {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
             
-            // Tạo biến final để sử dụng trong lambda
-            final ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter mainCenter = tempMainCenter;
-            
-            // Lấy tất cả vaccine
-            List<Vaccine> allVaccines = vaccineRepository.findAll();
-            
-            // Tính tổng stock cho mỗi vaccine và tạo cảnh báo
-            List<Map<String, Object>> alerts = allVaccines.stream()
-                    .map(vaccine -> {
-                        // Tính tổng số lượng từ VaccineLot (chỉ tính AVAILABLE, chưa hết hạn, còn hàng)
-                        int totalStockFromLots = vaccineLotRepository.findByVaccineId(vaccine.getId())
-                                .stream()
-                                .filter(lot -> lot.getStatus() == ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus.AVAILABLE)
-                                .filter(lot -> lot.getRemainingQuantity() != null && lot.getRemainingQuantity() > 0)
-                                .filter(lot -> lot.getExpiryDate() != null && lot.getExpiryDate().isAfter(today))
-                                .mapToInt(lot -> lot.getRemainingQuantity() != null ? lot.getRemainingQuantity() : 0)
-                                .sum();
-                        
-                        // Lấy stock từ CenterVaccine (ưu tiên trung tâm tổng)
-                        int stockFromCenterVaccine = 0;
-                        VaccinationCenter centerForAlert = null;
-                        
-                        if (mainCenter != null) {
-                            Optional<CenterVaccine> mainCenterVaccine = centerVaccineRepository.findByCenterAndVaccine(mainCenter, vaccine);
-                            if (mainCenterVaccine.isPresent()) {
-                                stockFromCenterVaccine = mainCenterVaccine.get().getStockQuantity() != null 
-                                    ? mainCenterVaccine.get().getStockQuantity() 
-                                    : 0;
-                                centerForAlert = mainCenter;
-                            }
-                        }
-                        
-                        // Nếu không có ở trung tâm tổng, tìm ở các trung tâm khác
-                        if (centerForAlert == null) {
-                            List<CenterVaccine> otherCenterVaccines = centerVaccineRepository.findByVaccineId(vaccine.getId());
-                            if (!otherCenterVaccines.isEmpty()) {
-                                CenterVaccine firstCV = otherCenterVaccines.get(0);
-                                stockFromCenterVaccine = firstCV.getStockQuantity() != null ? firstCV.getStockQuantity() : 0;
-                                centerForAlert = firstCV.getCenter();
-                            }
-                        }
-                        
-                        // Ưu tiên dùng stockQuantity từ CenterVaccine, nếu không có thì dùng tổng từ lots
-                        int actualStock = stockFromCenterVaccine > 0 ? stockFromCenterVaccine : totalStockFromLots;
-                        
-                        Map<String, Object> alert = new HashMap<>();
-                        alert.put("vaccineId", vaccine.getId());
-                        alert.put("vaccineName", vaccine.getName());
-                        if (centerForAlert != null) {
-                            alert.put("centerId", centerForAlert.getId());
-                            alert.put("centerName", centerForAlert.getName());
-                        } else {
-                            alert.put("centerId", null);
-                            alert.put("centerName", "Chưa gán trung tâm");
-                        }
-                        alert.put("stockQuantity", actualStock);
-                        alert.put("status", actualStock == 0 ? "OUT_OF_STOCK" : (actualStock <= 50 ? "LOW_STOCK" : null));
-                        
-                        return alert;
-                    })
-                    .filter(alert -> {
-                        // Chỉ lấy các vaccine có status là OUT_OF_STOCK hoặc LOW_STOCK
-                        String status = (String) alert.get("status");
-                        return status != null;
-                    })
-                    .sorted((a, b) -> {
-                        // Sắp xếp: OUT_OF_STOCK trước, sau đó LOW_STOCK, sắp xếp theo stockQuantity tăng dần
-                        String statusA = (String) a.get("status");
-                        String statusB = (String) b.get("status");
-                        int stockA = (Integer) a.get("stockQuantity");
-                        int stockB = (Integer) b.get("stockQuantity");
-                        
-                        if ("OUT_OF_STOCK".equals(statusA) && !"OUT_OF_STOCK".equals(statusB)) {
-                            return -1;
-                        }
-                        if (!"OUT_OF_STOCK".equals(statusA) && "OUT_OF_STOCK".equals(statusB)) {
-                            return 1;
-                        }
-                        return Integer.compare(stockA, stockB);
-                    })
-                    .limit(limit)
-                    .collect(Collectors.toList());
+            return ResponseEntity.ok(inventoryPositionService.getAlertFeed(since));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/admin/sms-outbox/metrics
+     * Số liệu hàng đợi gửi SMS: số tin theo trạng thái, số tin đang gửi, bộ đếm gửi/gửi lại/thất bại và độ trễ gửi
+     */
+    @GetMapping("/sms-outbox/metrics")
+    public ResponseEntity<?> getSmsOutboxMetrics() {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
             
-            return ResponseEntity.ok(alerts);
+            return ResponseEntity.ok(smsOutboxService.getMetrics());
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -1934,4 +1810,3 @@ public class AdminRestController {
         }
     }
 }
-
@@ -14,15 +14,17 @@ import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
 import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionRepository;
 import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.service.AdminListingService;
+import ut.edu.vaccinationmanagementsystem.service.AdverseReactionCounterService;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/adverse-reactions")
@@ -40,15 +42,29 @@ public class AdverseReactionController {
     @Autowired
     private ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository staffInfoRepository;
     
+    @Autowired
+    private AdminListingService adminListingService;
+    
+    @Autowired
+    private AdverseReactionCounterService adverseReactionCounterService;
+    
     /**
      * GET /api/adverse-reactions
-     * Lấy danh sách tất cả phản ứng phụ (cho Admin, Doctor, Nurse)
+     * Lấy danh sách phản ứng phụ có phân trang (cho Admin, Doctor, Nurse)
+     * Lọc, tìm kiếm (tên người tiêm, tên vaccine) và phân trang đều chạy trong database
+     * Doctor/Nurse chỉ xem phản ứng tại trung tâm của mình; Admin có thể lọc theo centerId
      */
     @GetMapping
     public ResponseEntity<?> getAllAdverseReactions(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String reactionType,
-            @RequestParam(required = false) Boolean resolved) {
+            @RequestParam(required = false) Boolean resolved,
+            @RequestParam(required = false) Long centerId,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
             User currentUser = getCurrentUser();
             if (currentUser == null) {
@@ -64,124 +80,56 @@ public class AdverseReactionController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            // Sử dụng query với JOIN FETCH để load tất cả relationships
-            List<AdverseReaction> reactions = adverseReactionRepository.findAllWithRelationships();
-            
-            // Lọc theo trung tâm (ngoại trừ ADMIN)
-            if (currentUser.getRole() != Role.ADMIN) {
-                ut.edu.vaccinationmanagementsystem.entity.StaffInfo staffInfo = staffInfoRepository.findByUser(currentUser).orElse(null);
-                if (staffInfo != null && staffInfo.getCenter() != null) {
-                    Long centerId = staffInfo.getCenter().getId();
-                    reactions = reactions.stream()
-                        .filter(ar -> ar.getVaccinationRecord() != null && 
-                                     ar.getVaccinationRecord().getAppointment() != null && 
-                                     ar.getVaccinationRecord().getAppointment().getCenter() != null && 
-                                     ar.getVaccinationRecord().getAppointment().getCenter().getId().equals(centerId))
-                        .collect(Collectors.toList());
-                }
-            }
-            
-            // Filter by resolved status
-            if (resolved != null) {
-                reactions = reactions.stream()
-                    .filter(ar -> ar.getResolved() == resolved)
-                    .collect(Collectors.toList());
-            }
-            
-            // Filter by reaction type
+            // Filter by reaction type (loại không hợp lệ thì bỏ qua bộ lọc)
+            ReactionType type = null;
             if (reactionType != null && !reactionType.trim().isEmpty()) {
                 try {
-                    ReactionType type = ReactionType.valueOf(reactionType.toUpperCase());
-                    reactions = reactions.stream()
-                        .filter(ar -> ar.getReactionType() == type)
-                        .collect(Collectors.toList());
+                    type = ReactionType.valueOf(reactionType.trim().toUpperCase());
                 } catch (IllegalArgumentException e) {
                     // Invalid reaction type, ignore filter
                 }
             }
             
-            // Filter by search (search in user name, vaccine name, symptoms)
-            if (search != null && !search.trim().isEmpty()) {
-                String searchLower = search.toLowerCase().trim();
-                reactions = reactions.stream()
-                    .filter(ar -> {
-                        if (ar.getVaccinationRecord() != null && ar.getVaccinationRecord().getUser() != null) {
-                            String userName = ar.getVaccinationRecord().getUser().getFullName();
-                            if (userName != null && userName.toLowerCase().contains(searchLower)) {
-                                return true;
-                            }
-                        }
-                        if (ar.getVaccinationRecord() != null && ar.getVaccinationRecord().getVaccine() != null) {
-                            String vaccineName = ar.getVaccinationRecord().getVaccine().getName();
-                            if (vaccineName != null && vaccineName.toLowerCase().contains(searchLower)) {
-                                return true;
-                            }
-                        }
-                        if (ar.getSymptoms() != null && ar.getSymptoms().toLowerCase().contains(searchLower)) {
-                            return true;
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toList());
+            LocalDate start = startDate != null && !startDate.trim().isEmpty() ? LocalDate.parse(startDate) : null;
+            LocalDate end = endDate != null && !endDate.trim().isEmpty() ? LocalDate.parse(endDate) : null;
+            
+            return ResponseEntity.ok(adminListingService.listAdverseReactions(
+                    resolveCenterScope(currentUser, centerId), resolved, type, start, end, search, cursor, page, size));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/adverse-reactions/summary
+     * Số phản ứng phụ (tổng, chưa xử lý, đã xử lý, mức độ nặng) từ bộ đếm theo trung tâm, không đếm bảng adverse_reactions
+     * Doctor/Nurse chỉ xem số liệu của trung tâm mình; Admin có thể chọn centerId
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<?> getAdverseReactionSummary(@RequestParam(required = false) Long centerId) {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
             
-            // Convert to response format
-            List<Map<String, Object>> result = reactions.stream().map(reaction -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", reaction.getId());
-                map.put("reactionType", reaction.getReactionType() != null ? reaction.getReactionType().name() : null);
-                map.put("symptoms", reaction.getSymptoms());
-                map.put("notes", reaction.getNotes());
-                map.put("treatment", reaction.getTreatment());
-                map.put("occurredAt", reaction.getOccurredAt());
-                map.put("resolved", reaction.getResolved() != null ? reaction.getResolved() : false);
-                
-                // User info - luôn thêm user info nếu có vaccinationRecord
-                if (reaction.getVaccinationRecord() != null) {
-                    map.put("vaccinationRecordId", reaction.getVaccinationRecord().getId());
-                    
-                    // User info
-                    if (reaction.getVaccinationRecord().getUser() != null) {
-                        User user = reaction.getVaccinationRecord().getUser();
-                        Map<String, Object> userInfo = new HashMap<>();
-                        userInfo.put("id", user.getId());
-                        userInfo.put("fullName", user.getFullName());
-                        userInfo.put("email", user.getEmail());
-                        map.put("user", userInfo);
-                    } else {
-                        // Nếu không có user, vẫn thêm null để frontend không bị lỗi
-                        map.put("user", null);
-                    }
-                    
-                    // Vaccine info
-                    if (reaction.getVaccinationRecord().getVaccine() != null) {
-                        Map<String, Object> vaccineInfo = new HashMap<>();
-                        vaccineInfo.put("id", reaction.getVaccinationRecord().getVaccine().getId());
-                        vaccineInfo.put("name", reaction.getVaccinationRecord().getVaccine().getName());
-                        map.put("vaccine", vaccineInfo);
-                    } else {
-                        // Nếu không có vaccine, vẫn thêm null
-                        map.put("vaccine", null);
-                    }
-                } else {
-                    // Nếu không có vaccinationRecord, vẫn thêm null để frontend không bị lỗi
-                    map.put("vaccinationRecordId", null);
-                    map.put("user", null);
-                    map.put("vaccine", null);
-                }
-                
-                // Handler info
-                if (reaction.getHandledBy() != null) {
-                    Map<String, Object> handlerInfo = new HashMap<>();
-                    handlerInfo.put("id", reaction.getHandledBy().getId());
-                    handlerInfo.put("fullName", reaction.getHandledBy().getFullName());
-                    map.put("handledBy", handlerInfo);
-                }
-                
-                return map;
-            }).collect(Collectors.toList());
+            // Kiểm tra quyền: ADMIN, DOCTOR, hoặc NURSE
+            if (currentUser.getRole() != Role.ADMIN && currentUser.getRole() != Role.DOCTOR && currentUser.getRole() != Role.NURSE) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
             
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(adverseReactionCounterService.getSummary(resolveCenterScope(currentUser, centerId)));
         } catch (Exception e) {
             e.printStackTrace();
             Map<String, String> error = new HashMap<>();
@@ -395,6 +343,7 @@ public class AdverseReactionController {
             reaction.setHandledBy(null); // Chưa có người xử lý
             
             AdverseReaction savedReaction = adverseReactionRepository.save(reaction);
+            adverseReactionCounterService.recordCreated(savedReaction);
             
             // Return response
             Map<String, Object> response = new HashMap<>();
@@ -465,6 +414,9 @@ public class AdverseReactionController {
                 }
             }
             
+            // Đánh dấu đã xử lý (giảm số chưa xử lý của trung tâm nếu đây là lần đánh dấu đầu tiên)
+            adverseReactionCounterService.markResolved(reaction);
+            
             // Cập nhật
             reaction.setResolved(true);
             reaction.setHandledBy(currentUser);
@@ -502,6 +454,21 @@ public class AdverseReactionController {
         }
     }
     
+    /**
+     * Trung tâm được xem phản ứng phụ: Admin xem trung tâm yêu cầu (null = tất cả),
+     * Doctor/Nurse chỉ xem trung tâm của mình (tất cả nếu chưa được gán trung tâm)
+     */
+    private Long resolveCenterScope(User currentUser, Long requestedCenterId) {
+        if (currentUser.getRole() == Role.ADMIN) {
+            return requestedCenterId;
+        }
+        ut.edu.vaccinationmanagementsystem.entity.StaffInfo staffInfo = staffInfoRepository.findByUser(currentUser).orElse(null);
+        if (staffInfo != null && staffInfo.getCenter() != null) {
+            return staffInfo.getCenter().getId();
+        }
+        return null;
+    }
+    
     /**
      * Lấy current user từ SecurityContext
      */
@@ -17,6 +17,7 @@ import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.service.AppointmentService;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
@@ -38,12 +39,24 @@ public class AppointmentController {
     @Autowired
     private AppointmentRepository appointmentRepository;
     
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     @Autowired
     private ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository staffInfoRepository;
     
     @Autowired
     private ut.edu.vaccinationmanagementsystem.service.PaymentService paymentService;
     
+    @Autowired
+    private ut.edu.vaccinationmanagementsystem.service.AppointmentReminderService appointmentReminderService;
+    
+    @Autowired
+    private ut.edu.vaccinationmanagementsystem.service.AppointmentSearchIndexService appointmentSearchIndexService;
+    
+    @Autowired
+    private ut.edu.vaccinationmanagementsystem.service.StaffActivityService staffActivityService;
+    
     /**
      * POST /api/appointments/consultation-request
      * Tạo yêu cầu tư vấn (hỗ trợ cả user đã đăng nhập và guest)
@@ -608,6 +621,9 @@ public class AppointmentController {
             
             appointment.setStatus(AppointmentStatus.CONFIRMED);
             appointmentRepository.save(appointment);
+            staffActivityService.recordReception(appointment, AppointmentStatus.PENDING, currentUser);
+            appointmentReminderService.scheduleReminders(appointment);
+            patientTimelineService.appointmentChanged(appointment);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Appointment confirmed successfully");
@@ -667,6 +683,8 @@ public class AppointmentController {
             
             appointment.setStatus(AppointmentStatus.CANCELLED);
             appointmentRepository.save(appointment);
+            appointmentReminderService.cancelReminders(appointment.getId());
+            patientTimelineService.appointmentChanged(appointment);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Appointment cancelled successfully");
@@ -745,8 +763,11 @@ public class AppointmentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
+            AppointmentStatus oldStatus = appointment.getStatus();
             appointment.setStatus(AppointmentStatus.CHECKED_IN);
             appointmentRepository.save(appointment);
+            staffActivityService.recordReception(appointment, oldStatus, currentUser);
+            patientTimelineService.appointmentChanged(appointment);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Check-in thành công");
@@ -772,6 +793,7 @@ public class AppointmentController {
      * GET /api/appointments/search
      * Tìm kiếm appointment theo số điện thoại hoặc booking code (cho Receptionist)
      * Query params: phone (optional), bookingCode (optional)
+     * So khớp theo tiền tố hoặc hậu tố (ví dụ: 4 số cuối điện thoại) qua bảng tra cứu appointment_search_keys
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchAppointments(
@@ -785,48 +807,19 @@ public class AppointmentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            List<Appointment> allAppointments = appointmentRepository.findAll();
-            List<Appointment> appointments = allAppointments;
-            
-            if (phone != null && !phone.trim().isEmpty()) {
-                final String phoneFilter = phone.trim();
-                appointments = allAppointments.stream()
-                        .filter(apt -> {
-                            if (apt.getBookedForUser() != null && apt.getBookedForUser().getPhoneNumber() != null) {
-                                return apt.getBookedForUser().getPhoneNumber().contains(phoneFilter);
-                            }
-                            if (apt.getFamilyMember() != null && apt.getFamilyMember().getPhoneNumber() != null) {
-                                return apt.getFamilyMember().getPhoneNumber().contains(phoneFilter);
-                            }
-                            if (apt.getConsultationPhone() != null) {
-                                return apt.getConsultationPhone().contains(phoneFilter);
-                            }
-                            return false;
-                        })
-                        .collect(Collectors.toList());
-            }
-            
-            if (bookingCode != null && !bookingCode.trim().isEmpty()) {
-                final String codeFilter = bookingCode.trim().toUpperCase();
-                final List<Appointment> phoneFilteredAppointments = appointments;
-                appointments = phoneFilteredAppointments.stream()
-                        .filter(apt -> apt.getBookingCode() != null && apt.getBookingCode().toUpperCase().contains(codeFilter))
-                        .collect(Collectors.toList());
-            }
-            
             // Lọc theo trung tâm (ngoại trừ ADMIN)
+            Long centerId = null;
             Authentication authSearch = SecurityContextHolder.getContext().getAuthentication();
             User currentUserSearch = getCurrentUserFromAuth(authSearch);
             if (currentUserSearch != null && currentUserSearch.getRole() != ut.edu.vaccinationmanagementsystem.entity.enums.Role.ADMIN) {
                 ut.edu.vaccinationmanagementsystem.entity.StaffInfo staffInfo = staffInfoRepository.findByUser(currentUserSearch).orElse(null);
                 if (staffInfo != null && staffInfo.getCenter() != null) {
-                    Long centerId = staffInfo.getCenter().getId();
-                    appointments = appointments.stream()
-                            .filter(apt -> apt.getCenter() != null && apt.getCenter().getId().equals(centerId))
-                            .collect(Collectors.toList());
+                    centerId = staffInfo.getCenter().getId();
                 }
             }
             
+            List<Appointment> appointments = appointmentSearchIndexService.search(phone, bookingCode, centerId);
+            
             // Convert to Map để tránh circular reference khi serialize JSON
             List<Map<String, Object>> appointmentDTOs = appointments.stream().map(apt -> {
                 Map<String, Object> dto = new HashMap<>();
@@ -6,6 +6,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ut.edu.vaccinationmanagementsystem.dto.AppointmentSlotDTO;
+import ut.edu.vaccinationmanagementsystem.dto.AvailableSlotDTO;
+import ut.edu.vaccinationmanagementsystem.dto.SlotAvailabilityDayDTO;
 import ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot;
 import ut.edu.vaccinationmanagementsystem.service.AppointmentSlotService;
 
@@ -91,9 +93,9 @@ public class AppointmentSlotController {
      * Xem danh sách slot trống (tất cả)
      */
     @GetMapping("/available")
-    public ResponseEntity<List<AppointmentSlot>> getAvailableSlots() {
+    public ResponseEntity<List<AvailableSlotDTO>> getAvailableSlots() {
         try {
-            List<AppointmentSlot> slots = appointmentSlotService.getAvailableSlots();
+            List<AvailableSlotDTO> slots = appointmentSlotService.getAvailableSlots();
             return ResponseEntity.ok(slots);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -105,9 +107,9 @@ public class AppointmentSlotController {
      * Xem danh sách slot trống theo center ID
      */
     @GetMapping("/available/center/{centerId}")
-    public ResponseEntity<List<AppointmentSlot>> getAvailableSlotsByCenter(@PathVariable Long centerId) {
+    public ResponseEntity<List<AvailableSlotDTO>> getAvailableSlotsByCenter(@PathVariable Long centerId) {
         try {
-            List<AppointmentSlot> slots = appointmentSlotService.getAvailableSlotsByCenter(centerId);
+            List<AvailableSlotDTO> slots = appointmentSlotService.getAvailableSlotsByCenter(centerId);
             return ResponseEntity.ok(slots);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -119,11 +121,11 @@ public class AppointmentSlotController {
      * Xem danh sách slot trống theo center ID và ngày
      */
     @GetMapping("/available/center/{centerId}/date/{date}")
-    public ResponseEntity<List<AppointmentSlot>> getAvailableSlotsByCenterAndDate(
+    public ResponseEntity<List<AvailableSlotDTO>> getAvailableSlotsByCenterAndDate(
             @PathVariable Long centerId,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         try {
-            List<AppointmentSlot> slots = appointmentSlotService.getAvailableSlotsByCenterAndDate(centerId, date);
+            List<AvailableSlotDTO> slots = appointmentSlotService.getAvailableSlotsByCenterAndDate(centerId, date);
             return ResponseEntity.ok(slots);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -140,7 +142,7 @@ public class AppointmentSlotController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
-            List<AppointmentSlot> slots = appointmentSlotService.getAvailableSlotsByDateRange(
+            List<AvailableSlotDTO> slots = appointmentSlotService.getAvailableSlotsByDateRange(
                     centerId, startDate, endDate);
             return ResponseEntity.ok(slots);
         } catch (RuntimeException e) {
@@ -155,6 +157,29 @@ public class AppointmentSlotController {
         }
     }
     
+    /**
+     * GET /api/appointment-slots/available/center/{centerId}/heatmap?startDate={startDate}&endDate={endDate}
+     * Lịch chỗ trống theo từng ngày (ví dụ cả tháng) trong một lần gọi: số slot, số slot còn chỗ, tổng chỗ còn lại
+     */
+    @GetMapping("/available/center/{centerId}/heatmap")
+    public ResponseEntity<?> getAvailabilityHeatmap(
+            @PathVariable Long centerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            List<SlotAvailabilityDayDTO> days = appointmentSlotService.getAvailabilityHeatmap(centerId, startDate, endDate);
+            return ResponseEntity.ok(days);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     /**
      * GET /api/appointment-slots/available/center/{centerId}/date/{date}/time-range?startTime={startTime}&endTime={endTime}
      * Xem danh sách slot trống theo center, ngày và khoảng thời gian
@@ -166,7 +191,7 @@ public class AppointmentSlotController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime) {
         try {
-            List<AppointmentSlot> slots = appointmentSlotService.getAvailableSlotsByCenterDateAndTimeRange(
+            List<AvailableSlotDTO> slots = appointmentSlotService.getAvailableSlotsByCenterDateAndTimeRange(
                     centerId, date, startTime, endTime);
             return ResponseEntity.ok(slots);
         } catch (RuntimeException e) {
@@ -8,29 +8,25 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
+import org.springframework.http.CacheControl;
 import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
-
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.dto.PatientTimelineDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineAppointmentDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineDoseDTO;
 import ut.edu.vaccinationmanagementsystem.entity.Payment;
 import ut.edu.vaccinationmanagementsystem.entity.User;
-import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
 import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
 import ut.edu.vaccinationmanagementsystem.repository.AppointmentSlotRepository;
 import ut.edu.vaccinationmanagementsystem.repository.FamilyMemberRepository;
@@ -39,12 +35,16 @@ import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.DashboardStatisticsService;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
+import ut.edu.vaccinationmanagementsystem.service.QrCodeService;
 
 import java.math.BigDecimal;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -68,6 +68,15 @@ public class DashboardController {
     
     @Autowired
     private AppointmentSlotRepository appointmentSlotRepository;
+    
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+    
+    @Autowired
+    private QrCodeService qrCodeService;
+    
+    @Autowired
+    private PatientTimelineService patientTimelineService;
 
     /**
      * GET /api/dashboard/stats
@@ -93,46 +102,24 @@ public class DashboardController {
             
             LocalDate today = LocalDate.now();
             
-            // 1. Số lượng tiêm hôm nay
-            List<VaccinationRecord> todayInjections = vaccinationRecordRepository.findAll().stream()
-                    .filter(record -> record.getInjectionDate() != null && record.getInjectionDate().equals(today))
-                    .collect(Collectors.toList());
-            long todayInjectionCount = todayInjections.size();
+            // 1. Số lượng tiêm hôm nay (đọc từ bảng thống kê tổng hợp)
+            long todayInjectionCount = dashboardStatisticsService.getCountBetween(StatisticMetric.INJECTIONS, today, today);
             
-            // 2. Doanh thu
-            // Doanh thu hôm nay (từ payments đã thanh toán thành công)
-            BigDecimal todayRevenue = paymentRepository.findAll().stream()
-                    .filter(payment -> payment.getPaidAt() != null && 
-                            payment.getPaidAt().toLocalDate().equals(today) &&
-                            payment.getPaymentStatus() == PaymentStatus.PAID)
-                    .map(Payment::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            // 2. Doanh thu (từ payments đã thanh toán thành công)
+            BigDecimal todayRevenue = dashboardStatisticsService.getAmountBetween(StatisticMetric.REVENUE, today, today);
             
             // Doanh thu tháng này
             LocalDate firstDayOfMonth = today.withDayOfMonth(1);
-            BigDecimal monthlyRevenue = paymentRepository.findAll().stream()
-                    .filter(payment -> payment.getPaidAt() != null && 
-                            payment.getPaidAt().toLocalDate().isAfter(firstDayOfMonth.minusDays(1)) &&
-                            payment.getPaidAt().toLocalDate().isBefore(today.plusDays(1)) &&
-                            payment.getPaymentStatus() == PaymentStatus.PAID)
-                    .map(Payment::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal monthlyRevenue = dashboardStatisticsService.getAmountBetween(StatisticMetric.REVENUE, firstDayOfMonth, today);
             
             // Doanh thu tổng (tất cả payments đã thanh toán)
-            BigDecimal totalRevenue = paymentRepository.findAll().stream()
-                    .filter(payment -> payment.getPaymentStatus() == PaymentStatus.PAID)
-                    .map(Payment::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totalRevenue = dashboardStatisticsService.getTotalAmount(StatisticMetric.REVENUE);
             
-            // 3. Tỷ lệ sử dụng slots
-            List<ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot> allSlots = appointmentSlotRepository.findAll();
-            long totalSlots = allSlots.size();
-            long totalCapacity = allSlots.stream()
-                    .mapToInt(slot -> slot.getMaxCapacity() != null ? slot.getMaxCapacity() : 0)
-                    .sum();
-            long totalBookings = allSlots.stream()
-                    .mapToInt(slot -> slot.getCurrentBookings() != null ? slot.getCurrentBookings() : 0)
-                    .sum();
+            // 3. Tỷ lệ sử dụng slots (tính tổng bằng SQL, không load từng slot)
+            Object[] slotTotals = appointmentSlotRepository.sumCapacityAndBookings().get(0);
+            long totalSlots = ((Number) slotTotals[0]).longValue();
+            long totalCapacity = ((Number) slotTotals[1]).longValue();
+            long totalBookings = ((Number) slotTotals[2]).longValue();
             
             double slotUsageRate = 0.0;
             if (totalCapacity > 0) {
@@ -140,27 +127,21 @@ public class DashboardController {
             }
             
             // Tỷ lệ sử dụng slots hôm nay
-            List<ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot> todaySlots = allSlots.stream()
-                    .filter(slot -> slot.getDate() != null && slot.getDate().equals(today))
-                    .collect(Collectors.toList());
-            long todayTotalCapacity = todaySlots.stream()
-                    .mapToInt(slot -> slot.getMaxCapacity() != null ? slot.getMaxCapacity() : 0)
-                    .sum();
-            long todayTotalBookings = todaySlots.stream()
-                    .mapToInt(slot -> slot.getCurrentBookings() != null ? slot.getCurrentBookings() : 0)
-                    .sum();
+            Object[] todaySlotTotals = appointmentSlotRepository.sumCapacityAndBookingsByDate(today).get(0);
+            long todaySlotCount = ((Number) todaySlotTotals[0]).longValue();
+            long todayTotalCapacity = ((Number) todaySlotTotals[1]).longValue();
+            long todayTotalBookings = ((Number) todaySlotTotals[2]).longValue();
             double todaySlotUsageRate = 0.0;
             if (todayTotalCapacity > 0) {
                 todaySlotUsageRate = (double) todayTotalBookings / todayTotalCapacity * 100;
             }
             
             // Thống kê thêm
-            long totalAppointments = appointmentRepository.findAll().size();
-            long completedAppointments = appointmentRepository.findAll().stream()
-                    .filter(apt -> apt.getStatus() == AppointmentStatus.COMPLETED)
-                    .count();
-            long totalUsers = userRepository.findAll().size();
-            long totalVaccinationRecords = vaccinationRecordRepository.findAll().size();
+            long totalAppointments = dashboardStatisticsService.getTotalCount(StatisticMetric.APPOINTMENTS)
+                    + dashboardStatisticsService.getTotalCount(StatisticMetric.CONSULTATION_REQUESTS);
+            long completedAppointments = dashboardStatisticsService.getTotalCount(StatisticMetric.COMPLETED_APPOINTMENTS);
+            long totalUsers = dashboardStatisticsService.getTotalUserCount();
+            long totalVaccinationRecords = vaccinationRecordRepository.count();
             
             Map<String, Object> stats = new HashMap<>();
             
@@ -183,7 +164,7 @@ public class DashboardController {
             slotStats.put("totalCapacity", totalCapacity);
             slotStats.put("totalBookings", totalBookings);
             slotStats.put("usageRate", Math.round(slotUsageRate * 100.0) / 100.0);
-            slotStats.put("todaySlots", todaySlots.size());
+            slotStats.put("todaySlots", todaySlotCount);
             slotStats.put("todayCapacity", todayTotalCapacity);
             slotStats.put("todayBookings", todayTotalBookings);
             slotStats.put("todayUsageRate", Math.round(todaySlotUsageRate * 100.0) / 100.0);
@@ -217,43 +198,26 @@ public class DashboardController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy tất cả vaccination records của user
-            List<VaccinationRecord> records = vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(currentUser.getId());
+            // Dòng thời gian tiêm chủng của user (mũi đã tiêm, lịch hẹn)
+            PatientTimelineDTO timeline = patientTimelineService.getUserTimeline(currentUser.getId());
 
             // Lấy appointments sắp tới (chưa hoàn thành) - bao gồm cả appointments user đặt cho bản thân
-            List<Appointment> allUserAppointments = new ArrayList<>();
-            List<Appointment> bookedByUser = appointmentRepository.findByBookedByUserId(currentUser.getId());
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() == null)
-                    .forEach(allUserAppointments::add);
-            allUserAppointments.addAll(appointmentRepository.findByBookedForUserId(currentUser.getId()));
-            
-            List<Appointment> upcomingAppointments = allUserAppointments.stream()
-                    .filter(apt -> {
-                        AppointmentStatus status = apt.getStatus();
-                        return status == AppointmentStatus.PENDING ||
-                               status == AppointmentStatus.CONFIRMED ||
-                               status == AppointmentStatus.CHECKED_IN ||
-                               status == AppointmentStatus.SCREENING ||
-                               status == AppointmentStatus.APPROVED ||
-                               status == AppointmentStatus.INJECTING ||
-                               status == AppointmentStatus.MONITORING;
-                    })
+            long upcomingAppointmentsCount = timeline.getAppointments().stream()
+                    .filter(apt -> !apt.isBookedForOtherUser(currentUser.getId()))
+                    .filter(apt -> isUnfinished(apt.getStatus()))
                     .filter(apt -> apt.getAppointmentDate() != null && 
                             (apt.getAppointmentDate().isAfter(LocalDate.now()) || 
                              apt.getAppointmentDate().equals(LocalDate.now())))
-                    .sorted(Comparator.comparing(Appointment::getAppointmentDate)
-                            .thenComparing(Appointment::getAppointmentTime))
-                    .collect(Collectors.toList());
+                    .count();
 
             // Tính toán thống kê
-            long totalInjections = records.size();
+            long totalInjections = timeline.getDoses().size();
             long familyMembersCount = familyMemberRepository.countByUser(currentUser);
 
             Map<String, Object> statistics = new HashMap<>();
             statistics.put("totalInjections", totalInjections);
             statistics.put("familyMembersCount", familyMembersCount);
-            statistics.put("upcomingAppointmentsCount", upcomingAppointments.size());
+            statistics.put("upcomingAppointmentsCount", upcomingAppointmentsCount);
 
             return ResponseEntity.ok(statistics);
         } catch (Exception e) {
@@ -276,60 +240,20 @@ public class DashboardController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy appointments sắp tới: bao gồm cả appointments user đặt cho bản thân và cho người thân
-            List<Appointment> allUserAppointments = new ArrayList<>();
-            // Appointments user đặt cho bản thân (bookedForUser = null và bookedByUser = currentUser)
-            List<Appointment> bookedByUser = appointmentRepository.findByBookedByUserId(currentUser.getId());
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() == null)
-                    .forEach(allUserAppointments::add);
-            // Appointments user đặt cho người thân (bookedByUser = currentUser và bookedForUser != null)
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() != null)
-                    .forEach(allUserAppointments::add);
-            // Appointments đặt cho user (bookedForUser = currentUser)
-            allUserAppointments.addAll(appointmentRepository.findByBookedForUserId(currentUser.getId()));
-            
-            // Debug: Log số lượng appointments trước khi filter
-            System.out.println("Total appointments found: " + allUserAppointments.size());
+            // Lấy appointments sắp tới từ dòng thời gian tiêm chủng: gồm appointments user đặt cho bản thân,
+            // cho người thân và appointments đặt cho user (mỗi appointment một lần)
+            PatientTimelineDTO timeline = patientTimelineService.getUserTimeline(currentUser.getId());
             
-            List<Appointment> upcomingAppointments = allUserAppointments.stream()
-                    .filter(apt -> {
-                        AppointmentStatus status = apt.getStatus();
-                        // Bao gồm các status chưa hoàn thành
-                        boolean validStatus = status == AppointmentStatus.PENDING ||
-                               status == AppointmentStatus.CONFIRMED ||
-                               status == AppointmentStatus.CHECKED_IN ||
-                               status == AppointmentStatus.SCREENING ||
-                               status == AppointmentStatus.APPROVED ||
-                               status == AppointmentStatus.INJECTING ||
-                               status == AppointmentStatus.MONITORING;
-                        
-                        if (!validStatus) {
-                            System.out.println("Appointment " + apt.getBookingCode() + " filtered out due to status: " + status);
-                        }
-                        return validStatus;
-                    })
-                    .filter(apt -> {
-                        // Chấp nhận appointments có ngày >= hôm nay (tương lai hoặc hôm nay)
-                        boolean validDate = apt.getAppointmentDate() != null && 
+            List<TimelineAppointmentDTO> upcomingAppointments = timeline.getAppointments().stream()
+                    // Bao gồm các status chưa hoàn thành
+                    .filter(apt -> isUnfinished(apt.getStatus()))
+                    // Chấp nhận appointments có ngày >= hôm nay (tương lai hoặc hôm nay)
+                    .filter(apt -> apt.getAppointmentDate() != null && 
                             (apt.getAppointmentDate().isAfter(LocalDate.now()) || 
-                             apt.getAppointmentDate().equals(LocalDate.now()));
-                        
-                        if (!validDate && apt.getAppointmentDate() != null) {
-                            System.out.println("Appointment " + apt.getBookingCode() + " filtered out due to date: " + apt.getAppointmentDate() + " (today: " + LocalDate.now() + ")");
-                        } else if (apt.getAppointmentDate() == null) {
-                            System.out.println("Appointment " + apt.getBookingCode() + " filtered out due to null date");
-                        } else {
-                            System.out.println("Appointment " + apt.getBookingCode() + " passed date filter: " + apt.getAppointmentDate());
-                        }
-                        return validDate;
-                    })
-                    .sorted(Comparator.comparing(Appointment::getAppointmentDate)
-                            .thenComparing(Appointment::getAppointmentTime))
+                             apt.getAppointmentDate().equals(LocalDate.now())))
+                    .sorted(Comparator.comparing(TimelineAppointmentDTO::getAppointmentDate)
+                            .thenComparing(TimelineAppointmentDTO::getAppointmentTime, Comparator.nullsFirst(Comparator.naturalOrder())))
                     .collect(Collectors.toList());
-            
-            System.out.println("Upcoming appointments after filtering: " + upcomingAppointments.size());
 
             if (upcomingAppointments.isEmpty()) {
                 return ResponseEntity.ok(Map.of("hasAppointment", false, "appointments", List.of()));
@@ -341,20 +265,20 @@ public class DashboardController {
                 appointmentData.put("id", apt.getId());
                 appointmentData.put("bookingCode", apt.getBookingCode());
                 appointmentData.put("qrCodeUrl", "/api/dashboard/qr-code/" + apt.getBookingCode());
-                appointmentData.put("vaccineName", apt.getVaccine() != null ? apt.getVaccine().getName() : "N/A");
+                appointmentData.put("vaccineName", apt.getVaccineName() != null ? apt.getVaccineName() : "N/A");
                 appointmentData.put("appointmentDate", apt.getAppointmentDate());
                 appointmentData.put("appointmentTime", apt.getAppointmentTime());
-                appointmentData.put("centerName", apt.getCenter() != null ? apt.getCenter().getName() : "N/A");
-                appointmentData.put("roomNumber", apt.getRoom() != null ? apt.getRoom().getRoomNumber() : null);
+                appointmentData.put("centerName", apt.getCenterName() != null ? apt.getCenterName() : "N/A");
+                appointmentData.put("roomNumber", apt.getRoomNumber());
                 appointmentData.put("status", apt.getStatus().toString());
                 appointmentData.put("statusText", getStatusText(apt.getStatus()));
                 appointmentData.put("doseNumber", apt.getDoseNumber());
                 
                 // Thông tin người được đặt cho (nếu đặt cho người thân)
-                if (apt.getBookedForUser() != null && !apt.getBookedForUser().getId().equals(currentUser.getId())) {
-                    appointmentData.put("forUser", apt.getBookedForUser().getFullName());
-                } else if (apt.getFamilyMember() != null) {
-                    appointmentData.put("forUser", apt.getFamilyMember().getFullName());
+                if (apt.isBookedForOtherUser(currentUser.getId())) {
+                    appointmentData.put("forUser", apt.getBookedForUserName());
+                } else if (apt.getFamilyMemberId() != null) {
+                    appointmentData.put("forUser", apt.getFamilyMemberName());
                 }
 
                 // Format date và time
@@ -388,7 +312,7 @@ public class DashboardController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            List<VaccinationRecord> records = vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(currentUser.getId())
+            List<TimelineDoseDTO> records = patientTimelineService.getUserTimeline(currentUser.getId()).getDoses()
                     .stream()
                     .limit(3)
                     .collect(Collectors.toList());
@@ -396,14 +320,13 @@ public class DashboardController {
             List<Map<String, Object>> recordsList = records.stream().map(record -> {
                 Map<String, Object> recordMap = new HashMap<>();
                 recordMap.put("id", record.getId());
-                recordMap.put("vaccineName", record.getVaccine() != null ? record.getVaccine().getName() : "N/A");
+                recordMap.put("vaccineName", record.getVaccineName() != null ? record.getVaccineName() : "N/A");
                 recordMap.put("injectionDate", record.getInjectionDate());
                 if (record.getInjectionDate() != null) {
                     recordMap.put("formattedDate", record.getInjectionDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
                 }
                 recordMap.put("doseNumber", record.getDoseNumber());
-                recordMap.put("centerName", record.getAppointment() != null && record.getAppointment().getCenter() != null 
-                    ? record.getAppointment().getCenter().getName() : "N/A");
+                recordMap.put("centerName", record.getCenterName() != null ? record.getCenterName() : "N/A");
                 return recordMap;
             }).collect(Collectors.toList());
 
@@ -427,24 +350,20 @@ public class DashboardController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Tìm vaccine có nextDoseDate trong tháng tới
-            List<VaccinationRecord> records = vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(currentUser.getId());
+            // Tìm vaccine có nextDoseDate sớm nhất trong tháng tới
             LocalDate nextMonth = LocalDate.now().plusMonths(1);
-
-            Optional<VaccinationRecord> reminderRecord = records.stream()
-                    .filter(record -> record.getNextDoseDate() != null)
-                    .filter(record -> record.getNextDoseDate().isAfter(LocalDate.now()))
-                    .filter(record -> record.getNextDoseDate().isBefore(nextMonth) || record.getNextDoseDate().isBefore(nextMonth.plusDays(1)))
-                    .findFirst();
+            Optional<TimelineDoseDTO> reminderRecord = patientTimelineService.getUserTimeline(currentUser.getId())
+                    .findNextDoseAfter(LocalDate.now())
+                    .filter(record -> !record.getNextDoseDate().isAfter(nextMonth));
 
             if (reminderRecord.isEmpty()) {
                 return ResponseEntity.ok(Map.of("hasReminder", false));
             }
 
-            VaccinationRecord record = reminderRecord.get();
+            TimelineDoseDTO record = reminderRecord.get();
             Map<String, Object> reminder = new HashMap<>();
             reminder.put("hasReminder", true);
-            reminder.put("vaccineName", record.getVaccine() != null ? record.getVaccine().getName() : "N/A");
+            reminder.put("vaccineName", record.getVaccineName() != null ? record.getVaccineName() : "N/A");
             reminder.put("nextDoseDate", record.getNextDoseDate());
             if (record.getNextDoseDate() != null) {
                 reminder.put("formattedDate", record.getNextDoseDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
@@ -459,73 +378,64 @@ public class DashboardController {
     }
 
     /**
-     * GET /api/dashboard/qr-code/{bookingCode}
-     * Tạo và trả về QR code image từ booking code
+     * GET /api/dashboard/qr-code/{bookingCode}?format=png|svg
+     * Trả về ảnh QR code của booking code (ảnh được cache, trả 304 nếu If-None-Match khớp ETag)
      */
-    @GetMapping(value = "/qr-code/{bookingCode}", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> getQRCode(@PathVariable String bookingCode) {
+    @GetMapping("/qr-code/{bookingCode}")
+    public ResponseEntity<byte[]> getQRCode(@PathVariable String bookingCode,
+                                            @RequestParam(required = false, defaultValue = "png") String format,
+                                            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             User currentUser = getCurrentUser();
             if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
             
-            // Kiểm tra appointment có thuộc về user không
-            Optional<Appointment> appointmentOpt = appointmentRepository.findByBookingCode(bookingCode);
-            if (appointmentOpt.isEmpty()) {
+            // Kiểm tra appointment có thuộc về user không (chỉ đọc ID người đặt/người được tiêm)
+            List<Object[]> owners = appointmentRepository.findOwnerIdsByBookingCode(bookingCode);
+            if (owners.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
             
-            Appointment appointment = appointmentOpt.get();
-            // Kiểm tra quyền truy cập
-            boolean hasAccess = (appointment.getBookedByUser() != null && appointment.getBookedByUser().getId().equals(currentUser.getId())) ||
-                               (appointment.getBookedForUser() != null && appointment.getBookedForUser().getId().equals(currentUser.getId()));
-            
+            Object[] ownerIds = owners.get(0);
+            boolean hasAccess = currentUser.getId().equals(ownerIds[0]) || currentUser.getId().equals(ownerIds[1]);
             if (!hasAccess) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
             
-            // Tạo QR code
-            int width = 200;
-            int height = 200;
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 1);
-            
-            BitMatrix bitMatrix = qrCodeWriter.encode(bookingCode, BarcodeFormat.QR_CODE, width, height, hints);
-            
-            // Convert to image
-            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-            Graphics2D graphics = image.createGraphics();
-            graphics.setColor(Color.WHITE);
-            graphics.fillRect(0, 0, width, height);
-            graphics.setColor(Color.BLACK);
-            
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    if (bitMatrix.get(x, y)) {
-                        graphics.fillRect(x, y, 1, 1);
-                    }
-                }
+            QrCodeService.RenderedQrCode qrCode = qrCodeService.getQrCode(bookingCode, format);
+            CacheControl cacheControl = CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate();
+            if (qrCode.getEtag().equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(qrCode.getEtag()).cacheControl(cacheControl).build();
             }
             
-            // Convert to byte array
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "PNG", baos);
-            byte[] imageBytes = baos.toByteArray();
-            
             return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_PNG)
-                    .body(imageBytes);
+                    .contentType(MediaType.parseMediaType(qrCode.getContentType()))
+                    .eTag(qrCode.getEtag())
+                    .cacheControl(cacheControl)
+                    .body(qrCode.getBytes());
                     
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (WriterException | IOException e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Lịch hẹn chưa hoàn thành: PENDING, CONFIRMED, CHECKED_IN, SCREENING, APPROVED, INJECTING, MONITORING
+     */
+    private boolean isUnfinished(AppointmentStatus status) {
+        return status == AppointmentStatus.PENDING ||
+               status == AppointmentStatus.CONFIRMED ||
+               status == AppointmentStatus.CHECKED_IN ||
+               status == AppointmentStatus.SCREENING ||
+               status == AppointmentStatus.APPROVED ||
+               status == AppointmentStatus.INJECTING ||
+               status == AppointmentStatus.MONITORING;
+    }
+
     /**
      * Chuyển đổi status enum sang text tiếng Việt
      */
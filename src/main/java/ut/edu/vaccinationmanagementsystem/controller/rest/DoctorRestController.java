@@ -14,6 +14,8 @@ import ut.edu.vaccinationmanagementsystem.repository.*;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
+import ut.edu.vaccinationmanagementsystem.service.StaffActivityService;
 import ut.edu.vaccinationmanagementsystem.service.UserService;
 
 import java.time.LocalDate;
@@ -31,9 +33,15 @@ public class DoctorRestController {
     @Autowired
     private AppointmentRepository appointmentRepository;
     
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     @Autowired
     private ScreeningRepository screeningRepository;
     
+    @Autowired
+    private StaffActivityService staffActivityService;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -332,6 +340,7 @@ public class DoctorRestController {
                 String notes = request.get("notes").toString().trim();
                 screening.setNotes(notes.isEmpty() ? null : notes);
             }
+            LocalDateTime previousScreenedAt = screening.getScreenedAt();
             screening.setScreenedAt(LocalDateTime.now());
             
             // Validate required fields
@@ -345,6 +354,8 @@ public class DoctorRestController {
             try {
                 screening = screeningRepository.save(screening);
                 System.out.println("✅ Screening saved successfully. ID: " + screening.getId());
+                staffActivityService.recordScreeningSaved(screening.getDoctor().getId(), previousScreenedAt,
+                        screening.getScreenedAt());
             } catch (Exception e) {
                 System.err.println("❌ Error saving screening: " + e.getMessage());
                 e.printStackTrace();
@@ -377,6 +388,7 @@ public class DoctorRestController {
                 }
                 appointment.setUpdatedAt(LocalDateTime.now());
                 appointmentRepository.save(appointment);
+                patientTimelineService.appointmentChanged(appointment);
                 System.out.println("✅ Appointment status updated to: " + appointment.getStatus());
             } catch (Exception e) {
                 System.err.println("❌ Error updating appointment status: " + e.getMessage());
@@ -7,21 +7,21 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import ut.edu.vaccinationmanagementsystem.dto.FamilyMemberDTO;
+import ut.edu.vaccinationmanagementsystem.dto.PatientTimelineDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineAppointmentDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineDoseDTO;
 import ut.edu.vaccinationmanagementsystem.entity.FamilyMember;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.FamilyMemberService;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
 import ut.edu.vaccinationmanagementsystem.service.UserService;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
-import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
-import ut.edu.vaccinationmanagementsystem.entity.Appointment;
-import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
 
 @RestController
 @RequestMapping("/api")
@@ -34,10 +34,7 @@ public class FamilyMemberController {
     private UserService userService;
     
     @Autowired
-    private AppointmentRepository appointmentRepository;
-    
-    @Autowired
-    private VaccinationRecordRepository vaccinationRecordRepository;
+    private PatientTimelineService patientTimelineService;
     
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
@@ -314,13 +311,10 @@ public class FamilyMemberController {
             User currentUser = getCurrentUser();
             FamilyMember familyMember = familyMemberService.getFamilyMemberById(id, currentUser);
             
-            // Lấy appointments của family member
-            List<Appointment> appointments = 
-                appointmentRepository.findByFamilyMemberIdOrderByAppointmentDateDesc(id);
-            
-            // Lấy vaccination records thông qua appointments
-            List<VaccinationRecord> vaccinationRecords = 
-                vaccinationRecordRepository.findByAppointmentFamilyMemberIdOrderByInjectionDateDesc(id);
+            // Lấy appointments và vaccination records của family member từ dòng thời gian tiêm chủng
+            PatientTimelineDTO timeline = patientTimelineService.getFamilyMemberTimeline(id);
+            List<TimelineAppointmentDTO> appointments = timeline.getAppointments();
+            List<TimelineDoseDTO> vaccinationRecords = timeline.getDoses();
             
             // Build response
             Map<String, Object> result = new HashMap<>();
@@ -343,9 +337,9 @@ public class FamilyMemberController {
                 Map<String, Object> aptMap = new HashMap<>();
                 aptMap.put("id", apt.getId());
                 aptMap.put("bookingCode", apt.getBookingCode());
-                aptMap.put("vaccineName", apt.getVaccine() != null ? apt.getVaccine().getName() : null);
-                aptMap.put("centerName", apt.getCenter() != null ? apt.getCenter().getName() : null);
-                aptMap.put("roomNumber", apt.getRoom() != null ? apt.getRoom().getRoomNumber() : null);
+                aptMap.put("vaccineName", apt.getVaccineName());
+                aptMap.put("centerName", apt.getCenterName());
+                aptMap.put("roomNumber", apt.getRoomNumber());
                 aptMap.put("appointmentDate", apt.getAppointmentDate());
                 aptMap.put("appointmentTime", apt.getAppointmentTime());
                 aptMap.put("status", apt.getStatus() != null ? apt.getStatus().name() : null);
@@ -359,15 +353,14 @@ public class FamilyMemberController {
             List<Map<String, Object>> recordsList = vaccinationRecords.stream().map(record -> {
                 Map<String, Object> recordMap = new HashMap<>();
                 recordMap.put("id", record.getId());
-                recordMap.put("vaccineName", record.getVaccine() != null ? record.getVaccine().getName() : null);
+                recordMap.put("vaccineName", record.getVaccineName());
                 recordMap.put("injectionDate", record.getInjectionDate());
                 recordMap.put("injectionTime", record.getInjectionTime());
                 recordMap.put("doseNumber", record.getDoseNumber());
                 recordMap.put("batchNumber", record.getBatchNumber());
                 recordMap.put("certificateNumber", record.getCertificateNumber());
                 recordMap.put("nextDoseDate", record.getNextDoseDate());
-                recordMap.put("centerName", record.getAppointment() != null && record.getAppointment().getCenter() != null 
-                    ? record.getAppointment().getCenter().getName() : null);
+                recordMap.put("centerName", record.getCenterName());
                 return recordMap;
             }).collect(Collectors.toList());
             result.put("vaccinationRecords", recordsList);
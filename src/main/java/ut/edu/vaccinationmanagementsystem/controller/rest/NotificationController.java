@@ -1,6 +1,7 @@
 package ut.edu.vaccinationmanagementsystem.controller.rest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -9,6 +10,8 @@ import org.springframework.web.bind.annotation.*;
 import ut.edu.vaccinationmanagementsystem.dto.NotificationDTO;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 import ut.edu.vaccinationmanagementsystem.entity.Notification;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationArchive;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationBroadcast;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
@@ -18,7 +21,12 @@ import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.NotificationArchiveService;
+import ut.edu.vaccinationmanagementsystem.service.NotificationBroadcastService;
+import ut.edu.vaccinationmanagementsystem.service.NotificationCounterService;
+import ut.edu.vaccinationmanagementsystem.service.NotificationScheduler;
 import ut.edu.vaccinationmanagementsystem.service.NotificationService;
+import ut.edu.vaccinationmanagementsystem.service.UnreadNotificationCacheService;
 
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +40,21 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private NotificationScheduler notificationScheduler;
+    
+    @Autowired
+    private NotificationBroadcastService notificationBroadcastService;
+    
+    @Autowired
+    private UnreadNotificationCacheService unreadNotificationCacheService;
+    
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+    
+    @Autowired
+    private NotificationArchiveService notificationArchiveService;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -117,11 +140,13 @@ public class NotificationController {
     }
     
     /**
-     * GET /api/notifications/user/{userId}
-     * Xem thông báo của user cụ thể
+     * GET /api/notifications/user/{userId}?limit=50
+     * Xem thông báo mới nhất của user cụ thể
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserNotificationsByUserId(@PathVariable Long userId) {
+    public ResponseEntity<?> getUserNotificationsByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false, defaultValue = "50") int limit) {
         try {
             User currentUser = getCurrentUser();
             if (currentUser == null) {
@@ -138,7 +163,7 @@ public class NotificationController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            List<Notification> notifications = notificationService.getUserNotifications(userId);
+            List<Notification> notifications = notificationService.getLatestNotifications(userId, "all", limit);
             
             // Convert to DTO để tránh circular reference và đảm bảo hiển thị đầy đủ
             List<Map<String, Object>> notificationDTOs = notifications.stream().map(notification -> {
@@ -185,44 +210,22 @@ public class NotificationController {
     }
     
     /**
-     * Lấy danh sách thông báo của user hiện tại
+     * Lấy danh sách thông báo mới nhất của user hiện tại
      * Query params:
      * - filter: "all" (mặc định), "unread", "appointment", "system"
+     * - limit: số thông báo tối đa (mặc định 50, tối đa 200); thông báo cũ đã đọc xem ở /api/notifications/archive
      */
     @GetMapping
-    public ResponseEntity<?> getUserNotifications(@RequestParam(required = false, defaultValue = "all") String filter) {
+    public ResponseEntity<?> getUserNotifications(
+            @RequestParam(required = false, defaultValue = "all") String filter,
+            @RequestParam(required = false, defaultValue = "50") int limit) {
         try {
             User currentUser = getCurrentUser();
             if (currentUser == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
             }
             
-            List<Notification> notifications;
-            
-            // Lọc theo filter
-            switch (filter.toLowerCase()) {
-                case "unread":
-                    notifications = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(currentUser.getId());
-                    break;
-                case "appointment":
-                    // Lấy tất cả thông báo có appointment
-                    notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getId())
-                        .stream()
-                        .filter(n -> n.getAppointment() != null)
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "system":
-                    // Lấy thông báo không có appointment (thông báo hệ thống)
-                    notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getId())
-                        .stream()
-                        .filter(n -> n.getAppointment() == null)
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "all":
-                default:
-                    notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getId());
-                    break;
-            }
+            List<Notification> notifications = notificationService.getLatestNotifications(currentUser.getId(), filter, limit);
             
             // Convert to DTO để tránh circular reference và đảm bảo hiển thị đầy đủ
             List<Map<String, Object>> notificationDTOs = notifications.stream().map(notification -> {
@@ -266,11 +269,46 @@ public class NotificationController {
         }
     }
     
+    /**
+     * GET /api/notifications/archive?limit=50
+     * Lịch sử thông báo đã lưu trữ của user hiện tại (thông báo đã đọc quá hạn lưu trên inbox), mới nhất trước
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<?> getArchivedNotifications(@RequestParam(required = false, defaultValue = "50") int limit) {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+            }
+            
+            List<NotificationArchive> archived = notificationArchiveService.getArchivedNotifications(currentUser.getId(), limit);
+            List<Map<String, Object>> notificationDTOs = archived.stream().map(notification -> {
+                Map<String, Object> dto = new HashMap<>();
+                dto.put("id", notification.getId());
+                dto.put("type", notification.getType().toString());
+                dto.put("title", notification.getTitle());
+                dto.put("content", notification.getContent());
+                dto.put("status", notification.getStatus().toString());
+                dto.put("isRead", true);
+                dto.put("createdAt", notification.getCreatedAt());
+                dto.put("sentAt", notification.getSentAt());
+                dto.put("appointmentId", notification.getAppointmentId());
+                dto.put("archivedAt", notification.getArchivedAt());
+                return dto;
+            }).toList();
+            
+            return ResponseEntity.ok(notificationDTOs);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     /**
      * Lấy số lượng thông báo chưa đọc
+     * Trả về ETag theo số lượng: khi frontend poll lại với If-None-Match và số lượng không đổi thì trả về 304 (không có body)
      */
     @GetMapping("/unread-count")
-    public ResponseEntity<?> getUnreadCount() {
+    public ResponseEntity<?> getUnreadCount(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             User currentUser = getCurrentUser();
             if (currentUser == null) {
@@ -278,7 +316,13 @@ public class NotificationController {
             }
             
             long count = notificationService.getUnreadCount(currentUser.getId());
-            return ResponseEntity.ok(Map.of("count", count));
+            String etag = "\"unread-" + currentUser.getId() + "-" + count + "\"";
+            // Cho phép trình duyệt lưu response nhưng luôn hỏi lại server (ghi đè no-store mặc định của Spring Security)
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(Map.of("count", count));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
@@ -407,6 +451,8 @@ public class NotificationController {
             testNotification.setSentAt(java.time.LocalDateTime.now());
             
             notificationRepository.save(testNotification);
+            notificationCounterService.recordCreated(testNotification);
+            unreadNotificationCacheService.invalidate(currentUser.getId());
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -465,7 +511,7 @@ public class NotificationController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            int sentCount = notificationService.sendAppointmentReminders();
+            int sentCount = notificationScheduler.dispatchDueReminders();
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -582,7 +628,7 @@ public class NotificationController {
     
     /**
      * POST /api/notifications/admin/bulk
-     * Gửi thông báo cho nhiều users
+     * Gửi thông báo cho nhiều users (tạo đợt gửi chạy nền, theo dõi qua /admin/broadcasts/{id})
      */
     @PostMapping("/admin/bulk")
     public ResponseEntity<?> sendBulkNotifications(@RequestBody Map<String, Object> request) {
@@ -601,6 +647,7 @@ public class NotificationController {
             String typeStr = (String) request.get("type");
             Boolean sendSms = (Boolean) request.getOrDefault("sendSms", false);
             Boolean sendApp = (Boolean) request.getOrDefault("sendApp", true);
+            Boolean sendEmail = (Boolean) request.getOrDefault("sendEmail", false);
             
             if (userIdsRaw == null || userIdsRaw.isEmpty()) {
                 Map<String, String> error = new HashMap<>();
@@ -642,30 +689,13 @@ public class NotificationController {
                 }
             }
             
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (Long userId : userIds) {
-                try {
-                    if (sendApp) {
-                        notificationService.createNotification(userId, null, NotificationType.IN_APP, title, content);
-                    }
-                    if (sendSms && type == NotificationType.SMS) {
-                        notificationService.createNotification(userId, null, NotificationType.SMS, title, content);
-                    }
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to send notification to user " + userId + ": " + e.getMessage());
-                }
-            }
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "Sent " + successCount + " notifications successfully");
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
-            return ResponseEntity.ok(result);
+            NotificationBroadcast broadcast = notificationBroadcastService.enqueueForUsers(userIds, title, content,
+                    sendApp, sendSms && type == NotificationType.SMS, sendEmail, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(buildBroadcastResponse(broadcast));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Internal server error: " + e.getMessage());
@@ -675,7 +705,7 @@ public class NotificationController {
     
     /**
      * POST /api/notifications/admin/send-by-role
-     * Gửi thông báo theo role
+     * Gửi thông báo theo role (tạo đợt gửi chạy nền, theo dõi qua /admin/broadcasts/{id})
      */
     @PostMapping("/admin/send-by-role")
     public ResponseEntity<?> sendNotificationsByRole(@RequestBody Map<String, Object> request) {
@@ -693,6 +723,7 @@ public class NotificationController {
             String content = (String) request.get("content");
             Boolean sendSms = (Boolean) request.getOrDefault("sendSms", false);
             Boolean sendApp = (Boolean) request.getOrDefault("sendApp", true);
+            Boolean sendEmail = (Boolean) request.getOrDefault("sendEmail", false);
             
             if (roles == null || roles.isEmpty()) {
                 Map<String, String> error = new HashMap<>();
@@ -719,35 +750,13 @@ public class NotificationController {
                 }
             }
             
-            List<User> users = userRepository.findAll().stream()
-                .filter(u -> roleEnums.contains(u.getRole()))
-                .collect(java.util.stream.Collectors.toList());
-            
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (User user : users) {
-                try {
-                    if (sendApp) {
-                        notificationService.createNotification(user.getId(), null, NotificationType.IN_APP, title, content);
-                    }
-                    if (sendSms) {
-                        notificationService.createNotification(user.getId(), null, NotificationType.SMS, title, content);
-                    }
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to send notification to user " + user.getId() + ": " + e.getMessage());
-                }
-            }
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "Sent " + successCount + " notifications to " + users.size() + " users");
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
-            result.put("totalUsers", users.size());
-            return ResponseEntity.ok(result);
+            NotificationBroadcast broadcast = notificationBroadcastService.enqueueForRoles(roleEnums, title, content,
+                    sendApp, sendSms, sendEmail, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(buildBroadcastResponse(broadcast));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Internal server error: " + e.getMessage());
@@ -757,7 +766,7 @@ public class NotificationController {
     
     /**
      * POST /api/notifications/admin/send-all
-     * Gửi thông báo cho tất cả users
+     * Gửi thông báo cho tất cả users (tạo đợt gửi chạy nền, theo dõi qua /admin/broadcasts/{id})
      */
     @PostMapping("/admin/send-all")
     public ResponseEntity<?> sendNotificationsToAll(@RequestBody Map<String, Object> request) {
@@ -773,6 +782,7 @@ public class NotificationController {
             String content = (String) request.get("content");
             Boolean sendSms = (Boolean) request.getOrDefault("sendSms", false);
             Boolean sendApp = (Boolean) request.getOrDefault("sendApp", true);
+            Boolean sendEmail = (Boolean) request.getOrDefault("sendEmail", false);
             
             if (title == null || title.trim().isEmpty()) {
                 Map<String, String> error = new HashMap<>();
@@ -785,38 +795,98 @@ public class NotificationController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            List<User> users = userRepository.findAll();
-            
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (User user : users) {
-                try {
-                    if (sendApp) {
-                        notificationService.createNotification(user.getId(), null, NotificationType.IN_APP, title, content);
-                    }
-                    if (sendSms) {
-                        notificationService.createNotification(user.getId(), null, NotificationType.SMS, title, content);
-                    }
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to send notification to user " + user.getId() + ": " + e.getMessage());
-                }
+            NotificationBroadcast broadcast = notificationBroadcastService.enqueueForAll(title, content,
+                    sendApp, sendSms, sendEmail, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(buildBroadcastResponse(broadcast));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/notifications/admin/broadcasts
+     * Lấy tiến độ các đợt gửi gần nhất
+     */
+    @GetMapping("/admin/broadcasts")
+    public ResponseEntity<?> getRecentBroadcasts() {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser == null || currentUser.getRole() != ut.edu.vaccinationmanagementsystem.entity.enums.Role.ADMIN) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "Sent " + successCount + " notifications to " + users.size() + " users");
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
-            result.put("totalUsers", users.size());
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(notificationBroadcastService.getRecentBroadcasts());
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Internal server error: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+    
+    /**
+     * GET /api/notifications/admin/broadcasts/{id}
+     * Lấy tiến độ một đợt gửi
+     */
+    @GetMapping("/admin/broadcasts/{id}")
+    public ResponseEntity<?> getBroadcastProgress(@PathVariable Long id) {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser == null || currentUser.getRole() != ut.edu.vaccinationmanagementsystem.entity.enums.Role.ADMIN) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            return ResponseEntity.ok(notificationBroadcastService.getProgress(id));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+    
+    /**
+     * POST /api/notifications/admin/broadcasts/{id}/retry
+     * Gửi tiếp đợt gửi đã thất bại từ người nhận cuối cùng đã xử lý
+     */
+    @PostMapping("/admin/broadcasts/{id}/retry")
+    public ResponseEntity<?> retryBroadcast(@PathVariable Long id) {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser == null || currentUser.getRole() != ut.edu.vaccinationmanagementsystem.entity.enums.Role.ADMIN) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            notificationBroadcastService.retry(id);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(notificationBroadcastService.getProgress(id));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+    
+    /**
+     * Response khi tạo đợt gửi: job ID để theo dõi tiến độ và số người nhận dự kiến
+     */
+    private Map<String, Object> buildBroadcastResponse(NotificationBroadcast broadcast) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Broadcast queued for " + broadcast.getTotalRecipients() + " users");
+        result.put("jobId", broadcast.getId());
+        result.put("status", broadcast.getStatus().name());
+        result.put("totalUsers", broadcast.getTotalRecipients());
+        return result;
+    }
 }
-
@@ -10,8 +10,12 @@ import org.springframework.web.bind.annotation.*;
 import ut.edu.vaccinationmanagementsystem.entity.*;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.repository.*;
+import ut.edu.vaccinationmanagementsystem.service.AdminListingService;
+import ut.edu.vaccinationmanagementsystem.service.AdverseReactionCounterService;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.InventoryPositionService;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -29,13 +33,16 @@ public class NurseController {
     private AppointmentRepository appointmentRepository;
     
     @Autowired
-    private AdverseReactionRepository adverseReactionRepository;
+    private PatientTimelineService patientTimelineService;
     
     @Autowired
-    private CenterVaccineRepository centerVaccineRepository;
+    private AdverseReactionCounterService adverseReactionCounterService;
     
     @Autowired
-    private VaccineRepository vaccineRepository;
+    private AdminListingService adminListingService;
+    
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
     
     @Autowired
     private UserRepository userRepository;
@@ -149,33 +156,14 @@ public class NurseController {
                     })
                     .collect(Collectors.toList());
             
-            // 5. Số lượng phản ứng phụ chưa xử lý
-            long unresolvedReactions = adverseReactionRepository.findUnresolvedReactions().size();
+            // 5. Số lượng phản ứng phụ chưa xử lý (bộ đếm theo trung tâm của y tá)
+            long unresolvedReactions = adverseReactionCounterService.getUnresolvedCount(userCenterId);
             
             // 6. Tổng số vaccine đã tiêm (tất cả thời gian)
             long totalInjections = vaccinationRecordRepository.count();
             
-            // 7. Danh sách vaccine và số lượng tồn kho tại các trung tâm
-            List<Vaccine> allVaccines = vaccineRepository.findAll();
-            List<Map<String, Object>> vaccineInventory = allVaccines.stream()
-                    .map(vaccine -> {
-                        Map<String, Object> inv = new HashMap<>();
-                        inv.put("id", vaccine.getId());
-                        inv.put("name", vaccine.getName());
-                        inv.put("manufacturer", vaccine.getManufacturer());
-                        
-                        // Lấy tổng số lượng tồn kho từ CenterVaccine
-                        List<CenterVaccine> centerVaccines = centerVaccineRepository.findByVaccineId(vaccine.getId());
-                        int totalStock = centerVaccines.stream()
-                                .mapToInt(cv -> cv.getStockQuantity() != null ? cv.getStockQuantity() : 0)
-                                .sum();
-                        inv.put("totalStock", totalStock);
-                        inv.put("centersCount", centerVaccines.size());
-                        
-                        return inv;
-                    })
-                    .sorted((a, b) -> Integer.compare((Integer) b.get("totalStock"), (Integer) a.get("totalStock")))
-                    .collect(Collectors.toList());
+            // 7. Danh sách vaccine và số lượng tồn kho tại các trung tâm (bảng tồn kho trong bộ nhớ)
+            List<Map<String, Object>> vaccineInventory = inventoryPositionService.getVaccineInventory();
             
             Map<String, Object> statistics = new HashMap<>();
             statistics.put("injectionsToday", injectionsToday);
@@ -197,67 +185,33 @@ public class NurseController {
     
     /**
      * GET /api/nurse/adverse-reactions
-     * Lấy danh sách phản ứng phụ để theo dõi
+     * Lấy danh sách phản ứng phụ tại trung tâm của y tá để theo dõi (mới nhất trước, phân trang theo cursor)
+     * Kèm summary (tổng, chưa xử lý, đã xử lý, mức độ nặng) từ bộ đếm theo trung tâm
      */
     @GetMapping("/adverse-reactions")
-    public ResponseEntity<?> getAdverseReactions(@RequestParam(required = false) Boolean resolved) {
+    public ResponseEntity<?> getAdverseReactions(
+            @RequestParam(required = false) Boolean resolved,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<AdverseReaction> reactions;
-            if (resolved != null) {
-                if (resolved) {
-                    reactions = adverseReactionRepository.findAll().stream()
-                            .filter(ar -> ar.getResolved())
-                            .collect(Collectors.toList());
-                } else {
-                    reactions = adverseReactionRepository.findUnresolvedReactions();
-                }
-            } else {
-                reactions = adverseReactionRepository.findAll();
+            User currentUser = getCurrentUser();
+            if (currentUser == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
             
-            List<Map<String, Object>> reactionDTOs = reactions.stream()
-                    .map(reaction -> {
-                        Map<String, Object> dto = new HashMap<>();
-                        dto.put("id", reaction.getId());
-                        dto.put("reactionType", reaction.getReactionType());
-                        dto.put("symptoms", reaction.getSymptoms());
-                        dto.put("occurredAt", reaction.getOccurredAt());
-                        dto.put("resolved", reaction.getResolved());
-                        dto.put("notes", reaction.getNotes());
-                        
-                        if (reaction.getVaccinationRecord() != null) {
-                            Map<String, Object> record = new HashMap<>();
-                            record.put("id", reaction.getVaccinationRecord().getId());
-                            record.put("certificateNumber", reaction.getVaccinationRecord().getCertificateNumber());
-                            if (reaction.getVaccinationRecord().getVaccine() != null) {
-                                record.put("vaccineName", reaction.getVaccinationRecord().getVaccine().getName());
-                            }
-                            if (reaction.getVaccinationRecord().getUser() != null) {
-                                record.put("patientName", reaction.getVaccinationRecord().getUser().getFullName());
-                            }
-                            dto.put("vaccinationRecord", record);
-                        }
-                        
-                        if (reaction.getHandledBy() != null) {
-                            Map<String, Object> handler = new HashMap<>();
-                            handler.put("id", reaction.getHandledBy().getId());
-                            handler.put("fullName", reaction.getHandledBy().getFullName());
-                            dto.put("handledBy", handler);
-                        }
-                        
-                        return dto;
-                    })
-                    .sorted((a, b) -> {
-                        // Sắp xếp: unresolved trước, sau đó theo thời gian giảm dần
-                        Boolean aResolved = (Boolean) a.get("resolved");
-                        Boolean bResolved = (Boolean) b.get("resolved");
-                        if (!aResolved && bResolved) return -1;
-                        if (aResolved && !bResolved) return 1;
-                        return 0;
-                    })
-                    .collect(Collectors.toList());
+            ut.edu.vaccinationmanagementsystem.entity.StaffInfo staffInfo = staffInfoRepository.findByUser(currentUser).orElse(null);
+            Long userCenterId = (staffInfo != null && staffInfo.getCenter() != null) ? staffInfo.getCenter().getId() : null;
             
-            return ResponseEntity.ok(reactionDTOs);
+            Map<String, Object> response = adminListingService.listAdverseReactions(
+                    userCenterId, resolved, null, null, null, null, cursor, 0, size);
+            response.put("summary", adverseReactionCounterService.getSummary(userCenterId));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             e.printStackTrace();
             Map<String, String> error = new HashMap<>();
@@ -657,6 +611,7 @@ public class NurseController {
 
             appointment.setStatus(AppointmentStatus.CANCELLED);
             appointmentRepository.save(appointment);
+            patientTimelineService.appointmentChanged(appointment);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Đã hủy tiêm thành công");
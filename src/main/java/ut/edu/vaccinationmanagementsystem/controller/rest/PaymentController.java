@@ -8,18 +8,21 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
+import ut.edu.vaccinationmanagementsystem.dto.VnPayCallbackResultDTO;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 import ut.edu.vaccinationmanagementsystem.entity.Payment;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
 import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
 import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
 import ut.edu.vaccinationmanagementsystem.repository.PaymentRepository;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
-import ut.edu.vaccinationmanagementsystem.service.AppointmentService;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.PaymentService;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
+import ut.edu.vaccinationmanagementsystem.service.VnPayCallbackService;
 import ut.edu.vaccinationmanagementsystem.service.VnPayService;
 
 import java.math.BigDecimal;
@@ -43,6 +46,9 @@ public class PaymentController {
     @Autowired
     private AppointmentRepository appointmentRepository;
     
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -50,7 +56,7 @@ public class PaymentController {
     private PaymentRepository paymentRepository;
     
     @Autowired
-    private AppointmentService appointmentService;
+    private VnPayCallbackService vnPayCallbackService;
     
     /**
      * POST /api/payment/create-vnpay-url
@@ -226,13 +232,12 @@ public class PaymentController {
     
     /**
      * GET /api/payment/vnpay-return
-     * Callback từ VNPay sau khi thanh toán
+     * Callback từ VNPay sau khi thanh toán (trình duyệt được chuyển về)
+     * Callback trùng (tải lại trang, IPN đã xử lý trước) nhận lại kết quả đã xử lý
      */
     @GetMapping("/vnpay-return")
     public ResponseEntity<?> vnPayReturn(@RequestParam Map<String, String> params, HttpServletRequest request) {
         try {
-            // Get response code và orderId trước để có thể xử lý cancel
-            String responseCode = params.get("vnp_ResponseCode");
             String orderId = params.get("vnp_TxnRef");
             
             // Nếu không có orderId, không thể xử lý
@@ -242,149 +247,60 @@ public class PaymentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            // Check if this is a cancellation fee payment (orderId ends with "-CANCEL")
-            boolean isCancellationFeePayment = orderId.endsWith("-CANCEL");
-            String bookingCode = isCancellationFeePayment ? orderId.replace("-CANCEL", "") : orderId;
-            
-            // Find appointment by booking code
-            Appointment appointment = appointmentRepository.findByBookingCode(bookingCode)
-                .orElse(null);
+            VnPayCallbackResultDTO result = vnPayCallbackService.handle(
+                params, request.getQueryString(), VnPayCallbackService.SOURCE_RETURN);
             
-            // Nếu không tìm thấy appointment, có thể đã bị xóa hoặc không tồn tại
-            if (appointment == null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", false);
-                response.put("message", "Lịch hẹn không tồn tại hoặc đã bị hủy");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-            
-            Payment payment = paymentService.findByAppointment(appointment);
-            if (payment == null) {
+            if (!result.isSignatureValid()) {
+                if (result.isCancellationFee()) {
+                    // Với phí hủy, chỉ redirect về trang lỗi
+                    return redirect("/vaccination-history?error=" + 
+                        java.net.URLEncoder.encode("Chữ ký không hợp lệ. Vui lòng thử lại.", StandardCharsets.UTF_8));
+                }
                 Map<String, String> error = new HashMap<>();
-                error.put("error", "Payment not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+                error.put("error", "Invalid signature");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            // Verify signature - lấy raw query string từ request
-            String queryString = request.getQueryString();
-            if (queryString != null && queryString.contains("vnp_SecureHash")) {
-                if (!vnPayService.verifySignatureFromQueryString(queryString)) {
-                    // Signature không hợp lệ
-                    if (isCancellationFeePayment) {
-                        // Với phí hủy, chỉ redirect về trang lỗi
-                        String redirectUrl = "/vaccination-history?error=" + 
-                            java.net.URLEncoder.encode("Chữ ký không hợp lệ. Vui lòng thử lại.", StandardCharsets.UTF_8);
-                        return ResponseEntity.status(HttpStatus.FOUND)
-                            .header("Location", redirectUrl)
-                            .build();
-                    } else {
-                        // Với payment thông thường, xóa appointment nếu là VNPay payment
-                        if (payment.getPaymentMethod().toString().equals("VNPAY") && 
-                            appointment.getStatus().toString().equals("PENDING")) {
-                            try {
-                                appointmentService.deleteAppointmentWhenPaymentFailed(appointment.getId());
-                            } catch (Exception e) {
-                                // Log error but continue
-                            }
-                        }
+            switch (result.getOutcome()) {
+                case PAID:
+                    return redirect(String.format("/payment-result?success=true&bookingCode=%s&appointmentId=%d",
+                        result.getBookingCode(), result.getAppointmentId()));
+                case CANCELLATION_FEE_PAID:
+                    return redirect("/vaccination-history?success=true&message=" + 
+                        java.net.URLEncoder.encode("Thanh toán phí hủy thành công!", StandardCharsets.UTF_8));
+                case USER_CANCELLED:
+                    if (result.isCancellationFee()) {
+                        return redirect("/vaccination-history?error=" + 
+                            java.net.URLEncoder.encode("Bạn đã hủy thanh toán phí hủy.", StandardCharsets.UTF_8));
                     }
-                    
+                    return redirect("/payment-result?success=false&message=" + 
+                        java.net.URLEncoder.encode("Bạn đã hủy thanh toán. Lịch hẹn đã được hủy.", StandardCharsets.UTF_8));
+                case FAILED:
+                    if (result.isCancellationFee()) {
+                        return redirect("/vaccination-history?error=" + 
+                            java.net.URLEncoder.encode("Thanh toán phí hủy thất bại. Vui lòng thử lại.", StandardCharsets.UTF_8));
+                    }
+                    return redirect("/payment-result?success=false&message=" + 
+                        java.net.URLEncoder.encode("Thanh toán thất bại. Mã lỗi: " + result.getResponseCode() + ". Lịch hẹn đã được hủy.", StandardCharsets.UTF_8));
+                case ORDER_NOT_FOUND: {
+                    // Không tìm thấy appointment, có thể đã bị xóa hoặc không tồn tại
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("message", "Lịch hẹn không tồn tại hoặc đã bị hủy");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }
+                case AMOUNT_MISMATCH: {
                     Map<String, String> error = new HashMap<>();
-                    error.put("error", "Invalid signature");
+                    error.put("error", "Invalid amount");
                     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
                 }
-            }
-            
-            String transactionId = params.get("vnp_TransactionNo");
-            Map<String, Object> response = new HashMap<>();
-            
-            // Check response code (00 = success, 24 = user cancel, null/empty = user quit)
-            if ("00".equals(responseCode)) {
-                // Payment successful
-                if (isCancellationFeePayment) {
-                    // Đánh dấu phí hủy đã được thanh toán
-                    paymentService.markCancellationFeeAsPaid(payment);
-                    
-                    // Redirect to success page
-                    String redirectUrl = "/vaccination-history?success=true&message=" + 
-                        java.net.URLEncoder.encode("Thanh toán phí hủy thành công!", StandardCharsets.UTF_8);
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
-                } else {
-                    // Payment thông thường
-                    paymentService.markPaymentAsPaid(payment, transactionId);
-                    
-                    // Redirect to success page
-                    String redirectUrl = String.format("/payment-result?success=true&bookingCode=%s&appointmentId=%d",
-                        appointment.getBookingCode(), appointment.getId());
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
-                }
-            } else if ("24".equals(responseCode) || responseCode == null || responseCode.isEmpty()) {
-                // User cancel (24) hoặc user quit (null/empty)
-                if (isCancellationFeePayment) {
-                    // Với phí hủy, chỉ redirect về trang lịch sử với thông báo hủy
-                    String redirectUrl = "/vaccination-history?error=" + 
-                        java.net.URLEncoder.encode("Bạn đã hủy thanh toán phí hủy.", StandardCharsets.UTF_8);
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
-                } else {
-                    // Với payment thông thường, xóa appointment
-                    Long appointmentId = appointment.getId();
-                    
-                    try {
-                        // Xóa appointment (sẽ rollback slot và xóa payment)
-                        appointmentService.deleteAppointmentWhenPaymentFailed(appointmentId);
-                    } catch (Exception e) {
-                        // Nếu không xóa được, chỉ đánh dấu payment failed
-                        payment.setPaymentStatus(PaymentStatus.FAILED);
-                        if (transactionId != null) {
-                            payment.setTransactionId(transactionId);
-                        }
-                        paymentRepository.save(payment);
-                    }
-                    
-                    // Redirect to error page
-                    String redirectUrl = "/payment-result?success=false&message=" + 
-                        java.net.URLEncoder.encode("Bạn đã hủy thanh toán. Lịch hẹn đã được hủy.", StandardCharsets.UTF_8);
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
-                }
-            } else {
-                // Payment failed (các mã lỗi khác)
-                if (isCancellationFeePayment) {
-                    // Với phí hủy, chỉ redirect về trang lịch sử với thông báo lỗi
-                    String redirectUrl = "/vaccination-history?error=" + 
-                        java.net.URLEncoder.encode("Thanh toán phí hủy thất bại. Vui lòng thử lại.", StandardCharsets.UTF_8);
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
-                } else {
-                    // Với payment thông thường, xóa appointment và payment
-                    Long appointmentId = appointment.getId();
-                    
-                    try {
-                        // Xóa appointment (sẽ rollback slot và xóa payment)
-                        appointmentService.deleteAppointmentWhenPaymentFailed(appointmentId);
-                    } catch (Exception e) {
-                        // Nếu không xóa được, chỉ đánh dấu payment failed
-                        payment.setPaymentStatus(PaymentStatus.FAILED);
-                        if (transactionId != null) {
-                            payment.setTransactionId(transactionId);
-                        }
-                        paymentRepository.save(payment);
+                default: {
+                    // Payment đã được giao dịch khác của cùng đơn xử lý
+                    String message = "Giao dịch đã được xử lý trước đó. Vui lòng kiểm tra lại lịch hẹn.";
+                    if (result.isCancellationFee()) {
+                        return redirect("/vaccination-history?error=" + java.net.URLEncoder.encode(message, StandardCharsets.UTF_8));
                     }
-                    
-                    // Redirect to error page
-                    String redirectUrl = "/payment-result?success=false&message=" + 
-                        java.net.URLEncoder.encode("Thanh toán thất bại. Mã lỗi: " + responseCode + ". Lịch hẹn đã được hủy.", StandardCharsets.UTF_8);
-                    return ResponseEntity.status(HttpStatus.FOUND)
-                        .header("Location", redirectUrl)
-                        .build();
+                    return redirect("/payment-result?success=false&message=" + java.net.URLEncoder.encode(message, StandardCharsets.UTF_8));
                 }
             }
         } catch (Exception e) {
@@ -394,6 +310,59 @@ public class PaymentController {
         }
     }
     
+    /**
+     * GET /api/payment/vnpay-ipn
+     * IPN (Instant Payment Notification) từ máy chủ VNPay, trả về RspCode theo đặc tả VNPay
+     * VNPay gửi lại IPN cho tới khi nhận được 00 hoặc 02, các lần gửi lại nhận kết quả đã xử lý
+     */
+    @GetMapping("/vnpay-ipn")
+    public ResponseEntity<?> vnPayIpn(@RequestParam Map<String, String> params, HttpServletRequest request) {
+        Map<String, String> response = new HashMap<>();
+        try {
+            String orderId = params.get("vnp_TxnRef");
+            if (orderId == null || orderId.isEmpty()) {
+                response.put("RspCode", "01");
+                response.put("Message", "Order not Found");
+                return ResponseEntity.ok(response);
+            }
+            
+            VnPayCallbackResultDTO result = vnPayCallbackService.handle(
+                params, request.getQueryString(), VnPayCallbackService.SOURCE_IPN);
+            
+            if (!result.isSignatureValid()) {
+                response.put("RspCode", "97");
+                response.put("Message", "Invalid Checksum");
+            } else if (result.getOutcome() == PaymentCallbackOutcome.ORDER_NOT_FOUND) {
+                response.put("RspCode", "01");
+                response.put("Message", "Order not Found");
+            } else if (result.getOutcome() == PaymentCallbackOutcome.AMOUNT_MISMATCH) {
+                response.put("RspCode", "04");
+                response.put("Message", "Invalid amount");
+            } else if (result.isDuplicate() || result.getOutcome() == PaymentCallbackOutcome.IGNORED) {
+                response.put("RspCode", "02");
+                response.put("Message", "Order already confirmed");
+            } else {
+                response.put("RspCode", "00");
+                response.put("Message", "Confirm Success");
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            System.err.println("Failed to process VNPay IPN: " + e.getMessage());
+            response.put("RspCode", "99");
+            response.put("Message", "Unknow error");
+            return ResponseEntity.ok(response);
+        }
+    }
+    
+    /**
+     * Chuyển hướng trình duyệt (302) tới URL cho trước
+     */
+    private ResponseEntity<?> redirect(String location) {
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .header("Location", location)
+            .build();
+    }
+    
     /**
      * GET /api/payment/status/{appointmentId}
      * Kiểm tra trạng thái thanh toán
@@ -498,19 +467,19 @@ public class PaymentController {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
             }
             
-            if (payment.getPaymentStatus() == PaymentStatus.PAID) {
+            // Mark as paid (chỉ một request được chuyển sang PAID nếu lễ tân bấm nhiều lần)
+            if (!payment.getPaymentStatus().canTransitionTo(PaymentStatus.PAID)
+                    || !paymentService.markPaymentAsPaid(payment, "CASH-" + appointmentId)) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Payment already completed");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            // Mark as paid
-            paymentService.markPaymentAsPaid(payment, "CASH-" + appointmentId);
-            
             // Tự động chuyển status sang CONFIRMED nếu đang ở PENDING để doctor nhận được hồ sơ
             if (appointment.getStatus() == AppointmentStatus.PENDING) {
                 appointment.setStatus(AppointmentStatus.CONFIRMED);
                 appointmentRepository.save(appointment);
+                patientTimelineService.appointmentChanged(appointment);
             }
             
             Map<String, Object> response = new HashMap<>();
@@ -14,6 +14,7 @@ import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.PhoneVerificationService;
 import ut.edu.vaccinationmanagementsystem.service.SmsException;
+import ut.edu.vaccinationmanagementsystem.service.SmsRateLimitException;
 import ut.edu.vaccinationmanagementsystem.service.UserService;
 
 import java.util.HashMap;
@@ -84,6 +85,10 @@ public class PhoneVerificationController {
             response.put("message", "Mã xác thực đã được gửi đến số điện thoại của bạn");
             return ResponseEntity.ok(response);
             
+        } catch (SmsRateLimitException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
         } catch (SmsException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Không thể gửi mã xác thực: " + e.getMessage());
@@ -119,6 +124,10 @@ public class PhoneVerificationController {
             response.put("message", "Mã xác thực đã được gửi đến số điện thoại");
             return ResponseEntity.ok(response);
             
+        } catch (SmsRateLimitException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
         } catch (SmsException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Không thể gửi mã xác thực: " + e.getMessage());
@@ -8,12 +8,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.ReportService;
+import ut.edu.vaccinationmanagementsystem.service.export.CsvReportWriter;
+import ut.edu.vaccinationmanagementsystem.service.export.ReportRowWriter;
+import ut.edu.vaccinationmanagementsystem.service.export.XlsxReportWriter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -101,6 +107,53 @@ public class ReportsController {
         }
     }
     
+    /**
+     * GET /api/reports/vaccination/daily
+     * Báo cáo tiêm chủng chi tiết theo ngày (CSV, xuất dạng streaming)
+     * Mỗi dòng: ngày, vaccine, mũi, trung tâm, số lượng - dùng cho khoảng thời gian lớn (ví dụ: báo cáo năm)
+     */
+    @GetMapping("/vaccination/daily")
+    public ResponseEntity<?> getDailyVaccinationReport(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        try {
+            User currentUser = getCurrentUser();
+            checkAdminPermission(currentUser);
+            
+            LocalDate start = null;
+            LocalDate end = null;
+            
+            if (startDate != null && !startDate.trim().isEmpty()) {
+                start = LocalDate.parse(startDate);
+            }
+            if (endDate != null && !endDate.trim().isEmpty()) {
+                end = LocalDate.parse(endDate);
+            }
+            
+            final LocalDate from = start;
+            final LocalDate to = end;
+            StreamingResponseBody body = outputStream ->
+                    writeReport("vaccination-daily", from, to, new CsvReportWriter(outputStream));
+            
+            String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+            headers.setContentDispositionFormData("attachment", "vaccination_daily_report_" + timestamp + ".csv");
+            
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(body);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     /**
      * GET /api/reports/vaccine
      * Báo cáo vaccine
@@ -163,9 +216,10 @@ public class ReportsController {
     
     /**
      * GET /api/reports/export?type={}&format={}
-     * Export báo cáo Excel/PDF
-     * type: vaccination, vaccine, customer
-     * format: excel, pdf
+     * Export báo cáo Excel (XLSX) / CSV / PDF
+     * type: vaccination (chi tiết từng mũi tiêm), vaccination-daily, vaccine, customer
+     * format: excel (xlsx), csv, pdf
+     * Excel/CSV được ghi dạng streaming: dữ liệu đọc dần từ database và đẩy thẳng xuống client
      */
     @GetMapping("/export")
     public ResponseEntity<?> exportReport(
@@ -187,26 +241,24 @@ public class ReportsController {
                 end = LocalDate.parse(endDate);
             }
             
-            Map<String, Object> reportData;
+            String reportType = type.toLowerCase();
             String fileName;
-            
-            // Lấy dữ liệu báo cáo
-            switch (type.toLowerCase()) {
+            switch (reportType) {
                 case "vaccination":
-                    reportData = reportService.getVaccinationReport(start, end);
                     fileName = "vaccination_report";
                     break;
+                case "vaccination-daily":
+                    fileName = "vaccination_daily_report";
+                    break;
                 case "vaccine":
-                    reportData = reportService.getVaccineReport();
                     fileName = "vaccine_report";
                     break;
                 case "customer":
-                    reportData = reportService.getCustomerReport(start, end);
                     fileName = "customer_report";
                     break;
                 default:
                     Map<String, String> error = new HashMap<>();
-                    error.put("error", "Invalid report type. Valid types: vaccination, vaccine, customer");
+                    error.put("error", "Invalid report type. Valid types: vaccination, vaccination-daily, vaccine, customer");
                     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
@@ -215,20 +267,48 @@ public class ReportsController {
             String fullFileName = fileName + "_" + timestamp;
             
             // Export format
-            if (format.equalsIgnoreCase("excel")) {
-                // TODO: Implement Excel export using Apache POI
-                // Tạm thời trả về JSON
+            if (format.equalsIgnoreCase("excel") || format.equalsIgnoreCase("xlsx") || format.equalsIgnoreCase("csv")) {
+                boolean csv = format.equalsIgnoreCase("csv");
+                final LocalDate from = start;
+                final LocalDate to = end;
+                StreamingResponseBody body = outputStream -> {
+                    ReportRowWriter writer = csv
+                            ? new CsvReportWriter(outputStream)
+                            : new XlsxReportWriter(outputStream, sheetName(reportType));
+                    writeReport(reportType, from, to, writer);
+                };
+                
                 HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-                headers.setContentDispositionFormData("attachment", fullFileName + ".json");
+                if (csv) {
+                    headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+                    headers.setContentDispositionFormData("attachment", fullFileName + ".csv");
+                } else {
+                    headers.setContentType(MediaType.parseMediaType(
+                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+                    headers.setContentDispositionFormData("attachment", fullFileName + ".xlsx");
+                }
                 
                 return ResponseEntity.ok()
                         .headers(headers)
-                        .body(reportData);
+                        .body(body);
             } else if (format.equalsIgnoreCase("pdf")) {
                 // TODO: Implement PDF export using iText or Apache PDFBox
-                // Tạm thời trả về text format
-                String pdfContent = generateTextReport(reportData, type);
+                // Tạm thời trả về text format (chỉ cho các báo cáo tổng hợp)
+                Map<String, Object> reportData;
+                String textReportType = reportType;
+                switch (reportType) {
+                    case "vaccine":
+                        reportData = reportService.getVaccineReport();
+                        break;
+                    case "customer":
+                        reportData = reportService.getCustomerReport(start, end);
+                        break;
+                    default:
+                        reportData = reportService.getVaccinationReport(start, end);
+                        textReportType = "vaccination";
+                        break;
+                }
+                String pdfContent = generateTextReport(reportData, textReportType);
                 
                 HttpHeaders headers = new HttpHeaders();
                 headers.setContentType(MediaType.TEXT_PLAIN);
@@ -239,7 +319,7 @@ public class ReportsController {
                         .body(pdfContent);
             } else {
                 Map<String, String> error = new HashMap<>();
-                error.put("error", "Invalid format. Valid formats: excel, pdf");
+                error.put("error", "Invalid format. Valid formats: excel, csv, pdf");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
         } catch (RuntimeException e) {
@@ -253,6 +333,44 @@ public class ReportsController {
         }
     }
     
+    /**
+     * Ghi báo cáo theo loại ra writer (chạy trong luồng streaming của response)
+     */
+    private void writeReport(String reportType, LocalDate start, LocalDate end, ReportRowWriter writer) throws IOException {
+        long rowCount;
+        switch (reportType) {
+            case "vaccination":
+                rowCount = reportService.exportVaccinationRecords(start, end, writer);
+                break;
+            case "vaccination-daily":
+                rowCount = reportService.exportDailyVaccinationReport(start, end, writer);
+                break;
+            case "vaccine":
+                rowCount = reportService.exportVaccineReport(writer);
+                break;
+            default:
+                rowCount = reportService.exportCustomerReport(start, end, writer);
+                break;
+        }
+        System.out.println("Exported " + rowCount + " rows for " + reportType + " report");
+    }
+    
+    /**
+     * Tên sheet Excel theo loại báo cáo
+     */
+    private String sheetName(String reportType) {
+        switch (reportType) {
+            case "vaccination":
+                return "Hồ sơ tiêm";
+            case "vaccination-daily":
+                return "Tiêm chủng theo ngày";
+            case "vaccine":
+                return "Vaccine";
+            default:
+                return "Khách hàng";
+        }
+    }
+    
     /**
      * Generate text report (tạm thời, có thể chuyển sang PDF sau)
      */
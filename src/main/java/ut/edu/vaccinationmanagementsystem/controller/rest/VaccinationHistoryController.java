@@ -6,6 +6,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import ut.edu.vaccinationmanagementsystem.dto.PatientTimelineDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineAppointmentDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineDoseDTO;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
@@ -15,6 +18,7 @@ import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.PatientTimelineService;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -33,6 +37,9 @@ public class VaccinationHistoryController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+
     /**
      * GET /api/vaccination-history/statistics
      * Lấy thống kê tổng quan về hồ sơ tiêm chủng
@@ -45,35 +52,22 @@ public class VaccinationHistoryController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy tất cả vaccination records của user
-            List<VaccinationRecord> records = vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(currentUser.getId());
-
-            // Lấy appointments sắp tới (PENDING, CONFIRMED)
-            // Lấy tất cả appointments của user (cả bookedForUser và bookedByUser)
-            List<Appointment> allUserAppointments = new ArrayList<>();
-            allUserAppointments.addAll(appointmentRepository.findByBookedForUserId(currentUser.getId()));
-            List<Appointment> bookedByUser = appointmentRepository.findByBookedByUserId(currentUser.getId());
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() == null)
-                    .forEach(allUserAppointments::add);
-
-            List<Appointment> upcomingAppointments = allUserAppointments.stream()
-                    .filter(apt -> apt.getStatus() == AppointmentStatus.PENDING || apt.getStatus() == AppointmentStatus.CONFIRMED)
-                    .filter(apt -> apt.getAppointmentDate() != null && apt.getAppointmentDate().isAfter(LocalDate.now().minusDays(1)))
-                    .sorted(Comparator.comparing(Appointment::getAppointmentDate)
-                            .thenComparing(Appointment::getAppointmentTime))
-                    .collect(Collectors.toList());
+            // Dòng thời gian tiêm chủng của user (mũi đã tiêm, lịch hẹn, mũi đến hạn)
+            PatientTimelineDTO timeline = patientTimelineService.getUserTimeline(currentUser.getId());
+            List<TimelineDoseDTO> records = timeline.getDoses();
+
+            // Lấy appointments sắp tới (PENDING, CONFIRMED) của user (cả bookedForUser và bookedByUser)
+            long upcomingCount = getUpcomingAppointments(timeline, currentUser).size();
 
             // Tính toán thống kê
             long totalInjections = records.size();
             long uniqueVaccines = records.stream()
-                    .map(vr -> vr.getVaccine().getId())
+                    .map(TimelineDoseDTO::getVaccineId)
                     .distinct()
                     .count();
-            long upcomingCount = upcomingAppointments.size();
 
             // Tìm vaccine cần tiêm mũi tiếp theo
-            Map<String, Object> nextDoseInfo = calculateNextDoseInfo(records);
+            Map<String, Object> nextDoseInfo = calculateNextDoseInfo(timeline);
 
             Map<String, Object> statistics = new HashMap<>();
             statistics.put("totalInjections", totalInjections);
@@ -105,14 +99,13 @@ public class VaccinationHistoryController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy tất cả records của user
-            List<VaccinationRecord> allRecords = vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(currentUser.getId());
+            // Lấy tất cả records của user (từ dòng thời gian tiêm chủng)
+            List<TimelineDoseDTO> allRecords = patientTimelineService.getUserTimeline(currentUser.getId()).getDoses();
 
             // Apply filters
-            List<VaccinationRecord> filteredRecords = allRecords.stream()
-                    .filter(vr -> vaccineId == null || vr.getVaccine().getId().equals(vaccineId))
-                    .filter(vr -> centerId == null || (vr.getAppointment().getCenter() != null && 
-                            vr.getAppointment().getCenter().getId().equals(centerId)))
+            List<TimelineDoseDTO> filteredRecords = allRecords.stream()
+                    .filter(vr -> vaccineId == null || vaccineId.equals(vr.getVaccineId()))
+                    .filter(vr -> centerId == null || centerId.equals(vr.getCenterId()))
                     .filter(vr -> {
                         if (startDate == null && endDate == null) return true;
                         LocalDate recordDate = vr.getInjectionDate();
@@ -126,17 +119,15 @@ public class VaccinationHistoryController {
             List<Map<String, Object>> recordsList = filteredRecords.stream().map(record -> {
                 Map<String, Object> recordMap = new HashMap<>();
                 recordMap.put("id", record.getId());
-                recordMap.put("vaccineName", record.getVaccine().getName());
-                recordMap.put("vaccineId", record.getVaccine().getId());
+                recordMap.put("vaccineName", record.getVaccineName());
+                recordMap.put("vaccineId", record.getVaccineId());
                 recordMap.put("injectionDate", record.getInjectionDate());
                 recordMap.put("injectionTime", record.getInjectionTime());
                 recordMap.put("doseNumber", record.getDoseNumber());
-                recordMap.put("centerName", record.getAppointment().getCenter() != null ? 
-                        record.getAppointment().getCenter().getName() : "N/A");
-                recordMap.put("centerId", record.getAppointment().getCenter() != null ? 
-                        record.getAppointment().getCenter().getId() : null);
+                recordMap.put("centerName", record.getCenterName() != null ? record.getCenterName() : "N/A");
+                recordMap.put("centerId", record.getCenterId());
                 recordMap.put("batchNumber", record.getBatchNumber());
-                recordMap.put("nurseName", record.getNurse() != null ? record.getNurse().getFullName() : "N/A");
+                recordMap.put("nurseName", record.getNurseName() != null ? record.getNurseName() : "N/A");
                 recordMap.put("certificateNumber", record.getCertificateNumber());
                 recordMap.put("nextDoseDate", record.getNextDoseDate());
                 return recordMap;
@@ -162,34 +153,21 @@ public class VaccinationHistoryController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy tất cả appointments của user (cả bookedForUser và bookedByUser)
-            List<Appointment> allUserAppointments = new ArrayList<>();
-            // Appointments đặt cho user (bookedForUser = currentUser)
-            allUserAppointments.addAll(appointmentRepository.findByBookedForUserId(currentUser.getId()));
-            // Appointments user đặt cho chính mình (bookedByUser = currentUser và bookedForUser = null)
-            List<Appointment> bookedByUser = appointmentRepository.findByBookedByUserId(currentUser.getId());
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() == null)
-                    .forEach(allUserAppointments::add);
-
-            List<Appointment> appointments = allUserAppointments.stream()
-                    .filter(apt -> apt.getStatus() == AppointmentStatus.PENDING || apt.getStatus() == AppointmentStatus.CONFIRMED)
-                    .filter(apt -> apt.getAppointmentDate() != null && apt.getAppointmentDate().isAfter(LocalDate.now().minusDays(1)))
-                    .sorted(Comparator.comparing(Appointment::getAppointmentDate)
-                            .thenComparing(Appointment::getAppointmentTime))
-                    .collect(Collectors.toList());
+            // Lịch hẹn sắp tới của user (cả bookedForUser và bookedByUser) từ dòng thời gian tiêm chủng
+            PatientTimelineDTO timeline = patientTimelineService.getUserTimeline(currentUser.getId());
+            List<TimelineAppointmentDTO> appointments = getUpcomingAppointments(timeline, currentUser);
 
             List<Map<String, Object>> appointmentsList = appointments.stream().map(apt -> {
                 Map<String, Object> aptMap = new HashMap<>();
                 aptMap.put("id", apt.getId());
                 aptMap.put("bookingCode", apt.getBookingCode());
-                aptMap.put("vaccineName", apt.getVaccine() != null ? apt.getVaccine().getName() : "N/A");
-                aptMap.put("vaccineId", apt.getVaccine() != null ? apt.getVaccine().getId() : null);
+                aptMap.put("vaccineName", apt.getVaccineName() != null ? apt.getVaccineName() : "N/A");
+                aptMap.put("vaccineId", apt.getVaccineId());
                 aptMap.put("appointmentDate", apt.getAppointmentDate());
                 aptMap.put("appointmentTime", apt.getAppointmentTime());
-                aptMap.put("centerName", apt.getCenter() != null ? apt.getCenter().getName() : "N/A");
-                aptMap.put("centerId", apt.getCenter() != null ? apt.getCenter().getId() : null);
-                aptMap.put("roomNumber", apt.getRoom() != null ? apt.getRoom().getRoomNumber() : null);
+                aptMap.put("centerName", apt.getCenterName() != null ? apt.getCenterName() : "N/A");
+                aptMap.put("centerId", apt.getCenterId());
+                aptMap.put("roomNumber", apt.getRoomNumber());
                 aptMap.put("status", apt.getStatus().toString());
                 aptMap.put("doseNumber", apt.getDoseNumber());
                 return aptMap;
@@ -215,29 +193,23 @@ public class VaccinationHistoryController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
             }
 
-            // Lấy tất cả appointments của user (cả bookedForUser và bookedByUser)
-            List<Appointment> allAppointments = new ArrayList<>();
-            allAppointments.addAll(appointmentRepository.findByBookedForUserId(currentUser.getId()));
-            // Lấy appointments mà user đặt cho người khác (bookedByUser nhưng bookedForUser là null)
-            List<Appointment> bookedByUser = appointmentRepository.findByBookedByUserId(currentUser.getId());
-            bookedByUser.stream()
-                    .filter(apt -> apt.getBookedForUser() == null)
-                    .forEach(allAppointments::add);
-
-            // Sort by date descending
-            allAppointments.sort(Comparator.comparing(Appointment::getAppointmentDate, Comparator.nullsLast(Comparator.reverseOrder()))
-                    .thenComparing(Appointment::getAppointmentTime, Comparator.nullsLast(Comparator.reverseOrder())));
+            // Lấy tất cả appointments của user (cả bookedForUser và bookedByUser, bỏ lịch user đặt cho user khác)
+            // Dòng thời gian đã sắp xếp theo ngày giảm dần
+            List<TimelineAppointmentDTO> allAppointments = patientTimelineService.getUserTimeline(currentUser.getId())
+                    .getAppointments().stream()
+                    .filter(apt -> !apt.isBookedForOtherUser(currentUser.getId()))
+                    .collect(Collectors.toList());
 
             List<Map<String, Object>> appointmentsList = allAppointments.stream().map(apt -> {
                 Map<String, Object> aptMap = new HashMap<>();
                 aptMap.put("id", apt.getId());
                 aptMap.put("bookingCode", apt.getBookingCode());
-                aptMap.put("vaccineName", apt.getVaccine() != null ? apt.getVaccine().getName() : "N/A");
-                aptMap.put("vaccineId", apt.getVaccine() != null ? apt.getVaccine().getId() : null);
+                aptMap.put("vaccineName", apt.getVaccineName() != null ? apt.getVaccineName() : "N/A");
+                aptMap.put("vaccineId", apt.getVaccineId());
                 aptMap.put("appointmentDate", apt.getAppointmentDate());
                 aptMap.put("appointmentTime", apt.getAppointmentTime());
-                aptMap.put("centerName", apt.getCenter() != null ? apt.getCenter().getName() : "N/A");
-                aptMap.put("centerId", apt.getCenter() != null ? apt.getCenter().getId() : null);
+                aptMap.put("centerName", apt.getCenterName() != null ? apt.getCenterName() : "N/A");
+                aptMap.put("centerId", apt.getCenterId());
                 aptMap.put("status", apt.getStatus().toString());
                 aptMap.put("doseNumber", apt.getDoseNumber());
                 aptMap.put("notes", apt.getNotes());
@@ -367,23 +339,34 @@ public class VaccinationHistoryController {
         }
     }
 
+    /**
+     * Helper method lấy lịch hẹn sắp tới (PENDING, CONFIRMED, từ hôm nay) của user, sắp xếp theo ngày giờ tăng dần
+     * Gồm lịch đặt cho user và lịch user tự đặt (bookedForUser = null), bỏ lịch user đặt cho user khác
+     */
+    private List<TimelineAppointmentDTO> getUpcomingAppointments(PatientTimelineDTO timeline, User currentUser) {
+        return timeline.getAppointments().stream()
+                .filter(apt -> !apt.isBookedForOtherUser(currentUser.getId()))
+                .filter(apt -> apt.getStatus() == AppointmentStatus.PENDING || apt.getStatus() == AppointmentStatus.CONFIRMED)
+                .filter(apt -> apt.getAppointmentDate() != null && apt.getAppointmentDate().isAfter(LocalDate.now().minusDays(1)))
+                .sorted(Comparator.comparing(TimelineAppointmentDTO::getAppointmentDate)
+                        .thenComparing(TimelineAppointmentDTO::getAppointmentTime, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Helper method để tính toán thông tin mũi tiêm tiếp theo
      */
-    private Map<String, Object> calculateNextDoseInfo(List<VaccinationRecord> records) {
+    private Map<String, Object> calculateNextDoseInfo(PatientTimelineDTO timeline) {
         Map<String, Object> nextDoseInfo = new HashMap<>();
         
         // Tìm vaccine có nextDoseDate sớm nhất trong tương lai
-        Optional<VaccinationRecord> nextDose = records.stream()
-                .filter(vr -> vr.getNextDoseDate() != null)
-                .filter(vr -> vr.getNextDoseDate().isAfter(LocalDate.now()))
-                .min(Comparator.comparing(VaccinationRecord::getNextDoseDate));
+        Optional<TimelineDoseDTO> nextDose = timeline.findNextDoseAfter(LocalDate.now());
 
         if (nextDose.isPresent()) {
-            VaccinationRecord record = nextDose.get();
+            TimelineDoseDTO record = nextDose.get();
             nextDoseInfo.put("hasNextDose", true);
-            nextDoseInfo.put("vaccineName", record.getVaccine().getName());
-            nextDoseInfo.put("vaccineId", record.getVaccine().getId());
+            nextDoseInfo.put("vaccineName", record.getVaccineName());
+            nextDoseInfo.put("vaccineId", record.getVaccineId());
             nextDoseInfo.put("nextDoseDate", record.getNextDoseDate());
             nextDoseInfo.put("nextDoseNumber", record.getDoseNumber() + 1);
         } else {
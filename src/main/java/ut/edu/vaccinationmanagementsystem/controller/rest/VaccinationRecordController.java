@@ -1,5 +1,6 @@
 package ut.edu.vaccinationmanagementsystem.controller.rest;
 
+import com.google.zxing.WriterException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -8,16 +9,23 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ut.edu.vaccinationmanagementsystem.dto.VaccinationRecordDTO;
+import ut.edu.vaccinationmanagementsystem.entity.StaffInfo;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.service.CertificateService;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.VaccinationRecordService;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +40,12 @@ public class VaccinationRecordController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private StaffInfoRepository staffInfoRepository;
+    
+    @Autowired
+    private CertificateService certificateService;
+    
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
      */
@@ -179,8 +193,9 @@ public class VaccinationRecordController {
             result.put("vaccineName", record.getVaccine().getName());
             result.put("vaccineLotId", record.getVaccineLot().getId());
             result.put("lotNumber", record.getVaccineLot().getLotNumber());
-            result.put("nurseId", record.getNurse().getId());
-            result.put("nurseName", record.getNurse().getFullName());
+            // Y tá có thể đã bị xóa (nurse_id = null) khi dọn tài khoản không hoạt động
+            result.put("nurseId", record.getNurse() != null ? record.getNurse().getId() : null);
+            result.put("nurseName", record.getNurse() != null ? record.getNurse().getFullName() : "N/A");
             result.put("injectionDate", record.getInjectionDate());
             result.put("injectionTime", record.getInjectionTime());
             result.put("doseNumber", record.getDoseNumber());
@@ -247,7 +262,7 @@ public class VaccinationRecordController {
     
     /**
      * GET /api/vaccination-records/{id}/certificate
-     * Download chứng nhận PDF (tạm thời trả về text, có thể tích hợp thư viện PDF sau)
+     * Download chứng nhận PDF (có QR code để xác minh)
      */
     @GetMapping("/{id}/certificate")
     public ResponseEntity<?> downloadCertificate(@PathVariable Long id) {
@@ -257,57 +272,139 @@ public class VaccinationRecordController {
             
             // Kiểm tra quyền
             if (!record.getUser().getId().equals(currentUser.getId()) && 
-                currentUser.getRole() != ut.edu.vaccinationmanagementsystem.entity.enums.Role.ADMIN) {
+                currentUser.getRole() != Role.ADMIN) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "You don't have permission to download this certificate");
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            // Tạo nội dung chứng nhận (text format, có thể chuyển sang PDF sau)
-            StringBuilder certificateContent = new StringBuilder();
-            certificateContent.append("═══════════════════════════════════════════════════════\n");
-            certificateContent.append("        CHỨNG NHẬN TIÊM CHỦNG VACCINE\n");
-            certificateContent.append("═══════════════════════════════════════════════════════\n\n");
-            certificateContent.append("Số chứng nhận: ").append(record.getCertificateNumber()).append("\n\n");
+            byte[] pdf = certificateService.renderCertificate(record);
             
-            if (record.getAppointment().getFamilyMember() != null) {
-                certificateContent.append("Họ và tên: ").append(record.getAppointment().getFamilyMember().getFullName()).append("\n");
-            } else {
-                certificateContent.append("Họ và tên: ").append(record.getUser().getFullName()).append("\n");
-            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_PDF);
+            headers.setContentDispositionFormData("attachment", 
+                    "certificate_" + record.getCertificateNumber() + ".pdf");
             
-            certificateContent.append("Vaccine: ").append(record.getVaccine().getName()).append("\n");
-            certificateContent.append("Mũi tiêm: ").append(record.getDoseNumber()).append("\n");
-            certificateContent.append("Ngày tiêm: ").append(record.getInjectionDate()).append("\n");
-            certificateContent.append("Giờ tiêm: ").append(record.getInjectionTime()).append("\n");
-            certificateContent.append("Số lô: ").append(record.getBatchNumber()).append("\n");
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(pdf);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/vaccination-records/certificates/zip?userId=
+     * Tải toàn bộ chứng nhận của một tài khoản (kể cả của người thân) thành một file ZIP
+     * - Không truyền userId: tài khoản hiện tại; userId của người khác chỉ dành cho ADMIN
+     */
+    @GetMapping("/certificates/zip")
+    public ResponseEntity<?> downloadUserCertificates(@RequestParam(required = false) Long userId) {
+        try {
+            User currentUser = getCurrentUser();
+            Long targetUserId = userId != null ? userId : currentUser.getId();
             
-            if (record.getAppointment().getCenter() != null) {
-                certificateContent.append("Trung tâm tiêm chủng: ").append(record.getAppointment().getCenter().getName()).append("\n");
+            if (!targetUserId.equals(currentUser.getId()) && currentUser.getRole() != Role.ADMIN) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "You don't have permission to download these certificates");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            certificateContent.append("Người thực hiện: ").append(record.getNurse().getFullName()).append("\n");
-            
-            if (record.getNextDoseDate() != null) {
-                certificateContent.append("Ngày tiêm mũi tiếp theo: ").append(record.getNextDoseDate()).append("\n");
+            certificateService.requireSigningSecret();
+            StreamingResponseBody body = outputStream -> {
+                try {
+                    certificateService.writeUserCertificatesZip(targetUserId, outputStream);
+                } catch (WriterException e) {
+                    throw new IOException("Failed to encode certificate QR code", e);
+                }
+            };
+            return zipResponse("certificates_user_" + targetUserId + ".zip", body);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/vaccination-records/certificates/center/{centerId}/zip?date=yyyy-MM-dd
+     * Tải toàn bộ chứng nhận của các mũi tiêm tại một trung tâm trong một ngày (mặc định hôm nay)
+     * - Chỉ dành cho ADMIN, NURSE, RECEPTIONIST
+     * - NURSE/RECEPTIONIST chỉ tải được chứng nhận của trung tâm mình (ADMIN tải được mọi trung tâm)
+     */
+    @GetMapping("/certificates/center/{centerId}/zip")
+    public ResponseEntity<?> downloadCenterDayCertificates(
+            @PathVariable Long centerId,
+            @RequestParam(required = false) String date) {
+        try {
+            User currentUser = getCurrentUser();
+            if (currentUser.getRole() != Role.ADMIN &&
+                currentUser.getRole() != Role.NURSE &&
+                currentUser.getRole() != Role.RECEPTIONIST) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "You don't have permission to download these certificates");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            certificateContent.append("\n═══════════════════════════════════════════════════════\n");
-            certificateContent.append("Chứng nhận này có giá trị pháp lý và được lưu trữ trong hệ thống.\n");
-            certificateContent.append("═══════════════════════════════════════════════════════\n");
+            // Kiểm tra center (ngoại trừ ADMIN); nhân viên chưa được gán trung tâm không tải được
+            if (currentUser.getRole() != Role.ADMIN) {
+                StaffInfo staffInfo = staffInfoRepository.findByUser(currentUser).orElse(null);
+                if (staffInfo == null || staffInfo.getCenter() == null ||
+                    !staffInfo.getCenter().getId().equals(centerId)) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Bạn chỉ có thể tải chứng nhận của trung tâm mình");
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+                }
+            }
             
-            // Trả về text (có thể chuyển sang PDF sau)
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.TEXT_PLAIN);
-            headers.setContentDispositionFormData("attachment", 
-                    "certificate_" + record.getCertificateNumber() + ".txt");
+            LocalDate injectionDate = date != null && !date.trim().isEmpty() ? LocalDate.parse(date) : LocalDate.now();
             
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(certificateContent.toString());
+            certificateService.requireSigningSecret();
+            StreamingResponseBody body = outputStream -> {
+                try {
+                    certificateService.writeCenterDayCertificatesZip(centerId, injectionDate, outputStream);
+                } catch (WriterException e) {
+                    throw new IOException("Failed to encode certificate QR code", e);
+                }
+            };
+            return zipResponse("certificates_center_" + centerId + "_" + injectionDate + ".zip", body);
+        } catch (DateTimeParseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Invalid date format. Expected yyyy-MM-dd");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * GET /api/vaccination-records/verify?cert=...&sig=...
+     * Xác minh chứng nhận (link trong QR code, không cần đăng nhập)
+     */
+    @GetMapping("/verify")
+    public ResponseEntity<?> verifyCertificate(@RequestParam String cert, @RequestParam String sig) {
+        try {
+            return ResponseEntity.ok(certificateService.verifyCertificate(cert, sig));
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("valid", false);
+            error.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -315,5 +412,14 @@ public class VaccinationRecordController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+    
+    private ResponseEntity<StreamingResponseBody> zipResponse(String filename, StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", filename);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
 }
 
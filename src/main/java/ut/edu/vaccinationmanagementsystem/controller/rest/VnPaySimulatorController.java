@@ -0,0 +1,268 @@
+package ut.edu.vaccinationmanagementsystem.controller.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ut.edu.vaccinationmanagementsystem.config.VnPayConfig;
+import ut.edu.vaccinationmanagementsystem.entity.Payment;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.service.PaymentService;
+import ut.edu.vaccinationmanagementsystem.service.VnPayCallbackService;
+import ut.edu.vaccinationmanagementsystem.service.VnPayService;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * VNPay giả lập cho môi trường local và kiểm thử tải (chỉ bật khi chạy profile dev và vnpay.simulator.enabled=true)
+ * Callback được ký bằng vnpay.hashSecret nên đi qua đúng luồng kiểm tra chữ ký và chống trùng của callback thật
+ * - GET /pay: thay cho trang thanh toán VNPay (đặt vnpay.url=http://localhost:8080/api/payment/simulator/pay),
+ *   gửi IPN rồi chuyển trình duyệt về vnp_ReturnUrl, nên return URL và IPN của cùng giao dịch đến gần như cùng lúc
+ * - GET /callback (chỉ ADMIN): tạo callback đã ký của một đơn để công cụ kiểm thử tải gửi lại nhiều lần
+ * - POST /burst (chỉ ADMIN): gửi IPN của nhiều đơn (mỗi đơn lặp lại nhiều lần) với tốc độ cho trước và trả về thống kê
+ */
+@RestController
+@RequestMapping("/api/payment/simulator")
+@Profile("dev")
+@ConditionalOnProperty(name = "vnpay.simulator.enabled", havingValue = "true")
+public class VnPaySimulatorController {
+
+    /** Số callback tối đa của một lần /burst */
+    private static final int MAX_BURST_CALLBACKS = 20_000;
+
+    private static final Pattern RSP_CODE = Pattern.compile("\"RspCode\"\\s*:\\s*\"(\\w+)\"");
+
+    @Value("${vnpay.simulator.ipn-url:http://localhost:8080/api/payment/vnpay-ipn}")
+    private String ipnUrl;
+
+    @Value("${vnpay.simulator.response-code:00}")
+    private String defaultResponseCode;
+
+    /** Mã giao dịch giả lập (vnp_TransactionNo), tăng dần */
+    private final AtomicLong transactionSequence = new AtomicLong(System.currentTimeMillis() % 10_000_000L * 100);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Autowired
+    private VnPayService vnPayService;
+
+    @Autowired
+    private VnPayConfig vnPayConfig;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    /**
+     * GET /api/payment/simulator/pay
+     * Trang thanh toán giả lập: kiểm tra chữ ký URL thanh toán, trả kết quả vnpay.simulator.response-code
+     */
+    @GetMapping("/pay")
+    public ResponseEntity<?> pay(@RequestParam Map<String, String> params, HttpServletRequest request) {
+        if (!vnPayService.verifySignatureFromQueryString(request.getQueryString())) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Invalid signature");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        String returnUrl = params.getOrDefault("vnp_ReturnUrl", vnPayConfig.getReturnUrl());
+        String query = signedCallback(params.get("vnp_TxnRef"), parseLong(params.get("vnp_Amount")), defaultResponseCode);
+
+        // IPN không chờ kết quả, giống VNPay gửi IPN song song với việc chuyển trình duyệt về
+        httpClient.sendAsync(HttpRequest.newBuilder(URI.create(ipnUrl + "?" + query)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header("Location", returnUrl + "?" + query)
+                .build();
+    }
+
+    /**
+     * GET /api/payment/simulator/callback?txnRef=...&responseCode=00
+     * Tạo callback đã ký (số tiền lấy từ payment của đơn nếu không truyền amount)
+     */
+    @GetMapping("/callback")
+    public ResponseEntity<?> callback(@RequestParam String txnRef,
+                                      @RequestParam(required = false) String responseCode,
+                                      @RequestParam(required = false) Long amount) {
+        long vnpAmount = amount != null ? amount * 100 : amountOf(txnRef);
+        String query = signedCallback(txnRef, vnpAmount, responseCode != null ? responseCode : defaultResponseCode);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", query);
+        response.put("returnUrl", vnPayConfig.getReturnUrl() + "?" + query);
+        response.put("ipnUrl", ipnUrl + "?" + query);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/payment/simulator/burst
+     * Body: {"txnRefs": [...], "duplicates": 2, "ratePerSecond": 200, "responseCode": "00"}
+     * Mỗi đơn có một giao dịch, callback của giao dịch được gửi duplicates lần, thứ tự xáo trộn
+     * @return Số callback theo RspCode, số lỗi, thời gian chạy, tốc độ đạt được và độ trễ (ms)
+     */
+    @PostMapping("/burst")
+    public ResponseEntity<?> burst(@RequestBody Map<String, Object> request) {
+        try {
+            List<String> txnRefs = new ArrayList<>();
+            if (request.get("txnRefs") instanceof List<?> values) {
+                for (Object value : values) {
+                    txnRefs.add(value.toString());
+                }
+            }
+            int duplicates = request.get("duplicates") != null ? Integer.parseInt(request.get("duplicates").toString()) : 1;
+            int ratePerSecond = request.get("ratePerSecond") != null ? Integer.parseInt(request.get("ratePerSecond").toString()) : 200;
+            String responseCode = request.get("responseCode") != null ? request.get("responseCode").toString() : defaultResponseCode;
+
+            if (txnRefs.isEmpty() || duplicates < 1 || ratePerSecond < 1) {
+                throw new RuntimeException("txnRefs, duplicates >= 1 và ratePerSecond >= 1 là bắt buộc");
+            }
+            if ((long) txnRefs.size() * duplicates > MAX_BURST_CALLBACKS) {
+                throw new RuntimeException("Tối đa " + MAX_BURST_CALLBACKS + " callback cho một lần chạy");
+            }
+
+            List<String> queries = new ArrayList<>(txnRefs.size() * duplicates);
+            for (String txnRef : txnRefs) {
+                String query = signedCallback(txnRef, amountOf(txnRef), responseCode);
+                for (int i = 0; i < duplicates; i++) {
+                    queries.add(query);
+                }
+            }
+            Collections.shuffle(queries);
+
+            Map<String, AtomicLong> rspCodes = new ConcurrentHashMap<>();
+            AtomicLong errors = new AtomicLong();
+            long[] latencies = new long[queries.size()];
+            List<CompletableFuture<Void>> futures = new ArrayList<>(queries.size());
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            long start = System.nanoTime();
+
+            for (int i = 0; i < queries.size(); i++) {
+                long delay = start + i * intervalNanos - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                int index = i;
+                long sentAt = System.nanoTime();
+                HttpRequest ipn = HttpRequest.newBuilder(URI.create(ipnUrl + "?" + queries.get(i)))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+                futures.add(httpClient.sendAsync(ipn, HttpResponse.BodyHandlers.ofString())
+                        .handle((response, error) -> {
+                            latencies[index] = System.nanoTime() - sentAt;
+                            if (error != null || response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                return null;
+                            }
+                            Matcher matcher = RSP_CODE.matcher(response.body());
+                            String rspCode = matcher.find() ? matcher.group(1) : "unknown";
+                            rspCodes.computeIfAbsent(rspCode, k -> new AtomicLong()).incrementAndGet();
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+            long elapsedNanos = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            Map<String, Long> counts = new TreeMap<>();
+            rspCodes.forEach((code, count) -> counts.put(code, count.get()));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("callbacks", queries.size());
+            response.put("rspCodes", counts);
+            response.put("errors", errors.get());
+            response.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            response.put("achievedPerSecond", queries.size() * 1_000_000_000.0 / elapsedNanos);
+            response.put("latencyP50Ms", percentileMillis(latencies, 0.50));
+            response.put("latencyP95Ms", percentileMillis(latencies, 0.95));
+            response.put("latencyP99Ms", percentileMillis(latencies, 0.99));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Burst failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Callback đã ký của một giao dịch mới (mã 24 dùng vnp_TransactionNo = 0 như VNPay)
+     */
+    private String signedCallback(String txnRef, long vnpAmount, String responseCode) {
+        boolean success = "00".equals(responseCode);
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_TmnCode", vnPayConfig.getTmnCode());
+        params.put("vnp_TxnRef", txnRef);
+        params.put("vnp_Amount", String.valueOf(vnpAmount));
+        params.put("vnp_OrderInfo", "Thanh toan " + txnRef);
+        params.put("vnp_ResponseCode", responseCode);
+        params.put("vnp_TransactionStatus", success ? "00" : "02");
+        params.put("vnp_TransactionNo", "24".equals(responseCode) ? "0" : String.valueOf(transactionSequence.incrementAndGet()));
+        params.put("vnp_BankCode", "NCB");
+        params.put("vnp_CardType", "ATM");
+        params.put("vnp_PayDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")));
+        return vnPayService.buildSignedQuery(params);
+    }
+
+    /**
+     * vnp_Amount (số tiền x 100) của đơn: phí hủy hoặc số tiền payment, 0 nếu không tìm thấy
+     */
+    private long amountOf(String txnRef) {
+        boolean cancellationFee = txnRef.endsWith(VnPayCallbackService.CANCELLATION_FEE_SUFFIX);
+        String bookingCode = cancellationFee
+                ? txnRef.substring(0, txnRef.length() - VnPayCallbackService.CANCELLATION_FEE_SUFFIX.length())
+                : txnRef;
+        Payment payment = appointmentRepository.findByBookingCode(bookingCode)
+                .map(paymentService::findByAppointment)
+                .orElse(null);
+        if (payment == null) {
+            return 0;
+        }
+        BigDecimal amount = cancellationFee ? payment.getCancellationFee() : payment.getAmount();
+        return amount != null ? amount.longValue() * 100 : 0;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
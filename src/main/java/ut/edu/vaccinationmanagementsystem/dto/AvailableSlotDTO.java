@@ -0,0 +1,98 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO slot còn trống cho trang đặt lịch (không kèm center/room như entity AppointmentSlot)
+ */
+public class AvailableSlotDTO {
+    private Long id;
+    private Long centerId;
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Integer maxCapacity;
+    private Integer currentBookings;
+    private Integer remaining; // Số chỗ còn lại
+    
+    public AvailableSlotDTO() {
+    }
+    
+    public AvailableSlotDTO(Long id, Long centerId, LocalDate date, LocalTime startTime, LocalTime endTime,
+                            Integer maxCapacity, Integer currentBookings, Integer remaining) {
+        this.id = id;
+        this.centerId = centerId;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.maxCapacity = maxCapacity;
+        this.currentBookings = currentBookings;
+        this.remaining = remaining;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getCenterId() {
+        return centerId;
+    }
+    
+    public void setCenterId(Long centerId) {
+        this.centerId = centerId;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+    
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+    
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+    
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+    
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+    
+    public Integer getMaxCapacity() {
+        return maxCapacity;
+    }
+    
+    public void setMaxCapacity(Integer maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+    
+    public Integer getCurrentBookings() {
+        return currentBookings;
+    }
+    
+    public void setCurrentBookings(Integer currentBookings) {
+        this.currentBookings = currentBookings;
+    }
+    
+    public Integer getRemaining() {
+        return remaining;
+    }
+    
+    public void setRemaining(Integer remaining) {
+        this.remaining = remaining;
+    }
+}
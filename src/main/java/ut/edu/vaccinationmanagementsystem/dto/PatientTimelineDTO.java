@@ -0,0 +1,44 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dòng thời gian tiêm chủng của một người (user hoặc người thân): lịch hẹn, mũi đã tiêm và các mũi đến hạn
+ * Được dùng chung giữa các request từ bộ nhớ nên các danh sách không sửa được
+ */
+public class PatientTimelineDTO {
+    private final List<TimelineAppointmentDTO> appointments; // Mới nhất trước (ngày hẹn, giờ hẹn giảm dần)
+    private final List<TimelineDoseDTO> doses; // Mới nhất trước (ngày tiêm, giờ tiêm giảm dần)
+    private final List<TimelineDoseDTO> nextDoses; // Mũi có ngày tiêm mũi tiếp theo, ngày đến hạn sớm nhất trước
+
+    public PatientTimelineDTO(List<TimelineAppointmentDTO> appointments, List<TimelineDoseDTO> doses,
+                              List<TimelineDoseDTO> nextDoses) {
+        this.appointments = List.copyOf(appointments);
+        this.doses = List.copyOf(doses);
+        this.nextDoses = List.copyOf(nextDoses);
+    }
+
+    /**
+     * Mũi tiếp theo đến hạn sớm nhất sau ngày cho trước (không tính ngày đó)
+     */
+    public Optional<TimelineDoseDTO> findNextDoseAfter(LocalDate date) {
+        return nextDoses.stream()
+                .filter(dose -> dose.getNextDoseDate().isAfter(date))
+                .findFirst();
+    }
+
+    // Getters
+    public List<TimelineAppointmentDTO> getAppointments() {
+        return appointments;
+    }
+
+    public List<TimelineDoseDTO> getDoses() {
+        return doses;
+    }
+
+    public List<TimelineDoseDTO> getNextDoses() {
+        return nextDoses;
+    }
+}
@@ -0,0 +1,67 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Tổng hợp số chỗ trống của một trung tâm trong một ngày (một ô của lịch tháng)
+ */
+public class SlotAvailabilityDayDTO {
+    private LocalDate date;
+    private Integer slotCount; // Tổng số slot trong ngày
+    private Integer availableSlotCount; // Số slot còn đặt được
+    private Integer totalCapacity; // Tổng sức chứa
+    private Integer remainingCapacity; // Tổng số chỗ còn lại
+    
+    public SlotAvailabilityDayDTO() {
+    }
+    
+    public SlotAvailabilityDayDTO(LocalDate date, Integer slotCount, Integer availableSlotCount,
+                                  Integer totalCapacity, Integer remainingCapacity) {
+        this.date = date;
+        this.slotCount = slotCount;
+        this.availableSlotCount = availableSlotCount;
+        this.totalCapacity = totalCapacity;
+        this.remainingCapacity = remainingCapacity;
+    }
+    
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+    
+    public Integer getSlotCount() {
+        return slotCount;
+    }
+    
+    public void setSlotCount(Integer slotCount) {
+        this.slotCount = slotCount;
+    }
+    
+    public Integer getAvailableSlotCount() {
+        return availableSlotCount;
+    }
+    
+    public void setAvailableSlotCount(Integer availableSlotCount) {
+        this.availableSlotCount = availableSlotCount;
+    }
+    
+    public Integer getTotalCapacity() {
+        return totalCapacity;
+    }
+    
+    public void setTotalCapacity(Integer totalCapacity) {
+        this.totalCapacity = totalCapacity;
+    }
+    
+    public Integer getRemainingCapacity() {
+        return remainingCapacity;
+    }
+    
+    public void setRemainingCapacity(Integer remainingCapacity) {
+        this.remainingCapacity = remainingCapacity;
+    }
+}
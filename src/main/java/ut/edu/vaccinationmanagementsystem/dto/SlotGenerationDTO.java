@@ -0,0 +1,56 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO tạo slot hàng loạt từ giờ làm việc của trung tâm
+ */
+public class SlotGenerationDTO {
+    private List<Long> centerIds; // Danh sách trung tâm (để trống = tất cả trung tâm ACTIVE)
+    private LocalDate startDate; // Ngày bắt đầu (không được trong quá khứ)
+    private LocalDate endDate; // Ngày kết thúc
+    private Integer slotMinutes; // Độ dài mỗi slot (phút)
+    private Integer maxCapacity; // Số người tối đa mỗi slot
+    
+    // Getters and Setters
+    public List<Long> getCenterIds() {
+        return centerIds;
+    }
+    
+    public void setCenterIds(List<Long> centerIds) {
+        this.centerIds = centerIds;
+    }
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+    
+    public Integer getSlotMinutes() {
+        return slotMinutes;
+    }
+    
+    public void setSlotMinutes(Integer slotMinutes) {
+        this.slotMinutes = slotMinutes;
+    }
+    
+    public Integer getMaxCapacity() {
+        return maxCapacity;
+    }
+    
+    public void setMaxCapacity(Integer maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+}
@@ -0,0 +1,138 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Một lịch hẹn trong dòng thời gian tiêm chủng (PatientTimelineDTO)
+ * Được dùng chung giữa các request từ bộ nhớ nên chỉ có getter
+ */
+public class TimelineAppointmentDTO {
+    private final Long id;
+    private final String bookingCode;
+    private final Long vaccineId;
+    private final String vaccineName;
+    private final LocalDate appointmentDate;
+    private final LocalTime appointmentTime;
+    private final Long centerId;
+    private final String centerName;
+    private final String roomNumber;
+    private final AppointmentStatus status;
+    private final Integer doseNumber;
+    private final String notes;
+    private final LocalDateTime createdAt;
+    private final Long bookedForUserId; // Người được tiêm (null = tự đặt cho mình hoặc đặt cho người thân)
+    private final String bookedForUserName;
+    private final Long bookedByUserId; // Người đặt lịch
+    private final Long familyMemberId; // Người thân được tiêm (nếu có)
+    private final String familyMemberName;
+
+    public TimelineAppointmentDTO(Long id, String bookingCode, Long vaccineId, String vaccineName,
+                                  LocalDate appointmentDate, LocalTime appointmentTime,
+                                  Long centerId, String centerName, String roomNumber,
+                                  AppointmentStatus status, Integer doseNumber, String notes, LocalDateTime createdAt,
+                                  Long bookedForUserId, String bookedForUserName, Long bookedByUserId,
+                                  Long familyMemberId, String familyMemberName) {
+        this.id = id;
+        this.bookingCode = bookingCode;
+        this.vaccineId = vaccineId;
+        this.vaccineName = vaccineName;
+        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
+        this.centerId = centerId;
+        this.centerName = centerName;
+        this.roomNumber = roomNumber;
+        this.status = status;
+        this.doseNumber = doseNumber;
+        this.notes = notes;
+        this.createdAt = createdAt;
+        this.bookedForUserId = bookedForUserId;
+        this.bookedForUserName = bookedForUserName;
+        this.bookedByUserId = bookedByUserId;
+        this.familyMemberId = familyMemberId;
+        this.familyMemberName = familyMemberName;
+    }
+
+    /**
+     * Lịch hẹn user này đặt cho một user khác (không phải lịch của chính user hoặc người thân của user)
+     */
+    public boolean isBookedForOtherUser(Long userId) {
+        return bookedForUserId != null && !bookedForUserId.equals(userId);
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getBookingCode() {
+        return bookingCode;
+    }
+
+    public Long getVaccineId() {
+        return vaccineId;
+    }
+
+    public String getVaccineName() {
+        return vaccineName;
+    }
+
+    public LocalDate getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public LocalTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    public Long getCenterId() {
+        return centerId;
+    }
+
+    public String getCenterName() {
+        return centerName;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public Integer getDoseNumber() {
+        return doseNumber;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getBookedForUserId() {
+        return bookedForUserId;
+    }
+
+    public String getBookedForUserName() {
+        return bookedForUserName;
+    }
+
+    public Long getBookedByUserId() {
+        return bookedByUserId;
+    }
+
+    public Long getFamilyMemberId() {
+        return familyMemberId;
+    }
+
+    public String getFamilyMemberName() {
+        return familyMemberName;
+    }
+}
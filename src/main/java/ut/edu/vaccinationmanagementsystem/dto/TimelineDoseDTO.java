@@ -0,0 +1,89 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Một mũi đã tiêm (hồ sơ tiêm) trong dòng thời gian tiêm chủng (PatientTimelineDTO)
+ * Được dùng chung giữa các request từ bộ nhớ nên chỉ có getter
+ */
+public class TimelineDoseDTO {
+    private final Long id; // ID hồ sơ tiêm (VaccinationRecord)
+    private final Long vaccineId;
+    private final String vaccineName;
+    private final LocalDate injectionDate;
+    private final LocalTime injectionTime;
+    private final Integer doseNumber;
+    private final Long centerId;
+    private final String centerName;
+    private final String batchNumber;
+    private final String certificateNumber;
+    private final String nurseName;
+    private final LocalDate nextDoseDate; // Ngày cần tiêm mũi tiếp theo (null nếu đã đủ mũi)
+
+    public TimelineDoseDTO(Long id, Long vaccineId, String vaccineName, LocalDate injectionDate, LocalTime injectionTime,
+                           Integer doseNumber, Long centerId, String centerName, String batchNumber,
+                           String certificateNumber, String nurseName, LocalDate nextDoseDate) {
+        this.id = id;
+        this.vaccineId = vaccineId;
+        this.vaccineName = vaccineName;
+        this.injectionDate = injectionDate;
+        this.injectionTime = injectionTime;
+        this.doseNumber = doseNumber;
+        this.centerId = centerId;
+        this.centerName = centerName;
+        this.batchNumber = batchNumber;
+        this.certificateNumber = certificateNumber;
+        this.nurseName = nurseName;
+        this.nextDoseDate = nextDoseDate;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getVaccineId() {
+        return vaccineId;
+    }
+
+    public String getVaccineName() {
+        return vaccineName;
+    }
+
+    public LocalDate getInjectionDate() {
+        return injectionDate;
+    }
+
+    public LocalTime getInjectionTime() {
+        return injectionTime;
+    }
+
+    public Integer getDoseNumber() {
+        return doseNumber;
+    }
+
+    public Long getCenterId() {
+        return centerId;
+    }
+
+    public String getCenterName() {
+        return centerName;
+    }
+
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+
+    public String getCertificateNumber() {
+        return certificateNumber;
+    }
+
+    public String getNurseName() {
+        return nurseName;
+    }
+
+    public LocalDate getNextDoseDate() {
+        return nextDoseDate;
+    }
+}
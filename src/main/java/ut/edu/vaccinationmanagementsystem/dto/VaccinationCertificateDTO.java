@@ -0,0 +1,110 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO dữ liệu in trên chứng nhận tiêm chủng (PDF)
+ */
+public class VaccinationCertificateDTO {
+    private String certificateNumber; // Số chứng nhận
+    private String fullName; // Họ tên người được tiêm (người thân nếu đặt cho người thân)
+    private LocalDate dateOfBirth; // Ngày sinh
+    private String vaccineName; // Tên vaccine
+    private Integer doseNumber; // Mũi thứ mấy
+    private LocalDate injectionDate; // Ngày tiêm
+    private LocalTime injectionTime; // Giờ tiêm
+    private String batchNumber; // Số lô vaccine
+    private String centerName; // Trung tâm tiêm chủng
+    private String nurseName; // Y tá thực hiện
+    private LocalDate nextDoseDate; // Ngày tiêm mũi tiếp theo (nếu có)
+    
+    // Getters and Setters
+    public String getCertificateNumber() {
+        return certificateNumber;
+    }
+    
+    public void setCertificateNumber(String certificateNumber) {
+        this.certificateNumber = certificateNumber;
+    }
+    
+    public String getFullName() {
+        return fullName;
+    }
+    
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+    
+    public LocalDate getDateOfBirth() {
+        return dateOfBirth;
+    }
+    
+    public void setDateOfBirth(LocalDate dateOfBirth) {
+        this.dateOfBirth = dateOfBirth;
+    }
+    
+    public String getVaccineName() {
+        return vaccineName;
+    }
+    
+    public void setVaccineName(String vaccineName) {
+        this.vaccineName = vaccineName;
+    }
+    
+    public Integer getDoseNumber() {
+        return doseNumber;
+    }
+    
+    public void setDoseNumber(Integer doseNumber) {
+        this.doseNumber = doseNumber;
+    }
+    
+    public LocalDate getInjectionDate() {
+        return injectionDate;
+    }
+    
+    public void setInjectionDate(LocalDate injectionDate) {
+        this.injectionDate = injectionDate;
+    }
+    
+    public LocalTime getInjectionTime() {
+        return injectionTime;
+    }
+    
+    public void setInjectionTime(LocalTime injectionTime) {
+        this.injectionTime = injectionTime;
+    }
+    
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+    
+    public void setBatchNumber(String batchNumber) {
+        this.batchNumber = batchNumber;
+    }
+    
+    public String getCenterName() {
+        return centerName;
+    }
+    
+    public void setCenterName(String centerName) {
+        this.centerName = centerName;
+    }
+    
+    public String getNurseName() {
+        return nurseName;
+    }
+    
+    public void setNurseName(String nurseName) {
+        this.nurseName = nurseName;
+    }
+    
+    public LocalDate getNextDoseDate() {
+        return nextDoseDate;
+    }
+    
+    public void setNextDoseDate(LocalDate nextDoseDate) {
+        this.nextDoseDate = nextDoseDate;
+    }
+}
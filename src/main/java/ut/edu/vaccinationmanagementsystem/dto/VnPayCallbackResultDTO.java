@@ -0,0 +1,56 @@
+package ut.edu.vaccinationmanagementsystem.dto;
+
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
+
+/**
+ * Kết quả xử lý một callback VNPay (return URL hoặc IPN), dùng để chọn trang chuyển hướng hoặc mã phản hồi IPN
+ */
+public class VnPayCallbackResultDTO {
+    private final boolean signatureValid; // false nếu chữ ký không hợp lệ (callback không được xử lý)
+    private final boolean duplicate; // true nếu giao dịch đã được callback khác xử lý (outcome là kết quả đã lưu)
+    private final boolean cancellationFee; // true nếu là thanh toán phí hủy (vnp_TxnRef kết thúc bằng "-CANCEL")
+    private final String bookingCode;
+    private final Long appointmentId; // null nếu không tìm thấy lịch hẹn
+    private final String responseCode; // vnp_ResponseCode
+    private final PaymentCallbackOutcome outcome; // null nếu chữ ký không hợp lệ
+
+    public VnPayCallbackResultDTO(boolean signatureValid, boolean duplicate, boolean cancellationFee, String bookingCode,
+                                  Long appointmentId, String responseCode, PaymentCallbackOutcome outcome) {
+        this.signatureValid = signatureValid;
+        this.duplicate = duplicate;
+        this.cancellationFee = cancellationFee;
+        this.bookingCode = bookingCode;
+        this.appointmentId = appointmentId;
+        this.responseCode = responseCode;
+        this.outcome = outcome;
+    }
+
+    // Getters
+    public boolean isSignatureValid() {
+        return signatureValid;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public boolean isCancellationFee() {
+        return cancellationFee;
+    }
+
+    public String getBookingCode() {
+        return bookingCode;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getResponseCode() {
+        return responseCode;
+    }
+
+    public PaymentCallbackOutcome getOutcome() {
+        return outcome;
+    }
+}
@@ -9,7 +9,11 @@ import java.time.LocalDateTime;
  * Phản ứng phụ sau tiêm vaccine
  */
 @Entity
-@Table(name = "adverse_reactions")
+@Table(name = "adverse_reactions",
+       indexes = {
+           @Index(name = "idx_adverse_reactions_occurred_at", columnList = "occurred_at, id"),
+           @Index(name = "idx_adverse_reactions_resolved_occurred", columnList = "resolved, occurred_at, id")
+       })
 public class AdverseReaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
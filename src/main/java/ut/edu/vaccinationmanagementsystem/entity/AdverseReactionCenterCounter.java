@@ -0,0 +1,83 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm phản ứng phụ theo trung tâm (dùng cho số phản ứng chưa xử lý trên trang quản lý và dashboard y tá)
+ * Trung tâm của phản ứng là trung tâm của lịch hẹn gắn với hồ sơ tiêm; center_id = 0 khi lịch hẹn không có trung tâm
+ */
+@Entity
+@Table(name = "adverse_reaction_center_counters",
+       uniqueConstraints = @UniqueConstraint(name = "uk_adverse_reaction_center_counters_center",
+               columnNames = "center_id"))
+public class AdverseReactionCenterCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "center_id", nullable = false)
+    private Long centerId; // ID trung tâm (0 = không xác định trung tâm)
+
+    @Column(name = "total_count", nullable = false)
+    private Long totalCount = 0L; // Tổng số phản ứng phụ
+
+    @Column(name = "unresolved_count", nullable = false)
+    private Long unresolvedCount = 0L; // Số phản ứng chưa xử lý
+
+    @Column(name = "severe_count", nullable = false)
+    private Long severeCount = 0L; // Số phản ứng mức độ nặng (SEVERE)
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Thời gian cập nhật gần nhất
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCenterId() {
+        return centerId;
+    }
+
+    public void setCenterId(Long centerId) {
+        this.centerId = centerId;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public Long getUnresolvedCount() {
+        return unresolvedCount;
+    }
+
+    public void setUnresolvedCount(Long unresolvedCount) {
+        this.unresolvedCount = unresolvedCount;
+    }
+
+    public Long getSevereCount() {
+        return severeCount;
+    }
+
+    public void setSevereCount(Long severeCount) {
+        this.severeCount = severeCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
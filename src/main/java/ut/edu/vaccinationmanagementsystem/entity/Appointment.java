@@ -13,7 +13,11 @@ import java.util.List;
  * Lịch hẹn tiêm chủng
  */
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments",
+       indexes = {
+           @Index(name = "idx_appointments_date_status", columnList = "appointment_date, status"),
+           @Index(name = "idx_appointments_status", columnList = "status")
+       })
 public class Appointment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,94 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReminderType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hàng đợi nhắc nhở lịch hẹn (mỗi appointment có tối đa 1 reminder cho mỗi loại)
+ * Scheduler chỉ đọc các reminder PENDING đã đến hạn thay vì quét toàn bộ bảng appointments
+ */
+@Entity
+@Table(name = "appointment_reminders",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"appointment_id", "reminder_type"}),
+       indexes = @Index(name = "idx_appointment_reminders_status_due", columnList = "status, due_at"))
+public class AppointmentReminder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+    
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId; // ID lịch hẹn (không dùng FK để xóa appointment không bị ràng buộc)
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reminder_type", nullable = false)
+    private ReminderType reminderType; // Loại nhắc nhở
+    
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt; // Thời điểm cần gửi
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReminderStatus status; // Trạng thái (PENDING, SENT, CANCELLED, SKIPPED)
+    
+    @Column(nullable = true)
+    private LocalDateTime sentAt; // Thời điểm đã gửi
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt; // Thời gian tạo
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+    
+    public ReminderType getReminderType() {
+        return reminderType;
+    }
+    
+    public void setReminderType(ReminderType reminderType) {
+        this.reminderType = reminderType;
+    }
+    
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+    
+    public void setDueAt(LocalDateTime dueAt) {
+        this.dueAt = dueAt;
+    }
+    
+    public ReminderStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(ReminderStatus status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+    
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,86 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SearchKeyType;
+
+/**
+ * Bảng tra cứu lịch hẹn theo số điện thoại / mã booking (cho lễ tân)
+ * Mỗi appointment có một dòng cho mỗi số điện thoại và mã booking của nó
+ * - keyValue dùng cho tìm theo tiền tố (ví dụ: "0912...", "BK-2024...")
+ * - reversedValue là keyValue viết ngược, dùng cho tìm theo hậu tố (ví dụ: 4 số cuối điện thoại)
+ */
+@Entity
+@Table(name = "appointment_search_keys",
+       indexes = {
+           @Index(name = "idx_search_keys_type_value", columnList = "key_type, key_value"),
+           @Index(name = "idx_search_keys_type_reversed", columnList = "key_type, reversed_value"),
+           @Index(name = "idx_search_keys_center_type_value", columnList = "center_id, key_type, key_value"),
+           @Index(name = "idx_search_keys_center_type_reversed", columnList = "center_id, key_type, reversed_value"),
+           @Index(name = "idx_search_keys_appointment", columnList = "appointment_id")
+       })
+public class AppointmentSearchKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+    
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId; // ID lịch hẹn (không dùng FK để xóa appointment không bị ràng buộc)
+    
+    @Column(name = "center_id", nullable = true)
+    private Long centerId; // ID trung tâm của lịch hẹn (null với yêu cầu tư vấn chưa chọn trung tâm)
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "key_type", nullable = false, length = 20)
+    private SearchKeyType keyType; // Loại khóa tìm kiếm (PHONE, BOOKING_CODE)
+    
+    @Column(name = "key_value", nullable = false, length = 64)
+    private String keyValue; // Giá trị đã chuẩn hóa
+    
+    @Column(name = "reversed_value", nullable = false, length = 64)
+    private String reversedValue; // Giá trị viết ngược (tìm theo hậu tố)
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+    
+    public Long getCenterId() {
+        return centerId;
+    }
+    
+    public void setCenterId(Long centerId) {
+        this.centerId = centerId;
+    }
+    
+    public SearchKeyType getKeyType() {
+        return keyType;
+    }
+    
+    public void setKeyType(SearchKeyType keyType) {
+        this.keyType = keyType;
+    }
+    
+    public String getKeyValue() {
+        return keyValue;
+    }
+    
+    public void setKeyValue(String keyValue) {
+        this.keyValue = keyValue;
+    }
+    
+    public String getReversedValue() {
+        return reversedValue;
+    }
+    
+    public void setReversedValue(String reversedValue) {
+        this.reversedValue = reversedValue;
+    }
+}
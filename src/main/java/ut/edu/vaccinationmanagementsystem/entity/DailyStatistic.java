@@ -0,0 +1,111 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticDimension;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng thống kê tổng hợp theo ngày (dùng cho dashboard)
+ * Mỗi dòng là một bộ đếm: (ngày, chỉ số, chiều thống kê, khóa) → số lượng + số tiền
+ */
+@Entity
+@Table(name = "daily_statistics",
+       uniqueConstraints = @UniqueConstraint(name = "uk_daily_statistics_bucket",
+               columnNames = {"metric", "dimension", "dimension_key", "stat_date"}))
+public class DailyStatistic {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+    
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate; // Ngày thống kê
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private StatisticMetric metric; // Chỉ số thống kê
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatisticDimension dimension; // Chiều thống kê (ALL, CENTER, VACCINE, ROLE)
+    
+    @Column(name = "dimension_key", nullable = false, length = 50)
+    private String dimensionKey; // Khóa theo chiều thống kê ("ALL", centerId, vaccineId, role)
+    
+    @Column(name = "count_value", nullable = false)
+    private Long countValue = 0L; // Số lượng
+    
+    @Column(name = "amount_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal amountValue = BigDecimal.ZERO; // Số tiền (chỉ dùng cho REVENUE)
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Thời gian cập nhật cuối cùng
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+    
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+    
+    public StatisticMetric getMetric() {
+        return metric;
+    }
+    
+    public void setMetric(StatisticMetric metric) {
+        this.metric = metric;
+    }
+    
+    public StatisticDimension getDimension() {
+        return dimension;
+    }
+    
+    public void setDimension(StatisticDimension dimension) {
+        this.dimension = dimension;
+    }
+    
+    public String getDimensionKey() {
+        return dimensionKey;
+    }
+    
+    public void setDimensionKey(String dimensionKey) {
+        this.dimensionKey = dimensionKey;
+    }
+    
+    public Long getCountValue() {
+        return countValue;
+    }
+    
+    public void setCountValue(Long countValue) {
+        this.countValue = countValue;
+    }
+    
+    public BigDecimal getAmountValue() {
+        return amountValue;
+    }
+    
+    public void setAmountValue(BigDecimal amountValue) {
+        this.amountValue = amountValue;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
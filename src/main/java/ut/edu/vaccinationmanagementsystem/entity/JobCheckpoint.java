@@ -0,0 +1,60 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vị trí đã xử lý của job chạy nền duyệt bảng theo ID (một dòng mỗi job)
+ * Được lưu trong database để job không phải duyệt lại từ đầu mỗi lần ứng dụng khởi động
+ */
+@Entity
+@Table(name = "job_checkpoints",
+       uniqueConstraints = @UniqueConstraint(name = "uk_job_checkpoints_name", columnNames = "name"))
+public class JobCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(nullable = false, length = 100)
+    private String name; // Tên job (ví dụ: "appointment-search-backfill")
+
+    @Column(name = "last_processed_id", nullable = false)
+    private Long lastProcessedId = 0L; // ID lớn nhất job đã xử lý
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Thời gian cập nhật gần nhất
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastProcessedId() {
+        return lastProcessedId;
+    }
+
+    public void setLastProcessedId(Long lastProcessedId) {
+        this.lastProcessedId = lastProcessedId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
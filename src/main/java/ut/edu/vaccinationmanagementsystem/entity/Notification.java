@@ -10,7 +10,12 @@ import java.time.LocalDateTime;
  * Thông báo gửi cho người dùng
  */
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = {
+           @Index(name = "idx_notifications_created_at", columnList = "created_at, id"),
+           @Index(name = "idx_notifications_user_read", columnList = "user_id, is_read"),
+           @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id")
+       })
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,144 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thông báo đã đọc và quá hạn lưu trên bảng notifications được chuyển sang bảng lưu trữ này
+ * - Giữ nguyên ID thông báo gốc; user/appointment chỉ lưu ID (không có foreign key) để bảng gọn và ghi nhanh
+ * - partitionMonth (yyyyMM của ngày tạo) là khóa phân vùng theo tháng: đọc và xóa theo hạn lưu trữ đều theo từng tháng
+ */
+@Entity
+@Table(name = "notification_archives",
+       indexes = {
+           @Index(name = "idx_notification_archives_user_created", columnList = "user_id, created_at, id"),
+           @Index(name = "idx_notification_archives_month", columnList = "partition_month")
+       })
+public class NotificationArchive {
+    @Id
+    private Long id; // ID của thông báo gốc
+
+    @Column(name = "partition_month", nullable = false)
+    private Integer partitionMonth; // Tháng tạo thông báo (yyyyMM)
+
+    @Column(name = "user_id")
+    private Long userId; // ID người nhận
+
+    @Column(name = "appointment_id")
+    private Long appointmentId; // ID lịch hẹn liên quan (nếu có)
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationType type; // Loại thông báo
+
+    @Column(nullable = false)
+    private String title; // Tiêu đề thông báo
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content; // Nội dung thông báo
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationStatus status; // Trạng thái gửi
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt; // Thời gian tạo thông báo
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt; // Thời gian gửi thông báo
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt; // Thời gian chuyển sang bảng lưu trữ
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getPartitionMonth() {
+        return partitionMonth;
+    }
+
+    public void setPartitionMonth(Integer partitionMonth) {
+        this.partitionMonth = partitionMonth;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+
+    public NotificationType getType() {
+        return type;
+    }
+
+    public void setType(NotificationType type) {
+        this.type = type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public NotificationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(NotificationStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -0,0 +1,291 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastTarget;
+
+import java.time.LocalDateTime;
+
+/**
+ * Đợt gửi thông báo hàng loạt (gửi theo danh sách user, theo role hoặc cho tất cả)
+ * Request chỉ tạo job, worker chạy nền tạo thông báo theo từng lô và ghi lại tiến độ vào đây
+ */
+@Entity
+@Table(name = "notification_broadcasts",
+       indexes = @Index(name = "idx_notification_broadcasts_status", columnList = "status, created_at"))
+public class NotificationBroadcast {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+    
+    @Column(nullable = false)
+    private String title; // Tiêu đề thông báo
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content; // Nội dung thông báo
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false)
+    private BroadcastTarget targetType; // Đối tượng nhận (USERS, ROLES, ALL)
+    
+    @Column(name = "target_roles", nullable = true)
+    private String targetRoles; // Danh sách role, phân cách bởi dấu phẩy (khi targetType = ROLES)
+    
+    @Column(name = "target_user_ids", nullable = true, columnDefinition = "TEXT")
+    private String targetUserIds; // Danh sách user ID, phân cách bởi dấu phẩy (khi targetType = USERS)
+    
+    @Column(nullable = false)
+    private Boolean sendApp; // Tạo thông báo IN_APP
+    
+    @Column(nullable = false)
+    private Boolean sendSms; // Gửi SMS
+    
+    @Column(nullable = false)
+    private Boolean sendEmail; // Gửi email
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BroadcastStatus status; // Trạng thái (QUEUED, RUNNING, COMPLETED, FAILED)
+    
+    @Column(nullable = false)
+    private Integer totalRecipients; // Tổng số người nhận tại thời điểm tạo
+    
+    @Column(nullable = false)
+    private Integer processedCount; // Số người nhận đã xử lý
+    
+    @Column(nullable = false)
+    private Integer inAppCount; // Số thông báo IN_APP đã tạo
+    
+    @Column(nullable = false)
+    private Integer smsSentCount; // Số SMS gửi thành công
+    
+    @Column(nullable = false)
+    private Integer smsFailedCount; // Số SMS gửi thất bại (kể cả user không có số điện thoại)
+    
+    @Column(nullable = false)
+    private Integer emailSentCount; // Số email gửi thành công
+    
+    @Column(nullable = false)
+    private Integer emailFailedCount; // Số email gửi thất bại
+    
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId; // User ID lớn nhất đã xử lý (gửi tiếp từ đây khi thử lại)
+    
+    @Column(nullable = false)
+    private Integer attempts; // Số lần worker nhận job (dùng để worker cũ không ghi đè sau khi job bị nhận lại)
+    
+    @Column(name = "error_message", nullable = true, length = 1000)
+    private String errorMessage; // Lỗi gần nhất
+    
+    @Column(name = "created_by_id", nullable = true)
+    private Long createdById; // ID admin tạo đợt gửi
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt; // Thời gian tạo
+    
+    @Column(nullable = true)
+    private LocalDateTime startedAt; // Thời điểm worker bắt đầu xử lý
+    
+    @Column(name = "heartbeat_at", nullable = true)
+    private LocalDateTime heartbeatAt; // Lần cuối worker ghi tiến độ (phát hiện worker bị dừng đột ngột)
+    
+    @Column(nullable = true)
+    private LocalDateTime completedAt; // Thời điểm hoàn thành
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public BroadcastTarget getTargetType() {
+        return targetType;
+    }
+    
+    public void setTargetType(BroadcastTarget targetType) {
+        this.targetType = targetType;
+    }
+    
+    public String getTargetRoles() {
+        return targetRoles;
+    }
+    
+    public void setTargetRoles(String targetRoles) {
+        this.targetRoles = targetRoles;
+    }
+    
+    public String getTargetUserIds() {
+        return targetUserIds;
+    }
+    
+    public void setTargetUserIds(String targetUserIds) {
+        this.targetUserIds = targetUserIds;
+    }
+    
+    public Boolean getSendApp() {
+        return sendApp;
+    }
+    
+    public void setSendApp(Boolean sendApp) {
+        this.sendApp = sendApp;
+    }
+    
+    public Boolean getSendSms() {
+        return sendSms;
+    }
+    
+    public void setSendSms(Boolean sendSms) {
+        this.sendSms = sendSms;
+    }
+    
+    public Boolean getSendEmail() {
+        return sendEmail;
+    }
+    
+    public void setSendEmail(Boolean sendEmail) {
+        this.sendEmail = sendEmail;
+    }
+    
+    public BroadcastStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(BroadcastStatus status) {
+        this.status = status;
+    }
+    
+    public Integer getTotalRecipients() {
+        return totalRecipients;
+    }
+    
+    public void setTotalRecipients(Integer totalRecipients) {
+        this.totalRecipients = totalRecipients;
+    }
+    
+    public Integer getProcessedCount() {
+        return processedCount;
+    }
+    
+    public void setProcessedCount(Integer processedCount) {
+        this.processedCount = processedCount;
+    }
+    
+    public Integer getInAppCount() {
+        return inAppCount;
+    }
+    
+    public void setInAppCount(Integer inAppCount) {
+        this.inAppCount = inAppCount;
+    }
+    
+    public Integer getSmsSentCount() {
+        return smsSentCount;
+    }
+    
+    public void setSmsSentCount(Integer smsSentCount) {
+        this.smsSentCount = smsSentCount;
+    }
+    
+    public Integer getSmsFailedCount() {
+        return smsFailedCount;
+    }
+    
+    public void setSmsFailedCount(Integer smsFailedCount) {
+        this.smsFailedCount = smsFailedCount;
+    }
+    
+    public Integer getEmailSentCount() {
+        return emailSentCount;
+    }
+    
+    public void setEmailSentCount(Integer emailSentCount) {
+        this.emailSentCount = emailSentCount;
+    }
+    
+    public Integer getEmailFailedCount() {
+        return emailFailedCount;
+    }
+    
+    public void setEmailFailedCount(Integer emailFailedCount) {
+        this.emailFailedCount = emailFailedCount;
+    }
+    
+    public Long getLastUserId() {
+        return lastUserId;
+    }
+    
+    public void setLastUserId(Long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+    
+    public Long getCreatedById() {
+        return createdById;
+    }
+    
+    public void setCreatedById(Long createdById) {
+        this.createdById = createdById;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+    
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,86 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm thông báo theo ngày tạo và loại thông báo (dùng cho thống kê thông báo của admin)
+ * Tính cả thông báo đã chuyển sang bảng lưu trữ, nên không cần quét bảng notifications
+ */
+@Entity
+@Table(name = "notification_daily_counters",
+       uniqueConstraints = @UniqueConstraint(name = "uk_notification_daily_counters_bucket",
+               columnNames = {"stat_date", "type"}))
+public class NotificationDailyCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate; // Ngày tạo thông báo
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationType type; // Loại thông báo
+
+    @Column(name = "created_count", nullable = false)
+    private Long createdCount = 0L; // Số thông báo được tạo trong ngày
+
+    @Column(name = "read_count", nullable = false)
+    private Long readCount = 0L; // Số thông báo (tạo trong ngày) đã được đọc
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Thời gian cập nhật gần nhất
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+
+    public NotificationType getType() {
+        return type;
+    }
+
+    public void setType(NotificationType type) {
+        this.type = type;
+    }
+
+    public Long getCreatedCount() {
+        return createdCount;
+    }
+
+    public void setCreatedCount(Long createdCount) {
+        this.createdCount = createdCount;
+    }
+
+    public Long getReadCount() {
+        return readCount;
+    }
+
+    public void setReadCount(Long readCount) {
+        this.readCount = readCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
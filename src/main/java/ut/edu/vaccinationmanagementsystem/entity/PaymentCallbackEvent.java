@@ -0,0 +1,119 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
+
+import java.time.LocalDateTime;
+
+/**
+ * Callback VNPay đã nhận (return URL hoặc IPN), khóa theo (vnp_TxnRef, vnp_TransactionNo)
+ * Mỗi giao dịch chỉ được xử lý một lần; callback trùng nhận lại kết quả đã lưu
+ */
+@Entity
+@Table(name = "payment_callback_events",
+       uniqueConstraints = @UniqueConstraint(name = "uk_payment_callback_events_txn",
+               columnNames = {"txn_ref", "transaction_no"}),
+       indexes = @Index(name = "idx_payment_callback_events_received_at", columnList = "received_at"))
+public class PaymentCallbackEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "txn_ref", nullable = false, length = 100)
+    private String txnRef; // vnp_TxnRef (booking code, thêm "-CANCEL" nếu là phí hủy)
+
+    @Column(name = "transaction_no", nullable = false, length = 100)
+    private String transactionNo; // vnp_TransactionNo ("" nếu VNPay không gửi)
+
+    @Column(name = "response_code", length = 10)
+    private String responseCode; // vnp_ResponseCode
+
+    @Column(name = "source", nullable = false, length = 10)
+    private String source; // RETURN hoặc IPN
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "outcome", length = 30)
+    private PaymentCallbackOutcome outcome; // Kết quả xử lý (null khi đang xử lý)
+
+    @Column(name = "appointment_id")
+    private Long appointmentId; // ID lịch hẹn (giữ lại cả khi lịch hẹn đã bị xóa)
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt; // Thời gian nhận callback đầu tiên
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt; // Thời gian xử lý xong
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTxnRef() {
+        return txnRef;
+    }
+
+    public void setTxnRef(String txnRef) {
+        this.txnRef = txnRef;
+    }
+
+    public String getTransactionNo() {
+        return transactionNo;
+    }
+
+    public void setTransactionNo(String transactionNo) {
+        this.transactionNo = transactionNo;
+    }
+
+    public String getResponseCode() {
+        return responseCode;
+    }
+
+    public void setResponseCode(String responseCode) {
+        this.responseCode = responseCode;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public PaymentCallbackOutcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(PaymentCallbackOutcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(LocalDateTime receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
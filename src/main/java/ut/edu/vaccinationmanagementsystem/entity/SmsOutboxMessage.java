@@ -0,0 +1,163 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SmsOutboxStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tin nhắn SMS chờ gửi (transactional outbox)
+ * Được ghi trong cùng transaction với thay đổi nghiệp vụ (ví dụ mã OTP), worker gửi sau khi transaction commit
+ */
+@Entity
+@Table(name = "sms_outbox",
+       indexes = {
+           @Index(name = "idx_sms_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+       })
+public class SmsOutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "phone_number", nullable = false, length = 50)
+    private String phoneNumber; // Số điện thoại người nhận (đã normalize)
+
+    @Column(name = "content", nullable = false, length = 500)
+    private String content; // Nội dung tin nhắn
+
+    @Column(name = "purpose", nullable = false, length = 30)
+    private String purpose; // Mục đích (ví dụ PHONE_VERIFICATION), dùng cho thống kê
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 10)
+    private SmsOutboxStatus status = SmsOutboxStatus.PENDING; // Trạng thái gửi
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0; // Số lần đã gửi
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // Thời điểm được gửi (lần đầu hoặc gửi lại)
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil; // Hạn worker giữ tin khi đang gửi (quá hạn thì worker khác nhận lại)
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken; // Mã của lần nhận tin đang giữ; chỉ worker có mã này được ghi kết quả
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt; // Sau thời điểm này không gửi nữa (null = không hết hạn)
+
+    @Column(name = "last_error", length = 500)
+    private String lastError; // Lỗi của lần gửi gần nhất
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt; // Thời gian tạo
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt; // Thời gian gửi thành công
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getPurpose() {
+        return purpose;
+    }
+
+    public void setPurpose(String purpose) {
+        this.purpose = purpose;
+    }
+
+    public SmsOutboxStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SmsOutboxStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
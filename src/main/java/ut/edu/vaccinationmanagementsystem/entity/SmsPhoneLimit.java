@@ -0,0 +1,72 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm giới hạn gửi SMS theo số điện thoại (một dòng mỗi số)
+ * Được cập nhật bằng một câu UPDATE có điều kiện, nên các yêu cầu đồng thời cho cùng số điện thoại
+ * phải chờ nhau (khóa dòng tới khi transaction commit) thay vì cùng vượt qua kiểm tra
+ */
+@Entity
+@Table(name = "sms_phone_limits",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sms_phone_limits_phone", columnNames = "phone_number"))
+public class SmsPhoneLimit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "phone_number", nullable = false, length = 50)
+    private String phoneNumber; // Số điện thoại (đã normalize)
+
+    @Column(name = "last_requested_at")
+    private LocalDateTime lastRequestedAt; // Thời điểm tin gần nhất được đưa vào hàng đợi
+
+    @Column(name = "window_start")
+    private LocalDateTime windowStart; // Bắt đầu khung một giờ hiện tại
+
+    @Column(name = "window_count", nullable = false)
+    private Integer windowCount = 0; // Số tin trong khung một giờ hiện tại
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public LocalDateTime getLastRequestedAt() {
+        return lastRequestedAt;
+    }
+
+    public void setLastRequestedAt(LocalDateTime lastRequestedAt) {
+        this.lastRequestedAt = lastRequestedAt;
+    }
+
+    public LocalDateTime getWindowStart() {
+        return windowStart;
+    }
+
+    public void setWindowStart(LocalDateTime windowStart) {
+        this.windowStart = windowStart;
+    }
+
+    public Integer getWindowCount() {
+        return windowCount;
+    }
+
+    public void setWindowCount(Integer windowCount) {
+        this.windowCount = windowCount;
+    }
+}
@@ -0,0 +1,96 @@
+package ut.edu.vaccinationmanagementsystem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Số công việc của một nhân viên trong một ngày (dùng cho hiệu suất nhân viên theo tuần/tháng của admin)
+ * Bác sĩ: số ca khám sàng lọc; y tá: số mũi tiêm; lễ tân: số lịch hẹn đã xác nhận/check-in
+ */
+@Entity
+@Table(name = "staff_daily_activities",
+       uniqueConstraints = @UniqueConstraint(name = "uk_staff_daily_activities_staff_date",
+               columnNames = {"staff_id", "activity_date"}),
+       indexes = @Index(name = "idx_staff_daily_activities_date", columnList = "activity_date, staff_id"))
+public class StaffDailyActivity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // ID tự động tăng
+
+    @Column(name = "staff_id", nullable = false)
+    private Long staffId; // ID user của nhân viên
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate; // Ngày làm việc
+
+    @Column(name = "screening_count", nullable = false)
+    private Long screeningCount = 0L; // Số ca khám sàng lọc (bác sĩ)
+
+    @Column(name = "injection_count", nullable = false)
+    private Long injectionCount = 0L; // Số mũi tiêm (y tá)
+
+    @Column(name = "reception_count", nullable = false)
+    private Long receptionCount = 0L; // Số lịch hẹn đã xác nhận/check-in (lễ tân)
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Thời gian cập nhật gần nhất
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStaffId() {
+        return staffId;
+    }
+
+    public void setStaffId(Long staffId) {
+        this.staffId = staffId;
+    }
+
+    public LocalDate getActivityDate() {
+        return activityDate;
+    }
+
+    public void setActivityDate(LocalDate activityDate) {
+        this.activityDate = activityDate;
+    }
+
+    public Long getScreeningCount() {
+        return screeningCount;
+    }
+
+    public void setScreeningCount(Long screeningCount) {
+        this.screeningCount = screeningCount;
+    }
+
+    public Long getInjectionCount() {
+        return injectionCount;
+    }
+
+    public void setInjectionCount(Long injectionCount) {
+        this.injectionCount = injectionCount;
+    }
+
+    public Long getReceptionCount() {
+        return receptionCount;
+    }
+
+    public void setReceptionCount(Long receptionCount) {
+        this.receptionCount = receptionCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+       indexes = @Index(name = "idx_users_role_status", columnList = "role, status"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -11,7 +11,8 @@ import java.util.List;
  * Hồ sơ tiêm chủng - Ghi nhận thông tin tiêm vaccine
  */
 @Entity
-@Table(name = "vaccination_records")
+@Table(name = "vaccination_records",
+       indexes = @Index(name = "idx_vaccination_records_injection_date", columnList = "injection_date"))
 public class VaccinationRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,9 +39,9 @@ public class VaccinationRecord {
     private VaccineLot vaccineLot; // Lô vaccine đã sử dụng
     
     @ManyToOne
-    @JoinColumn(name = "nurse_id", nullable = false)
+    @JoinColumn(name = "nurse_id", nullable = true)
     @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"appointments", "vaccinationRecords", "familyMembers", "password", "verificationCode"})
-    private User nurse; // Y tá thực hiện tiêm (role = NURSE)
+    private User nurse; // Y tá thực hiện tiêm (role = NURSE), null nếu tài khoản y tá đã bị xóa
     
     @Column(nullable = false)
     private LocalDate injectionDate; // Ngày tiêm
@@ -11,7 +11,8 @@ import java.util.List;
  * Lô vaccine - Quản lý từng lô vaccine nhập kho
  */
 @Entity
-@Table(name = "vaccine_lots")
+@Table(name = "vaccine_lots",
+       indexes = @Index(name = "idx_vaccine_lots_vaccine_status_expiry", columnList = "vaccine_id, status, expiry_date"))
 public class VaccineLot {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,8 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum BroadcastStatus {
+    QUEUED,     // Chờ worker xử lý
+    RUNNING,    // Đang gửi
+    COMPLETED,  // Đã gửi xong cho tất cả người nhận
+    FAILED      // Dừng giữa chừng do lỗi, có thể thử lại từ vị trí đã gửi
+}
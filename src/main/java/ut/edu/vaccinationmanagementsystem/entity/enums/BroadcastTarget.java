@@ -0,0 +1,7 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum BroadcastTarget {
+    USERS,  // Danh sách user được chọn
+    ROLES,  // Tất cả user thuộc các role được chọn
+    ALL     // Tất cả user
+}
@@ -0,0 +1,11 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum PaymentCallbackOutcome {
+    PAID,                  // Thanh toán thành công, payment chuyển sang PAID
+    CANCELLATION_FEE_PAID, // Thanh toán phí hủy thành công
+    USER_CANCELLED,        // Người dùng hủy thanh toán (mã 24 hoặc không có mã)
+    FAILED,                // Thanh toán thất bại (các mã lỗi khác)
+    ORDER_NOT_FOUND,       // Không tìm thấy lịch hẹn/payment của vnp_TxnRef
+    AMOUNT_MISMATCH,       // Số tiền VNPay trả về khác số tiền của payment
+    IGNORED                // Trạng thái payment không cho phép chuyển (đã được callback khác xử lý)
+}
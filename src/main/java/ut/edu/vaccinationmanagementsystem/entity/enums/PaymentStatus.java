@@ -1,8 +1,35 @@
 package ut.edu.vaccinationmanagementsystem.entity.enums;
 
+import java.util.List;
+
 public enum PaymentStatus {
-    PENDING,
-    PAID,
-    REFUNDED,
-    FAILED
+    PENDING,   // Chờ thanh toán
+    PAID,      // Đã thanh toán
+    REFUNDED,  // Đã hoàn tiền
+    FAILED;    // Thanh toán thất bại
+
+    /**
+     * Các trạng thái được phép chuyển sang trạng thái này:
+     * PENDING → PAID/FAILED, FAILED → PAID (thanh toán lại, ví dụ trả tiền mặt tại quầy), PAID → REFUNDED
+     * Được dùng làm điều kiện của câu UPDATE nên callback trùng hoặc đồng thời chỉ chuyển trạng thái một lần
+     */
+    public List<PaymentStatus> allowedSources() {
+        switch (this) {
+            case PAID:
+                return List.of(PENDING, FAILED);
+            case FAILED:
+                return List.of(PENDING);
+            case REFUNDED:
+                return List.of(PAID);
+            default:
+                return List.of();
+        }
+    }
+
+    /**
+     * Kiểm tra có được chuyển từ trạng thái này sang trạng thái target không
+     */
+    public boolean canTransitionTo(PaymentStatus target) {
+        return target != null && target.allowedSources().contains(this);
+    }
 }
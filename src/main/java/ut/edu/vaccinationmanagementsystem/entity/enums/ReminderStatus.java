@@ -0,0 +1,8 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum ReminderStatus {
+    PENDING,    // Chờ đến hạn gửi
+    SENT,       // Đã gửi
+    CANCELLED,  // Lịch hẹn đã hủy / không còn hiệu lực
+    SKIPPED     // Đã quá thời điểm gửi, bỏ qua
+}
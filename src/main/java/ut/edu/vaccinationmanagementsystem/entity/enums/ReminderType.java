@@ -0,0 +1,7 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum ReminderType {
+    AFTER_BOOKING,    // Nhắc nhở 5 phút sau khi đặt lịch
+    ONE_DAY_BEFORE,   // Nhắc nhở 1 ngày trước giờ hẹn
+    TWO_HOURS_BEFORE  // Nhắc nhở 2 giờ trước giờ hẹn
+}
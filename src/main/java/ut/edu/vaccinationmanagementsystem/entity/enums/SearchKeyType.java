@@ -0,0 +1,6 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum SearchKeyType {
+    PHONE,        // Số điện thoại (đã chuẩn hóa) của người được tiêm / người thân / số tư vấn
+    BOOKING_CODE  // Mã booking (viết hoa)
+}
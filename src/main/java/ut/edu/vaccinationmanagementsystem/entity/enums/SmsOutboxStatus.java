@@ -0,0 +1,9 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum SmsOutboxStatus {
+    PENDING,  // Chờ gửi (hoặc chờ gửi lại sau lần thất bại)
+    SENDING,  // Worker đang gửi (locked_until là hạn giữ tin)
+    SENT,     // Đã gửi thành công
+    FAILED,   // Hết số lần thử
+    EXPIRED   // Quá hạn sử dụng trước khi gửi được (ví dụ mã OTP đã hết hạn)
+}
@@ -0,0 +1,8 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum StatisticDimension {
+    ALL,     // Tổng toàn hệ thống
+    CENTER,  // Theo trung tâm (dimensionKey = centerId)
+    VACCINE, // Theo vaccine (dimensionKey = vaccineId)
+    ROLE     // Theo vai trò người dùng (dimensionKey = Role)
+}
@@ -0,0 +1,10 @@
+package ut.edu.vaccinationmanagementsystem.entity.enums;
+
+public enum StatisticMetric {
+    INJECTIONS,             // Số mũi tiêm (theo ngày tiêm)
+    APPOINTMENTS,           // Số lịch hẹn có ngày hẹn (theo ngày hẹn)
+    CONSULTATION_REQUESTS,  // Số yêu cầu tư vấn chưa có ngày hẹn (theo ngày tạo)
+    COMPLETED_APPOINTMENTS, // Số lịch hẹn đã hoàn thành (theo ngày hẹn)
+    REVENUE,                // Doanh thu từ payment PAID (theo ngày thanh toán)
+    USER_REGISTRATIONS      // Số tài khoản (theo ngày tạo)
+}
@@ -8,14 +8,15 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import ut.edu.vaccinationmanagementsystem.entity.User;
-import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
+import ut.edu.vaccinationmanagementsystem.service.UserStatusCacheService;
 
 /**
  * Interceptor để kiểm tra trạng thái user trong mỗi request
  * Nếu user bị khóa (LOCKED), sẽ logout và redirect về login
+ * Trạng thái được đọc qua UserStatusCacheService (cache TTL ngắn) thay vì load lại User mỗi request
  */
 @Component
 public class UserStatusInterceptor implements HandlerInterceptor {
@@ -23,6 +24,9 @@ public class UserStatusInterceptor implements HandlerInterceptor {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserStatusCacheService userStatusCacheService;
+    
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // Bỏ qua các request không cần authentication
@@ -45,27 +49,26 @@ public class UserStatusInterceptor implements HandlerInterceptor {
         if (authentication != null && authentication.isAuthenticated() && 
             !authentication.getName().equals("anonymousUser")) {
             
-            User currentUser = null;
+            Long currentUserId = null;
             
-            // Lấy user từ authentication
+            // Lấy user ID từ authentication
             if (authentication.getPrincipal() instanceof CustomOAuth2User) {
                 CustomOAuth2User customOAuth2User = (CustomOAuth2User) authentication.getPrincipal();
-                currentUser = customOAuth2User.getUser();
+                User principalUser = customOAuth2User.getUser();
+                currentUserId = principalUser != null ? principalUser.getId() : null;
             } else if (authentication.getPrincipal() instanceof CustomUserDetails) {
                 CustomUserDetails customUserDetails = (CustomUserDetails) authentication.getPrincipal();
-                currentUser = customUserDetails.getUser();
+                User principalUser = customUserDetails.getUser();
+                currentUserId = principalUser != null ? principalUser.getId() : null;
             } else {
-                // Lấy từ database
+                // Lấy từ database (chỉ lấy ID, không load toàn bộ User)
                 String email = authentication.getName();
-                currentUser = userRepository.findByEmail(email).orElse(null);
+                currentUserId = userRepository.findIdByEmail(email).orElse(null);
             }
             
-            // Kiểm tra user status
-            if (currentUser != null) {
-                // Refresh user từ database để lấy status mới nhất
-                User freshUser = userRepository.findById(currentUser.getId()).orElse(null);
-                
-                if (freshUser != null && freshUser.getStatus() == UserStatus.LOCKED) {
+            // Kiểm tra user status (đọc từ cache, chỉ truy vấn database khi cache hết hạn)
+            if (currentUserId != null) {
+                if (userStatusCacheService.isLocked(currentUserId)) {
                     // User bị khóa, logout và redirect về login
                     SecurityContextHolder.clearContext();
                     request.getSession().invalidate();
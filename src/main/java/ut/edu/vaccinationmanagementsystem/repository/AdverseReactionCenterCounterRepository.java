@@ -0,0 +1,54 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.AdverseReactionCenterCounter;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AdverseReactionCenterCounterRepository extends JpaRepository<AdverseReactionCenterCounter, Long> {
+    
+    /**
+     * Cộng dồn bộ đếm của một trung tâm (tạo mới nếu chưa có) trong một câu lệnh để an toàn khi ghi đồng thời
+     */
+    @Modifying
+    @Query(value = "INSERT INTO adverse_reaction_center_counters (center_id, total_count, unresolved_count, severe_count, updated_at) " +
+                   "VALUES (:centerId, :totalDelta, :unresolvedDelta, :severeDelta, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE total_count = total_count + :totalDelta, " +
+                   "unresolved_count = unresolved_count + :unresolvedDelta, " +
+                   "severe_count = severe_count + :severeDelta, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int increment(@Param("centerId") Long centerId,
+                  @Param("totalDelta") long totalDelta,
+                  @Param("unresolvedDelta") long unresolvedDelta,
+                  @Param("severeDelta") long severeDelta);
+    
+    /**
+     * Xóa các bộ đếm (trong danh sách ID) đã về 0 (dùng khi đối soát trung tâm không còn phản ứng nào)
+     */
+    @Modifying
+    @Query("DELETE FROM AdverseReactionCenterCounter c WHERE c.id IN :ids " +
+           "AND c.totalCount = 0 AND c.unresolvedCount = 0 AND c.severeCount = 0")
+    int deleteEmptyByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Tổng bộ đếm của tất cả trung tâm
+     * @return Một dòng [tổng số phản ứng, số chưa xử lý, số mức độ nặng]
+     */
+    @Query("SELECT COALESCE(SUM(c.totalCount), 0), COALESCE(SUM(c.unresolvedCount), 0), COALESCE(SUM(c.severeCount), 0) " +
+           "FROM AdverseReactionCenterCounter c")
+    List<Object[]> sumCounts();
+    
+    /**
+     * Bộ đếm của một trung tâm
+     * @return Một dòng [tổng số phản ứng, số chưa xử lý, số mức độ nặng] (0 nếu trung tâm chưa có phản ứng)
+     */
+    @Query("SELECT COALESCE(SUM(c.totalCount), 0), COALESCE(SUM(c.unresolvedCount), 0), COALESCE(SUM(c.severeCount), 0) " +
+           "FROM AdverseReactionCenterCounter c WHERE c.centerId = :centerId")
+    List<Object[]> sumCountsByCenterId(@Param("centerId") Long centerId);
+}
@@ -1,42 +1,83 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.AdverseReaction;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface AdverseReactionRepository extends JpaRepository<AdverseReaction, Long> {
+public interface AdverseReactionRepository extends JpaRepository<AdverseReaction, Long>, JpaSpecificationExecutor<AdverseReaction> {
     /**
      * Tìm tất cả phản ứng phụ của một vaccination record
      */
     List<AdverseReaction> findByVaccinationRecordId(Long vaccinationRecordId);
     
     /**
-     * Tìm tất cả phản ứng phụ chưa được xử lý (resolved = false)
+     * Tìm tất cả phản ứng phụ đã được xử lý bởi một user cụ thể
      */
-    @Query("SELECT ar FROM AdverseReaction ar WHERE ar.resolved = false ORDER BY ar.occurredAt DESC")
-    List<AdverseReaction> findUnresolvedReactions();
+    List<AdverseReaction> findByHandledById(Long handledById);
     
     /**
-     * Tìm tất cả phản ứng phụ đã được xử lý bởi một user cụ thể
+     * Đánh dấu đã xử lý nếu phản ứng chưa được xử lý (câu UPDATE có điều kiện, chỉ một request đồng thời thành công)
+     * @return 1 nếu phản ứng vừa chuyển sang đã xử lý, 0 nếu đã xử lý từ trước
      */
-    List<AdverseReaction> findByHandledById(Long handledById);
+    @Modifying
+    @Query("UPDATE AdverseReaction ar SET ar.resolved = true WHERE ar.id = :id AND ar.resolved = false")
+    int markResolved(@Param("id") Long id);
+    
+    /**
+     * Đếm phản ứng phụ theo trung tâm của lịch hẹn (dùng để tính lại bộ đếm theo trung tâm)
+     * @return Danh sách [centerId (null nếu không có trung tâm), tổng số, số chưa xử lý, số mức độ nặng]
+     */
+    @Query("SELECT c.id, COUNT(ar), " +
+           "SUM(CASE WHEN ar.resolved = false THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN ar.reactionType = ut.edu.vaccinationmanagementsystem.entity.enums.ReactionType.SEVERE THEN 1 ELSE 0 END) " +
+           "FROM AdverseReaction ar LEFT JOIN ar.vaccinationRecord vr LEFT JOIN vr.appointment a LEFT JOIN a.center c " +
+           "GROUP BY c.id")
+    List<Object[]> countGroupByCenter();
+    
+    /**
+     * Đếm theo trung tâm các phản ứng phụ sẽ bị xóa khi xóa user hàng loạt
+     * (do các user xử lý hoặc thuộc hồ sơ tiêm của các user)
+     * @return Danh sách [centerId (null nếu không có trung tâm), tổng số, số chưa xử lý, số mức độ nặng]
+     */
+    @Query("SELECT c.id, COUNT(ar), " +
+           "SUM(CASE WHEN ar.resolved = false THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN ar.reactionType = ut.edu.vaccinationmanagementsystem.entity.enums.ReactionType.SEVERE THEN 1 ELSE 0 END) " +
+           "FROM AdverseReaction ar LEFT JOIN ar.vaccinationRecord vr LEFT JOIN vr.appointment a LEFT JOIN a.center c " +
+           "WHERE ar.handledBy.id IN :userIds OR vr.user.id IN :userIds " +
+           "GROUP BY c.id")
+    List<Object[]> countGroupByCenterForUsers(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm phản ứng phụ do các user xử lý (xem trước khi xóa user hàng loạt)
+     */
+    long countByHandledByIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa phản ứng phụ do các user xử lý bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM AdverseReaction ar WHERE ar.handledBy.id IN :userIds")
+    int deleteByHandledByIds(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm phản ứng phụ thuộc hồ sơ tiêm của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByVaccinationRecordUserIdIn(Collection<Long> userIds);
     
     /**
-     * Tìm tất cả phản ứng phụ với các relationships được load (eager fetch)
+     * Xóa phản ứng phụ thuộc hồ sơ tiêm của các user (phải xóa trước khi xóa hồ sơ tiêm)
      */
-    @Query("SELECT DISTINCT ar FROM AdverseReaction ar " +
-           "LEFT JOIN FETCH ar.vaccinationRecord vr " +
-           "LEFT JOIN FETCH vr.user " +
-           "LEFT JOIN FETCH vr.vaccine " +
-           "LEFT JOIN FETCH vr.appointment a " +
-           "LEFT JOIN FETCH a.center " +
-           "LEFT JOIN FETCH ar.handledBy " +
-           "ORDER BY ar.occurredAt DESC")
-    List<AdverseReaction> findAllWithRelationships();
+    @Modifying
+    @Query("DELETE FROM AdverseReaction ar WHERE ar.vaccinationRecord.id IN " +
+           "(SELECT vr.id FROM VaccinationRecord vr WHERE vr.user.id IN :userIds)")
+    int deleteByVaccinationRecordUserIds(@Param("userIds") Collection<Long> userIds);
 }
 
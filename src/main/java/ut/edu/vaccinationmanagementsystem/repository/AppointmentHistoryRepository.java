@@ -1,9 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.AppointmentHistory;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,5 +17,25 @@ public interface AppointmentHistoryRepository extends JpaRepository<AppointmentH
      * Tìm tất cả lịch sử thay đổi của một appointment
      */
     List<AppointmentHistory> findByAppointmentIdOrderByChangedAtDesc(Long appointmentId);
+    
+    /**
+     * Nhóm các lần chuyển sang các trạng thái cho trước theo người thực hiện và ngày (đối soát hiệu suất lễ tân)
+     * @return Danh sách [changedById, changedDate, count]
+     */
+    @Query("SELECT h.changedBy.id, cast(h.changedAt as LocalDate), COUNT(h) FROM AppointmentHistory h " +
+           "WHERE h.newStatus IN :statuses GROUP BY h.changedBy.id, cast(h.changedAt as LocalDate)")
+    List<Object[]> countGroupByChangedByAndDate(@Param("statuses") Collection<AppointmentStatus> statuses);
+    
+    /**
+     * Đếm lịch sử thay đổi do các user thực hiện (xem trước khi xóa user hàng loạt)
+     */
+    long countByChangedByIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa lịch sử thay đổi do các user thực hiện bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM AppointmentHistory h WHERE h.changedBy.id IN :userIds")
+    int deleteByChangedByIds(@Param("userIds") Collection<Long> userIds);
 }
 
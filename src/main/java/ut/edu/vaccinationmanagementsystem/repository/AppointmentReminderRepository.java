@@ -0,0 +1,63 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentReminder;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AppointmentReminderRepository extends JpaRepository<AppointmentReminder, Long> {
+    
+    /**
+     * Tìm các reminder của một appointment
+     */
+    List<AppointmentReminder> findByAppointmentId(Long appointmentId);
+    
+    /**
+     * Lấy ID các reminder đã đến hạn, sắp xếp theo thời điểm cần gửi (dùng index status + due_at)
+     */
+    @Query("SELECT r.id FROM AppointmentReminder r WHERE r.status = :status AND r.dueAt <= :now ORDER BY r.dueAt ASC")
+    List<Long> findDueReminderIds(
+            @Param("status") ReminderStatus status,
+            @Param("now") LocalDateTime now,
+            Pageable pageable);
+    
+    /**
+     * Đánh dấu reminder đã gửi (chỉ thành công nếu reminder vẫn PENDING)
+     * @return 1 nếu giành được quyền gửi, 0 nếu reminder đã được xử lý ở nơi khác
+     */
+    @Modifying
+    @Query("UPDATE AppointmentReminder r SET r.status = ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus.SENT, " +
+           "r.sentAt = :now WHERE r.id = :id AND r.status = ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus.PENDING")
+    int markSent(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Hủy tất cả reminder chưa gửi của một appointment
+     */
+    @Modifying
+    @Query("UPDATE AppointmentReminder r SET r.status = ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus.CANCELLED " +
+           "WHERE r.appointmentId = :appointmentId AND r.status = ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus.PENDING")
+    int cancelPendingByAppointmentId(@Param("appointmentId") Long appointmentId);
+    
+    /**
+     * Tìm ID các appointment sắp tới (PENDING/CONFIRMED) chưa có reminder nào
+     * Dùng để bổ sung reminder cho appointment được tạo/xác nhận ngoài AppointmentService
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE " +
+           "a.status IN :statuses AND " +
+           "a.appointmentDate BETWEEN :startDate AND :endDate AND " +
+           "NOT EXISTS (SELECT r.id FROM AppointmentReminder r WHERE r.appointmentId = a.id)")
+    List<Long> findUnscheduledAppointmentIds(
+            @Param("statuses") List<AppointmentStatus> statuses,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+}
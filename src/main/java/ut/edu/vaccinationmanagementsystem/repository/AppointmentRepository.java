@@ -1,23 +1,64 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, JpaSpecificationExecutor<Appointment> {
     Optional<Appointment> findByBookingCode(String bookingCode);
     
+    /**
+     * ID người đặt và người được tiêm của lịch hẹn theo booking code (kiểm tra quyền mà không load cả appointment)
+     * @return Danh sách rỗng nếu không có lịch hẹn, ngược lại một dòng [bookedByUserId, bookedForUserId]
+     */
+    @Query("SELECT bb.id, bf.id FROM Appointment a " +
+           "LEFT JOIN a.bookedByUser bb " +
+           "LEFT JOIN a.bookedForUser bf " +
+           "WHERE a.bookingCode = :bookingCode")
+    List<Object[]> findOwnerIdsByBookingCode(@Param("bookingCode") String bookingCode);
+    
     List<Appointment> findByBookedByUserId(Long userId);
     
     List<Appointment> findByBookedForUserId(Long userId);
     
+    /**
+     * Các cột appointment dùng cho dòng thời gian tiêm chủng của user (người đặt hoặc người được tiêm), không load entity
+     * @return Mỗi dòng: [id, bookingCode, vaccineId, vaccineName, appointmentDate, appointmentTime, centerId, centerName,
+     *         roomNumber, status, doseNumber, notes, createdAt, bookedForUserId, bookedForUserName, bookedByUserId,
+     *         familyMemberId, familyMemberName]
+     */
+    @Query("SELECT a.id, a.bookingCode, v.id, v.name, a.appointmentDate, a.appointmentTime, c.id, c.name, " +
+           "r.roomNumber, a.status, a.doseNumber, a.notes, a.createdAt, bf.id, bf.fullName, bb.id, fm.id, fm.fullName " +
+           "FROM Appointment a " +
+           "LEFT JOIN a.vaccine v LEFT JOIN a.center c LEFT JOIN a.room r " +
+           "LEFT JOIN a.bookedForUser bf LEFT JOIN a.bookedByUser bb LEFT JOIN a.familyMember fm " +
+           "WHERE bf.id = :userId OR bb.id = :userId")
+    List<Object[]> findTimelineRowsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Các cột appointment dùng cho dòng thời gian tiêm chủng của một người thân (cùng thứ tự cột với findTimelineRowsByUserId)
+     */
+    @Query("SELECT a.id, a.bookingCode, v.id, v.name, a.appointmentDate, a.appointmentTime, c.id, c.name, " +
+           "r.roomNumber, a.status, a.doseNumber, a.notes, a.createdAt, bf.id, bf.fullName, bb.id, fm.id, fm.fullName " +
+           "FROM Appointment a " +
+           "LEFT JOIN a.vaccine v LEFT JOIN a.center c LEFT JOIN a.room r " +
+           "LEFT JOIN a.bookedForUser bf LEFT JOIN a.bookedByUser bb JOIN a.familyMember fm " +
+           "WHERE fm.id = :familyMemberId")
+    List<Object[]> findTimelineRowsByFamilyMemberId(@Param("familyMemberId") Long familyMemberId);
+    
     List<Appointment> findByRequiresConsultationAndStatus(Boolean requiresConsultation, String status);
     
     /**
@@ -94,6 +135,59 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
            "ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
     List<Appointment> findByFamilyMemberIdOrderByAppointmentDateDesc(@Param("familyMemberId") Long familyMemberId);
     
+    /**
+     * Lấy ID các appointment của một người thân (dùng để cập nhật bảng tra cứu khi số điện thoại thay đổi)
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE a.familyMember.id = :familyMemberId")
+    List<Long> findIdsByFamilyMemberId(@Param("familyMemberId") Long familyMemberId);
+    
+    /**
+     * Lấy ID các appointment được đặt cho một user
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE a.bookedForUser.id = :userId")
+    List<Long> findIdsByBookedForUserId(@Param("userId") Long userId);
+    
+    /**
+     * Lấy ID các appointment được đặt cho các user hoặc cho người thân của các user
+     * (các appointment có khóa tìm kiếm theo số điện thoại của user, cần cập nhật lại khi xóa user)
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE a.bookedForUser.id IN :userIds " +
+           "OR a.familyMember.id IN (SELECT fm.id FROM FamilyMember fm WHERE fm.user.id IN :userIds)")
+    List<Long> findIdsLinkedToUsers(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm appointment do các user đặt (xem trước khi xóa user hàng loạt)
+     */
+    long countByBookedByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Bỏ liên kết người đặt lịch khỏi appointment của các user (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("UPDATE Appointment a SET a.bookedByUser = null WHERE a.bookedByUser.id IN :userIds")
+    int clearBookedByUser(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Bỏ liên kết người được tiêm khỏi appointment của các user (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("UPDATE Appointment a SET a.bookedForUser = null WHERE a.bookedForUser.id IN :userIds")
+    int clearBookedForUser(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Bỏ liên kết người thân khỏi appointment khi người thân bị xóa cùng user (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("UPDATE Appointment a SET a.familyMember = null WHERE a.familyMember.id IN " +
+           "(SELECT fm.id FROM FamilyMember fm WHERE fm.user.id IN :userIds)")
+    int clearFamilyMemberOfUsers(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Lấy ID các appointment có ID lớn hơn afterId, tăng dần (dùng để duyệt theo lô)
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE a.id > :afterId ORDER BY a.id ASC")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
     /**
      * Tìm tất cả appointments của một user và vaccine cụ thể với status PENDING hoặc CONFIRMED
      */
@@ -137,6 +231,51 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      * Tìm tất cả appointments theo status và centerId
      */
     List<Appointment> findByStatusAndCenterId(AppointmentStatus status, Long centerId);
+    
+    /**
+     * Đếm appointments có ngày hẹn theo ngày hẹn, trung tâm, vaccine và status (dùng để đối soát thống kê dashboard)
+     * @return Danh sách [appointmentDate, centerId, vaccineId, status, count]
+     */
+    @Query("SELECT a.appointmentDate, c.id, v.id, a.status, COUNT(a) FROM Appointment a " +
+           "LEFT JOIN a.center c LEFT JOIN a.vaccine v " +
+           "WHERE a.appointmentDate IS NOT NULL " +
+           "GROUP BY a.appointmentDate, c.id, v.id, a.status")
+    List<Object[]> countGroupByAppointmentDateCenterVaccineAndStatus();
+    
+    /**
+     * Đếm appointments chưa có ngày hẹn (consultation request) theo ngày tạo
+     * @return Danh sách [createdDate, count]
+     */
+    @Query("SELECT cast(a.createdAt as LocalDate), COUNT(a) FROM Appointment a " +
+           "WHERE a.appointmentDate IS NULL " +
+           "GROUP BY cast(a.createdAt as LocalDate)")
+    List<Object[]> countUndatedGroupByCreatedDate();
+    
+    /**
+     * Đếm appointments và tổng tiền đã thanh toán theo user (người đặt hoặc người được tiêm) có role cho trước
+     * Appointment chưa có ngày hẹn luôn được tính (giống logic lọc cũ của báo cáo khách hàng)
+     * @return Danh sách [userId, appointmentCount, paidAmount]
+     */
+    @Query("SELECT u.id, COUNT(DISTINCT a.id), " +
+           "COALESCE(SUM(CASE WHEN p.paymentStatus = :paidStatus THEN p.amount ELSE 0 END), 0) " +
+           "FROM Appointment a JOIN User u ON (a.bookedByUser = u OR a.bookedForUser = u) " +
+           "LEFT JOIN Payment p ON p.appointment = a " +
+           "WHERE u.role = :role AND (a.appointmentDate IS NULL OR a.appointmentDate BETWEEN :startDate AND :endDate) " +
+           "GROUP BY u.id")
+    List<Object[]> countAndSumPaidGroupByUserWithRole(@Param("role") Role role,
+                                                      @Param("paidStatus") PaymentStatus paidStatus,
+                                                      @Param("startDate") java.time.LocalDate startDate,
+                                                      @Param("endDate") java.time.LocalDate endDate);
+    
+    /**
+     * Đếm lịch hẹn đang giữ vaccine (đã trừ khỏi kho nhưng chưa tiêm) theo trung tâm và vaccine
+     * @return Danh sách [centerId, vaccineId, count]
+     */
+    @Query("SELECT a.center.id, a.vaccine.id, COUNT(a) FROM Appointment a " +
+           "WHERE a.vaccine.id IN :vaccineIds AND a.reservedVaccineLot IS NOT NULL AND a.status IN :statuses " +
+           "GROUP BY a.center.id, a.vaccine.id")
+    List<Object[]> countReservedGroupByCenterAndVaccine(@Param("vaccineIds") Collection<Long> vaccineIds,
+                                                        @Param("statuses") Collection<AppointmentStatus> statuses);
 }
 
 
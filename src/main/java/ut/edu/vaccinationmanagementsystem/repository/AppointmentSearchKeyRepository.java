@@ -0,0 +1,112 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentSearchKey;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SearchKeyType;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentSearchKeyRepository extends JpaRepository<AppointmentSearchKey, Long> {
+    
+    /**
+     * Tìm appointment theo tiền tố (tất cả trung tâm - dùng index key_type + key_value)
+     */
+    @Query("SELECT DISTINCT k.appointmentId FROM AppointmentSearchKey k " +
+           "WHERE k.keyType = :keyType AND k.keyValue LIKE :prefix " +
+           "ORDER BY k.appointmentId DESC")
+    List<Long> findAppointmentIdsByPrefix(
+            @Param("keyType") SearchKeyType keyType,
+            @Param("prefix") String prefix,
+            Pageable pageable);
+    
+    /**
+     * Tìm appointment theo hậu tố (tham số là hậu tố đã viết ngược kèm '%')
+     */
+    @Query("SELECT DISTINCT k.appointmentId FROM AppointmentSearchKey k " +
+           "WHERE k.keyType = :keyType AND k.reversedValue LIKE :reversedPrefix " +
+           "ORDER BY k.appointmentId DESC")
+    List<Long> findAppointmentIdsBySuffix(
+            @Param("keyType") SearchKeyType keyType,
+            @Param("reversedPrefix") String reversedPrefix,
+            Pageable pageable);
+    
+    /**
+     * Tìm appointment theo tiền tố trong một trung tâm (dùng index center_id + key_type + key_value)
+     */
+    @Query("SELECT DISTINCT k.appointmentId FROM AppointmentSearchKey k " +
+           "WHERE k.centerId = :centerId AND k.keyType = :keyType AND k.keyValue LIKE :prefix " +
+           "ORDER BY k.appointmentId DESC")
+    List<Long> findAppointmentIdsByCenterAndPrefix(
+            @Param("centerId") Long centerId,
+            @Param("keyType") SearchKeyType keyType,
+            @Param("prefix") String prefix,
+            Pageable pageable);
+    
+    /**
+     * Tìm appointment theo hậu tố trong một trung tâm
+     */
+    @Query("SELECT DISTINCT k.appointmentId FROM AppointmentSearchKey k " +
+           "WHERE k.centerId = :centerId AND k.keyType = :keyType AND k.reversedValue LIKE :reversedPrefix " +
+           "ORDER BY k.appointmentId DESC")
+    List<Long> findAppointmentIdsByCenterAndSuffix(
+            @Param("centerId") Long centerId,
+            @Param("keyType") SearchKeyType keyType,
+            @Param("reversedPrefix") String reversedPrefix,
+            Pageable pageable);
+    
+    /**
+     * Tìm appointment khớp cả số điện thoại và mã booking (mỗi giá trị khớp theo tiền tố hoặc hậu tố)
+     * Hai điều kiện được áp dụng trong cùng một câu truy vấn rồi mới giới hạn số kết quả
+     */
+    @Query("SELECT DISTINCT p.appointmentId FROM AppointmentSearchKey p, AppointmentSearchKey c " +
+           "WHERE c.appointmentId = p.appointmentId " +
+           "AND p.keyType = :phoneType AND (p.keyValue LIKE :phonePrefix OR p.reversedValue LIKE :phoneReversedPrefix) " +
+           "AND c.keyType = :codeType AND (c.keyValue LIKE :codePrefix OR c.reversedValue LIKE :codeReversedPrefix) " +
+           "ORDER BY p.appointmentId DESC")
+    List<Long> findAppointmentIdsByPhoneAndBookingCode(
+            @Param("phoneType") SearchKeyType phoneType,
+            @Param("phonePrefix") String phonePrefix,
+            @Param("phoneReversedPrefix") String phoneReversedPrefix,
+            @Param("codeType") SearchKeyType codeType,
+            @Param("codePrefix") String codePrefix,
+            @Param("codeReversedPrefix") String codeReversedPrefix,
+            Pageable pageable);
+    
+    /**
+     * Tìm appointment khớp cả số điện thoại và mã booking trong một trung tâm
+     */
+    @Query("SELECT DISTINCT p.appointmentId FROM AppointmentSearchKey p, AppointmentSearchKey c " +
+           "WHERE c.appointmentId = p.appointmentId AND p.centerId = :centerId " +
+           "AND p.keyType = :phoneType AND (p.keyValue LIKE :phonePrefix OR p.reversedValue LIKE :phoneReversedPrefix) " +
+           "AND c.keyType = :codeType AND (c.keyValue LIKE :codePrefix OR c.reversedValue LIKE :codeReversedPrefix) " +
+           "ORDER BY p.appointmentId DESC")
+    List<Long> findAppointmentIdsByCenterAndPhoneAndBookingCode(
+            @Param("centerId") Long centerId,
+            @Param("phoneType") SearchKeyType phoneType,
+            @Param("phonePrefix") String phonePrefix,
+            @Param("phoneReversedPrefix") String phoneReversedPrefix,
+            @Param("codeType") SearchKeyType codeType,
+            @Param("codePrefix") String codePrefix,
+            @Param("codeReversedPrefix") String codeReversedPrefix,
+            Pageable pageable);
+    
+    /**
+     * Lấy các appointment ID (trong danh sách) đã có khóa tìm kiếm
+     */
+    @Query("SELECT DISTINCT k.appointmentId FROM AppointmentSearchKey k WHERE k.appointmentId IN :appointmentIds")
+    List<Long> findIndexedAppointmentIds(@Param("appointmentIds") Collection<Long> appointmentIds);
+    
+    /**
+     * Xóa toàn bộ khóa tìm kiếm của một appointment
+     */
+    @Modifying
+    @Query("DELETE FROM AppointmentSearchKey k WHERE k.appointmentId = :appointmentId")
+    int deleteByAppointmentId(@Param("appointmentId") Long appointmentId);
+}
@@ -1,6 +1,7 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,57 +21,45 @@ public interface AppointmentSlotRepository extends JpaRepository<AppointmentSlot
     // Tìm slot theo center ID và ngày
     List<AppointmentSlot> findByCenterIdAndDate(Long centerId, LocalDate date);
     
-    // Tìm slot trống (isAvailable = true và currentBookings < maxCapacity)
-    @Query("SELECT s FROM AppointmentSlot s WHERE " +
-           "s.isAvailable = true AND " +
-           "s.currentBookings < s.maxCapacity")
-    List<AppointmentSlot> findAvailableSlots();
-    
-    // Tìm slot trống theo center ID
-    @Query("SELECT s FROM AppointmentSlot s WHERE " +
-           "s.center.id = :centerId AND " +
+    // Slot trống của tất cả trung tâm, chỉ lấy các cột cần cho trang đặt lịch (không load center/room)
+    // Mỗi dòng: [id, centerId, date, startTime, endTime, maxCapacity, currentBookings]
+    @Query("SELECT s.id, s.center.id, s.date, s.startTime, s.endTime, s.maxCapacity, s.currentBookings " +
+           "FROM AppointmentSlot s WHERE " +
            "s.isAvailable = true AND " +
            "s.currentBookings < s.maxCapacity " +
            "ORDER BY s.date ASC, s.startTime ASC")
-    List<AppointmentSlot> findAvailableSlotsByCenter(@Param("centerId") Long centerId);
+    List<Object[]> findAvailableSlotRows();
     
-    // Tìm slot trống theo center ID và ngày
-    @Query("SELECT s FROM AppointmentSlot s WHERE " +
+    // Slot trống theo center ID (các cột như findAvailableSlotRows)
+    @Query("SELECT s.id, s.center.id, s.date, s.startTime, s.endTime, s.maxCapacity, s.currentBookings " +
+           "FROM AppointmentSlot s WHERE " +
            "s.center.id = :centerId AND " +
-           "s.date = :date AND " +
            "s.isAvailable = true AND " +
            "s.currentBookings < s.maxCapacity " +
-           "ORDER BY s.startTime ASC")
-    List<AppointmentSlot> findAvailableSlotsByCenterAndDate(
-            @Param("centerId") Long centerId, 
-            @Param("date") LocalDate date);
+           "ORDER BY s.date ASC, s.startTime ASC")
+    List<Object[]> findAvailableSlotRowsByCenter(@Param("centerId") Long centerId);
     
-    // Tìm slot trống trong khoảng thời gian
-    @Query("SELECT s FROM AppointmentSlot s WHERE " +
+    // Toàn bộ slot (kể cả đã đầy) của một trung tâm trong khoảng ngày, dùng để dựng bảng chỗ trống trong bộ nhớ
+    // Mỗi dòng: [id, date, startTime, endTime, maxCapacity, currentBookings, isAvailable]
+    @Query("SELECT s.id, s.date, s.startTime, s.endTime, s.maxCapacity, s.currentBookings, s.isAvailable " +
+           "FROM AppointmentSlot s WHERE " +
            "s.center.id = :centerId AND " +
-           "s.date BETWEEN :startDate AND :endDate AND " +
-           "s.isAvailable = true AND " +
-           "s.currentBookings < s.maxCapacity " +
+           "s.date BETWEEN :startDate AND :endDate " +
            "ORDER BY s.date ASC, s.startTime ASC")
-    List<AppointmentSlot> findAvailableSlotsByDateRange(
+    List<Object[]> findAvailabilityRows(
             @Param("centerId") Long centerId,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
     
-    // Tìm slot trống theo center, ngày và khoảng thời gian
-    @Query("SELECT s FROM AppointmentSlot s WHERE " +
+    // Khoảng thời gian các slot đã có của một trung tâm trong khoảng ngày (để kiểm tra trùng lịch khi tạo slot hàng loạt)
+    // Mỗi dòng: [date, startTime, endTime]
+    @Query("SELECT s.date, s.startTime, s.endTime FROM AppointmentSlot s WHERE " +
            "s.center.id = :centerId AND " +
-           "s.date = :date AND " +
-           "s.startTime >= :startTime AND " +
-           "s.endTime <= :endTime AND " +
-           "s.isAvailable = true AND " +
-           "s.currentBookings < s.maxCapacity " +
-           "ORDER BY s.startTime ASC")
-    List<AppointmentSlot> findAvailableSlotsByCenterDateAndTimeRange(
+           "s.date BETWEEN :startDate AND :endDate")
+    List<Object[]> findSlotTimesByCenterAndDateRange(
             @Param("centerId") Long centerId,
-            @Param("date") LocalDate date,
-            @Param("startTime") LocalTime startTime,
-            @Param("endTime") LocalTime endTime);
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
     
     // Kiểm tra slot có trùng lịch không (cùng center, ngày, và thời gian giao nhau)
     @Query("SELECT s FROM AppointmentSlot s WHERE " +
@@ -96,6 +85,34 @@ public interface AppointmentSlotRepository extends JpaRepository<AppointmentSlot
            "s.date < :today AND " +
            "s.isAvailable = true")
     List<AppointmentSlot> findPastSlots(@Param("today") LocalDate today);
+    
+    // Tổng số slot, tổng sức chứa và tổng số lượt đặt (không load entity)
+    // Trả về danh sách 1 phần tử [slotCount, totalCapacity, totalBookings]
+    @Query("SELECT COUNT(s), COALESCE(SUM(s.maxCapacity), 0), COALESCE(SUM(s.currentBookings), 0) FROM AppointmentSlot s")
+    List<Object[]> sumCapacityAndBookings();
+    
+    // Tổng số slot, tổng sức chứa và tổng số lượt đặt trong một ngày
+    @Query("SELECT COUNT(s), COALESCE(SUM(s.maxCapacity), 0), COALESCE(SUM(s.currentBookings), 0) FROM AppointmentSlot s " +
+           "WHERE s.date = :date")
+    List<Object[]> sumCapacityAndBookingsByDate(@Param("date") LocalDate date);
+    
+    // Giữ một chỗ trong slot bằng một câu UPDATE có điều kiện (chỉ thành công khi slot còn chỗ)
+    // isAvailable được gán trước để dùng giá trị currentBookings cũ (MySQL gán lần lượt từ trái sang phải)
+    // Trả về 1 nếu giữ chỗ thành công, 0 nếu slot đã đầy hoặc không còn available
+    @Modifying
+    @Query("UPDATE AppointmentSlot s SET " +
+           "s.isAvailable = CASE WHEN s.currentBookings + 1 >= s.maxCapacity THEN false ELSE true END, " +
+           "s.currentBookings = s.currentBookings + 1 " +
+           "WHERE s.id = :slotId AND s.isAvailable = true AND s.currentBookings < s.maxCapacity")
+    int reserveCapacity(@Param("slotId") Long slotId);
+    
+    // Trả lại một chỗ trong slot (khi hủy/xóa lịch hẹn), mở lại slot nếu còn chỗ
+    @Modifying
+    @Query("UPDATE AppointmentSlot s SET " +
+           "s.isAvailable = CASE WHEN s.currentBookings - 1 < s.maxCapacity THEN true ELSE s.isAvailable END, " +
+           "s.currentBookings = s.currentBookings - 1 " +
+           "WHERE s.id = :slotId AND s.currentBookings > 0")
+    int releaseCapacity(@Param("slotId") Long slotId);
 }
 
 
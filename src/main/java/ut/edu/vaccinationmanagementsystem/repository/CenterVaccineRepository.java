@@ -1,11 +1,15 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.CenterVaccine;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
 import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +25,29 @@ public interface CenterVaccineRepository extends JpaRepository<CenterVaccine, Lo
     Optional<CenterVaccine> findByCenterAndVaccine(VaccinationCenter center, Vaccine vaccine);
     
     boolean existsByCenterAndVaccine(VaccinationCenter center, Vaccine vaccine);
+    
+    /**
+     * Trừ tồn kho tại trung tâm bằng một câu UPDATE có điều kiện (chỉ thành công khi còn đủ)
+     */
+    @Modifying
+    @Query("UPDATE CenterVaccine cv SET cv.stockQuantity = cv.stockQuantity - :quantity " +
+           "WHERE cv.id = :id AND cv.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    /**
+     * Cộng lại tồn kho tại trung tâm
+     */
+    @Modifying
+    @Query("UPDATE CenterVaccine cv SET cv.stockQuantity = COALESCE(cv.stockQuantity, 0) + :quantity WHERE cv.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    /**
+     * Tồn kho tại các trung tâm của các vaccine (bảng tồn kho trong bộ nhớ)
+     * @return Danh sách [centerId, centerName, vaccineId, stockQuantity]
+     */
+    @Query("SELECT c.id, c.name, v.id, cv.stockQuantity FROM CenterVaccine cv JOIN cv.center c JOIN cv.vaccine v " +
+           "WHERE v.id IN :vaccineIds")
+    List<Object[]> findInventoryRowsByVaccineIds(@Param("vaccineIds") Collection<Long> vaccineIds);
 }
 
 
@@ -1,11 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.CenterWorkingHours;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
 import ut.edu.vaccinationmanagementsystem.entity.enums.DayOfWeek;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,15 @@ public interface CenterWorkingHoursRepository extends JpaRepository<CenterWorkin
     Optional<CenterWorkingHours> findByCenterAndDayOfWeek(VaccinationCenter center, DayOfWeek dayOfWeek);
     
     boolean existsByCenterAndDayOfWeek(VaccinationCenter center, DayOfWeek dayOfWeek);
+    
+    /**
+     * Giờ làm việc đang áp dụng của nhiều trung tâm (không load entity)
+     * Mỗi dòng: [centerId, dayOfWeek, startTime, endTime]
+     */
+    @Query("SELECT w.center.id, w.dayOfWeek, w.startTime, w.endTime FROM CenterWorkingHours w " +
+           "WHERE w.isActive = true AND w.center.id IN :centerIds " +
+           "ORDER BY w.center.id ASC, w.startTime ASC")
+    List<Object[]> findActiveHoursByCenterIds(@Param("centerIds") Collection<Long> centerIds);
 }
 
 
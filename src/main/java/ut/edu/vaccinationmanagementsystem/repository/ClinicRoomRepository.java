@@ -1,9 +1,12 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.ClinicRoom;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,6 +26,15 @@ public interface ClinicRoomRepository extends JpaRepository<ClinicRoom, Long> {
      * Tìm phòng khám theo center ID và room number
      */
     ClinicRoom findByCenterIdAndRoomNumber(Long centerId, String roomNumber);
+    
+    /**
+     * ID phòng khám active của nhiều trung tâm (không load entity), sắp xếp theo số phòng
+     * Mỗi dòng: [centerId, roomId]
+     */
+    @Query("SELECT r.center.id, r.id FROM ClinicRoom r " +
+           "WHERE r.isActive = true AND r.center.id IN :centerIds " +
+           "ORDER BY r.center.id ASC, r.roomNumber ASC")
+    List<Object[]> findActiveRoomIdsByCenterIds(@Param("centerIds") Collection<Long> centerIds);
 }
 
 
@@ -0,0 +1,84 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.DailyStatistic;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticDimension;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface DailyStatisticRepository extends JpaRepository<DailyStatistic, Long> {
+    
+    /**
+     * Cộng dồn bộ đếm (tạo mới nếu chưa có) trong một câu lệnh để an toàn khi ghi đồng thời
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_statistics (stat_date, metric, dimension, dimension_key, count_value, amount_value, updated_at) " +
+                   "VALUES (:statDate, :metric, :dimension, :dimensionKey, :countDelta, :amountDelta, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE count_value = count_value + :countDelta, " +
+                   "amount_value = amount_value + :amountDelta, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int increment(@Param("statDate") LocalDate statDate,
+                  @Param("metric") String metric,
+                  @Param("dimension") String dimension,
+                  @Param("dimensionKey") String dimensionKey,
+                  @Param("countDelta") long countDelta,
+                  @Param("amountDelta") BigDecimal amountDelta);
+    
+    /**
+     * Tổng số lượng của một bộ đếm trong khoảng ngày
+     */
+    @Query("SELECT COALESCE(SUM(s.countValue), 0) FROM DailyStatistic s WHERE " +
+           "s.metric = :metric AND s.dimension = :dimension AND s.dimensionKey = :dimensionKey AND " +
+           "s.statDate BETWEEN :startDate AND :endDate")
+    long sumCountBetween(@Param("metric") StatisticMetric metric,
+                         @Param("dimension") StatisticDimension dimension,
+                         @Param("dimensionKey") String dimensionKey,
+                         @Param("startDate") LocalDate startDate,
+                         @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Tổng số tiền của một bộ đếm trong khoảng ngày
+     */
+    @Query("SELECT COALESCE(SUM(s.amountValue), 0) FROM DailyStatistic s WHERE " +
+           "s.metric = :metric AND s.dimension = :dimension AND s.dimensionKey = :dimensionKey AND " +
+           "s.statDate BETWEEN :startDate AND :endDate")
+    BigDecimal sumAmountBetween(@Param("metric") StatisticMetric metric,
+                                @Param("dimension") StatisticDimension dimension,
+                                @Param("dimensionKey") String dimensionKey,
+                                @Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Tổng số lượng của một bộ đếm (toàn thời gian)
+     */
+    @Query("SELECT COALESCE(SUM(s.countValue), 0) FROM DailyStatistic s WHERE " +
+           "s.metric = :metric AND s.dimension = :dimension AND s.dimensionKey = :dimensionKey")
+    long sumCount(@Param("metric") StatisticMetric metric,
+                  @Param("dimension") StatisticDimension dimension,
+                  @Param("dimensionKey") String dimensionKey);
+    
+    /**
+     * Tổng số tiền của một bộ đếm (toàn thời gian)
+     */
+    @Query("SELECT COALESCE(SUM(s.amountValue), 0) FROM DailyStatistic s WHERE " +
+           "s.metric = :metric AND s.dimension = :dimension AND s.dimensionKey = :dimensionKey")
+    BigDecimal sumAmount(@Param("metric") StatisticMetric metric,
+                         @Param("dimension") StatisticDimension dimension,
+                         @Param("dimensionKey") String dimensionKey);
+    
+    /**
+     * Xóa các bộ đếm trong danh sách đã về 0 (bucket không còn dữ liệu gốc sau khi đối soát)
+     * Điều kiện được kiểm tra trên giá trị mới nhất của dòng nên bucket vừa được cộng dồn đồng thời không bị xóa
+     */
+    @Modifying
+    @Query("DELETE FROM DailyStatistic s WHERE s.id IN :ids AND s.countValue = 0 AND s.amountValue = 0")
+    int deleteEmptyByIdIn(@Param("ids") Collection<Long> ids);
+}
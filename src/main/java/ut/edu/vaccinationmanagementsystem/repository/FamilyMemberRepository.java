@@ -1,10 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.FamilyMember;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +34,18 @@ public interface FamilyMemberRepository extends JpaRepository<FamilyMember, Long
      * Đếm số lượng người thân của một user
      */
     long countByUser(User user);
+    
+    /**
+     * Đếm người thân của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa người thân của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM FamilyMember fm WHERE fm.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
 }
 
 
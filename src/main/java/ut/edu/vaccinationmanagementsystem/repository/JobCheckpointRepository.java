@@ -0,0 +1,32 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.JobCheckpoint;
+
+import java.util.Optional;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, Long> {
+    
+    /**
+     * ID lớn nhất job đã xử lý (rỗng nếu job chưa chạy lần nào)
+     */
+    @Query("SELECT c.lastProcessedId FROM JobCheckpoint c WHERE c.name = :name")
+    Optional<Long> findLastProcessedId(@Param("name") String name);
+    
+    /**
+     * Ghi vị trí đã xử lý của job (tạo mới nếu chưa có) trong một câu lệnh
+     * Vị trí chỉ tăng, nên khi nhiều instance cùng chạy job thì giá trị nhỏ hơn ghi sau không làm lùi vị trí
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_checkpoints (name, last_processed_id, updated_at) " +
+                   "VALUES (:name, :lastProcessedId, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE last_processed_id = GREATEST(last_processed_id, :lastProcessedId), " +
+                   "updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int advance(@Param("name") String name, @Param("lastProcessedId") long lastProcessedId);
+}
@@ -0,0 +1,84 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationArchive;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, Long> {
+    
+    /**
+     * Sao chép các thông báo sang bảng lưu trữ bằng một câu INSERT ... SELECT (không load entity)
+     * partition_month = yyyyMM của ngày tạo thông báo
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_archives (id, partition_month, user_id, appointment_id, type, title, content, " +
+                   "status, created_at, sent_at, archived_at) " +
+                   "SELECT n.id, YEAR(n.created_at) * 100 + MONTH(n.created_at), n.user_id, n.appointment_id, n.type, n.title, " +
+                   "n.content, n.status, n.created_at, n.sent_at, :archivedAt FROM notifications n WHERE n.id IN (:ids)",
+           nativeQuery = true)
+    int copyFromNotifications(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+    
+    /**
+     * Thông báo đã lưu trữ của user, mới nhất trước (dùng index user_id, created_at)
+     */
+    @Query("SELECT a FROM NotificationArchive a WHERE a.userId = :userId ORDER BY a.createdAt DESC, a.id DESC")
+    List<NotificationArchive> findLatestByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Các tháng lưu trữ cũ hơn tháng chỉ định (yyyyMM), cũ nhất trước
+     */
+    @Query("SELECT DISTINCT a.partitionMonth FROM NotificationArchive a WHERE a.partitionMonth < :month ORDER BY a.partitionMonth")
+    List<Integer> findPartitionMonthsBefore(@Param("month") Integer month);
+    
+    /**
+     * Đếm thông báo lưu trữ của một tháng theo ngày tạo và loại (trừ bộ đếm trước khi xóa cả tháng)
+     * @return Danh sách [createdDate, type, count]
+     */
+    @Query("SELECT cast(a.createdAt as LocalDate), a.type, COUNT(a) FROM NotificationArchive a " +
+           "WHERE a.partitionMonth = :month GROUP BY cast(a.createdAt as LocalDate), a.type")
+    List<Object[]> countGroupByCreatedDateAndTypeForMonth(@Param("month") Integer month);
+    
+    /**
+     * Đếm toàn bộ thông báo lưu trữ theo ngày tạo và loại (đối soát bộ đếm thông báo)
+     * @return Danh sách [createdDate, type, count]
+     */
+    @Query("SELECT cast(a.createdAt as LocalDate), a.type, COUNT(a) FROM NotificationArchive a " +
+           "GROUP BY cast(a.createdAt as LocalDate), a.type")
+    List<Object[]> countGroupByCreatedDateAndType();
+    
+    /**
+     * Xóa toàn bộ thông báo lưu trữ của một tháng (hết hạn lưu trữ)
+     */
+    @Modifying
+    @Query("DELETE FROM NotificationArchive a WHERE a.partitionMonth = :month")
+    int deleteByPartitionMonth(@Param("month") Integer month);
+    
+    /**
+     * Xóa thông báo lưu trữ của các user (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM NotificationArchive a WHERE a.userId IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm thông báo lưu trữ của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Đếm thông báo lưu trữ của các user theo ngày tạo và loại (trừ bộ đếm trước khi xóa user hàng loạt)
+     * @return Danh sách [createdDate, type, count]
+     */
+    @Query("SELECT cast(a.createdAt as LocalDate), a.type, COUNT(a) FROM NotificationArchive a " +
+           "WHERE a.userId IN :userIds GROUP BY cast(a.createdAt as LocalDate), a.type")
+    List<Object[]> countGroupByCreatedDateAndTypeForUsers(@Param("userIds") Collection<Long> userIds);
+}
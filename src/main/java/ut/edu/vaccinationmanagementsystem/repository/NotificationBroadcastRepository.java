@@ -0,0 +1,90 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationBroadcast;
+import ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationBroadcastRepository extends JpaRepository<NotificationBroadcast, Long> {
+    
+    // Lấy các đợt gửi gần nhất (trang theo dõi tiến độ)
+    List<NotificationBroadcast> findTop20ByOrderByCreatedAtDesc();
+    
+    // Lấy ID các đợt gửi theo trạng thái, cũ nhất trước
+    @Query("SELECT b.id FROM NotificationBroadcast b WHERE b.status = :status ORDER BY b.createdAt ASC, b.id ASC")
+    List<Long> findIdsByStatus(@Param("status") BroadcastStatus status, Pageable pageable);
+    
+    /**
+     * Nhận job QUEUED để xử lý (chỉ một worker nhận được nhờ điều kiện status)
+     * attempts tăng lên 1 và được worker dùng làm "token" khi ghi tiến độ
+     * @return 1 nếu nhận được job, 0 nếu worker khác đã nhận
+     */
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.RUNNING, " +
+           "b.attempts = b.attempts + 1, b.startedAt = COALESCE(b.startedAt, :now), b.heartbeatAt = :now " +
+           "WHERE b.id = :id AND b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Ghi tiến độ sau mỗi lô người nhận (chỉ khi worker vẫn còn giữ job)
+     * @return 0 nếu job đã bị nhận lại bởi worker khác
+     */
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.lastUserId = :lastUserId, " +
+           "b.processedCount = b.processedCount + :processed, " +
+           "b.inAppCount = b.inAppCount + :inApp, " +
+           "b.smsSentCount = b.smsSentCount + :smsSent, " +
+           "b.smsFailedCount = b.smsFailedCount + :smsFailed, " +
+           "b.emailSentCount = b.emailSentCount + :emailSent, " +
+           "b.emailFailedCount = b.emailFailedCount + :emailFailed, " +
+           "b.heartbeatAt = :now " +
+           "WHERE b.id = :id AND b.attempts = :attempt " +
+           "AND b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.RUNNING")
+    int recordProgress(@Param("id") Long id,
+                       @Param("attempt") Integer attempt,
+                       @Param("lastUserId") Long lastUserId,
+                       @Param("processed") int processed,
+                       @Param("inApp") int inApp,
+                       @Param("smsSent") int smsSent,
+                       @Param("smsFailed") int smsFailed,
+                       @Param("emailSent") int emailSent,
+                       @Param("emailFailed") int emailFailed,
+                       @Param("now") LocalDateTime now);
+    
+    // Đánh dấu hoàn thành (chỉ worker đang giữ job)
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.COMPLETED, " +
+           "b.completedAt = :now, b.heartbeatAt = :now, b.errorMessage = NULL " +
+           "WHERE b.id = :id AND b.attempts = :attempt " +
+           "AND b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.RUNNING")
+    int markCompleted(@Param("id") Long id, @Param("attempt") Integer attempt, @Param("now") LocalDateTime now);
+    
+    // Đánh dấu thất bại, giữ nguyên lastUserId để thử lại từ vị trí đã gửi
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.FAILED, " +
+           "b.errorMessage = :errorMessage, b.heartbeatAt = :now " +
+           "WHERE b.id = :id AND b.attempts = :attempt " +
+           "AND b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.RUNNING")
+    int markFailed(@Param("id") Long id, @Param("attempt") Integer attempt,
+                   @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+    
+    // Đưa job FAILED về hàng đợi để gửi tiếp
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.QUEUED " +
+           "WHERE b.id = :id AND b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.FAILED")
+    int requeueFailed(@Param("id") Long id);
+    
+    // Đưa các job RUNNING không còn ghi tiến độ (worker/instance bị dừng đột ngột) về hàng đợi
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.QUEUED " +
+           "WHERE b.status = ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus.RUNNING AND b.heartbeatAt < :cutoff")
+    int requeueStale(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,67 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationDailyCounter;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationDailyCounterRepository extends JpaRepository<NotificationDailyCounter, Long> {
+    
+    /**
+     * Cộng dồn bộ đếm của (ngày, loại thông báo) (tạo mới nếu chưa có) trong một câu lệnh để an toàn khi ghi đồng thời
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_daily_counters (stat_date, type, created_count, read_count, updated_at) " +
+                   "VALUES (:statDate, :type, :createdDelta, :readDelta, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE created_count = created_count + :createdDelta, " +
+                   "read_count = read_count + :readDelta, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int increment(@Param("statDate") LocalDate statDate,
+                  @Param("type") String type,
+                  @Param("createdDelta") long createdDelta,
+                  @Param("readDelta") long readDelta);
+    
+    /**
+     * Xóa các bucket (trong danh sách ID) đã về 0 (dùng khi đối soát bucket không còn thông báo nào)
+     */
+    @Modifying
+    @Query("DELETE FROM NotificationDailyCounter c WHERE c.id IN :ids AND c.createdCount = 0 AND c.readCount = 0")
+    int deleteEmptyByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Tổng số thông báo và số đã đọc (toàn thời gian)
+     * @return Một dòng [tổng số thông báo, tổng số đã đọc]
+     */
+    @Query("SELECT COALESCE(SUM(c.createdCount), 0), COALESCE(SUM(c.readCount), 0) FROM NotificationDailyCounter c")
+    List<Object[]> sumCounts();
+    
+    /**
+     * Tổng số thông báo và số đã đọc của các thông báo tạo trong khoảng ngày
+     * @return Một dòng [tổng số thông báo, tổng số đã đọc]
+     */
+    @Query("SELECT COALESCE(SUM(c.createdCount), 0), COALESCE(SUM(c.readCount), 0) FROM NotificationDailyCounter c " +
+           "WHERE c.statDate BETWEEN :startDate AND :endDate")
+    List<Object[]> sumCountsBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Số thông báo tạo theo từng ngày trong khoảng ngày
+     * @return Danh sách [statDate, số thông báo]
+     */
+    @Query("SELECT c.statDate, SUM(c.createdCount) FROM NotificationDailyCounter c " +
+           "WHERE c.statDate BETWEEN :startDate AND :endDate GROUP BY c.statDate")
+    List<Object[]> sumCreatedGroupByDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Số thông báo theo từng loại (toàn thời gian)
+     * @return Danh sách [type, số thông báo]
+     */
+    @Query("SELECT c.type, SUM(c.createdCount) FROM NotificationDailyCounter c GROUP BY c.type")
+    List<Object[]> sumCreatedGroupByType();
+}
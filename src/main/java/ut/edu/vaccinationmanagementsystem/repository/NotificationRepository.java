@@ -1,33 +1,87 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.Notification;
 import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>, JpaSpecificationExecutor<Notification> {
     
     /**
-     * Tìm tất cả thông báo của một user, sắp xếp theo thời gian tạo giảm dần
+     * N thông báo mới nhất của một user (dùng index user_id, created_at; load kèm lịch hẹn để hiển thị)
      */
-    List<Notification> findByUserIdOrderByCreatedAtDesc(Long userId);
+    @Query("SELECT n FROM Notification n " +
+           "LEFT JOIN FETCH n.appointment a LEFT JOIN FETCH a.vaccine LEFT JOIN FETCH a.center LEFT JOIN FETCH a.room " +
+           "WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestByUserId(@Param("userId") Long userId, Pageable pageable);
     
     /**
-     * Tìm tất cả thông báo chưa đọc của một user
+     * N thông báo chưa đọc mới nhất của một user
      */
-    List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId);
+    @Query("SELECT n FROM Notification n " +
+           "LEFT JOIN FETCH n.appointment a LEFT JOIN FETCH a.vaccine LEFT JOIN FETCH a.center LEFT JOIN FETCH a.room " +
+           "WHERE n.user.id = :userId AND n.isRead = false ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestUnreadByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * N thông báo mới nhất của một user có liên quan đến lịch hẹn
+     */
+    @Query("SELECT n FROM Notification n " +
+           "LEFT JOIN FETCH n.appointment a LEFT JOIN FETCH a.vaccine LEFT JOIN FETCH a.center LEFT JOIN FETCH a.room " +
+           "WHERE n.user.id = :userId AND n.appointment IS NOT NULL ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestWithAppointmentByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * N thông báo hệ thống (không gắn lịch hẹn) mới nhất của một user
+     */
+    @Query("SELECT n FROM Notification n " +
+           "WHERE n.user.id = :userId AND n.appointment IS NULL ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestWithoutAppointmentByUserId(@Param("userId") Long userId, Pageable pageable);
     
     /**
      * Đếm số lượng thông báo chưa đọc của một user
      */
     long countByUserIdAndIsReadFalse(Long userId);
     
+    /**
+     * Đánh dấu một thông báo của user là đã đọc bằng một câu UPDATE
+     * @return 1 nếu thông báo chuyển từ chưa đọc sang đã đọc, 0 nếu không tìm thấy hoặc đã đọc rồi
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.user.id = :userId AND n.isRead = false")
+    int markAsRead(@Param("id") Long id, @Param("userId") Long userId);
+    
+    /**
+     * Đánh dấu tất cả thông báo chưa đọc của user là đã đọc bằng một câu UPDATE
+     * @return Số thông báo đã được cập nhật
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllAsRead(@Param("userId") Long userId);
+    
+    /**
+     * Lấy [createdAt, type] của thông báo nếu thông báo thuộc user và chưa đọc (cập nhật bộ đếm khi đánh dấu đã đọc)
+     */
+    @Query("SELECT n.createdAt, n.type FROM Notification n WHERE n.id = :id AND n.user.id = :userId AND n.isRead = false")
+    List<Object[]> findUnreadCreatedAtAndType(@Param("id") Long id, @Param("userId") Long userId);
+    
+    /**
+     * Lấy [createdAt, type] của tất cả thông báo chưa đọc của user (cập nhật bộ đếm khi đánh dấu tất cả đã đọc)
+     */
+    @Query("SELECT n.createdAt, n.type FROM Notification n WHERE n.user.id = :userId AND n.isRead = false")
+    List<Object[]> findUnreadCreatedAtAndTypeByUserId(@Param("userId") Long userId);
+    
     /**
      * Tìm thông báo theo appointment và type để tránh trùng lặp
      */
@@ -42,5 +96,47 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      * Tìm tất cả thông báo của một user theo type
      */
     List<Notification> findByUserIdAndTypeOrderByCreatedAtDesc(Long userId, NotificationType type);
+    
+    /**
+     * Đếm thông báo của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa thông báo của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm thông báo của các user theo ngày tạo, loại và trạng thái đọc (trừ bộ đếm trước khi xóa user hàng loạt)
+     * @return Danh sách [createdDate, type, isRead, count]
+     */
+    @Query("SELECT cast(n.createdAt as LocalDate), n.type, n.isRead, COUNT(n) FROM Notification n " +
+           "WHERE n.user.id IN :userIds GROUP BY cast(n.createdAt as LocalDate), n.type, n.isRead")
+    List<Object[]> countGroupByCreatedDateTypeAndReadForUsers(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Đếm toàn bộ thông báo theo ngày tạo, loại và trạng thái đọc (đối soát bộ đếm thông báo)
+     * @return Danh sách [createdDate, type, isRead, count]
+     */
+    @Query("SELECT cast(n.createdAt as LocalDate), n.type, n.isRead, COUNT(n) FROM Notification n " +
+           "GROUP BY cast(n.createdAt as LocalDate), n.type, n.isRead")
+    List<Object[]> countGroupByCreatedDateTypeAndRead();
+    
+    /**
+     * ID các thông báo đã đọc và tạo trước thời điểm chỉ định, cũ nhất trước (chọn lô để chuyển sang bảng lưu trữ)
+     * Sắp xếp theo index created_at, id nên không phải sort khi bảng lớn
+     */
+    @Query("SELECT n.id FROM Notification n WHERE n.isRead = true AND n.createdAt < :cutoff ORDER BY n.createdAt ASC, n.id ASC")
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /**
+     * Xóa các thông báo theo danh sách ID bằng một câu DELETE (sau khi đã sao chép sang bảng lưu trữ)
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
 
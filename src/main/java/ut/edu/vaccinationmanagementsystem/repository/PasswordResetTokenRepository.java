@@ -1,10 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.PasswordResetToken;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
@@ -23,6 +27,18 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
      * Xóa token đã hết hạn
      */
     void deleteByExpiresAtBefore(java.time.LocalDateTime now);
+    
+    /**
+     * Đếm token của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa token của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken t WHERE t.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
 }
 
 
@@ -0,0 +1,51 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.PaymentCallbackEvent;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PaymentCallbackEventRepository extends JpaRepository<PaymentCallbackEvent, Long> {
+    
+    /**
+     * Nhận xử lý callback: thêm dòng cho (txnRef, transactionNo) nếu chưa có
+     * Callback trùng đến đồng thời sẽ chờ khóa unique của dòng đầu tiên rồi nhận 0
+     * @return 1 nếu callback này được xử lý, 0 nếu đã có callback khác cùng giao dịch
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO payment_callback_events (txn_ref, transaction_no, response_code, source, received_at) " +
+                   "VALUES (:txnRef, :transactionNo, :responseCode, :source, CURRENT_TIMESTAMP)",
+           nativeQuery = true)
+    int claim(@Param("txnRef") String txnRef,
+              @Param("transactionNo") String transactionNo,
+              @Param("responseCode") String responseCode,
+              @Param("source") String source);
+    
+    /**
+     * Lưu kết quả xử lý của callback
+     */
+    @Modifying
+    @Query("UPDATE PaymentCallbackEvent e SET e.outcome = :outcome, e.appointmentId = :appointmentId, " +
+           "e.processedAt = :processedAt WHERE e.txnRef = :txnRef AND e.transactionNo = :transactionNo")
+    int recordOutcome(@Param("txnRef") String txnRef,
+                      @Param("transactionNo") String transactionNo,
+                      @Param("outcome") PaymentCallbackOutcome outcome,
+                      @Param("appointmentId") Long appointmentId,
+                      @Param("processedAt") LocalDateTime processedAt);
+    
+    Optional<PaymentCallbackEvent> findByTxnRefAndTransactionNo(String txnRef, String transactionNo);
+    
+    /**
+     * Xóa các callback nhận trước thời điểm cho trước (hết hạn lưu giữ khóa chống trùng)
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentCallbackEvent e WHERE e.receivedAt < :before")
+    int deleteReceivedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,20 +1,53 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.Payment;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByAppointment(Appointment appointment);
     Optional<Payment> findByTransactionId(String transactionId);
     
+    /**
+     * Chuyển trạng thái payment nếu trạng thái hiện tại nằm trong fromStatuses (PaymentStatus.allowedSources)
+     * Giữ transactionId/paidAt cũ khi tham số là null
+     * @return 1 nếu payment vừa chuyển trạng thái, 0 nếu trạng thái hiện tại không cho phép (đã được xử lý)
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.paymentStatus = :toStatus, " +
+           "p.transactionId = COALESCE(:transactionId, p.transactionId), p.paidAt = COALESCE(:paidAt, p.paidAt) " +
+           "WHERE p.id = :id AND p.paymentStatus IN :fromStatuses")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("fromStatuses") Collection<PaymentStatus> fromStatuses,
+                         @Param("toStatus") PaymentStatus toStatus,
+                         @Param("transactionId") String transactionId,
+                         @Param("paidAt") LocalDateTime paidAt);
+    
+    /**
+     * Đánh dấu phí hủy đã thanh toán nếu phí hủy còn chưa thanh toán
+     * @return 1 nếu phí hủy vừa được đánh dấu, 0 nếu đã thanh toán từ trước hoặc không có phí hủy
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.cancellationFeePaid = true, p.paymentStatus = :paidStatus, p.paidAt = :paidAt " +
+           "WHERE p.id = :id AND p.cancellationFeePaid = false AND p.cancellationFee > 0 " +
+           "AND p.paymentStatus IN :fromStatuses")
+    int markCancellationFeePaid(@Param("id") Long id,
+                                @Param("fromStatuses") Collection<PaymentStatus> fromStatuses,
+                                @Param("paidStatus") PaymentStatus paidStatus,
+                                @Param("paidAt") LocalDateTime paidAt);
+    
     /**
      * Tìm các payment có phí hủy chưa thanh toán của một user
      * @param userId ID của user
@@ -25,6 +58,26 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
            "AND p.cancellationFeePaid = false " +
            "AND p.paymentStatus = 'PENDING'")
     List<Payment> findUnpaidCancellationFeesByUser(@Param("userId") Long userId);
+    
+    /**
+     * Tổng hợp payment theo ngày thanh toán và trung tâm (dùng để đối soát thống kê dashboard)
+     * @return Danh sách [paidDate, centerId, count, sumAmount]
+     */
+    @Query("SELECT cast(p.paidAt as LocalDate), c.id, COUNT(p), COALESCE(SUM(p.amount), 0) FROM Payment p " +
+           "LEFT JOIN p.appointment a LEFT JOIN a.center c " +
+           "WHERE p.paymentStatus = :status AND p.paidAt IS NOT NULL " +
+           "GROUP BY cast(p.paidAt as LocalDate), c.id")
+    List<Object[]> sumGroupByPaidDateAndCenter(@Param("status") PaymentStatus status);
+    
+    /**
+     * Tổng doanh thu theo vaccine của các appointment có trạng thái cho trước (dùng cho báo cáo vaccine)
+     * @return Danh sách [vaccineId, sumAmount]
+     */
+    @Query("SELECT a.vaccine.id, COALESCE(SUM(p.amount), 0) FROM Payment p JOIN p.appointment a " +
+           "WHERE p.paymentStatus = :paymentStatus AND a.status = :appointmentStatus AND a.vaccine IS NOT NULL " +
+           "GROUP BY a.vaccine.id")
+    List<Object[]> sumAmountGroupByVaccine(@Param("paymentStatus") PaymentStatus paymentStatus,
+                                           @Param("appointmentStatus") AppointmentStatus appointmentStatus);
 }
 
 
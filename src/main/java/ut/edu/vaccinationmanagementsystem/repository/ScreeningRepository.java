@@ -1,12 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.Screening;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,5 +21,21 @@ public interface ScreeningRepository extends JpaRepository<Screening, Long> {
     
     @Query("SELECT s FROM Screening s WHERE s.doctor.id = :doctorId ORDER BY s.screenedAt DESC")
     List<Screening> findByDoctorIdOrderByScreenedAtDesc(@Param("doctorId") Long doctorId);
+    
+    /**
+     * Nhóm phiếu khám sàng lọc theo bác sĩ và ngày khám (đối soát bảng hiệu suất nhân viên)
+     * @return Danh sách [doctorId, screenedDate, count]
+     */
+    @Query("SELECT s.doctor.id, cast(s.screenedAt as LocalDate), COUNT(s) FROM Screening s " +
+           "WHERE s.screenedAt IS NOT NULL GROUP BY s.doctor.id, cast(s.screenedAt as LocalDate)")
+    List<Object[]> countGroupByDoctorAndScreenedDate();
+    
+    // Đếm phiếu khám sàng lọc của các bác sĩ (xem trước khi xóa user hàng loạt)
+    long countByDoctorIdIn(Collection<Long> doctorIds);
+    
+    // Xóa phiếu khám sàng lọc của các bác sĩ bằng một câu DELETE (xóa user hàng loạt)
+    @Modifying
+    @Query("DELETE FROM Screening s WHERE s.doctor.id IN :doctorIds")
+    int deleteByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds);
 }
 
@@ -0,0 +1,83 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.SmsOutboxMessage;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SmsOutboxStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SmsOutboxMessageRepository extends JpaRepository<SmsOutboxMessage, Long> {
+    
+    /**
+     * ID các tin đến hạn gửi: PENDING đã tới next_attempt_at, hoặc SENDING quá hạn giữ (worker đã dừng)
+     */
+    @Query("SELECT m.id FROM SmsOutboxMessage m " +
+           "WHERE (m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+           "OR (m.status = 'SENDING' AND m.lockedUntil < :now) " +
+           "ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Nhận tin để gửi bằng câu UPDATE có điều kiện (chỉ một worker/instance nhận được)
+     * @param claimToken Mã mới cho lần nhận này (thay mã của worker cũ nếu tin bị nhận lại khi quá hạn giữ)
+     * @return 1 nếu nhận được, 0 nếu worker khác đã nhận
+     */
+    @Modifying
+    @Query("UPDATE SmsOutboxMessage m SET m.status = 'SENDING', m.lockedUntil = :lockedUntil, m.claimToken = :claimToken " +
+           "WHERE m.id = :id AND ((m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+           "OR (m.status = 'SENDING' AND m.lockedUntil < :now))")
+    int claim(@Param("id") Long id,
+              @Param("now") LocalDateTime now,
+              @Param("lockedUntil") LocalDateTime lockedUntil,
+              @Param("claimToken") String claimToken);
+    
+    /**
+     * Ghi kết quả một lần gửi của tin đang SENDING (SENT, FAILED, EXPIRED hoặc PENDING để gửi lại)
+     * Chỉ ghi nếu tin vẫn do lần nhận claimToken giữ (worker đã mất tin vì quá hạn giữ không ghi đè kết quả của worker mới)
+     * @param attemptDelta 1 nếu đã gọi nhà cung cấp SMS, 0 nếu không gửi (hết hạn)
+     * @param content Nội dung thay thế (xóa mã OTP khi tin đã kết thúc), null = giữ nguyên
+     * @return 1 nếu ghi được, 0 nếu tin đã được worker khác nhận lại
+     */
+    @Modifying
+    @Query("UPDATE SmsOutboxMessage m SET m.status = :status, m.attempts = m.attempts + :attemptDelta, " +
+           "m.nextAttemptAt = :nextAttemptAt, m.lockedUntil = NULL, m.claimToken = NULL, " +
+           "m.lastError = :lastError, m.sentAt = :sentAt, m.content = COALESCE(:content, m.content) " +
+           "WHERE m.id = :id AND m.status = 'SENDING' AND m.claimToken = :claimToken")
+    int recordAttempt(@Param("id") Long id,
+                      @Param("claimToken") String claimToken,
+                      @Param("status") SmsOutboxStatus status,
+                      @Param("attemptDelta") int attemptDelta,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("content") String content);
+    
+    /**
+     * Số tin theo trạng thái
+     * @return Danh sách [status, count]
+     */
+    @Query("SELECT m.status, COUNT(m) FROM SmsOutboxMessage m GROUP BY m.status")
+    List<Object[]> countGroupByStatus();
+    
+    /**
+     * Xóa nội dung các tin đã kết thúc còn giữ nội dung (tin kết thúc trước khi nội dung được xóa lúc ghi kết quả)
+     */
+    @Modifying
+    @Query("UPDATE SmsOutboxMessage m SET m.content = :redacted WHERE m.status IN :statuses AND m.content <> :redacted")
+    int redactFinished(@Param("statuses") Collection<SmsOutboxStatus> statuses, @Param("redacted") String redacted);
+    
+    /**
+     * Xóa các tin đã kết thúc (SENT/FAILED/EXPIRED) tạo trước thời điểm cho trước
+     */
+    @Modifying
+    @Query("DELETE FROM SmsOutboxMessage m WHERE m.status IN :statuses AND m.createdAt < :before")
+    int deleteFinishedBefore(@Param("statuses") Collection<SmsOutboxStatus> statuses, @Param("before") LocalDateTime before);
+}
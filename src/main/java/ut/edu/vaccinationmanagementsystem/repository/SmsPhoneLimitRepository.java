@@ -0,0 +1,54 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.SmsPhoneLimit;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface SmsPhoneLimitRepository extends JpaRepository<SmsPhoneLimit, Long> {
+    
+    /**
+     * Bộ đếm của một số điện thoại
+     */
+    Optional<SmsPhoneLimit> findByPhoneNumber(String phoneNumber);
+    
+    /**
+     * Tạo dòng bộ đếm cho số điện thoại nếu chưa có (không đổi dòng đã có)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sms_phone_limits (phone_number, window_count) VALUES (:phoneNumber, 0) " +
+                   "ON DUPLICATE KEY UPDATE phone_number = phone_number",
+           nativeQuery = true)
+    int ensureExists(@Param("phoneNumber") String phoneNumber);
+    
+    /**
+     * Ghi nhận một tin mới nếu số điện thoại chưa vượt giới hạn, trong một câu UPDATE có điều kiện
+     * (dòng bị khóa tới khi transaction commit nên yêu cầu đồng thời cho cùng số phải chờ và đọc lại bộ đếm mới)
+     * - Tin trước phải từ :cooldownCutoff trở về trước
+     * - Khung giờ bắt đầu từ :windowCutoff trở về trước thì mở khung mới, còn lại số tin trong khung phải dưới :maxPerWindow
+     * window_count được gán trước window_start vì MySQL dùng giá trị đã gán của các cột đứng trước trong SET
+     * @return 1 nếu được gửi, 0 nếu vượt giới hạn
+     */
+    @Modifying
+    @Query(value = "UPDATE sms_phone_limits SET " +
+                   "window_count = CASE WHEN window_start IS NULL OR window_start <= :windowCutoff " +
+                   "THEN 1 ELSE window_count + 1 END, " +
+                   "window_start = CASE WHEN window_start IS NULL OR window_start <= :windowCutoff " +
+                   "THEN :now ELSE window_start END, " +
+                   "last_requested_at = :now " +
+                   "WHERE phone_number = :phoneNumber " +
+                   "AND (last_requested_at IS NULL OR last_requested_at <= :cooldownCutoff) " +
+                   "AND (window_start IS NULL OR window_start <= :windowCutoff OR window_count < :maxPerWindow)",
+           nativeQuery = true)
+    int tryAcquire(@Param("phoneNumber") String phoneNumber,
+                   @Param("now") LocalDateTime now,
+                   @Param("cooldownCutoff") LocalDateTime cooldownCutoff,
+                   @Param("windowCutoff") LocalDateTime windowCutoff,
+                   @Param("maxPerWindow") int maxPerWindow);
+}
@@ -0,0 +1,55 @@
+package ut.edu.vaccinationmanagementsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ut.edu.vaccinationmanagementsystem.entity.StaffDailyActivity;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StaffDailyActivityRepository extends JpaRepository<StaffDailyActivity, Long> {
+    
+    /**
+     * Cộng dồn số công việc của (nhân viên, ngày) (tạo mới nếu chưa có) trong một câu lệnh để an toàn khi ghi đồng thời
+     */
+    @Modifying
+    @Query(value = "INSERT INTO staff_daily_activities (staff_id, activity_date, screening_count, injection_count, reception_count, updated_at) " +
+                   "VALUES (:staffId, :activityDate, :screeningDelta, :injectionDelta, :receptionDelta, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE screening_count = screening_count + :screeningDelta, " +
+                   "injection_count = injection_count + :injectionDelta, " +
+                   "reception_count = reception_count + :receptionDelta, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int increment(@Param("staffId") Long staffId,
+                  @Param("activityDate") LocalDate activityDate,
+                  @Param("screeningDelta") long screeningDelta,
+                  @Param("injectionDelta") long injectionDelta,
+                  @Param("receptionDelta") long receptionDelta);
+    
+    /**
+     * Xóa các dòng (trong danh sách ID) đã về 0 (dùng khi đối soát (nhân viên, ngày) không còn công việc nào)
+     */
+    @Modifying
+    @Query("DELETE FROM StaffDailyActivity a WHERE a.id IN :ids " +
+           "AND a.screeningCount = 0 AND a.injectionCount = 0 AND a.receptionCount = 0")
+    int deleteEmptyByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Tổng số công việc của từng nhân viên trong khoảng ngày (một truy vấn cho tất cả nhân viên)
+     * @return Danh sách [staffId, số ca khám sàng lọc, số mũi tiêm, số lịch hẹn đã xác nhận/check-in]
+     */
+    @Query("SELECT a.staffId, SUM(a.screeningCount), SUM(a.injectionCount), SUM(a.receptionCount) " +
+           "FROM StaffDailyActivity a WHERE a.activityDate BETWEEN :startDate AND :endDate GROUP BY a.staffId")
+    List<Object[]> sumByStaffBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Xóa số liệu của các nhân viên bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM StaffDailyActivity a WHERE a.staffId IN :staffIds")
+    int deleteByStaffIds(@Param("staffIds") Collection<Long> staffIds);
+}
@@ -1,12 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.StaffInfo;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +22,19 @@ public interface StaffInfoRepository extends JpaRepository<StaffInfo, Long> {
     List<StaffInfo> findByCenterId(@Param("centerId") Long centerId);
     
     Optional<StaffInfo> findByEmployeeId(String employeeId);
+    
+    /**
+     * Trung tâm làm việc của các nhân viên trong một truy vấn (danh sách nhân viên của admin)
+     * @return Danh sách [userId, centerId, centerName] (centerId/centerName null nếu chưa gán trung tâm)
+     */
+    @Query("SELECT si.user.id, c.id, c.name FROM StaffInfo si LEFT JOIN si.center c WHERE si.user.id IN :userIds")
+    List<Object[]> findCenterRowsByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    // Đếm thông tin nhân viên của các user (xem trước khi xóa user hàng loạt)
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    // Xóa thông tin nhân viên của các user bằng một câu DELETE (xóa user hàng loạt)
+    @Modifying
+    @Query("DELETE FROM StaffInfo si WHERE si.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
 }
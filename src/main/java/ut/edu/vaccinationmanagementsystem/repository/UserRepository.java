@@ -1,19 +1,24 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AuthProvider;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
 import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     
     // Tìm user theo email
     Optional<User> findByEmail(String email);
@@ -34,7 +39,70 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.status = :status AND u.createAt < :cutoffDate")
     List<User> findInactiveUsersBeforeDate(@Param("status") UserStatus status, @Param("cutoffDate") LocalDate cutoffDate);
     
+    // Lấy ID user INACTIVE được tạo trước ngày chỉ định theo ID tăng dần (dọn dẹp theo từng lô)
+    @Query("SELECT u.id FROM User u WHERE u.status = :status AND u.createAt < :cutoffDate AND u.id > :afterId ORDER BY u.id ASC")
+    List<Long> findInactiveUserIdsBeforeDate(@Param("status") UserStatus status, @Param("cutoffDate") LocalDate cutoffDate,
+                                             @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Đếm user INACTIVE được tạo trước ngày chỉ định
+    @Query("SELECT COUNT(u) FROM User u WHERE u.status = :status AND u.createAt < :cutoffDate")
+    long countInactiveUsersBeforeDate(@Param("status") UserStatus status, @Param("cutoffDate") LocalDate cutoffDate);
+    
     // Tìm user theo citizenId (CMND/CCCD)
     Optional<User> findByCitizenId(String citizenId);
+    
+    // Đếm user theo ngày tạo và role (dùng để đối soát thống kê dashboard)
+    // Trả về danh sách [createAt, role, count]
+    @Query("SELECT u.createAt, u.role, COUNT(u) FROM User u WHERE u.createAt IS NOT NULL GROUP BY u.createAt, u.role")
+    List<Object[]> countGroupByCreateAtAndRole();
+    
+    // Đếm user theo role (kể cả user không có ngày tạo)
+    // Trả về danh sách [role, count]
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countGroupByRole();
+    
+    // Đếm các user trong danh sách ID theo ngày tạo và role (trừ thống kê dashboard trước khi xóa user hàng loạt)
+    // Trả về danh sách [createAt, role, count]
+    @Query("SELECT u.createAt, u.role, COUNT(u) FROM User u WHERE u.id IN :ids AND u.createAt IS NOT NULL GROUP BY u.createAt, u.role")
+    List<Object[]> countGroupByCreateAtAndRoleForIds(@Param("ids") Collection<Long> ids);
+    
+    // Tìm user theo role
+    List<User> findByRole(Role role);
+    
+    // Tìm user thuộc các role (danh sách nhân viên của admin)
+    List<User> findByRoleIn(Collection<Role> roles);
+    
+    // Chỉ lấy status của user (dùng cho UserStatusInterceptor, không load toàn bộ User)
+    @Query("SELECT u.status FROM User u WHERE u.id = :id")
+    Optional<UserStatus> findStatusById(@Param("id") Long id);
+    
+    // Chỉ lấy ID của user theo email
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
+    // Đếm user thuộc các role (số người nhận của đợt gửi thông báo theo role)
+    long countByRoleIn(Collection<Role> roles);
+    
+    // Đếm user còn tồn tại trong danh sách ID
+    long countByIdIn(Collection<Long> ids);
+    
+    // Lấy thông tin liên hệ của user theo ID tăng dần (gửi thông báo hàng loạt theo từng lô)
+    // Trả về danh sách [id, phoneNumber, email]
+    @Query("SELECT u.id, u.phoneNumber, u.email FROM User u WHERE u.id > :afterId ORDER BY u.id ASC")
+    List<Object[]> findContactsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Lấy thông tin liên hệ của user thuộc các role, theo ID tăng dần
+    // Trả về danh sách [id, phoneNumber, email]
+    @Query("SELECT u.id, u.phoneNumber, u.email FROM User u WHERE u.role IN :roles AND u.id > :afterId ORDER BY u.id ASC")
+    List<Object[]> findContactsByRolesAfter(@Param("roles") Collection<Role> roles, @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Lấy thông tin liên hệ của các user trong danh sách ID, theo ID tăng dần
+    // Trả về danh sách [id, phoneNumber, email]
+    @Query("SELECT u.id, u.phoneNumber, u.email FROM User u WHERE u.id IN :ids ORDER BY u.id ASC")
+    List<Object[]> findContactsByIds(@Param("ids") Collection<Long> ids);
+    
+    // Xóa các user trong danh sách ID bằng một câu DELETE (sau khi đã xử lý các bản ghi liên quan)
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
-
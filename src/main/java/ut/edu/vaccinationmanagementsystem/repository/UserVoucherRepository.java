@@ -1,6 +1,7 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -8,6 +9,7 @@ import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.UserVoucher;
 import ut.edu.vaccinationmanagementsystem.entity.Voucher;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,6 +40,18 @@ public interface UserVoucherRepository extends JpaRepository<UserVoucher, Long>
      * Đếm số lần voucher đã được sử dụng
      */
     long countByVoucher(Voucher voucher);
+    
+    /**
+     * Đếm lượt dùng voucher của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa lượt dùng voucher của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM UserVoucher uv WHERE uv.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
 }
 
 
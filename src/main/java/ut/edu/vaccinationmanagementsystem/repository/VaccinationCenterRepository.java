@@ -1,11 +1,34 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
+import ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface VaccinationCenterRepository extends JpaRepository<VaccinationCenter, Long> {
+    
+    /**
+     * Đếm số trung tâm theo trạng thái
+     */
+    long countByStatus(CenterStatus status);
+    
+    /**
+     * ID các trung tâm theo trạng thái (tăng dần)
+     */
+    @Query("SELECT c.id FROM VaccinationCenter c WHERE c.status = :status ORDER BY c.id ASC")
+    List<Long> findIdsByStatus(@Param("status") CenterStatus status);
+    
+    /**
+     * ID các trung tâm có tồn tại trong danh sách (tăng dần)
+     */
+    @Query("SELECT c.id FROM VaccinationCenter c WHERE c.id IN :ids ORDER BY c.id ASC")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
 
 
@@ -1,14 +1,21 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
 import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VaccinationRecordRepository extends JpaRepository<VaccinationRecord, Long> {
@@ -37,6 +44,28 @@ public interface VaccinationRecordRepository extends JpaRepository<VaccinationRe
     List<VaccinationRecord> findByAppointmentFamilyMemberIdOrderByInjectionDateDesc(
             @Param("familyMemberId") Long familyMemberId);
     
+    /**
+     * Các cột hồ sơ tiêm dùng cho dòng thời gian tiêm chủng của user, không load entity
+     * @return Mỗi dòng: [id, vaccineId, vaccineName, injectionDate, injectionTime, doseNumber, centerId, centerName,
+     *         batchNumber, certificateNumber, nurseName, nextDoseDate]
+     */
+    @Query("SELECT vr.id, v.id, v.name, vr.injectionDate, vr.injectionTime, vr.doseNumber, c.id, c.name, " +
+           "vr.batchNumber, vr.certificateNumber, n.fullName, vr.nextDoseDate " +
+           "FROM VaccinationRecord vr " +
+           "LEFT JOIN vr.vaccine v LEFT JOIN vr.appointment a LEFT JOIN a.center c LEFT JOIN vr.nurse n " +
+           "WHERE vr.user.id = :userId")
+    List<Object[]> findTimelineRowsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Các cột hồ sơ tiêm dùng cho dòng thời gian tiêm chủng của một người thân (cùng thứ tự cột với findTimelineRowsByUserId)
+     */
+    @Query("SELECT vr.id, v.id, v.name, vr.injectionDate, vr.injectionTime, vr.doseNumber, c.id, c.name, " +
+           "vr.batchNumber, vr.certificateNumber, n.fullName, vr.nextDoseDate " +
+           "FROM VaccinationRecord vr " +
+           "LEFT JOIN vr.vaccine v JOIN vr.appointment a LEFT JOIN a.center c LEFT JOIN vr.nurse n " +
+           "WHERE a.familyMember.id = :familyMemberId")
+    List<Object[]> findTimelineRowsByFamilyMemberId(@Param("familyMemberId") Long familyMemberId);
+    
     /**
      * Tìm tất cả vaccination records của một user và vaccine cụ thể
      */
@@ -83,6 +112,191 @@ public interface VaccinationRecordRepository extends JpaRepository<VaccinationRe
      * Tìm các vaccination records trong một ngày cụ thể cho một trung tâm
      */
     List<VaccinationRecord> findByInjectionDateAndAppointmentCenterId(LocalDate injectionDate, Long centerId);
+    
+    /**
+     * Đếm số mũi tiêm theo ngày tiêm, trung tâm và vaccine (dùng để đối soát thống kê dashboard)
+     * @return Danh sách [injectionDate, centerId, vaccineId, count]
+     */
+    @Query("SELECT vr.injectionDate, c.id, v.id, COUNT(vr) FROM VaccinationRecord vr " +
+           "LEFT JOIN vr.appointment a LEFT JOIN a.center c LEFT JOIN vr.vaccine v " +
+           "WHERE vr.injectionDate IS NOT NULL " +
+           "GROUP BY vr.injectionDate, c.id, v.id")
+    List<Object[]> countGroupByInjectionDateCenterAndVaccine();
+    
+    /**
+     * Đếm số mũi tiêm theo vaccine và mũi trong khoảng ngày (dùng cho báo cáo)
+     * @return Danh sách [vaccineId, vaccineName, doseNumber, count]
+     */
+    @Query("SELECT v.id, v.name, vr.doseNumber, COUNT(vr) FROM VaccinationRecord vr JOIN vr.vaccine v " +
+           "WHERE vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY v.id, v.name, vr.doseNumber")
+    List<Object[]> countGroupByVaccineAndDose(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đếm số mũi tiêm theo trung tâm trong khoảng ngày (dùng cho báo cáo)
+     * @return Danh sách [centerId, centerName, count]
+     */
+    @Query("SELECT c.id, c.name, COUNT(vr) FROM VaccinationRecord vr JOIN vr.appointment a JOIN a.center c " +
+           "WHERE vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY c.id, c.name")
+    List<Object[]> countGroupByCenter(@Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đếm số mũi tiêm theo ngày tiêm trong khoảng ngày (dùng cho báo cáo)
+     * @return Danh sách [injectionDate, count]
+     */
+    @Query("SELECT vr.injectionDate, COUNT(vr) FROM VaccinationRecord vr " +
+           "WHERE vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY vr.injectionDate")
+    List<Object[]> countGroupByInjectionDate(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đếm số mũi tiêm và số người đã tiêm theo vaccine (dùng cho báo cáo vaccine)
+     * @return Danh sách [vaccineId, count, distinctUserCount]
+     */
+    @Query("SELECT vr.vaccine.id, COUNT(vr), COUNT(DISTINCT vr.user.id) FROM VaccinationRecord vr " +
+           "GROUP BY vr.vaccine.id")
+    List<Object[]> countInjectionsAndUsersGroupByVaccine();
+    
+    /**
+     * Đếm số mũi tiêm và số vaccine khác nhau theo người được tiêm có role cho trước, trong khoảng ngày
+     * @return Danh sách [userId, count, distinctVaccineCount]
+     */
+    @Query("SELECT vr.user.id, COUNT(vr), COUNT(DISTINCT vr.vaccine.id) FROM VaccinationRecord vr " +
+           "WHERE vr.user.role = :role AND vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY vr.user.id")
+    List<Object[]> countGroupByUserWithRole(@Param("role") Role role,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đọc tuần tự số mũi tiêm theo ngày, vaccine, mũi và trung tâm (sắp xếp theo ngày)
+     * Dùng cho báo cáo khoảng thời gian lớn: kết quả được đọc dần từ database thay vì nạp hết vào bộ nhớ
+     * (với useCursorFetch=true trên JDBC URL, MySQL trả kết quả theo từng lô 1000 dòng)
+     * Phải gọi trong transaction và đóng Stream sau khi dùng
+     * @return Stream [injectionDate, vaccineId, vaccineName, doseNumber, centerId, centerName, count]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT vr.injectionDate, v.id, v.name, vr.doseNumber, c.id, c.name, COUNT(vr) FROM VaccinationRecord vr " +
+           "JOIN vr.vaccine v LEFT JOIN vr.appointment a LEFT JOIN a.center c " +
+           "WHERE vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY vr.injectionDate, v.id, v.name, vr.doseNumber, c.id, c.name " +
+           "ORDER BY vr.injectionDate, v.id, vr.doseNumber, c.id")
+    Stream<Object[]> streamDailyGroupByVaccineDoseAndCenter(@Param("startDate") LocalDate startDate,
+                                                            @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đọc tuần tự từng hồ sơ tiêm trong khoảng ngày (xuất báo cáo chi tiết, có thể hàng triệu dòng)
+     * Chỉ lấy các cột cần xuất (không tạo entity) và sắp xếp theo index injection_date để không phải sort
+     * Phải gọi trong transaction và đóng Stream sau khi dùng
+     * @return Stream [id, injectionDate, injectionTime, vaccineName, doseNumber, batchNumber, certificateNumber,
+     *         userId, fullName, dayOfBirth, centerName, nurseName, nextDoseDate]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT vr.id, vr.injectionDate, vr.injectionTime, v.name, vr.doseNumber, vr.batchNumber, vr.certificateNumber, " +
+           "u.id, u.fullName, u.dayOfBirth, c.name, n.fullName, vr.nextDoseDate FROM VaccinationRecord vr " +
+           "JOIN vr.vaccine v JOIN vr.user u LEFT JOIN vr.nurse n LEFT JOIN vr.appointment a LEFT JOIN a.center c " +
+           "WHERE vr.injectionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY vr.injectionDate, vr.id")
+    Stream<Object[]> streamRecordsForExport(@Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Đọc tuần tự dữ liệu chứng nhận của các hồ sơ tiêm thuộc tài khoản (gồm cả người thân), sắp xếp theo ngày tiêm
+     * Phải gọi trong transaction và đóng Stream sau khi dùng
+     * @return Stream [id, certificateNumber, fullName, dateOfBirth, vaccineName, doseNumber, injectionDate,
+     *         injectionTime, batchNumber, centerName, nurseName, nextDoseDate]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT vr.id, vr.certificateNumber, COALESCE(fm.fullName, u.fullName), " +
+           "CASE WHEN fm.id IS NOT NULL THEN fm.dateOfBirth ELSE u.dayOfBirth END, " +
+           "v.name, vr.doseNumber, vr.injectionDate, vr.injectionTime, vr.batchNumber, c.name, n.fullName, vr.nextDoseDate " +
+           "FROM VaccinationRecord vr JOIN vr.vaccine v JOIN vr.user u LEFT JOIN vr.nurse n " +
+           "LEFT JOIN vr.appointment a LEFT JOIN a.familyMember fm LEFT JOIN a.center c " +
+           "WHERE u.id = :userId " +
+           "ORDER BY vr.injectionDate, vr.id")
+    Stream<Object[]> streamCertificatesByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Đọc tuần tự dữ liệu chứng nhận của các mũi tiêm tại một trung tâm trong một ngày (cùng cột với streamCertificatesByUserId)
+     * Phải gọi trong transaction và đóng Stream sau khi dùng
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT vr.id, vr.certificateNumber, COALESCE(fm.fullName, u.fullName), " +
+           "CASE WHEN fm.id IS NOT NULL THEN fm.dateOfBirth ELSE u.dayOfBirth END, " +
+           "v.name, vr.doseNumber, vr.injectionDate, vr.injectionTime, vr.batchNumber, c.name, n.fullName, vr.nextDoseDate " +
+           "FROM VaccinationRecord vr JOIN vr.vaccine v JOIN vr.user u LEFT JOIN vr.nurse n " +
+           "JOIN vr.appointment a LEFT JOIN a.familyMember fm JOIN a.center c " +
+           "WHERE c.id = :centerId AND vr.injectionDate = :injectionDate " +
+           "ORDER BY vr.injectionTime, vr.id")
+    Stream<Object[]> streamCertificatesByCenterAndDate(@Param("centerId") Long centerId,
+                                                       @Param("injectionDate") LocalDate injectionDate);
+    
+    /**
+     * Dữ liệu chứng nhận theo số chứng nhận (xác minh chứng nhận qua QR, cùng cột với streamCertificatesByUserId)
+     */
+    @Query("SELECT vr.id, vr.certificateNumber, COALESCE(fm.fullName, u.fullName), " +
+           "CASE WHEN fm.id IS NOT NULL THEN fm.dateOfBirth ELSE u.dayOfBirth END, " +
+           "v.name, vr.doseNumber, vr.injectionDate, vr.injectionTime, vr.batchNumber, c.name, n.fullName, vr.nextDoseDate " +
+           "FROM VaccinationRecord vr JOIN vr.vaccine v JOIN vr.user u LEFT JOIN vr.nurse n " +
+           "LEFT JOIN vr.appointment a LEFT JOIN a.familyMember fm LEFT JOIN a.center c " +
+           "WHERE vr.certificateNumber = :certificateNumber")
+    List<Object[]> findCertificateByNumber(@Param("certificateNumber") String certificateNumber);
+    
+    /**
+     * Đếm hồ sơ tiêm của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Đếm hồ sơ tiêm do các user thực hiện với vai trò y tá
+     */
+    long countByNurseIdIn(Collection<Long> nurseIds);
+    
+    /**
+     * Nhóm hồ sơ tiêm của các user theo ngày tiêm, trung tâm và vaccine (trừ thống kê dashboard trước khi xóa)
+     * @return Danh sách [injectionDate, centerId, vaccineId, count]
+     */
+    @Query("SELECT vr.injectionDate, c.id, v.id, COUNT(vr) FROM VaccinationRecord vr " +
+           "LEFT JOIN vr.vaccine v LEFT JOIN vr.appointment a LEFT JOIN a.center c " +
+           "WHERE vr.user.id IN :userIds AND vr.injectionDate IS NOT NULL " +
+           "GROUP BY vr.injectionDate, c.id, v.id")
+    List<Object[]> countInjectionsByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Nhóm hồ sơ tiêm của các user theo y tá và ngày tiêm (trừ hiệu suất nhân viên trước khi xóa)
+     * @return Danh sách [nurseId, injectionDate, count]
+     */
+    @Query("SELECT vr.nurse.id, vr.injectionDate, COUNT(vr) FROM VaccinationRecord vr " +
+           "WHERE vr.user.id IN :userIds AND vr.nurse IS NOT NULL AND vr.injectionDate IS NOT NULL " +
+           "GROUP BY vr.nurse.id, vr.injectionDate")
+    List<Object[]> countGroupByNurseAndInjectionDateForUsers(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Nhóm toàn bộ hồ sơ tiêm theo y tá và ngày tiêm (đối soát bảng hiệu suất nhân viên)
+     * @return Danh sách [nurseId, injectionDate, count]
+     */
+    @Query("SELECT vr.nurse.id, vr.injectionDate, COUNT(vr) FROM VaccinationRecord vr " +
+           "WHERE vr.nurse IS NOT NULL AND vr.injectionDate IS NOT NULL " +
+           "GROUP BY vr.nurse.id, vr.injectionDate")
+    List<Object[]> countGroupByNurseAndInjectionDate();
+    
+    /**
+     * Xóa hồ sơ tiêm của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM VaccinationRecord vr WHERE vr.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Bỏ liên kết y tá khỏi các hồ sơ tiêm do các user thực hiện (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("UPDATE VaccinationRecord vr SET vr.nurse = null WHERE vr.nurse.id IN :nurseIds")
+    int clearNurse(@Param("nurseIds") Collection<Long> nurseIds);
 }
 
 
@@ -27,13 +27,11 @@ public interface VaccineIncompatibilityRepository extends JpaRepository<VaccineI
     );
     
     /**
-     * Tìm tất cả vaccine không tương thích với một vaccine
-     * @param vaccineId ID của vaccine
-     * @return Danh sách incompatibility
+     * Tất cả cặp vaccine không tương thích (không load entity vaccine)
+     * @return Mỗi dòng: [vaccine1Id, vaccine2Id, minDaysBetween]
      */
-    @Query("SELECT vi FROM VaccineIncompatibility vi WHERE " +
-           "vi.vaccine1.id = :vaccineId OR vi.vaccine2.id = :vaccineId")
-    List<VaccineIncompatibility> findAllIncompatibleWithVaccine(@Param("vaccineId") Long vaccineId);
+    @Query("SELECT vi.vaccine1.id, vi.vaccine2.id, vi.minDaysBetween FROM VaccineIncompatibility vi")
+    List<Object[]> findAllPairs();
 }
 
 
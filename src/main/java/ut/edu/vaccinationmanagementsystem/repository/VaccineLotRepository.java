@@ -1,6 +1,7 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -8,6 +9,7 @@ import ut.edu.vaccinationmanagementsystem.entity.VaccineLot;
 import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,5 +71,79 @@ public interface VaccineLotRepository extends JpaRepository<VaccineLot, Long> {
            "ORDER BY vl.expiryDate ASC, vl.remainingQuantity ASC")
     List<VaccineLot> findAvailableLotsByVaccineIdOrderByExpiryDate(@Param("vaccineId") Long vaccineId, 
                                                                     @Param("today") LocalDate today);
+    
+    // Lấy ID các lô vaccine có sẵn theo thứ tự FIFO (chỉ đọc ID, dùng để dựng hàng đợi cấp phát)
+    @Query("SELECT vl.id FROM VaccineLot vl WHERE " +
+           "vl.vaccine.id = :vaccineId AND " +
+           "vl.status = 'AVAILABLE' AND " +
+           "vl.remainingQuantity > 0 AND " +
+           "vl.expiryDate > :today " +
+           "ORDER BY vl.expiryDate ASC, vl.remainingQuantity ASC, vl.id ASC")
+    List<Long> findAvailableLotIdsByVaccineIdOrderByExpiryDate(@Param("vaccineId") Long vaccineId,
+                                                               @Param("today") LocalDate today);
+    
+    // Lấy số lượng còn lại của lô nếu lô còn dùng được (AVAILABLE và chưa hết hạn)
+    @Query("SELECT vl.remainingQuantity FROM VaccineLot vl WHERE " +
+           "vl.id = :lotId AND " +
+           "vl.status = 'AVAILABLE' AND " +
+           "vl.expiryDate > :today")
+    Optional<Integer> findUsableRemainingQuantity(@Param("lotId") Long lotId, @Param("today") LocalDate today);
+    
+    // Trừ số liều của lô bằng một câu UPDATE có điều kiện (chỉ thành công khi lô còn đủ và còn dùng được)
+    @Modifying
+    @Query("UPDATE VaccineLot vl SET vl.remainingQuantity = vl.remainingQuantity - :quantity WHERE " +
+           "vl.id = :lotId AND " +
+           "vl.status = 'AVAILABLE' AND " +
+           "vl.expiryDate > :today AND " +
+           "vl.remainingQuantity >= :quantity")
+    int decrementRemainingQuantity(@Param("lotId") Long lotId,
+                                   @Param("quantity") int quantity,
+                                   @Param("today") LocalDate today);
+    
+    // Trừ số liều của một lô cụ thể (y tá chọn lô khi tiêm), không cho số lượng âm
+    @Modifying
+    @Query("UPDATE VaccineLot vl SET vl.remainingQuantity = vl.remainingQuantity - :quantity WHERE " +
+           "vl.id = :lotId AND " +
+           "vl.remainingQuantity >= :quantity")
+    int consumeRemainingQuantity(@Param("lotId") Long lotId, @Param("quantity") int quantity);
+    
+    // Cộng lại số liều vào lô (khi hủy lịch đã giữ vaccine), lô DEPLETED được mở lại
+    @Modifying
+    @Query("UPDATE VaccineLot vl SET " +
+           "vl.status = CASE WHEN vl.status = 'DEPLETED' THEN 'AVAILABLE' ELSE vl.status END, " +
+           "vl.remainingQuantity = vl.remainingQuantity + :quantity " +
+           "WHERE vl.id = :lotId")
+    int incrementRemainingQuantity(@Param("lotId") Long lotId, @Param("quantity") int quantity);
+    
+    // Đánh dấu EXPIRED cho các lô đã hết hạn (một câu UPDATE, không load entity)
+    @Modifying
+    @Query("UPDATE VaccineLot vl SET vl.status = 'EXPIRED' WHERE " +
+           "vl.expiryDate < :today AND " +
+           "vl.status = 'AVAILABLE'")
+    int markExpiredLots(@Param("today") LocalDate today);
+    
+    // Đánh dấu DEPLETED cho các lô đã hết (một câu UPDATE, không load entity)
+    @Modifying
+    @Query("UPDATE VaccineLot vl SET vl.status = 'DEPLETED' WHERE " +
+           "vl.remainingQuantity = 0 AND " +
+           "vl.status = 'AVAILABLE'")
+    int markDepletedLots();
+    
+    /**
+     * Tổng số liều còn dùng được của các vaccine, số liều sắp hết hạn (hết hạn trước hoặc đúng :expiringBefore)
+     * và ngày hết hạn gần nhất (bảng tồn kho trong bộ nhớ)
+     * @return Danh sách [vaccineId, usableQuantity, expiringQuantity, nearestExpiryDate]
+     */
+    @Query("SELECT vl.vaccine.id, SUM(vl.remainingQuantity), " +
+           "SUM(CASE WHEN vl.expiryDate <= :expiringBefore THEN vl.remainingQuantity ELSE 0 END), MIN(vl.expiryDate) " +
+           "FROM VaccineLot vl WHERE " +
+           "vl.vaccine.id IN :vaccineIds AND " +
+           "vl.status = 'AVAILABLE' AND " +
+           "vl.remainingQuantity > 0 AND " +
+           "vl.expiryDate > :today " +
+           "GROUP BY vl.vaccine.id")
+    List<Object[]> sumUsableGroupByVaccine(@Param("vaccineIds") Collection<Long> vaccineIds,
+                                           @Param("today") LocalDate today,
+                                           @Param("expiringBefore") LocalDate expiringBefore);
 }
 
@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,6 +24,20 @@ public interface VaccineRepository extends JpaRepository<Vaccine, Long> {
     
     //Kiểm tra vaccine có tồn tại theo mã code không
     boolean existsByCode(String code);
+    
+    /**
+     * Thông tin vaccine cho bảng tồn kho trong bộ nhớ (InventoryPositionService)
+     * @return Danh sách [vaccineId, name, manufacturer]
+     */
+    @Query("SELECT v.id, v.name, v.manufacturer FROM Vaccine v")
+    List<Object[]> findInventoryRows();
+    
+    /**
+     * Thông tin của các vaccine cho bảng tồn kho trong bộ nhớ (chỉ các vaccine vừa thay đổi)
+     * @return Danh sách [vaccineId, name, manufacturer]
+     */
+    @Query("SELECT v.id, v.name, v.manufacturer FROM Vaccine v WHERE v.id IN :ids")
+    List<Object[]> findInventoryRowsByIds(@Param("ids") Collection<Long> ids);
 }
 
 
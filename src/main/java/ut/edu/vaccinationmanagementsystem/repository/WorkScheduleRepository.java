@@ -1,12 +1,14 @@
 package ut.edu.vaccinationmanagementsystem.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ut.edu.vaccinationmanagementsystem.entity.User;
 import ut.edu.vaccinationmanagementsystem.entity.WorkSchedule;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,5 +23,17 @@ public interface WorkScheduleRepository extends JpaRepository<WorkSchedule, Long
      */
     @Query("SELECT ws FROM WorkSchedule ws WHERE ws.user.id = :userId")
     List<WorkSchedule> findByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Đếm lịch làm việc của các user (xem trước khi xóa user hàng loạt)
+     */
+    long countByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Xóa lịch làm việc của các user bằng một câu DELETE (xóa user hàng loạt)
+     */
+    @Modifying
+    @Query("DELETE FROM WorkSchedule ws WHERE ws.user.id IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
 }
 
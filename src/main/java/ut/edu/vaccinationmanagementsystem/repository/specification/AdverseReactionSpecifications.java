@@ -0,0 +1,73 @@
+package ut.edu.vaccinationmanagementsystem.repository.specification;
+
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import org.springframework.data.jpa.domain.Specification;
+import ut.edu.vaccinationmanagementsystem.entity.AdverseReaction;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Điều kiện lọc AdverseReaction cho trang quản lý phản ứng phụ (admin, bác sĩ, y tá)
+ */
+public final class AdverseReactionSpecifications {
+
+    private AdverseReactionSpecifications() {
+    }
+
+    /**
+     * Phản ứng phụ của các mũi tiêm theo lịch hẹn tại trung tâm
+     */
+    public static Specification<AdverseReaction> atCenter(Long centerId) {
+        return (root, query, cb) -> cb.equal(appointment(root).get("center").get("id"), centerId);
+    }
+
+    public static Specification<AdverseReaction> isResolved(boolean resolved) {
+        return (root, query, cb) -> cb.equal(root.get("resolved"), resolved);
+    }
+
+    public static Specification<AdverseReaction> hasType(ReactionType reactionType) {
+        return (root, query, cb) -> cb.equal(root.get("reactionType"), reactionType);
+    }
+
+    public static Specification<AdverseReaction> occurredFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("occurredAt"), from);
+    }
+
+    /**
+     * Xảy ra trước thời điểm to (không tính to)
+     */
+    public static Specification<AdverseReaction> occurredTo(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get("occurredAt"), to);
+    }
+
+    /**
+     * Tìm theo tên người được tiêm hoặc tên vaccine
+     */
+    public static Specification<AdverseReaction> matchesKeyword(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = SpecificationUtils.containsPattern(keyword);
+            Join<AdverseReaction, VaccinationRecord> record = SpecificationUtils.leftJoin(root, "vaccinationRecord");
+            return cb.or(
+                    cb.like(cb.lower(SpecificationUtils.leftJoin(record, "user").get("fullName")), pattern, '\\'),
+                    cb.like(cb.lower(SpecificationUtils.leftJoin(record, "vaccine").get("name")), pattern, '\\'));
+        };
+    }
+
+    /**
+     * Keyset theo (occurredAt DESC, id DESC): các phản ứng đứng sau phản ứng cuối cùng của trang trước
+     */
+    public static Specification<AdverseReaction> occurredBefore(LocalDateTime occurredAt, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("occurredAt"), occurredAt),
+                cb.and(cb.equal(root.get("occurredAt"), occurredAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    private static Join<VaccinationRecord, Appointment> appointment(From<?, AdverseReaction> root) {
+        Join<AdverseReaction, VaccinationRecord> record = SpecificationUtils.leftJoin(root, "vaccinationRecord");
+        return SpecificationUtils.leftJoin(record, "appointment");
+    }
+}
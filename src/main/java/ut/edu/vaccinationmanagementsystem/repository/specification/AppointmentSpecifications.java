@@ -0,0 +1,49 @@
+package ut.edu.vaccinationmanagementsystem.repository.specification;
+
+import org.springframework.data.jpa.domain.Specification;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Điều kiện lọc Appointment cho trang quản lý lịch hẹn (admin)
+ */
+public final class AppointmentSpecifications {
+
+    private AppointmentSpecifications() {
+    }
+
+    public static Specification<Appointment> hasStatus(AppointmentStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Appointment> appointmentDateFrom(LocalDate startDate) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("appointmentDate"), startDate);
+    }
+
+    public static Specification<Appointment> appointmentDateTo(LocalDate endDate) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("appointmentDate"), endDate);
+    }
+
+    /**
+     * Tìm theo mã booking hoặc tên bệnh nhân (người được đặt cho, người đặt, người thân)
+     */
+    public static Specification<Appointment> matchesKeyword(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = SpecificationUtils.containsPattern(keyword);
+            return cb.or(
+                    cb.like(cb.lower(root.get("bookingCode")), pattern, '\\'),
+                    cb.like(cb.lower(SpecificationUtils.leftJoin(root, "bookedForUser").get("fullName")), pattern, '\\'),
+                    cb.like(cb.lower(SpecificationUtils.leftJoin(root, "bookedByUser").get("fullName")), pattern, '\\'),
+                    cb.like(cb.lower(SpecificationUtils.leftJoin(root, "familyMember").get("fullName")), pattern, '\\'));
+        };
+    }
+
+    /**
+     * Keyset: các appointment có ID lớn hơn ID cuối cùng của trang trước
+     */
+    public static Specification<Appointment> idAfter(Long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+}
@@ -0,0 +1,40 @@
+package ut.edu.vaccinationmanagementsystem.repository.specification;
+
+import jakarta.persistence.criteria.Join;
+import org.springframework.data.jpa.domain.Specification;
+import ut.edu.vaccinationmanagementsystem.entity.Notification;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Điều kiện lọc Notification cho trang quản lý thông báo (admin)
+ */
+public final class NotificationSpecifications {
+
+    private NotificationSpecifications() {
+    }
+
+    /**
+     * Tìm theo tiêu đề, tên hoặc email người nhận
+     */
+    public static Specification<Notification> matchesKeyword(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = SpecificationUtils.containsPattern(keyword);
+            Join<Notification, User> user = SpecificationUtils.leftJoin(root, "user");
+            return cb.or(
+                    cb.like(cb.lower(root.get("title")), pattern, '\\'),
+                    cb.like(cb.lower(user.get("fullName")), pattern, '\\'),
+                    cb.like(cb.lower(user.get("email")), pattern, '\\'));
+        };
+    }
+
+    /**
+     * Keyset theo (createdAt DESC, id DESC): các thông báo đứng sau thông báo cuối cùng của trang trước
+     */
+    public static Specification<Notification> createdBefore(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+}
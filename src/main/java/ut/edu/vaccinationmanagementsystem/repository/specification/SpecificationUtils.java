@@ -0,0 +1,39 @@
+package ut.edu.vaccinationmanagementsystem.repository.specification;
+
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+
+/**
+ * Tiện ích dùng chung cho các Specification
+ */
+public final class SpecificationUtils {
+
+    private SpecificationUtils() {
+    }
+
+    /**
+     * Lấy LEFT JOIN tới thuộc tính, dùng lại join đã có trên cùng query nếu có
+     * (để điều kiện lọc và phần SELECT dùng chung một join, tránh JOIN trùng lặp)
+     */
+    @SuppressWarnings("unchecked")
+    public static <X, Y> Join<X, Y> leftJoin(From<?, X> from, String attribute) {
+        for (Join<X, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute) && join.getJoinType() == JoinType.LEFT) {
+                return (Join<X, Y>) join;
+            }
+        }
+        return from.join(attribute, JoinType.LEFT);
+    }
+
+    /**
+     * Tạo pattern LIKE "chứa" (không phân biệt hoa thường) từ từ khóa tìm kiếm
+     */
+    public static String containsPattern(String keyword) {
+        String escaped = keyword.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,43 @@
+package ut.edu.vaccinationmanagementsystem.repository.specification;
+
+import org.springframework.data.jpa.domain.Specification;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+
+/**
+ * Điều kiện lọc User cho trang quản lý người dùng (admin)
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> hasRole(Role role) {
+        return (root, query, cb) -> cb.equal(root.get("role"), role);
+    }
+
+    public static Specification<User> hasStatus(UserStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    /**
+     * Tìm theo tên, email hoặc số điện thoại
+     */
+    public static Specification<User> matchesKeyword(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = SpecificationUtils.containsPattern(keyword);
+            return cb.or(
+                    cb.like(cb.lower(root.get("fullName")), pattern, '\\'),
+                    cb.like(cb.lower(root.get("email")), pattern, '\\'),
+                    cb.like(root.get("phoneNumber"), pattern, '\\'));
+        };
+    }
+
+    /**
+     * Keyset: các user có ID lớn hơn ID cuối cùng của trang trước
+     */
+    public static Specification<User> idAfter(Long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+}
@@ -0,0 +1,580 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.*;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Gender;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReactionType;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.repository.specification.AdverseReactionSpecifications;
+import ut.edu.vaccinationmanagementsystem.repository.specification.AppointmentSpecifications;
+import ut.edu.vaccinationmanagementsystem.repository.specification.NotificationSpecifications;
+import ut.edu.vaccinationmanagementsystem.repository.specification.SpecificationUtils;
+import ut.edu.vaccinationmanagementsystem.repository.specification.UserSpecifications;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Danh sách phân trang cho các trang quản trị (users, appointments, notifications, phản ứng phụ)
+ * - Bộ lọc được chuyển thành Specification và chạy trong database, không nạp toàn bộ bảng rồi lọc bằng stream
+ * - Phân trang keyset (seek): trang sau bắt đầu từ khóa cuối của trang trước (cursor), không dùng OFFSET
+ * - Chỉ SELECT các cột cần hiển thị (tuple), không nạp entity và các quan hệ của nó
+ * - Tổng số bản ghi chỉ được đếm ở trang đầu (không có cursor) cho users và appointments
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private AdverseReactionRepository adverseReactionRepository;
+
+    /**
+     * Danh sách user, sắp xếp theo ID tăng dần
+     * @param cursor ID user cuối cùng của trang trước (null = trang đầu)
+     * @return Map gồm items, nextCursor, hasMore, size và total (chỉ có ở trang đầu)
+     */
+    public Map<String, Object> listUsers(Role role, UserStatus status, String search, String cursor, int size) {
+        int pageSize = normalizeSize(size);
+
+        List<Specification<User>> filters = new ArrayList<>();
+        if (role != null) {
+            filters.add(UserSpecifications.hasRole(role));
+        }
+        if (status != null) {
+            filters.add(UserSpecifications.hasStatus(status));
+        }
+        if (search != null && !search.trim().isEmpty()) {
+            filters.add(UserSpecifications.matchesKeyword(search));
+        }
+        Specification<User> filter = Specification.allOf(filters);
+
+        Specification<User> pageFilter = filter;
+        Long afterId = parseIdCursor(cursor);
+        if (afterId != null) {
+            pageFilter = filter.and(UserSpecifications.idAfter(afterId));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        applyFilter(query, root, cb, pageFilter);
+        query.select(cb.tuple(
+                root.get("id").alias("id"),
+                root.get("email").alias("email"),
+                root.get("fullName").alias("fullName"),
+                root.get("phoneNumber").alias("phoneNumber"),
+                root.get("role").alias("role"),
+                root.get("status").alias("status"),
+                root.get("createAt").alias("createAt"),
+                root.get("dayOfBirth").alias("dayOfBirth"),
+                root.get("gender").alias("gender")));
+        query.orderBy(cb.asc(root.get("id")));
+
+        List<Tuple> rows = fetch(query, pageSize);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Tuple row : rows) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", row.get("id"));
+            map.put("email", row.get("email"));
+            map.put("fullName", row.get("fullName"));
+            map.put("phoneNumber", row.get("phoneNumber"));
+            map.put("role", enumName(row.get("role", Role.class)));
+            map.put("status", enumName(row.get("status", UserStatus.class)));
+            map.put("createAt", row.get("createAt"));
+            map.put("dayOfBirth", row.get("dayOfBirth"));
+            map.put("gender", enumName(row.get("gender", Gender.class)));
+            items.add(map);
+        }
+
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).get("id")) : null;
+        Long total = cursor == null ? userRepository.count(filter) : null;
+        return buildPage(items, nextCursor, pageSize, total);
+    }
+
+    /**
+     * Danh sách appointment, sắp xếp theo ID tăng dần
+     * @param cursor ID appointment cuối cùng của trang trước (null = trang đầu)
+     * @return Map gồm items, nextCursor, hasMore, size và total (chỉ có ở trang đầu)
+     */
+    public Map<String, Object> listAppointments(AppointmentStatus status, LocalDate startDate, LocalDate endDate,
+                                                String search, String cursor, int size) {
+        int pageSize = normalizeSize(size);
+
+        List<Specification<Appointment>> filters = new ArrayList<>();
+        if (status != null) {
+            filters.add(AppointmentSpecifications.hasStatus(status));
+        }
+        if (startDate != null) {
+            filters.add(AppointmentSpecifications.appointmentDateFrom(startDate));
+        }
+        if (endDate != null) {
+            filters.add(AppointmentSpecifications.appointmentDateTo(endDate));
+        }
+        if (search != null && !search.trim().isEmpty()) {
+            filters.add(AppointmentSpecifications.matchesKeyword(search));
+        }
+        Specification<Appointment> filter = Specification.allOf(filters);
+
+        Specification<Appointment> pageFilter = filter;
+        Long afterId = parseIdCursor(cursor);
+        if (afterId != null) {
+            pageFilter = filter.and(AppointmentSpecifications.idAfter(afterId));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Appointment> root = query.from(Appointment.class);
+        applyFilter(query, root, cb, pageFilter);
+
+        // Dùng chung LEFT JOIN với điều kiện tìm kiếm (nếu có)
+        Join<Appointment, User> bookedForUser = SpecificationUtils.leftJoin(root, "bookedForUser");
+        Join<Appointment, User> bookedByUser = SpecificationUtils.leftJoin(root, "bookedByUser");
+        Join<Appointment, FamilyMember> familyMember = SpecificationUtils.leftJoin(root, "familyMember");
+        Join<Appointment, Vaccine> vaccine = SpecificationUtils.leftJoin(root, "vaccine");
+        Join<Appointment, VaccinationCenter> center = SpecificationUtils.leftJoin(root, "center");
+
+        query.select(cb.tuple(
+                root.get("id").alias("id"),
+                root.get("bookingCode").alias("bookingCode"),
+                root.get("appointmentDate").alias("appointmentDate"),
+                root.get("appointmentTime").alias("appointmentTime"),
+                root.get("status").alias("status"),
+                root.get("doseNumber").alias("doseNumber"),
+                bookedForUser.get("id").alias("forUserId"),
+                bookedForUser.get("fullName").alias("forUserName"),
+                bookedForUser.get("email").alias("forUserEmail"),
+                bookedForUser.get("phoneNumber").alias("forUserPhone"),
+                familyMember.get("id").alias("memberId"),
+                familyMember.get("fullName").alias("memberName"),
+                familyMember.get("phoneNumber").alias("memberPhone"),
+                bookedByUser.get("id").alias("byUserId"),
+                bookedByUser.get("fullName").alias("byUserName"),
+                bookedByUser.get("email").alias("byUserEmail"),
+                bookedByUser.get("phoneNumber").alias("byUserPhone"),
+                vaccine.get("id").alias("vaccineId"),
+                vaccine.get("name").alias("vaccineName"),
+                center.get("id").alias("centerId"),
+                center.get("name").alias("centerName")));
+        query.orderBy(cb.asc(root.get("id")));
+
+        List<Tuple> rows = fetch(query, pageSize);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Tuple row : rows) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", row.get("id"));
+            map.put("bookingCode", row.get("bookingCode"));
+            map.put("appointmentDate", row.get("appointmentDate"));
+            map.put("appointmentTime", row.get("appointmentTime"));
+            map.put("status", enumName(row.get("status", AppointmentStatus.class)));
+            map.put("doseNumber", row.get("doseNumber"));
+
+            // Thông tin bệnh nhân - ưu tiên: bookedForUser > familyMember > bookedByUser
+            Map<String, Object> patientInfo = new HashMap<>();
+            if (row.get("forUserId") != null) {
+                patientInfo.put("fullName", row.get("forUserName"));
+                patientInfo.put("email", row.get("forUserEmail"));
+                patientInfo.put("phoneNumber", row.get("forUserPhone"));
+            } else if (row.get("memberId") != null) {
+                patientInfo.put("fullName", row.get("memberName"));
+                patientInfo.put("phoneNumber", row.get("memberPhone"));
+            } else if (row.get("byUserId") != null) {
+                patientInfo.put("fullName", row.get("byUserName"));
+                patientInfo.put("email", row.get("byUserEmail"));
+                patientInfo.put("phoneNumber", row.get("byUserPhone"));
+            }
+            map.put("patientInfo", patientInfo);
+
+            // Thông tin vaccine
+            if (row.get("vaccineId") != null) {
+                Map<String, Object> vaccineInfo = new HashMap<>();
+                vaccineInfo.put("id", row.get("vaccineId"));
+                vaccineInfo.put("name", row.get("vaccineName"));
+                map.put("vaccineInfo", vaccineInfo);
+            }
+
+            // Thông tin trung tâm
+            if (row.get("centerId") != null) {
+                map.put("centerId", row.get("centerId"));
+                map.put("centerName", row.get("centerName"));
+            }
+            items.add(map);
+        }
+
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).get("id")) : null;
+        Long total = cursor == null ? appointmentRepository.count(filter) : null;
+        return buildPage(items, nextCursor, pageSize, total);
+    }
+
+    /**
+     * Danh sách thông báo, mới nhất trước (createdAt DESC, id DESC)
+     * Hỗ trợ cả keyset (cursor) và số trang (page, dùng OFFSET trong database) cho giao diện cũ
+     * @return Map gồm notifications, total, page, size, totalPages, nextCursor, hasMore
+     */
+    public Map<String, Object> listNotifications(String search, String cursor, int page, int size) {
+        int pageSize = normalizeSize(size);
+        int pageNumber = Math.max(page, 0);
+
+        List<Specification<Notification>> filters = new ArrayList<>();
+        if (search != null && !search.trim().isEmpty()) {
+            filters.add(NotificationSpecifications.matchesKeyword(search));
+        }
+        Specification<Notification> filter = Specification.allOf(filters);
+
+        Specification<Notification> pageFilter = filter;
+        TimeCursor after = parseTimeCursor(cursor);
+        if (after != null) {
+            pageFilter = filter.and(NotificationSpecifications.createdBefore(after.time, after.id));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Notification> root = query.from(Notification.class);
+        applyFilter(query, root, cb, pageFilter);
+        Join<Notification, User> user = SpecificationUtils.leftJoin(root, "user");
+        query.select(cb.tuple(
+                root.get("id").alias("id"),
+                root.get("title").alias("title"),
+                root.get("content").alias("content"),
+                root.get("type").alias("type"),
+                root.get("status").alias("status"),
+                root.get("isRead").alias("isRead"),
+                root.get("createdAt").alias("createdAt"),
+                root.get("sentAt").alias("sentAt"),
+                user.get("id").alias("userId"),
+                user.get("fullName").alias("userName"),
+                user.get("email").alias("userEmail"),
+                user.get("phoneNumber").alias("userPhone")));
+        query.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query).setMaxResults(pageSize + 1);
+        if (after == null && pageNumber > 0) {
+            typedQuery.setFirstResult(pageNumber * pageSize);
+        }
+        List<Tuple> rows = typedQuery.getResultList();
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Tuple row : rows) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", row.get("id"));
+            map.put("title", row.get("title"));
+            map.put("content", row.get("content"));
+            NotificationType type = row.get("type", NotificationType.class);
+            NotificationStatus notificationStatus = row.get("status", NotificationStatus.class);
+            map.put("type", type != null ? type.name() : "UNKNOWN");
+            map.put("status", notificationStatus != null ? notificationStatus.name() : "UNKNOWN");
+            map.put("isRead", row.get("isRead") != null ? row.get("isRead") : false);
+            map.put("createdAt", row.get("createdAt"));
+            map.put("sentAt", row.get("sentAt"));
+
+            // Thông tin user
+            if (row.get("userId") != null) {
+                Map<String, Object> userInfo = new HashMap<>();
+                userInfo.put("id", row.get("userId"));
+                userInfo.put("fullName", row.get("userName"));
+                userInfo.put("email", row.get("userEmail"));
+                userInfo.put("phoneNumber", row.get("userPhone"));
+                map.put("user", userInfo);
+            }
+            items.add(map);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Tuple last = rows.get(rows.size() - 1);
+            nextCursor = encodeTimeCursor(last.get("createdAt", LocalDateTime.class), last.get("id", Long.class));
+        }
+
+        long total = notificationRepository.count(filter);
+        Map<String, Object> response = new HashMap<>();
+        response.put("notifications", items);
+        response.put("total", total);
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("totalPages", (int) Math.ceil((double) total / pageSize));
+        response.put("nextCursor", nextCursor);
+        response.put("hasMore", hasMore);
+        return response;
+    }
+
+    /**
+     * Danh sách phản ứng phụ, mới nhất trước (occurredAt DESC, id DESC)
+     * Hỗ trợ cả keyset (cursor) và số trang (page, dùng OFFSET trong database) cho trang quản lý có số trang
+     * @param centerId Chỉ lấy phản ứng của các mũi tiêm tại trung tâm (null = tất cả trung tâm)
+     * @param endDate Ngày xảy ra cuối cùng (tính cả ngày này)
+     * @return Map gồm items, page, size, nextCursor, hasMore; total và totalPages chỉ có khi không dùng cursor
+     */
+    public Map<String, Object> listAdverseReactions(Long centerId, Boolean resolved, ReactionType reactionType,
+                                                    LocalDate startDate, LocalDate endDate, String search,
+                                                    String cursor, int page, int size) {
+        int pageSize = normalizeSize(size);
+        int pageNumber = Math.max(page, 0);
+
+        List<Specification<AdverseReaction>> filters = new ArrayList<>();
+        if (centerId != null) {
+            filters.add(AdverseReactionSpecifications.atCenter(centerId));
+        }
+        if (resolved != null) {
+            filters.add(AdverseReactionSpecifications.isResolved(resolved));
+        }
+        if (reactionType != null) {
+            filters.add(AdverseReactionSpecifications.hasType(reactionType));
+        }
+        if (startDate != null) {
+            filters.add(AdverseReactionSpecifications.occurredFrom(startDate.atStartOfDay()));
+        }
+        if (endDate != null) {
+            filters.add(AdverseReactionSpecifications.occurredTo(endDate.plusDays(1).atStartOfDay()));
+        }
+        if (search != null && !search.trim().isEmpty()) {
+            filters.add(AdverseReactionSpecifications.matchesKeyword(search));
+        }
+        Specification<AdverseReaction> filter = Specification.allOf(filters);
+
+        Specification<AdverseReaction> pageFilter = filter;
+        TimeCursor after = parseTimeCursor(cursor);
+        if (after != null) {
+            pageFilter = filter.and(AdverseReactionSpecifications.occurredBefore(after.time, after.id));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<AdverseReaction> root = query.from(AdverseReaction.class);
+        applyFilter(query, root, cb, pageFilter);
+
+        // Dùng chung LEFT JOIN với điều kiện lọc/tìm kiếm (nếu có)
+        Join<AdverseReaction, VaccinationRecord> record = SpecificationUtils.leftJoin(root, "vaccinationRecord");
+        Join<VaccinationRecord, User> user = SpecificationUtils.leftJoin(record, "user");
+        Join<VaccinationRecord, Vaccine> vaccine = SpecificationUtils.leftJoin(record, "vaccine");
+        Join<VaccinationRecord, Appointment> appointment = SpecificationUtils.leftJoin(record, "appointment");
+        Join<Appointment, VaccinationCenter> center = SpecificationUtils.leftJoin(appointment, "center");
+        Join<AdverseReaction, User> handledBy = SpecificationUtils.leftJoin(root, "handledBy");
+
+        query.select(cb.tuple(
+                root.get("id").alias("id"),
+                root.get("reactionType").alias("reactionType"),
+                root.get("symptoms").alias("symptoms"),
+                root.get("notes").alias("notes"),
+                root.get("treatment").alias("treatment"),
+                root.get("occurredAt").alias("occurredAt"),
+                root.get("resolved").alias("resolved"),
+                record.get("id").alias("recordId"),
+                record.get("certificateNumber").alias("certificateNumber"),
+                user.get("id").alias("userId"),
+                user.get("fullName").alias("userName"),
+                user.get("email").alias("userEmail"),
+                vaccine.get("id").alias("vaccineId"),
+                vaccine.get("name").alias("vaccineName"),
+                center.get("id").alias("centerId"),
+                center.get("name").alias("centerName"),
+                handledBy.get("id").alias("handlerId"),
+                handledBy.get("fullName").alias("handlerName")));
+        query.orderBy(cb.desc(root.get("occurredAt")), cb.desc(root.get("id")));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query).setMaxResults(pageSize + 1);
+        if (after == null && pageNumber > 0) {
+            typedQuery.setFirstResult(pageNumber * pageSize);
+        }
+        List<Tuple> rows = typedQuery.getResultList();
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Tuple row : rows) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", row.get("id"));
+            map.put("reactionType", enumName(row.get("reactionType", ReactionType.class)));
+            map.put("symptoms", row.get("symptoms"));
+            map.put("notes", row.get("notes"));
+            map.put("treatment", row.get("treatment"));
+            map.put("occurredAt", row.get("occurredAt"));
+            map.put("resolved", row.get("resolved") != null ? row.get("resolved") : false);
+            map.put("vaccinationRecordId", row.get("recordId"));
+            map.put("certificateNumber", row.get("certificateNumber"));
+            map.put("centerId", row.get("centerId"));
+            map.put("centerName", row.get("centerName"));
+
+            // Thông tin người được tiêm (null để frontend không bị lỗi)
+            Map<String, Object> userInfo = null;
+            if (row.get("userId") != null) {
+                userInfo = new HashMap<>();
+                userInfo.put("id", row.get("userId"));
+                userInfo.put("fullName", row.get("userName"));
+                userInfo.put("email", row.get("userEmail"));
+            }
+            map.put("user", userInfo);
+
+            // Thông tin vaccine
+            Map<String, Object> vaccineInfo = null;
+            if (row.get("vaccineId") != null) {
+                vaccineInfo = new HashMap<>();
+                vaccineInfo.put("id", row.get("vaccineId"));
+                vaccineInfo.put("name", row.get("vaccineName"));
+            }
+            map.put("vaccine", vaccineInfo);
+
+            // Người xử lý
+            if (row.get("handlerId") != null) {
+                Map<String, Object> handlerInfo = new HashMap<>();
+                handlerInfo.put("id", row.get("handlerId"));
+                handlerInfo.put("fullName", row.get("handlerName"));
+                map.put("handledBy", handlerInfo);
+            }
+            items.add(map);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Tuple last = rows.get(rows.size() - 1);
+            nextCursor = encodeTimeCursor(last.get("occurredAt", LocalDateTime.class), last.get("id", Long.class));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("nextCursor", nextCursor);
+        response.put("hasMore", hasMore);
+        if (after == null) {
+            long total = adverseReactionRepository.count(filter);
+            response.put("total", total);
+            response.put("totalPages", (int) Math.ceil((double) total / pageSize));
+        }
+        return response;
+    }
+
+    private <T> void applyFilter(CriteriaQuery<Tuple> query, Root<T> root, CriteriaBuilder cb, Specification<T> filter) {
+        Predicate predicate = filter.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    /**
+     * Lấy tối đa pageSize + 1 dòng (dòng thừa dùng để biết còn trang sau không)
+     */
+    private List<Tuple> fetch(CriteriaQuery<Tuple> query, int pageSize) {
+        return entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+    }
+
+    private Map<String, Object> buildPage(List<Map<String, Object>> items, String nextCursor, int size, Long total) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        page.put("hasMore", nextCursor != null);
+        page.put("size", size);
+        if (total != null) {
+            page.put("total", total);
+        }
+        return page;
+    }
+
+    private int normalizeSize(int size) {
+        if (size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private Long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Cursor theo thời gian của thông báo/phản ứng phụ = base64url("thời gian|id")
+     */
+    private String encodeTimeCursor(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private TimeCursor parseTimeCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TimeCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    /**
+     * Vị trí (thời gian, id) của thông báo/phản ứng phụ cuối cùng ở trang trước
+     */
+    private static class TimeCursor {
+        private final LocalDateTime time;
+        private final Long id;
+
+        TimeCursor(LocalDateTime time, Long id) {
+            this.time = time;
+            this.id = id;
+        }
+    }
+}
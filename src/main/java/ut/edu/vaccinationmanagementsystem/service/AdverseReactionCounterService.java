@@ -0,0 +1,255 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.AdverseReaction;
+import ut.edu.vaccinationmanagementsystem.entity.AdverseReactionCenterCounter;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReactionType;
+import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionCenterCounterRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bộ đếm phản ứng phụ theo trung tâm (adverse_reaction_center_counters) cho số phản ứng chưa xử lý
+ * - Được cộng dồn khi phản ứng được tạo/đánh dấu đã xử lý/xóa, nên các badge và thống kê không phải đếm bảng adverse_reactions
+ * - Đối soát lại toàn bộ từ dữ liệu gốc mỗi đêm
+ */
+@Service
+@Transactional
+public class AdverseReactionCounterService {
+
+    /** Trung tâm dùng cho phản ứng mà lịch hẹn không có trung tâm */
+    public static final long NO_CENTER_ID = 0L;
+
+    @Autowired
+    private AdverseReactionCenterCounterRepository counterRepository;
+
+    @Autowired
+    private AdverseReactionRepository adverseReactionRepository;
+
+    // ==================== Ghi nhận thay đổi ====================
+
+    /**
+     * Ghi nhận phản ứng phụ mới
+     */
+    public void recordCreated(AdverseReaction reaction) {
+        if (reaction == null) {
+            return;
+        }
+        increment(centerIdOf(reaction.getVaccinationRecord()), 1,
+                Boolean.TRUE.equals(reaction.getResolved()) ? 0 : 1,
+                reaction.getReactionType() == ReactionType.SEVERE ? 1 : 0);
+    }
+
+    /**
+     * Đánh dấu phản ứng đã xử lý bằng câu UPDATE có điều kiện và giảm số chưa xử lý của trung tâm
+     * Chỉ request đầu tiên đánh dấu được tính, nên xử lý lại hoặc xử lý đồng thời không làm lệch bộ đếm
+     * @return true nếu phản ứng vừa chuyển sang đã xử lý
+     */
+    public boolean markResolved(AdverseReaction reaction) {
+        if (adverseReactionRepository.markResolved(reaction.getId()) == 0) {
+            return false;
+        }
+        increment(centerIdOf(reaction.getVaccinationRecord()), 0, -1, 0);
+        return true;
+    }
+
+    /**
+     * Ghi nhận một nhóm phản ứng cùng trung tâm bị xóa (xóa hàng loạt)
+     * @param centerId ID trung tâm (null nếu không có trung tâm)
+     */
+    public void recordDeleted(Long centerId, long count, long unresolvedCount, long severeCount) {
+        increment(centerId != null ? centerId : NO_CENTER_ID, -count, -unresolvedCount, -severeCount);
+    }
+
+    // ==================== Đọc thống kê ====================
+
+    /**
+     * Số phản ứng phụ của một trung tâm hoặc của tất cả trung tâm
+     * @param centerId ID trung tâm (null = tất cả trung tâm)
+     * @return Map gồm total, unresolved, resolved, severe
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getSummary(Long centerId) {
+        List<Object[]> rows = centerId != null
+                ? counterRepository.sumCountsByCenterId(centerId)
+                : counterRepository.sumCounts();
+        long total = 0;
+        long unresolved = 0;
+        long severe = 0;
+        if (!rows.isEmpty() && rows.get(0) != null) {
+            Object[] row = rows.get(0);
+            total = ((Number) row[0]).longValue();
+            unresolved = ((Number) row[1]).longValue();
+            severe = ((Number) row[2]).longValue();
+        }
+        Map<String, Long> summary = new HashMap<>();
+        summary.put("total", total);
+        summary.put("unresolved", unresolved);
+        summary.put("resolved", total - unresolved);
+        summary.put("severe", severe);
+        return summary;
+    }
+
+    /**
+     * Số phản ứng phụ chưa xử lý của một trung tâm hoặc của tất cả trung tâm (centerId = null)
+     */
+    @Transactional(readOnly = true)
+    public long getUnresolvedCount(Long centerId) {
+        return getSummary(centerId).get("unresolved");
+    }
+
+    // ==================== Đối soát ====================
+
+    /**
+     * Chạy lúc 2:15 sáng mỗi ngày để tính lại bộ đếm từ bảng adverse_reactions
+     */
+    @Scheduled(cron = "0 15 2 * * ?")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void reconcileNightly() {
+        try {
+            int corrected = rebuildAll();
+            System.out.println("Reconciled adverse reaction counters: " + corrected + " centers corrected");
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild adverse reaction counters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Khởi tạo bộ đếm khi ứng dụng khởi động lần đầu (bảng còn trống)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void initializeIfEmpty() {
+        try {
+            if (counterRepository.count() == 0) {
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to initialize adverse reaction counters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát toàn bộ bộ đếm với một truy vấn GROUP BY trên bảng adverse_reactions
+     * - Dữ liệu gốc và bộ đếm được đọc trong cùng một snapshot (REPEATABLE READ); bộ đếm được cộng dồn trong cùng
+     *   transaction với thay đổi phản ứng nên snapshot luôn thấy cả hai hoặc không thấy cả hai
+     * - Mỗi trung tâm sai lệch được sửa bằng cách cộng phần chênh lệch bằng câu cộng dồn, không ghi đè,
+     *   nên phản ứng được tạo/xử lý/xóa trong lúc đối soát vẫn được tính
+     * - Trung tâm được sửa theo thứ tự ID; trung tâm không còn phản ứng nào bị trừ về 0 rồi xóa
+     * @return Số trung tâm đã sửa
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuildAll() {
+        return applyCorrections(computeCorrections());
+    }
+
+    /**
+     * Tính phần chênh lệch của từng trung tâm giữa dữ liệu gốc và bộ đếm (cùng snapshot)
+     * @return Các trung tâm cần sửa: các cột đếm là phần chênh lệch; id khác null nếu trung tâm không còn phản ứng
+     */
+    List<AdverseReactionCenterCounter> computeCorrections() {
+        Map<Long, AdverseReactionCenterCounter> expected = new HashMap<>();
+        for (Object[] row : adverseReactionRepository.countGroupByCenter()) {
+            Long centerId = row[0] != null ? (Long) row[0] : NO_CENTER_ID;
+            AdverseReactionCenterCounter counter = expected.get(centerId);
+            if (counter == null) {
+                counter = new AdverseReactionCenterCounter();
+                counter.setCenterId(centerId);
+                expected.put(centerId, counter);
+            }
+            counter.setTotalCount(counter.getTotalCount() + toLong(row[1]));
+            counter.setUnresolvedCount(counter.getUnresolvedCount() + toLong(row[2]));
+            counter.setSevereCount(counter.getSevereCount() + toLong(row[3]));
+        }
+
+        // Bộ đếm hiện tại (cùng snapshot với dữ liệu gốc)
+        Map<Long, AdverseReactionCenterCounter> current = new HashMap<>();
+        for (AdverseReactionCenterCounter counter : counterRepository.findAll()) {
+            current.put(counter.getCenterId(), counter);
+        }
+
+        List<AdverseReactionCenterCounter> corrections = new ArrayList<>();
+        Set<Long> centerIds = new TreeSet<>(expected.keySet());
+        centerIds.addAll(current.keySet());
+        for (Long centerId : centerIds) {
+            AdverseReactionCenterCounter target = expected.get(centerId);
+            AdverseReactionCenterCounter actual = current.get(centerId);
+            long totalDelta = (target != null ? target.getTotalCount() : 0L)
+                    - (actual != null ? actual.getTotalCount() : 0L);
+            long unresolvedDelta = (target != null ? target.getUnresolvedCount() : 0L)
+                    - (actual != null ? actual.getUnresolvedCount() : 0L);
+            long severeDelta = (target != null ? target.getSevereCount() : 0L)
+                    - (actual != null ? actual.getSevereCount() : 0L);
+            if (totalDelta == 0 && unresolvedDelta == 0 && severeDelta == 0 && target != null) {
+                continue;
+            }
+            AdverseReactionCenterCounter correction = new AdverseReactionCenterCounter();
+            correction.setId(target == null ? actual.getId() : null);
+            correction.setCenterId(centerId);
+            correction.setTotalCount(totalDelta);
+            correction.setUnresolvedCount(unresolvedDelta);
+            correction.setSevereCount(severeDelta);
+            corrections.add(correction);
+        }
+        return corrections;
+    }
+
+    /**
+     * Cộng phần chênh lệch vào bộ đếm (không ghi đè) và xóa các trung tâm không còn phản ứng đã về 0
+     * @return Số trung tâm đã sửa
+     */
+    int applyCorrections(List<AdverseReactionCenterCounter> corrections) {
+        int corrected = 0;
+        List<Long> emptiedIds = new ArrayList<>();
+        for (AdverseReactionCenterCounter correction : corrections) {
+            if (correction.getTotalCount() != 0 || correction.getUnresolvedCount() != 0 || correction.getSevereCount() != 0) {
+                increment(correction.getCenterId(), correction.getTotalCount(),
+                        correction.getUnresolvedCount(), correction.getSevereCount());
+                corrected++;
+            }
+            if (correction.getId() != null) {
+                emptiedIds.add(correction.getId());
+            }
+        }
+        if (!emptiedIds.isEmpty()) {
+            counterRepository.deleteEmptyByIdIn(emptiedIds);
+        }
+        return corrected;
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Trung tâm của phản ứng: trung tâm của lịch hẹn gắn với hồ sơ tiêm (NO_CENTER_ID nếu không có)
+     */
+    private long centerIdOf(VaccinationRecord record) {
+        if (record != null && record.getAppointment() != null && record.getAppointment().getCenter() != null) {
+            return record.getAppointment().getCenter().getId();
+        }
+        return NO_CENTER_ID;
+    }
+
+    private void increment(long centerId, long totalDelta, long unresolvedDelta, long severeDelta) {
+        if (totalDelta == 0 && unresolvedDelta == 0 && severeDelta == 0) {
+            return;
+        }
+        counterRepository.increment(centerId, totalDelta, unresolvedDelta, severeDelta);
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,224 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentReminder;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReminderStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.ReminderType;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentReminderRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Quản lý hàng đợi nhắc nhở lịch hẹn (appointment_reminders)
+ * - Reminder được tạo khi đặt/xác nhận lịch và hủy khi lịch bị hủy
+ * - Scheduler chỉ xử lý các reminder đã đến hạn, mỗi reminder được gửi đúng một lần
+ */
+@Service
+@Transactional
+public class AppointmentReminderService {
+
+    /** Số reminder tối đa xử lý trong một lần chạy scheduler */
+    public static final int DISPATCH_BATCH_SIZE = 500;
+
+    /** Số ngày tới cần bổ sung reminder cho appointment chưa có reminder */
+    private static final int LOOKAHEAD_DAYS = 2;
+
+    private static final List<AppointmentStatus> ACTIVE_STATUSES =
+            List.of(AppointmentStatus.PENDING, AppointmentStatus.CONFIRMED);
+
+    @Autowired
+    private AppointmentReminderRepository appointmentReminderRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    /**
+     * Tạo (hoặc cập nhật thời điểm) các reminder cho appointment
+     * Gọi khi đặt lịch, xác nhận lịch hoặc đổi giờ hẹn
+     */
+    public void scheduleReminders(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null || !ACTIVE_STATUSES.contains(appointment.getStatus())) {
+            return;
+        }
+
+        Map<ReminderType, AppointmentReminder> existing = new EnumMap<>(ReminderType.class);
+        for (AppointmentReminder reminder : appointmentReminderRepository.findByAppointmentId(appointment.getId())) {
+            existing.put(reminder.getReminderType(), reminder);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (ReminderType type : ReminderType.values()) {
+            LocalDateTime dueAt = calculateDueAt(appointment, type);
+            if (dueAt == null) {
+                continue; // Thiếu thông tin ngày/giờ (ví dụ: consultation request)
+            }
+
+            AppointmentReminder reminder = existing.get(type);
+            if (reminder == null) {
+                reminder = new AppointmentReminder();
+                reminder.setAppointmentId(appointment.getId());
+                reminder.setReminderType(type);
+                reminder.setCreatedAt(now);
+                reminder.setStatus(ReminderStatus.PENDING);
+            } else if (reminder.getStatus() == ReminderStatus.SENT) {
+                continue; // Đã gửi rồi, không gửi lại
+            } else {
+                reminder.setStatus(ReminderStatus.PENDING);
+            }
+
+            reminder.setDueAt(dueAt);
+            // Đã quá thời điểm gửi (ví dụ: đặt lịch trong vòng 24 giờ) → ghi nhận là bỏ qua
+            if (isPastWindow(type, dueAt, now)) {
+                reminder.setStatus(ReminderStatus.SKIPPED);
+            }
+            appointmentReminderRepository.save(reminder);
+        }
+    }
+
+    /**
+     * Hủy các reminder chưa gửi của appointment (khi hủy/xóa lịch hẹn)
+     */
+    public void cancelReminders(Long appointmentId) {
+        if (appointmentId == null) {
+            return;
+        }
+        appointmentReminderRepository.cancelPendingByAppointmentId(appointmentId);
+    }
+
+    /**
+     * Bổ sung reminder cho các appointment sắp tới chưa có reminder
+     * (appointment tạo trước khi có hàng đợi, hoặc được xác nhận ngoài AppointmentService)
+     * @return Số appointment đã được bổ sung reminder
+     */
+    public int enqueueUpcomingAppointments() {
+        LocalDate today = LocalDate.now();
+        List<Long> appointmentIds = appointmentReminderRepository.findUnscheduledAppointmentIds(
+                ACTIVE_STATUSES, today, today.plusDays(LOOKAHEAD_DAYS));
+        if (appointmentIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Appointment> appointments = appointmentRepository.findAllById(appointmentIds);
+        for (Appointment appointment : appointments) {
+            scheduleReminders(appointment);
+        }
+        return appointments.size();
+    }
+
+    /**
+     * Lấy ID các reminder đã đến hạn
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findDueReminderIds() {
+        return appointmentReminderRepository.findDueReminderIds(
+                ReminderStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, DISPATCH_BATCH_SIZE));
+    }
+
+    /**
+     * Gửi một reminder đã đến hạn (mỗi reminder chạy trong transaction riêng)
+     * @return true nếu đã gửi thông báo
+     */
+    public boolean dispatchReminder(Long reminderId) {
+        Optional<AppointmentReminder> reminderOpt = appointmentReminderRepository.findById(reminderId);
+        if (reminderOpt.isEmpty() || reminderOpt.get().getStatus() != ReminderStatus.PENDING) {
+            return false;
+        }
+        AppointmentReminder reminder = reminderOpt.get();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Lịch hẹn đã bị xóa hoặc không còn PENDING/CONFIRMED → hủy reminder
+        Appointment appointment = appointmentRepository.findById(reminder.getAppointmentId()).orElse(null);
+        if (appointment == null || !ACTIVE_STATUSES.contains(appointment.getStatus())) {
+            reminder.setStatus(ReminderStatus.CANCELLED);
+            appointmentReminderRepository.save(reminder);
+            return false;
+        }
+
+        // Lịch hẹn đã đổi giờ → dời reminder theo giờ mới
+        LocalDateTime expectedDueAt = calculateDueAt(appointment, reminder.getReminderType());
+        if (expectedDueAt == null) {
+            reminder.setStatus(ReminderStatus.CANCELLED);
+            appointmentReminderRepository.save(reminder);
+            return false;
+        }
+        if (!expectedDueAt.equals(reminder.getDueAt())) {
+            reminder.setDueAt(expectedDueAt);
+            if (isPastWindow(reminder.getReminderType(), expectedDueAt, now)) {
+                reminder.setStatus(ReminderStatus.SKIPPED);
+            }
+            appointmentReminderRepository.save(reminder);
+            return false;
+        }
+
+        // Scheduler bị dừng quá lâu → không gửi nhắc nhở đã lỗi thời
+        if (isPastWindow(reminder.getReminderType(), reminder.getDueAt(), now)) {
+            reminder.setStatus(ReminderStatus.SKIPPED);
+            appointmentReminderRepository.save(reminder);
+            return false;
+        }
+
+        // Giành quyền gửi bằng UPDATE có điều kiện để đảm bảo chỉ gửi một lần (kể cả khi chạy nhiều instance)
+        if (appointmentReminderRepository.markSent(reminderId, now) == 0) {
+            return false;
+        }
+
+        switch (reminder.getReminderType()) {
+            case AFTER_BOOKING:
+                notificationService.createAppointmentReminderNotification(appointment, 0, 0, 0, true);
+                break;
+            case ONE_DAY_BEFORE:
+                notificationService.createAppointmentReminderNotification(appointment, 1, 0, 0);
+                break;
+            case TWO_HOURS_BEFORE:
+                notificationService.createAppointmentReminderNotification(appointment, 0, 2, 0);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Tính thời điểm cần gửi reminder
+     * @return null nếu appointment thiếu thông tin cần thiết
+     */
+    private LocalDateTime calculateDueAt(Appointment appointment, ReminderType type) {
+        if (type == ReminderType.AFTER_BOOKING) {
+            // TEST MODE: Nhắc nhở 5 phút sau khi đặt lịch
+            return appointment.getCreatedAt() != null ? appointment.getCreatedAt().plusMinutes(5) : null;
+        }
+
+        if (appointment.getAppointmentDate() == null || appointment.getAppointmentTime() == null) {
+            return null;
+        }
+        LocalDateTime appointmentDateTime = LocalDateTime.of(
+                appointment.getAppointmentDate(), appointment.getAppointmentTime());
+
+        return type == ReminderType.ONE_DAY_BEFORE
+                ? appointmentDateTime.minusHours(24)
+                : appointmentDateTime.minusHours(2);
+    }
+
+    /**
+     * Kiểm tra reminder đã quá khoảng thời gian cho phép gửi chưa
+     * (giữ nguyên khoảng cũ của scheduler: 5-6 phút sau khi đặt, 24-25 giờ và 2-3 giờ trước giờ hẹn)
+     */
+    private boolean isPastWindow(ReminderType type, LocalDateTime dueAt, LocalDateTime now) {
+        LocalDateTime windowEnd = type == ReminderType.AFTER_BOOKING
+                ? dueAt.plusMinutes(1)
+                : dueAt.plusHours(1);
+        return now.isAfter(windowEnd);
+    }
+}
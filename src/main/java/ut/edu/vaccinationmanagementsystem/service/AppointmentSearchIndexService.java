@@ -0,0 +1,277 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentSearchKey;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SearchKeyType;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentSearchKeyRepository;
+import ut.edu.vaccinationmanagementsystem.repository.JobCheckpointRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bảng tra cứu lịch hẹn theo số điện thoại / mã booking cho lễ tân
+ * - Mỗi appointment được ghi các khóa tìm kiếm (số điện thoại đã chuẩn hóa, mã booking) vào appointment_search_keys
+ * - Tìm kiếm theo tiền tố hoặc hậu tố (ví dụ: 4 số cuối điện thoại) đều dùng index, không quét bảng appointments
+ * - Appointment tạo trước khi có bảng tra cứu được bổ sung dần bởi job chạy nền,
+ *   vị trí đã duyệt được lưu trong job_checkpoints nên khởi động lại không phải duyệt lại từ đầu
+ */
+@Service
+@Transactional
+public class AppointmentSearchIndexService {
+
+    /** Số kết quả tối đa trả về cho một lần tìm kiếm */
+    public static final int MAX_RESULTS = 50;
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int BACKFILL_BATCHES_PER_RUN = 5;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    /** Tên job bổ sung khóa tìm kiếm trong job_checkpoints */
+    private static final String BACKFILL_CHECKPOINT = "appointment-search-backfill";
+
+    @Autowired
+    private AppointmentSearchKeyRepository appointmentSearchKeyRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    /**
+     * Ghi (lại) các khóa tìm kiếm của một appointment
+     * Gọi sau khi tạo appointment hoặc khi số điện thoại liên quan thay đổi
+     */
+    public void index(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null) {
+            return;
+        }
+        appointmentSearchKeyRepository.deleteByAppointmentId(appointment.getId());
+
+        Long centerId = appointment.getCenter() != null ? appointment.getCenter().getId() : null;
+        List<AppointmentSearchKey> keys = new ArrayList<>();
+
+        Set<String> phones = new LinkedHashSet<>();
+        if (appointment.getBookedForUser() != null) {
+            addIfPresent(phones, normalizePhone(appointment.getBookedForUser().getPhoneNumber()));
+        }
+        if (appointment.getFamilyMember() != null) {
+            addIfPresent(phones, normalizePhone(appointment.getFamilyMember().getPhoneNumber()));
+        }
+        addIfPresent(phones, normalizePhone(appointment.getConsultationPhone()));
+        for (String phone : phones) {
+            keys.add(buildKey(appointment.getId(), centerId, SearchKeyType.PHONE, phone));
+        }
+
+        String bookingCode = normalizeBookingCode(appointment.getBookingCode());
+        if (!bookingCode.isEmpty()) {
+            keys.add(buildKey(appointment.getId(), centerId, SearchKeyType.BOOKING_CODE, bookingCode));
+        }
+
+        appointmentSearchKeyRepository.saveAll(keys);
+    }
+
+    /**
+     * Xóa các khóa tìm kiếm khi appointment bị xóa
+     */
+    public void remove(Long appointmentId) {
+        if (appointmentId != null) {
+            appointmentSearchKeyRepository.deleteByAppointmentId(appointmentId);
+        }
+    }
+
+    /**
+     * Cập nhật khóa tìm kiếm cho các appointment được đặt cho user (khi user đổi số điện thoại)
+     */
+    public void reindexUser(Long userId) {
+        if (userId != null) {
+            reindex(appointmentRepository.findIdsByBookedForUserId(userId));
+        }
+    }
+
+    /**
+     * Cập nhật khóa tìm kiếm cho các appointment của người thân (khi người thân đổi số điện thoại)
+     */
+    public void reindexFamilyMember(Long familyMemberId) {
+        if (familyMemberId != null) {
+            reindex(appointmentRepository.findIdsByFamilyMemberId(familyMemberId));
+        }
+    }
+
+    /**
+     * Cập nhật khóa tìm kiếm cho danh sách appointment (sau khi cập nhật hàng loạt bằng câu UPDATE)
+     */
+    public void reindexAppointments(List<Long> appointmentIds) {
+        if (appointmentIds != null) {
+            reindex(appointmentIds);
+        }
+    }
+
+    /**
+     * Tìm appointment theo số điện thoại và/hoặc mã booking
+     * Mỗi giá trị được so khớp theo tiền tố hoặc hậu tố; nếu có cả hai thì cả hai điều kiện được áp dụng trong một câu truy vấn
+     * @param centerId Chỉ tìm trong trung tâm này (null = tất cả trung tâm, dành cho ADMIN)
+     * @return Tối đa MAX_RESULTS appointment, mới nhất trước
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> search(String phone, String bookingCode, Long centerId) {
+        boolean hasPhone = phone != null && !phone.trim().isEmpty();
+        boolean hasBookingCode = bookingCode != null && !bookingCode.trim().isEmpty();
+        Set<Long> ids;
+
+        if (hasPhone && hasBookingCode) {
+            ids = findIdsByPhoneAndBookingCode(normalizePhone(phone), normalizeBookingCode(bookingCode), centerId);
+        } else if (hasPhone) {
+            ids = findIds(SearchKeyType.PHONE, normalizePhone(phone), centerId);
+        } else if (hasBookingCode) {
+            ids = findIds(SearchKeyType.BOOKING_CODE, normalizeBookingCode(bookingCode), centerId);
+        } else {
+            ids = null;
+        }
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Appointment> appointments = appointmentRepository.findAllById(ids);
+        appointments.sort(Comparator.comparing(Appointment::getId).reversed());
+        return appointments.size() > MAX_RESULTS ? appointments.subList(0, MAX_RESULTS) : appointments;
+    }
+
+    /**
+     * Chạy mỗi phút để bổ sung khóa tìm kiếm cho các appointment chưa có (appointment tạo trước khi có bảng tra cứu)
+     * Sau khi đã duyệt hết, mỗi lần chạy chỉ kiểm tra các appointment mới hơn vị trí đã lưu
+     * (vị trí được ghi cùng transaction với các khóa vừa bổ sung)
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void backfillMissingKeys() {
+        try {
+            long watermark = jobCheckpointRepository.findLastProcessedId(BACKFILL_CHECKPOINT).orElse(0L);
+            int indexed = 0;
+            for (int batch = 0; batch < BACKFILL_BATCHES_PER_RUN; batch++) {
+                List<Long> ids = appointmentRepository.findIdsAfter(
+                        watermark, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Set<Long> missing = new HashSet<>(ids);
+                missing.removeAll(appointmentSearchKeyRepository.findIndexedAppointmentIds(ids));
+                if (!missing.isEmpty()) {
+                    appointmentRepository.findAllById(missing).forEach(this::index);
+                    indexed += missing.size();
+                }
+                watermark = ids.get(ids.size() - 1);
+                jobCheckpointRepository.advance(BACKFILL_CHECKPOINT, watermark);
+            }
+            if (indexed > 0) {
+                System.out.println("Indexed search keys for " + indexed + " appointments");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to backfill appointment search keys: " + e.getMessage());
+        }
+    }
+
+    private void reindex(List<Long> appointmentIds) {
+        if (!appointmentIds.isEmpty()) {
+            appointmentRepository.findAllById(appointmentIds).forEach(this::index);
+        }
+    }
+
+    /**
+     * Tìm ID appointment có khóa bắt đầu hoặc kết thúc bằng giá trị đã chuẩn hóa
+     */
+    private Set<Long> findIds(SearchKeyType keyType, String value, Long centerId) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (value.isEmpty()) {
+            return ids;
+        }
+        Pageable limit = PageRequest.of(0, MAX_RESULTS);
+        String prefix = value + "%";
+        String reversedPrefix = reverse(value) + "%";
+        if (centerId != null) {
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsByCenterAndPrefix(centerId, keyType, prefix, limit));
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsByCenterAndSuffix(centerId, keyType, reversedPrefix, limit));
+        } else {
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsByPrefix(keyType, prefix, limit));
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsBySuffix(keyType, reversedPrefix, limit));
+        }
+        return ids;
+    }
+
+    /**
+     * Tìm ID appointment có khóa số điện thoại và khóa mã booking cùng khớp (tiền tố hoặc hậu tố)
+     */
+    private Set<Long> findIdsByPhoneAndBookingCode(String phone, String bookingCode, Long centerId) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (phone.isEmpty() || bookingCode.isEmpty()) {
+            return ids;
+        }
+        Pageable limit = PageRequest.of(0, MAX_RESULTS);
+        if (centerId != null) {
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsByCenterAndPhoneAndBookingCode(centerId,
+                    SearchKeyType.PHONE, phone + "%", reverse(phone) + "%",
+                    SearchKeyType.BOOKING_CODE, bookingCode + "%", reverse(bookingCode) + "%", limit));
+        } else {
+            ids.addAll(appointmentSearchKeyRepository.findAppointmentIdsByPhoneAndBookingCode(
+                    SearchKeyType.PHONE, phone + "%", reverse(phone) + "%",
+                    SearchKeyType.BOOKING_CODE, bookingCode + "%", reverse(bookingCode) + "%", limit));
+        }
+        return ids;
+    }
+
+    private AppointmentSearchKey buildKey(Long appointmentId, Long centerId, SearchKeyType keyType, String value) {
+        AppointmentSearchKey key = new AppointmentSearchKey();
+        key.setAppointmentId(appointmentId);
+        key.setCenterId(centerId);
+        key.setKeyType(keyType);
+        key.setKeyValue(value);
+        key.setReversedValue(reverse(value));
+        return key;
+    }
+
+    /**
+     * Chuẩn hóa số điện thoại: chỉ giữ chữ số và dấu '+'
+     * (bỏ cả khoảng trắng, dấu gạch ngang, dấu ngoặc đơn như PhoneVerificationService.normalizePhoneNumber)
+     */
+    private String normalizePhone(String phoneNumber) {
+        if (phoneNumber == null) {
+            return "";
+        }
+        return truncate(phoneNumber.replaceAll("[^0-9+]", ""));
+    }
+
+    /**
+     * Chuẩn hóa mã booking: viết hoa, chỉ giữ chữ, số và dấu '-'
+     */
+    private String normalizeBookingCode(String bookingCode) {
+        if (bookingCode == null) {
+            return "";
+        }
+        return truncate(bookingCode.trim().toUpperCase().replaceAll("[^A-Z0-9-]", ""));
+    }
+
+    private String truncate(String value) {
+        return value.length() > MAX_KEY_LENGTH ? value.substring(0, MAX_KEY_LENGTH) : value;
+    }
+
+    private static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (!value.isEmpty()) {
+            values.add(value);
+        }
+    }
+}
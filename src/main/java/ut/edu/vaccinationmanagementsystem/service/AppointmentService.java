@@ -10,7 +10,6 @@ import ut.edu.vaccinationmanagementsystem.dto.ConsultationRequestDTO;
 import ut.edu.vaccinationmanagementsystem.entity.*;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentMethod;
-import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus;
 import ut.edu.vaccinationmanagementsystem.repository.*;
 import ut.edu.vaccinationmanagementsystem.service.CustomUserDetails;
 import ut.edu.vaccinationmanagementsystem.service.CustomOAuth2User;
@@ -21,10 +20,10 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -50,7 +49,7 @@ public class AppointmentService {
     private AppointmentSlotRepository appointmentSlotRepository;
     
     @Autowired
-    private VaccineIncompatibilityRepository vaccineIncompatibilityRepository;
+    private VaccineIncompatibilityCacheService vaccineIncompatibilityCacheService;
     
     @Autowired
     private PhoneVerificationService phoneVerificationService;
@@ -71,7 +70,22 @@ public class AppointmentService {
     private NotificationService notificationService;
     
     @Autowired
-    private VaccineLotRepository vaccineLotRepository;
+    private AppointmentReminderService appointmentReminderService;
+    
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+    
+    @Autowired
+    private SlotReservationService slotReservationService;
+    
+    @Autowired
+    private VaccineLotAllocationService vaccineLotAllocationService;
+    
+    @Autowired
+    private AppointmentSearchIndexService appointmentSearchIndexService;
+    
+    @Autowired
+    private PatientTimelineService patientTimelineService;
     
     /**
      * Tạo consultation request (yêu cầu tư vấn)
@@ -194,7 +208,14 @@ public class AppointmentService {
         appointment.setCreatedAt(LocalDateTime.now());
         appointment.setUpdatedAt(LocalDateTime.now());
         
-        return appointmentRepository.save(appointment);
+        appointment = appointmentRepository.save(appointment);
+        
+        // Cập nhật thống kê dashboard
+        dashboardStatisticsService.recordAppointmentCreated(appointment);
+        appointmentSearchIndexService.index(appointment);
+        patientTimelineService.appointmentChanged(appointment);
+        
+        return appointment;
     }
     
     /**
@@ -324,18 +345,9 @@ public class AppointmentService {
                     List.of(AppointmentStatus.PENDING, AppointmentStatus.CONFIRMED)
             );
             
-            // Tối ưu: Load tất cả incompatibilities của vaccine mới một lần thay vì query trong vòng lặp
-            List<VaccineIncompatibility> vaccineIncompatibilities = 
-                    vaccineIncompatibilityRepository.findAllIncompatibleWithVaccine(vaccine.getId());
-            
-            // Tạo Map để lookup nhanh: vaccineId -> incompatibility
-            Map<Long, VaccineIncompatibility> incompatibilityMap = new HashMap<>();
-            for (VaccineIncompatibility vi : vaccineIncompatibilities) {
-                Long otherVaccineId = vi.getVaccine1().getId().equals(vaccine.getId()) 
-                    ? vi.getVaccine2().getId() 
-                    : vi.getVaccine1().getId();
-                incompatibilityMap.put(otherVaccineId, vi);
-            }
+            // Giao ma trận không tương thích (in-memory) với các vaccine đã đặt trong slot: vaccineId -> minDaysBetween
+            Map<Long, Integer> incompatibilityMap = vaccineIncompatibilityCacheService.findIncompatible(
+                    vaccine.getId(), collectVaccineIds(existingAppointments));
             
             // Check từng appointment trong slot này
             for (Appointment existingAppt : existingAppointments) {
@@ -354,15 +366,15 @@ public class AppointmentService {
                 }
                 
                 // Nếu vaccine khác nhau → check incompatibility từ Map (đã load sẵn)
-                VaccineIncompatibility incompatibility = incompatibilityMap.get(existingVaccineId);
-                if (incompatibility != null) {
+                Integer minDaysBetween = incompatibilityMap.get(existingVaccineId);
+                if (minDaysBetween != null) {
                     throw new RuntimeException(
                             String.format(
                                     "Vaccine '%s' không thể tiêm cùng lúc với vaccine '%s' đã đặt trong khung giờ này. " +
                                     "Hai vaccine này cần cách nhau ít nhất %d ngày.",
                                     vaccine.getName(),
                                     existingAppt.getVaccine().getName(),
-                                    incompatibility.getMinDaysBetween()
+                                    minDaysBetween
                             )
                     );
                 }
@@ -378,18 +390,9 @@ public class AppointmentService {
                     List.of(AppointmentStatus.PENDING, AppointmentStatus.CONFIRMED)
             );
             
-            // Tối ưu: Load tất cả incompatibilities của vaccine mới một lần thay vì query trong vòng lặp
-            List<VaccineIncompatibility> vaccineIncompatibilities = 
-                    vaccineIncompatibilityRepository.findAllIncompatibleWithVaccine(vaccine.getId());
-            
-            // Tạo Map để lookup nhanh: vaccineId -> incompatibility
-            Map<Long, VaccineIncompatibility> incompatibilityMap = new HashMap<>();
-            for (VaccineIncompatibility vi : vaccineIncompatibilities) {
-                Long otherVaccineId = vi.getVaccine1().getId().equals(vaccine.getId()) 
-                    ? vi.getVaccine2().getId() 
-                    : vi.getVaccine1().getId();
-                incompatibilityMap.put(otherVaccineId, vi);
-            }
+            // Giao ma trận không tương thích (in-memory) với các vaccine đã đặt trong slot: vaccineId -> minDaysBetween
+            Map<Long, Integer> incompatibilityMap = vaccineIncompatibilityCacheService.findIncompatible(
+                    vaccine.getId(), collectVaccineIds(existingAppointments));
             
             // Check từng appointment trong slot này
             for (Appointment existingAppt : existingAppointments) {
@@ -408,15 +411,15 @@ public class AppointmentService {
                 }
                 
                 // Nếu vaccine khác nhau → check incompatibility từ Map (đã load sẵn)
-                VaccineIncompatibility incompatibility = incompatibilityMap.get(existingVaccineId);
-                if (incompatibility != null) {
+                Integer minDaysBetween = incompatibilityMap.get(existingVaccineId);
+                if (minDaysBetween != null) {
                     throw new RuntimeException(
                             String.format(
                                     "Vaccine '%s' không thể tiêm cùng lúc với vaccine '%s' đã đặt trong khung giờ này. " +
                                     "Hai vaccine này cần cách nhau ít nhất %d ngày.",
                                     vaccine.getName(),
                                     existingAppt.getVaccine().getName(),
-                                    incompatibility.getMinDaysBetween()
+                                    minDaysBetween
                             )
                     );
                 }
@@ -467,12 +470,8 @@ public class AppointmentService {
         appointment.setCreatedAt(LocalDateTime.now());
         appointment.setUpdatedAt(LocalDateTime.now());
         
-        // Update slot booking count
-        slot.setCurrentBookings(slot.getCurrentBookings() + 1);
-        if (slot.getCurrentBookings() >= slot.getMaxCapacity()) {
-            slot.setIsAvailable(false);
-        }
-        appointmentSlotRepository.save(slot);
+        // Giữ chỗ trong slot (UPDATE có điều kiện, không vượt quá maxCapacity khi đặt đồng thời)
+        slotReservationService.reserve(slot);
         
         // Save appointment first to get ID
         appointment = appointmentRepository.save(appointment);
@@ -481,7 +480,7 @@ public class AppointmentService {
         if (appointment.getStatus() == AppointmentStatus.CONFIRMED && 
             appointment.getVaccine() != null && 
             appointment.getCenter() != null) {
-            reserveVaccineForAppointmentV2(appointment);
+            reserveVaccineForAppointment(appointment);
         }
         
         // Create Payment
@@ -494,6 +493,14 @@ public class AppointmentService {
         
         appointment = appointmentRepository.save(appointment);
         
+        // Đưa các nhắc nhở lịch hẹn vào hàng đợi
+        appointmentReminderService.scheduleReminders(appointment);
+        
+        // Cập nhật thống kê dashboard
+        dashboardStatisticsService.recordAppointmentCreated(appointment);
+        appointmentSearchIndexService.index(appointment);
+        patientTimelineService.appointmentChanged(appointment);
+        
         // Tạo thông báo đặt lịch thành công
         try {
             notificationService.createAppointmentCreatedNotification(appointment);
@@ -666,18 +673,9 @@ public class AppointmentService {
             return; // Không có thông tin để check
         }
         
-        // Tối ưu: Load tất cả incompatibilities của vaccine mới một lần thay vì query trong vòng lặp
-        List<VaccineIncompatibility> vaccineIncompatibilities = 
-                vaccineIncompatibilityRepository.findAllIncompatibleWithVaccine(newVaccine.getId());
-        
-        // Tạo Map để lookup nhanh: vaccineId -> incompatibility
-        Map<Long, VaccineIncompatibility> incompatibilityMap = new HashMap<>();
-        for (VaccineIncompatibility vi : vaccineIncompatibilities) {
-            Long otherVaccineId = vi.getVaccine1().getId().equals(newVaccine.getId()) 
-                ? vi.getVaccine2().getId() 
-                : vi.getVaccine1().getId();
-            incompatibilityMap.put(otherVaccineId, vi);
-        }
+        // Giao ma trận không tương thích (in-memory) với các vaccine gần đây: vaccineId -> minDaysBetween
+        Map<Long, Integer> incompatibilityMap = vaccineIncompatibilityCacheService.findIncompatible(
+                newVaccine.getId(), collectVaccineIds(recentAppointments));
         
         // Check từng appointment
         for (Appointment existingAppt : recentAppointments) {
@@ -696,19 +694,19 @@ public class AppointmentService {
             long daysBetween = Math.abs(ChronoUnit.DAYS.between(existingDate, appointmentDate));
             
             // 1. Check vaccine incompatibility từ Map (đã load sẵn)
-            VaccineIncompatibility incompatibility = incompatibilityMap.get(existingVaccine.getId());
+            Integer minDaysBetween = incompatibilityMap.get(existingVaccine.getId());
             
-            if (incompatibility != null) {
-                if (daysBetween < incompatibility.getMinDaysBetween()) {
+            if (minDaysBetween != null) {
+                if (daysBetween < minDaysBetween) {
                     throw new RuntimeException(
                             String.format(
                                     "Vaccine '%s' không thể tiêm trong vòng %d ngày sau vaccine '%s'. " +
                                     "Khoảng cách tối thiểu là %d ngày. " +
                                     "(Hiện tại cách nhau %d ngày)",
                                     newVaccine.getName(),
-                                    incompatibility.getMinDaysBetween(),
+                                    minDaysBetween,
                                     existingVaccine.getName(),
-                                    incompatibility.getMinDaysBetween(),
+                                    minDaysBetween,
                                     daysBetween
                             )
                     );
@@ -749,6 +747,16 @@ public class AppointmentService {
         }
     }
     
+    /**
+     * Tập vaccine ID của các appointment (bỏ qua appointment không có vaccine)
+     */
+    private Set<Long> collectVaccineIds(List<Appointment> appointments) {
+        return appointments.stream()
+                .filter(appointment -> appointment.getVaccine() != null)
+                .map(appointment -> appointment.getVaccine().getId())
+                .collect(Collectors.toSet());
+    }
+    
     /**
      * Validate phone verification cho user (đặt cho bản thân)
      * @param user User cần kiểm tra
@@ -927,6 +935,9 @@ public class AppointmentService {
         appointment.setStatus(AppointmentStatus.CANCELLED);
         appointment.setUpdatedAt(LocalDateTime.now());
         
+        // Hủy các nhắc nhở chưa gửi
+        appointmentReminderService.cancelReminders(appointment.getId());
+        
         // Tạo thông báo hủy lịch
         try {
             notificationService.createAppointmentCancelledNotification(appointment);
@@ -936,20 +947,10 @@ public class AppointmentService {
             e.printStackTrace();
         }
         
-        // Cập nhật slot booking count (giảm số lượng booking)
-        AppointmentSlot slot = appointment.getSlot();
-        if (slot != null) {
-            int currentBookings = slot.getCurrentBookings();
-            if (currentBookings > 0) {
-                slot.setCurrentBookings(currentBookings - 1);
-            }
-            // Nếu slot đã đầy trước đó, mở lại slot
-            if (!slot.getIsAvailable() && slot.getCurrentBookings() < slot.getMaxCapacity()) {
-                slot.setIsAvailable(true);
-            }
-            appointmentSlotRepository.save(slot);
-        }
+        // Cập nhật slot booking count (giảm số lượng booking, mở lại slot nếu còn chỗ)
+        slotReservationService.release(appointment.getSlot());
         
+        patientTimelineService.appointmentChanged(appointment);
         return appointmentRepository.save(appointment);
     }
     
@@ -968,25 +969,23 @@ public class AppointmentService {
             (appointment.getStatus() == AppointmentStatus.PENDING || appointment.getStatus() == AppointmentStatus.CONFIRMED)) {
             
             // Rollback slot booking count
-            AppointmentSlot slot = appointment.getSlot();
-            if (slot != null) {
-                int currentBookings = slot.getCurrentBookings();
-                if (currentBookings > 0) {
-                    slot.setCurrentBookings(currentBookings - 1);
-                }
-                // Nếu slot đã đầy trước đó, mở lại slot
-                if (!slot.getIsAvailable() && slot.getCurrentBookings() < slot.getMaxCapacity()) {
-                    slot.setIsAvailable(true);
-                }
-                appointmentSlotRepository.save(slot);
-            }
+            slotReservationService.release(appointment.getSlot());
             
             // Xóa payment
             Payment payment = appointment.getPayment();
             if (payment != null) {
+                dashboardStatisticsService.recordPaymentDeleted(payment);
                 paymentRepository.delete(payment);
             }
             
+            // Hủy các nhắc nhở chưa gửi
+            appointmentReminderService.cancelReminders(appointment.getId());
+            
+            // Cập nhật thống kê dashboard và bảng tra cứu
+            dashboardStatisticsService.recordAppointmentDeleted(appointment);
+            appointmentSearchIndexService.remove(appointment.getId());
+            patientTimelineService.appointmentChanged(appointment);
+            
             // Xóa appointment
             appointmentRepository.delete(appointment);
         } else {
@@ -1233,12 +1232,8 @@ public class AppointmentService {
         appointment.setCreatedAt(LocalDateTime.now());
         appointment.setUpdatedAt(LocalDateTime.now());
         
-        // Update slot booking count
-        slot.setCurrentBookings(slot.getCurrentBookings() + 1);
-        if (slot.getCurrentBookings() >= slot.getMaxCapacity()) {
-            slot.setIsAvailable(false);
-        }
-        appointmentSlotRepository.save(slot);
+        // Giữ chỗ trong slot (UPDATE có điều kiện, không vượt quá maxCapacity khi đặt đồng thời)
+        slotReservationService.reserve(slot);
         
         // Save appointment first to get ID
         appointment = appointmentRepository.save(appointment);
@@ -1258,6 +1253,14 @@ public class AppointmentService {
         
         appointment = appointmentRepository.save(appointment);
         
+        // Đưa các nhắc nhở lịch hẹn vào hàng đợi
+        appointmentReminderService.scheduleReminders(appointment);
+        
+        // Cập nhật thống kê dashboard
+        dashboardStatisticsService.recordAppointmentCreated(appointment);
+        appointmentSearchIndexService.index(appointment);
+        patientTimelineService.appointmentChanged(appointment);
+        
         // Tạo thông báo đặt lịch thành công (nếu có email)
         try {
             notificationService.createAppointmentCreatedNotification(appointment);
@@ -1272,7 +1275,7 @@ public class AppointmentService {
     
     /**
      * Giữ vaccine cho appointment khi CONFIRMED (trừ vaccine khỏi kho)
-     * Chọn lot theo FIFO (hết hạn trước)
+     * Chọn lot theo FIFO (hết hạn trước), trừ tồn kho bằng UPDATE có điều kiện qua VaccineLotAllocationService
      */
     private void reserveVaccineForAppointment(Appointment appointment) {
         Vaccine vaccine = appointment.getVaccine();
@@ -1284,156 +1287,8 @@ public class AppointmentService {
             throw new RuntimeException("Vaccine không có tại trung tâm này");
         }
         
-        CenterVaccine centerVaccine = centerVaccineOpt.get();
-        
-        // Kiểm tra stock còn đủ không
-        if (centerVaccine.getStockQuantity() == null || centerVaccine.getStockQuantity() <= 0) {
-            throw new RuntimeException("Vaccine hiện đang hết hàng tại trung tâm này");
-        }
-        
-        // Chọn lot vaccine theo FIFO (hết hạn trước)
-        LocalDate today = LocalDate.now();
-        
-        // Lấy tất cả lot của vaccine này
-        List<VaccineLot> allLots = vaccineLotRepository.findByVaccineId(vaccine.getId());
-        
-        // Filter lot khả dụng: status=AVAILABLE, remainingQuantity>0, expiryDate>today
-        List<VaccineLot> availableLots = allLots.stream()
-            .filter(lot -> lot.getStatus() == VaccineLotStatus.AVAILABLE)
-            .filter(lot -> lot.getRemainingQuantity() != null && lot.getRemainingQuantity() > 0)
-            .filter(lot -> lot.getExpiryDate() != null && lot.getExpiryDate().isAfter(today))
-            .sorted((l1, l2) -> {
-                // Sắp xếp theo expiryDate (hết hạn trước), sau đó theo remainingQuantity (ít trước)
-                int dateCompare = l1.getExpiryDate().compareTo(l2.getExpiryDate());
-                if (dateCompare != 0) return dateCompare;
-                return Integer.compare(l1.getRemainingQuantity(), l2.getRemainingQuantity());
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        if (availableLots.isEmpty()) {
-            // Debug info
-            long availableCount = allLots.stream()
-                .filter(lot -> lot.getStatus() == VaccineLotStatus.AVAILABLE).count();
-            long withStockCount = allLots.stream()
-                .filter(lot -> lot.getRemainingQuantity() != null && lot.getRemainingQuantity() > 0).count();
-            long notExpiredCount = allLots.stream()
-                .filter(lot -> lot.getExpiryDate() != null && lot.getExpiryDate().isAfter(today)).count();
-            
-            String debugInfo = String.format(
-                "Không có lô vaccine nào khả dụng cho vaccine '%s' (ID: %d). " +
-                "Tổng số lot: %d, Status=AVAILABLE: %d, Còn hàng: %d, Chưa hết hạn: %d, Ngày hôm nay: %s",
-                vaccine.getName(), vaccine.getId(), allLots.size(), availableCount, withStockCount, notExpiredCount, today
-            );
-            System.err.println("[DEBUG] " + debugInfo);
-            throw new RuntimeException("Không có lô vaccine nào khả dụng cho vaccine này. Vui lòng liên hệ quản trị viên.");
-        }
-        
-        // Chọn lot đầu tiên (hết hạn sớm nhất)
-        VaccineLot selectedLot = availableLots.get(0);
-        
-        // Kiểm tra lot còn vaccine không
-        if (selectedLot.getRemainingQuantity() == null || selectedLot.getRemainingQuantity() <= 0) {
-            throw new RuntimeException("Lô vaccine đã hết hàng");
-        }
-        
-        // Trừ vaccine từ lot
-        int currentLotRemaining = selectedLot.getRemainingQuantity();
-        selectedLot.setRemainingQuantity(currentLotRemaining - 1);
-        vaccineLotRepository.save(selectedLot);
-        
-        // Trừ vaccine từ center stock
-        int currentStock = centerVaccine.getStockQuantity();
-        centerVaccine.setStockQuantity(currentStock - 1);
-        centerVaccineRepository.save(centerVaccine);
-        
-        // Lưu lot đã giữ vào appointment
-        appointment.setReservedVaccineLot(selectedLot);
-    }
-    
-    /**
-     * Giữ vaccine cho appointment khi CONFIRMED (trừ vaccine khỏi kho) - Version 2
-     * Sử dụng query có sẵn để tối ưu hiệu suất
-     * Chọn lot theo FIFO (hết hạn trước)
-     */
-    private void reserveVaccineForAppointmentV2(Appointment appointment) {
-        Vaccine vaccine = appointment.getVaccine();
-        VaccinationCenter center = appointment.getCenter();
-        
-        // Lấy CenterVaccine
-        Optional<CenterVaccine> centerVaccineOpt = centerVaccineRepository.findByCenterAndVaccine(center, vaccine);
-        if (centerVaccineOpt.isEmpty()) {
-            throw new RuntimeException("Vaccine không có tại trung tâm này");
-        }
-        
-        CenterVaccine centerVaccine = centerVaccineOpt.get();
-        
-        // Kiểm tra stock còn đủ không
-        if (centerVaccine.getStockQuantity() == null || centerVaccine.getStockQuantity() <= 0) {
-            throw new RuntimeException("Vaccine hiện đang hết hàng tại trung tâm này");
-        }
-        
-        // Tự động cập nhật status cho các lot của vaccine này trước khi query
-        // (Đảm bảo lot hết hạn được đánh dấu EXPIRED)
-        LocalDate today = LocalDate.now();
-        List<VaccineLot> allLotsForVaccine = vaccineLotRepository.findByVaccineId(vaccine.getId());
-        List<VaccineLot> lotsToUpdate = new java.util.ArrayList<>();
-        for (VaccineLot lot : allLotsForVaccine) {
-            if (lot.getExpiryDate() != null && lot.getExpiryDate().isBefore(today) && 
-                lot.getStatus() == VaccineLotStatus.AVAILABLE) {
-                lot.setStatus(VaccineLotStatus.EXPIRED);
-                lotsToUpdate.add(lot);
-            } else if (lot.getRemainingQuantity() != null && lot.getRemainingQuantity() == 0 && 
-                       lot.getStatus() == VaccineLotStatus.AVAILABLE) {
-                lot.setStatus(VaccineLotStatus.DEPLETED);
-                lotsToUpdate.add(lot);
-            }
-        }
-        if (!lotsToUpdate.isEmpty()) {
-            vaccineLotRepository.saveAll(lotsToUpdate);
-        }
-        
-        // Chọn lot vaccine theo FIFO (hết hạn trước) - sử dụng query có sẵn
-        List<VaccineLot> availableLots = vaccineLotRepository.findAvailableLotsByVaccineIdOrderByExpiryDate(
-            vaccine.getId(), today);
-        
-        if (availableLots.isEmpty()) {
-            // Debug: Kiểm tra xem có lot nào không (không filter status/expiry)
-            List<VaccineLot> allLots = vaccineLotRepository.findByVaccineId(vaccine.getId());
-            long availableCount = allLots.stream()
-                .filter(lot -> lot.getStatus() == VaccineLotStatus.AVAILABLE).count();
-            long withStockCount = allLots.stream()
-                .filter(lot -> lot.getRemainingQuantity() != null && lot.getRemainingQuantity() > 0).count();
-            long notExpiredCount = allLots.stream()
-                .filter(lot -> lot.getExpiryDate() != null && lot.getExpiryDate().isAfter(today)).count();
-            
-            String debugInfo = String.format(
-                "Không có lô vaccine nào khả dụng cho vaccine '%s' (ID: %d). " +
-                "Tổng số lot: %d, Status=AVAILABLE: %d, Còn hàng: %d, Chưa hết hạn: %d, Ngày hôm nay: %s",
-                vaccine.getName(), vaccine.getId(), allLots.size(), availableCount, withStockCount, notExpiredCount, today
-            );
-            System.err.println("[DEBUG] " + debugInfo);
-            throw new RuntimeException("Không có lô vaccine nào khả dụng cho vaccine này. Vui lòng liên hệ quản trị viên.");
-        }
-        
-        // Chọn lot đầu tiên (hết hạn sớm nhất) - đã được sắp xếp bởi query
-        VaccineLot selectedLot = availableLots.get(0);
-        
-        // Kiểm tra lot còn vaccine không (double check)
-        if (selectedLot.getRemainingQuantity() == null || selectedLot.getRemainingQuantity() <= 0) {
-            throw new RuntimeException("Lô vaccine đã hết hàng");
-        }
-        
-        // Trừ vaccine từ lot
-        int currentLotRemaining = selectedLot.getRemainingQuantity();
-        selectedLot.setRemainingQuantity(currentLotRemaining - 1);
-        vaccineLotRepository.save(selectedLot);
-        
-        // Trừ vaccine từ center stock
-        int currentStock = centerVaccine.getStockQuantity();
-        centerVaccine.setStockQuantity(currentStock - 1);
-        centerVaccineRepository.save(centerVaccine);
-        
-        // Lưu lot đã giữ vào appointment
+        // Trừ 1 liều từ center stock và lot hết hạn sớm nhất, lưu lot đã giữ vào appointment
+        VaccineLot selectedLot = vaccineLotAllocationService.allocateOne(centerVaccineOpt.get(), vaccine);
         appointment.setReservedVaccineLot(selectedLot);
     }
     
@@ -1445,23 +1300,10 @@ public class AppointmentService {
             return; // Không có vaccine đã giữ, không cần trả lại
         }
         
-        VaccineLot reservedLot = appointment.getReservedVaccineLot();
-        Vaccine vaccine = appointment.getVaccine();
-        VaccinationCenter center = appointment.getCenter();
-        
-        // Cộng lại vaccine vào lot
-        int currentLotRemaining = reservedLot.getRemainingQuantity();
-        reservedLot.setRemainingQuantity(currentLotRemaining + 1);
-        vaccineLotRepository.save(reservedLot);
-        
-        // Cộng lại vaccine vào center stock
-        Optional<CenterVaccine> centerVaccineOpt = centerVaccineRepository.findByCenterAndVaccine(center, vaccine);
-        if (centerVaccineOpt.isPresent()) {
-            CenterVaccine centerVaccine = centerVaccineOpt.get();
-            int currentStock = centerVaccine.getStockQuantity();
-            centerVaccine.setStockQuantity(currentStock + 1);
-            centerVaccineRepository.save(centerVaccine);
-        }
+        // Cộng lại vaccine vào lot và center stock
+        Optional<CenterVaccine> centerVaccineOpt = centerVaccineRepository.findByCenterAndVaccine(
+            appointment.getCenter(), appointment.getVaccine());
+        vaccineLotAllocationService.release(appointment.getReservedVaccineLot(), centerVaccineOpt.orElse(null), 1);
         
         // Xóa reserved lot khỏi appointment
         appointment.setReservedVaccineLot(null);
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ut.edu.vaccinationmanagementsystem.dto.AppointmentSlotDTO;
+import ut.edu.vaccinationmanagementsystem.dto.AvailableSlotDTO;
+import ut.edu.vaccinationmanagementsystem.dto.SlotAvailabilityDayDTO;
 import ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot;
 import ut.edu.vaccinationmanagementsystem.entity.ClinicRoom;
 import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
@@ -14,6 +16,7 @@ import ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
@@ -23,6 +26,9 @@ import java.util.List;
 @Transactional
 public class AppointmentSlotService {
     
+    /** Số ngày tối đa của một lần xem lịch chỗ trống */
+    public static final int MAX_HEATMAP_DAYS = 93;
+    
     @Autowired
     private AppointmentSlotRepository appointmentSlotRepository;
     
@@ -32,6 +38,12 @@ public class AppointmentSlotService {
     @Autowired
     private ClinicRoomRepository clinicRoomRepository;
     
+    @Autowired
+    private SlotReservationService slotReservationService;
+    
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+    
     // Lấy tất cả danh sách slot
     public List<AppointmentSlot> getAllAppointmentSlots() {
         return appointmentSlotRepository.findAll();
@@ -142,6 +154,8 @@ public class AppointmentSlotService {
         // Tự động cập nhật isAvailable
         updateSlotAvailability(slot);
         
+        slotAvailabilityService.invalidate(center.getId(), slot.getDate());
+        
         try {
             return appointmentSlotRepository.save(slot);
         } catch (Exception e) {
@@ -152,6 +166,8 @@ public class AppointmentSlotService {
     // Cập nhật slot từ DTO
     public AppointmentSlot updateAppointmentSlot(Long id, AppointmentSlotDTO dto) {
         AppointmentSlot slot = getAppointmentSlotById(id);
+        Long oldCenterId = slot.getCenter().getId();
+        LocalDate oldDate = slot.getDate();
         
         // Validate
         if (dto.getEndTime() != null && dto.getStartTime() != null) {
@@ -243,6 +259,11 @@ public class AppointmentSlotService {
         // Tự động cập nhật isAvailable
         updateSlotAvailability(slot);
         
+        // Sức chứa/số lượt đặt có thể đã thay đổi → đọc lại từ database ở lần giữ chỗ tiếp theo
+        slotReservationService.invalidate(id);
+        slotAvailabilityService.invalidate(oldCenterId, oldDate);
+        slotAvailabilityService.invalidate(slot.getCenter().getId(), slot.getDate());
+        
         return appointmentSlotRepository.save(slot);
     }
     
@@ -256,6 +277,7 @@ public class AppointmentSlotService {
         }
         
         appointmentSlotRepository.delete(slot);
+        slotAvailabilityService.invalidate(slot.getCenter().getId(), slot.getDate());
     }
     
     // Tự động cập nhật isAvailable dựa trên currentBookings và maxCapacity
@@ -272,33 +294,37 @@ public class AppointmentSlotService {
     }
     
     // Lấy danh sách slot trống (tất cả)
-    public List<AppointmentSlot> getAvailableSlots() {
-        return appointmentSlotRepository.findAvailableSlots();
+    public List<AvailableSlotDTO> getAvailableSlots() {
+        return slotAvailabilityService.getAllAvailableSlots();
     }
     
     // Lấy danh sách slot trống theo center ID
-    public List<AppointmentSlot> getAvailableSlotsByCenter(Long centerId) {
-        return appointmentSlotRepository.findAvailableSlotsByCenter(centerId);
+    public List<AvailableSlotDTO> getAvailableSlotsByCenter(Long centerId) {
+        return slotAvailabilityService.getAvailableSlotsByCenter(centerId);
     }
     
-    // Lấy danh sách slot trống theo center ID và ngày
-    public List<AppointmentSlot> getAvailableSlotsByCenterAndDate(Long centerId, LocalDate date) {
-        return appointmentSlotRepository.findAvailableSlotsByCenterAndDate(centerId, date);
+    // Lấy danh sách slot trống theo center ID và ngày (từ bảng chỗ trống trong bộ nhớ)
+    public List<AvailableSlotDTO> getAvailableSlotsByCenterAndDate(Long centerId, LocalDate date) {
+        return slotAvailabilityService.getAvailableSlots(centerId, date, date);
     }
     
     // Lấy danh sách slot trống trong khoảng thời gian
-    public List<AppointmentSlot> getAvailableSlotsByDateRange(Long centerId, LocalDate startDate, LocalDate endDate) {
-        if (startDate == null || endDate == null) {
-            throw new RuntimeException("Start date and end date are required");
-        }
-        if (startDate.isAfter(endDate)) {
-            throw new RuntimeException("Start date must be before or equal to end date");
+    public List<AvailableSlotDTO> getAvailableSlotsByDateRange(Long centerId, LocalDate startDate, LocalDate endDate) {
+        validateDateRange(startDate, endDate);
+        return slotAvailabilityService.getAvailableSlots(centerId, startDate, endDate);
+    }
+    
+    // Tổng hợp chỗ trống theo từng ngày trong khoảng thời gian (lịch tháng)
+    public List<SlotAvailabilityDayDTO> getAvailabilityHeatmap(Long centerId, LocalDate startDate, LocalDate endDate) {
+        validateDateRange(startDate, endDate);
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_HEATMAP_DAYS) {
+            throw new RuntimeException("Date range must not exceed " + MAX_HEATMAP_DAYS + " days");
         }
-        return appointmentSlotRepository.findAvailableSlotsByDateRange(centerId, startDate, endDate);
+        return slotAvailabilityService.getDailySummary(centerId, startDate, endDate);
     }
     
     // Lấy danh sách slot trống theo center, ngày và khoảng thời gian
-    public List<AppointmentSlot> getAvailableSlotsByCenterDateAndTimeRange(
+    public List<AvailableSlotDTO> getAvailableSlotsByCenterDateAndTimeRange(
             Long centerId, 
             LocalDate date, 
             LocalTime startTime, 
@@ -309,8 +335,16 @@ public class AppointmentSlotService {
         if (endTime.isBefore(startTime) || endTime.equals(startTime)) {
             throw new RuntimeException("End time must be after start time");
         }
-        return appointmentSlotRepository.findAvailableSlotsByCenterDateAndTimeRange(
-                centerId, date, startTime, endTime);
+        return slotAvailabilityService.getAvailableSlots(centerId, date, startTime, endTime);
+    }
+    
+    private void validateDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new RuntimeException("Start date and end date are required");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must be before or equal to end date");
+        }
     }
     
     // Tự động cập nhật availability cho tất cả slot (cron job có thể gọi)
@@ -326,6 +360,8 @@ public class AppointmentSlotService {
         List<AppointmentSlot> fullSlots = appointmentSlotRepository.findFullSlots();
         fullSlots.forEach(slot -> slot.setIsAvailable(false));
         appointmentSlotRepository.saveAll(fullSlots);
+        
+        slotAvailabilityService.invalidateAll();
     }
     
     // Kiểm tra slot có tồn tại không
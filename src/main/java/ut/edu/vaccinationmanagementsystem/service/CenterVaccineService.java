@@ -27,6 +27,9 @@ public class CenterVaccineService {
     @Autowired
     private VaccineRepository vaccineRepository;
     
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
+    
     //Lấy danh sách vaccine có tại trung tâm
     public List<CenterVaccine> getVaccinesByCenterId(Long centerId) {
         return centerVaccineRepository.findByCenterId(centerId);
@@ -96,7 +99,9 @@ public class CenterVaccineService {
         centerVaccine.setLastRestocked(java.time.LocalDateTime.now());
         
         try {
-            return centerVaccineRepository.save(centerVaccine);
+            CenterVaccine saved = centerVaccineRepository.save(centerVaccine);
+            inventoryPositionService.vaccineChanged(vaccine.getId());
+            return saved;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to save center vaccine: " + e.getMessage(), e);
@@ -107,6 +112,9 @@ public class CenterVaccineService {
     public CenterVaccine updateCenterVaccine(Long id, CenterVaccineDTO dto) {
         CenterVaccine centerVaccine = getCenterVaccineById(id);
         
+        // Tồn kho của vaccine cũ cũng thay đổi (nếu đổi vaccine)
+        inventoryPositionService.vaccineChanged(centerVaccine.getVaccine().getId());
+        
         // Nếu đổi vaccine, kiểm tra vaccine mới
         if (dto.getVaccineId() != null && !centerVaccine.getVaccine().getId().equals(dto.getVaccineId())) {
             Vaccine vaccine = vaccineRepository.findById(dto.getVaccineId())
@@ -129,6 +137,7 @@ public class CenterVaccineService {
             centerVaccine.setLastRestocked(java.time.LocalDateTime.now());
         }
         
+        inventoryPositionService.vaccineChanged(centerVaccine.getVaccine().getId());
         return centerVaccineRepository.save(centerVaccine);
     }
     
@@ -136,6 +145,7 @@ public class CenterVaccineService {
     public void deleteCenterVaccine(Long id) {
         CenterVaccine centerVaccine = getCenterVaccineById(id);
         centerVaccineRepository.delete(centerVaccine);
+        inventoryPositionService.vaccineChanged(centerVaccine.getVaccine().getId());
     }
     
     //Kiểm tra center vaccine có tồn tại không
@@ -0,0 +1,339 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import com.google.zxing.WriterException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.dto.VaccinationCertificateDTO;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+import ut.edu.vaccinationmanagementsystem.service.certificate.CertificatePdfTemplate;
+import ut.edu.vaccinationmanagementsystem.service.certificate.TrueTypeFont;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tạo chứng nhận tiêm chủng PDF
+ * - Mẫu PDF (font, bố cục) được dựng một lần khi ứng dụng khởi động, mỗi chứng nhận chỉ ghi phần dữ liệu
+ * - Mỗi chứng nhận có QR code chứa link xác minh (số chứng nhận kèm chữ ký HMAC, không đoán được link của chứng nhận khác)
+ * - Tải hàng loạt: toàn bộ chứng nhận của một tài khoản (kể cả người thân) hoặc của một trung tâm trong một ngày,
+ *   ghi thẳng ra file ZIP trong lúc đọc dữ liệu từ database
+ */
+@Service
+@Transactional(readOnly = true)
+public class CertificateService {
+
+    /** Font có tiếng Việt thường có sẵn trên máy chủ (dùng khi không cấu hình app.certificate.font-path) */
+    private static final String[] SYSTEM_FONT_CANDIDATES = {
+            "C:/Windows/Fonts/arial.ttf",
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/TTF/DejaVuSans.ttf",
+            "/System/Library/Fonts/Supplemental/Arial.ttf",
+            "/Library/Fonts/Arial.ttf"
+    };
+
+    /** Số chứng nhận ghi ra ZIP giữa hai lần đẩy dữ liệu xuống client */
+    private static final int ZIP_FLUSH_ENTRIES = 20;
+
+    private volatile CertificatePdfTemplate template;
+
+    @Value("${app.certificate.font-path:}")
+    private String fontPath;
+
+    @Value("${app.certificate.signing-secret:}")
+    private String signingSecret;
+
+    @Value("${app.base-url:http://localhost:8080}")
+    private String baseUrl;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Autowired
+    private QrCodeService qrCodeService;
+
+    /**
+     * Kiểm tra khóa ký đã được cấu hình (gọi trước khi bắt đầu ghi file ZIP, vì lỗi giữa chừng không đổi được mã HTTP)
+     * @throws RuntimeException nếu chưa cấu hình khóa ký
+     */
+    public void requireSigningSecret() {
+        if (!isSigningSecretConfigured()) {
+            throw new RuntimeException("Certificate signing is not configured " +
+                    "(set the CERTIFICATE_SIGNING_SECRET environment variable)");
+        }
+    }
+
+    /**
+     * Cảnh báo khi khởi động nếu chưa cấu hình khóa ký link xác minh
+     * Ứng dụng vẫn chạy, chỉ các chức năng tạo/xác minh chứng nhận bị từ chối (xem sign)
+     */
+    @PostConstruct
+    public void checkSigningSecret() {
+        if (!isSigningSecretConfigured()) {
+            System.err.println("WARNING: app.certificate.signing-secret is not configured " +
+                    "(set the CERTIFICATE_SIGNING_SECRET environment variable); certificate endpoints are disabled");
+        }
+    }
+
+    /**
+     * Dựng mẫu chứng nhận khi ứng dụng khởi động để request đầu tiên không phải đọc font
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTemplate() {
+        getTemplate();
+    }
+
+    /**
+     * Tạo chứng nhận PDF của một hồ sơ tiêm
+     */
+    public byte[] renderCertificate(VaccinationRecord record) throws WriterException {
+        VaccinationCertificateDTO certificate = new VaccinationCertificateDTO();
+        certificate.setCertificateNumber(record.getCertificateNumber());
+        if (record.getAppointment() != null && record.getAppointment().getFamilyMember() != null) {
+            certificate.setFullName(record.getAppointment().getFamilyMember().getFullName());
+            certificate.setDateOfBirth(record.getAppointment().getFamilyMember().getDateOfBirth());
+        } else {
+            certificate.setFullName(record.getUser().getFullName());
+            certificate.setDateOfBirth(record.getUser().getDayOfBirth());
+        }
+        certificate.setVaccineName(record.getVaccine().getName());
+        certificate.setDoseNumber(record.getDoseNumber());
+        certificate.setInjectionDate(record.getInjectionDate());
+        certificate.setInjectionTime(record.getInjectionTime());
+        certificate.setBatchNumber(record.getBatchNumber());
+        if (record.getAppointment() != null && record.getAppointment().getCenter() != null) {
+            certificate.setCenterName(record.getAppointment().getCenter().getName());
+        }
+        if (record.getNurse() != null) {
+            certificate.setNurseName(record.getNurse().getFullName());
+        }
+        certificate.setNextDoseDate(record.getNextDoseDate());
+        return render(certificate);
+    }
+
+    /**
+     * Ghi toàn bộ chứng nhận của một tài khoản (kể cả của người thân) thành file ZIP
+     * @return Số chứng nhận đã ghi
+     */
+    public long writeUserCertificatesZip(Long userId, OutputStream outputStream) throws IOException, WriterException {
+        try (Stream<Object[]> rows = vaccinationRecordRepository.streamCertificatesByUserId(userId)) {
+            return writeZip(rows, outputStream);
+        }
+    }
+
+    /**
+     * Ghi toàn bộ chứng nhận của các mũi tiêm tại một trung tâm trong một ngày thành file ZIP
+     * @return Số chứng nhận đã ghi
+     */
+    public long writeCenterDayCertificatesZip(Long centerId, LocalDate date, OutputStream outputStream)
+            throws IOException, WriterException {
+        try (Stream<Object[]> rows = vaccinationRecordRepository.streamCertificatesByCenterAndDate(centerId, date)) {
+            return writeZip(rows, outputStream);
+        }
+    }
+
+    /**
+     * Xác minh chứng nhận từ link trong QR code
+     * @return Thông tin rút gọn của chứng nhận (họ tên được che bớt)
+     * @throws RuntimeException nếu chữ ký không hợp lệ hoặc không tìm thấy chứng nhận
+     */
+    public Map<String, Object> verifyCertificate(String certificateNumber, String signature) {
+        if (certificateNumber == null || signature == null ||
+                !MessageDigest.isEqual(sign(certificateNumber).getBytes(StandardCharsets.US_ASCII),
+                        signature.toLowerCase().getBytes(StandardCharsets.US_ASCII))) {
+            throw new RuntimeException("Invalid certificate signature");
+        }
+        List<Object[]> rows = vaccinationRecordRepository.findCertificateByNumber(certificateNumber);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Certificate not found");
+        }
+        VaccinationCertificateDTO certificate = toCertificate(rows.get(0));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("valid", true);
+        result.put("certificateNumber", certificate.getCertificateNumber());
+        result.put("fullName", maskName(certificate.getFullName()));
+        result.put("vaccineName", certificate.getVaccineName());
+        result.put("doseNumber", certificate.getDoseNumber());
+        result.put("injectionDate", certificate.getInjectionDate());
+        result.put("centerName", certificate.getCenterName());
+        return result;
+    }
+
+    // ==================== Helpers ====================
+
+    private byte[] render(VaccinationCertificateDTO certificate) throws WriterException {
+        return getTemplate().render(certificate, qrCodeService.encode(verificationUrl(certificate.getCertificateNumber())));
+    }
+
+    /**
+     * Ghi các chứng nhận vào ZIP (STORED: PDF đã được nén nên không nén lại, tiết kiệm CPU)
+     */
+    private long writeZip(Stream<Object[]> rows, OutputStream outputStream) throws IOException, WriterException {
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        Set<String> entryNames = new HashSet<>();
+        long count = 0;
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            VaccinationCertificateDTO certificate = toCertificate(row);
+            byte[] pdf = render(certificate);
+
+            String baseName = "certificate_" + (certificate.getCertificateNumber() != null
+                    ? certificate.getCertificateNumber().replaceAll("[^A-Za-z0-9_-]", "_")
+                    : String.valueOf(row[0]));
+            String entryName = baseName + ".pdf";
+            for (int i = 2; !entryNames.add(entryName); i++) {
+                entryName = baseName + "_" + i + ".pdf";
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(pdf);
+            ZipEntry entry = new ZipEntry(entryName);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(pdf.length);
+            entry.setCompressedSize(pdf.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(pdf);
+            zip.closeEntry();
+            if (++count % ZIP_FLUSH_ENTRIES == 0) {
+                zip.flush();
+            }
+        }
+        zip.finish();
+        return count;
+    }
+
+    /**
+     * Chuyển một dòng dữ liệu chứng nhận [id, certificateNumber, fullName, dateOfBirth, vaccineName, doseNumber,
+     * injectionDate, injectionTime, batchNumber, centerName, nurseName, nextDoseDate] thành DTO
+     */
+    private VaccinationCertificateDTO toCertificate(Object[] row) {
+        VaccinationCertificateDTO certificate = new VaccinationCertificateDTO();
+        certificate.setCertificateNumber((String) row[1]);
+        certificate.setFullName((String) row[2]);
+        certificate.setDateOfBirth((LocalDate) row[3]);
+        certificate.setVaccineName((String) row[4]);
+        certificate.setDoseNumber((Integer) row[5]);
+        certificate.setInjectionDate((LocalDate) row[6]);
+        certificate.setInjectionTime((LocalTime) row[7]);
+        certificate.setBatchNumber((String) row[8]);
+        certificate.setCenterName((String) row[9]);
+        certificate.setNurseName((String) row[10]);
+        certificate.setNextDoseDate((LocalDate) row[11]);
+        return certificate;
+    }
+
+    private String verificationUrl(String certificateNumber) {
+        String number = certificateNumber != null ? certificateNumber : "";
+        return baseUrl + "/api/vaccination-records/verify?cert=" + URLEncoder.encode(number, StandardCharsets.UTF_8) +
+                "&sig=" + sign(number);
+    }
+
+    /**
+     * Khóa để trống hoặc còn giá trị mẫu thì ai cũng tạo được link xác minh giả
+     */
+    private boolean isSigningSecretConfigured() {
+        String secret = signingSecret != null ? signingSecret.trim() : "";
+        return !secret.isEmpty() && !secret.toUpperCase().startsWith("CHANGE_ME") && !secret.equalsIgnoreCase("change-me");
+    }
+
+    /**
+     * Chữ ký HMAC-SHA256 của số chứng nhận (16 byte đầu, dạng hex)
+     */
+    private String sign(String certificateNumber) {
+        requireSigningSecret();
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(certificateNumber.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to sign certificate: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Che họ tên khi xác minh công khai: giữ tên, các phần còn lại chỉ giữ chữ cái đầu (Nguyễn Văn An → N. V. An)
+     */
+    private String maskName(String fullName) {
+        if (fullName == null || fullName.isBlank()) {
+            return null;
+        }
+        String[] parts = fullName.trim().split("\\s+");
+        StringBuilder masked = new StringBuilder();
+        for (int i = 0; i < parts.length - 1; i++) {
+            masked.append(parts[i].charAt(0)).append(". ");
+        }
+        return masked.append(parts[parts.length - 1]).toString();
+    }
+
+    /**
+     * Mẫu chứng nhận (dựng một lần): dùng font cấu hình hoặc font hệ thống có tiếng Việt, không có thì dùng Helvetica
+     */
+    private CertificatePdfTemplate getTemplate() {
+        CertificatePdfTemplate current = template;
+        if (current == null) {
+            synchronized (this) {
+                current = template;
+                if (current == null) {
+                    current = new CertificatePdfTemplate(loadFont());
+                    template = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private TrueTypeFont loadFont() {
+        List<String> candidates = new ArrayList<>();
+        if (fontPath != null && !fontPath.isBlank()) {
+            candidates.add(fontPath.trim());
+        }
+        candidates.addAll(List.of(SYSTEM_FONT_CANDIDATES));
+        for (String candidate : candidates) {
+            Path path = Path.of(candidate);
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+            try {
+                TrueTypeFont font = TrueTypeFont.load(path);
+                System.out.println("Certificate template uses font " + path);
+                return font;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to load certificate font " + path + ": " + e.getMessage());
+            }
+        }
+        System.err.println("No TrueType font found for certificates, using Helvetica (Vietnamese diacritics removed)");
+        return null;
+    }
+}
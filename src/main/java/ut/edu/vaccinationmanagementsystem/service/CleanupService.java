@@ -1,17 +1,25 @@
 package ut.edu.vaccinationmanagementsystem.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
-import ut.edu.vaccinationmanagementsystem.entity.User;
+import org.springframework.transaction.support.TransactionTemplate;
 import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
 import ut.edu.vaccinationmanagementsystem.repository.EmailVerificationTokenRepository;
 import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service để cleanup dữ liệu cũ
@@ -26,36 +34,120 @@ public class CleanupService {
     private EmailVerificationTokenRepository emailVerificationTokenRepository;
     
     @Autowired
-    private UserService userService;
+    private UserPurgeService userPurgeService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.cleanup.inactive-users.batch-size:500}")
+    private int inactiveUserBatchSize;
+    
+    @Value("${app.cleanup.inactive-users.dry-run:false}")
+    private boolean inactiveUserDryRun;
+    
+    /** Đang có lượt dọn dẹp user INACTIVE chạy (job định kỳ hoặc admin gọi tay) */
+    private final AtomicBoolean inactiveUserCleanupRunning = new AtomicBoolean(false);
     
     /**
      * Xóa user INACTIVE sau 30 ngày không xác thực
      * Chạy mỗi ngày lúc 2 giờ sáng
      */
     @Scheduled(cron = "0 0 2 * * ?") // Chạy mỗi ngày lúc 2 giờ sáng
-    @Transactional
     public void cleanupInactiveUsers() {
-        LocalDate cutoffDate = LocalDate.now().minusDays(30);
-        
-        // Tìm tất cả user INACTIVE được tạo trước 30 ngày
-        List<User> inactiveUsers = userRepository.findInactiveUsersBeforeDate(UserStatus.INACTIVE, cutoffDate);
-        
-        int deletedCount = 0;
-        for (User user : inactiveUsers) {
-            try {
-                // Xóa token xác thực email
-                emailVerificationTokenRepository.findByUser(user).ifPresent(emailVerificationTokenRepository::delete);
+        cleanupInactiveUsers(inactiveUserDryRun);
+    }
+    
+    /**
+     * Xóa user INACTIVE được tạo trước 30 ngày theo từng lô
+     * - Mỗi lô (mặc định 500 user) được chọn và xóa trong một transaction riêng, commit xong mới sang lô tiếp theo
+     *   nên không giữ khóa lâu trên các bảng liên quan
+     * - Duyệt theo ID tăng dần, ID cuối của lô đã xử lý là checkpoint: lô lỗi được thử lại từng user, user lỗi bị bỏ qua
+     * - dryRun = true: chỉ đếm số user và số bản ghi liên quan sẽ bị xóa, không thay đổi dữ liệu
+     * @return Kết quả: số user, số lô, số bản ghi theo từng bảng, danh sách user lỗi
+     */
+    public Map<String, Object> cleanupInactiveUsers(boolean dryRun) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dryRun", dryRun);
+        if (!inactiveUserCleanupRunning.compareAndSet(false, true)) {
+            result.put("skipped", true);
+            result.put("message", "Inactive user cleanup is already running");
+            return result;
+        }
+        try {
+            LocalDate cutoffDate = LocalDate.now().minusDays(30);
+            long totalUsers = userRepository.countInactiveUsersBeforeDate(UserStatus.INACTIVE, cutoffDate);
+            int batchSize = Math.max(1, inactiveUserBatchSize);
+            TransactionTemplate transaction = newTransaction();
+            
+            Map<String, Long> affected = new LinkedHashMap<>();
+            List<Long> failedUserIds = new ArrayList<>();
+            long processedUsers = 0;
+            int batches = 0;
+            Long lastId = 0L;
+            
+            while (true) {
+                final Long afterId = lastId;
+                List<Long> ids;
+                Map<String, Long> counts;
+                try {
+                    // Chọn và xóa lô trong cùng transaction để user vừa xác thực không bị xóa nhầm
+                    BatchResult batch = transaction.execute(status -> {
+                        List<Long> batchIds = userRepository.findInactiveUserIdsBeforeDate(
+                                UserStatus.INACTIVE, cutoffDate, afterId, PageRequest.of(0, batchSize));
+                        if (batchIds.isEmpty()) {
+                            return new BatchResult(batchIds, new LinkedHashMap<>());
+                        }
+                        return new BatchResult(batchIds,
+                                dryRun ? userPurgeService.countAffected(batchIds) : userPurgeService.purgeUsers(batchIds));
+                    });
+                    ids = batch.userIds;
+                    counts = batch.counts;
+                } catch (Exception e) {
+                    if (dryRun) {
+                        throw e;
+                    }
+                    // Lô lỗi đã rollback → đọc lại ID của lô và xóa từng user trong transaction riêng
+                    System.err.println("Inactive user cleanup batch after userId=" + afterId + " failed, retrying per user: " + e.getMessage());
+                    ids = userRepository.findInactiveUserIdsBeforeDate(
+                            UserStatus.INACTIVE, cutoffDate, afterId, PageRequest.of(0, batchSize));
+                    Map<String, Long> retried = new LinkedHashMap<>();
+                    for (Long userId : ids) {
+                        try {
+                            Map<String, Long> single = transaction.execute(status -> userPurgeService.purgeUsers(List.of(userId)));
+                            single.forEach((table, count) -> retried.merge(table, count, Long::sum));
+                        } catch (Exception ex) {
+                            failedUserIds.add(userId);
+                            System.err.println("Failed to delete inactive user " + userId + ": " + ex.getMessage());
+                        }
+                    }
+                    counts = retried;
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
                 
-                // Xóa user (sử dụng deleteUserByAdmin để xử lý foreign key constraints)
-                userService.deleteUserByAdmin(user.getId());
-                deletedCount++;
-            } catch (Exception e) {
-                System.err.println("Failed to delete user " + user.getEmail() + ": " + e.getMessage());
+                counts.forEach((table, count) -> affected.merge(table, count, Long::sum));
+                processedUsers += ids.size();
+                batches++;
+                lastId = ids.get(ids.size() - 1);
+                System.out.println("Inactive user cleanup" + (dryRun ? " (dry-run)" : "") + ": batch " + batches
+                        + ", " + processedUsers + "/" + totalUsers + " users, checkpoint userId=" + lastId);
             }
-        }
-        
-        if (deletedCount > 0) {
-            System.out.println("Cleaned up " + deletedCount + " inactive users older than 30 days");
+            
+            result.put("cutoffDate", cutoffDate);
+            result.put("totalUsers", totalUsers);
+            result.put("processedUsers", processedUsers);
+            result.put("batches", batches);
+            result.put("affected", affected);
+            result.put("failedUserIds", failedUserIds);
+            
+            if (processedUsers > 0) {
+                System.out.println((dryRun ? "Dry-run: would clean up " : "Cleaned up ") + (processedUsers - failedUserIds.size())
+                        + " inactive users older than 30 days " + affected);
+            }
+            return result;
+        } finally {
+            inactiveUserCleanupRunning.set(false);
         }
     }
     
@@ -70,5 +162,26 @@ public class CleanupService {
         emailVerificationTokenRepository.deleteByExpiresAtBefore(now);
         System.out.println("Cleaned up expired email verification tokens");
     }
+    
+    /**
+     * Transaction riêng cho từng lô dọn dẹp (không tham gia transaction đang có của request)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+    
+    /**
+     * Kết quả xử lý một lô user
+     */
+    private static class BatchResult {
+        private final List<Long> userIds;
+        private final Map<String, Long> counts;
+        
+        BatchResult(List<Long> userIds, Map<String, Long> counts) {
+            this.userIds = userIds;
+            this.counts = counts;
+        }
+    }
 }
-
@@ -0,0 +1,513 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.DailyStatistic;
+import ut.edu.vaccinationmanagementsystem.entity.Payment;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticDimension;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.DailyStatisticRepository;
+import ut.edu.vaccinationmanagementsystem.repository.PaymentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Quản lý bảng thống kê tổng hợp theo ngày (daily_statistics) cho dashboard
+ * - Bộ đếm được cộng/trừ ngay khi ghi dữ liệu (đặt lịch, tiêm, thanh toán, tạo/xóa user)
+ * - Mỗi đêm đối soát lại toàn bộ từ dữ liệu gốc để sửa các sai lệch (ghi ngoài service, lỗi giữa chừng)
+ * - Dashboard chỉ đọc bảng tổng hợp thay vì quét toàn bộ các bảng nghiệp vụ
+ */
+@Service
+@Transactional
+public class DashboardStatisticsService {
+
+    /** Khóa của bucket tổng toàn hệ thống */
+    public static final String ALL_KEY = "ALL";
+
+    @Autowired
+    private DailyStatisticRepository dailyStatisticRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // ==================== Ghi nhận thay đổi ====================
+
+    /**
+     * Ghi nhận appointment mới được tạo
+     */
+    public void recordAppointmentCreated(Appointment appointment) {
+        applyAppointment(appointment, 1);
+    }
+
+    /**
+     * Ghi nhận appointment bị xóa
+     */
+    public void recordAppointmentDeleted(Appointment appointment) {
+        applyAppointment(appointment, -1);
+    }
+
+    /**
+     * Ghi nhận appointment đổi trạng thái (chỉ ảnh hưởng bộ đếm COMPLETED_APPOINTMENTS)
+     */
+    public void recordAppointmentStatusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        if (appointment == null || appointment.getAppointmentDate() == null) {
+            return;
+        }
+        boolean wasCompleted = oldStatus == AppointmentStatus.COMPLETED;
+        boolean isCompleted = appointment.getStatus() == AppointmentStatus.COMPLETED;
+        if (wasCompleted == isCompleted) {
+            return;
+        }
+        incrementByCenterAndVaccine(StatisticMetric.COMPLETED_APPOINTMENTS, appointment.getAppointmentDate(),
+                centerId(appointment), vaccineId(appointment), isCompleted ? 1 : -1, BigDecimal.ZERO);
+    }
+
+    /**
+     * Ghi nhận mũi tiêm mới
+     */
+    public void recordInjection(VaccinationRecord record) {
+        applyInjection(record, 1);
+    }
+
+    /**
+     * Ghi nhận mũi tiêm bị xóa
+     */
+    public void recordInjectionDeleted(VaccinationRecord record) {
+        applyInjection(record, -1);
+    }
+
+    /**
+     * Ghi nhận một nhóm mũi tiêm cùng ngày/trung tâm/vaccine bị xóa (xóa hàng loạt bằng câu DELETE)
+     */
+    public void recordInjectionsDeleted(LocalDate injectionDate, Long centerId, Long vaccineId, long count) {
+        if (injectionDate == null || count <= 0) {
+            return;
+        }
+        incrementByCenterAndVaccine(StatisticMetric.INJECTIONS, injectionDate, centerId, vaccineId, -count, BigDecimal.ZERO);
+    }
+
+    /**
+     * Ghi nhận payment vừa chuyển sang PAID
+     * @param previousStatus Trạng thái trước khi cập nhật
+     * @param previousPaidAt Thời gian thanh toán trước khi cập nhật (nếu đã PAID trước đó)
+     */
+    public void recordPaymentPaid(Payment payment, PaymentStatus previousStatus, LocalDateTime previousPaidAt) {
+        if (payment == null) {
+            return;
+        }
+        // Payment đã PAID trước đó (ví dụ: thanh toán phí hủy) → chuyển doanh thu sang ngày thanh toán mới
+        if (previousStatus == PaymentStatus.PAID && previousPaidAt != null) {
+            applyRevenue(payment, previousPaidAt.toLocalDate(), -1);
+        }
+        if (payment.getPaymentStatus() == PaymentStatus.PAID && payment.getPaidAt() != null) {
+            applyRevenue(payment, payment.getPaidAt().toLocalDate(), 1);
+        }
+    }
+
+    /**
+     * Ghi nhận payment bị xóa (chỉ ảnh hưởng doanh thu nếu đã PAID)
+     */
+    public void recordPaymentDeleted(Payment payment) {
+        if (payment != null && payment.getPaymentStatus() == PaymentStatus.PAID && payment.getPaidAt() != null) {
+            applyRevenue(payment, payment.getPaidAt().toLocalDate(), -1);
+        }
+    }
+
+    /**
+     * Ghi nhận user mới
+     */
+    public void recordUserCreated(User user) {
+        applyUser(user, user != null ? user.getRole() : null, 1);
+    }
+
+    /**
+     * Ghi nhận user bị xóa
+     */
+    public void recordUserDeleted(User user) {
+        applyUser(user, user != null ? user.getRole() : null, -1);
+    }
+
+    /**
+     * Ghi nhận một nhóm user cùng ngày tạo và role bị xóa (xóa hàng loạt bằng câu DELETE)
+     */
+    public void recordUsersDeleted(LocalDate createAt, Role role, long count) {
+        if (createAt == null || count <= 0) {
+            return;
+        }
+        increment(StatisticMetric.USER_REGISTRATIONS, createAt, StatisticDimension.ALL, ALL_KEY, -count, BigDecimal.ZERO);
+        increment(StatisticMetric.USER_REGISTRATIONS, createAt, StatisticDimension.ROLE,
+                String.valueOf(role), -count, BigDecimal.ZERO);
+    }
+
+    /**
+     * Ghi nhận user đổi role (chuyển bộ đếm từ role cũ sang role mới)
+     */
+    public void recordUserRoleChanged(User user, Role oldRole) {
+        if (user == null || user.getCreateAt() == null || oldRole == user.getRole()) {
+            return;
+        }
+        increment(StatisticMetric.USER_REGISTRATIONS, user.getCreateAt(), StatisticDimension.ROLE,
+                String.valueOf(oldRole), -1, BigDecimal.ZERO);
+        increment(StatisticMetric.USER_REGISTRATIONS, user.getCreateAt(), StatisticDimension.ROLE,
+                String.valueOf(user.getRole()), 1, BigDecimal.ZERO);
+    }
+
+    // ==================== Đọc thống kê ====================
+
+    /**
+     * Tổng số lượng của một chỉ số trong khoảng ngày (toàn hệ thống)
+     */
+    @Transactional(readOnly = true)
+    public long getCountBetween(StatisticMetric metric, LocalDate startDate, LocalDate endDate) {
+        return dailyStatisticRepository.sumCountBetween(metric, StatisticDimension.ALL, ALL_KEY, startDate, endDate);
+    }
+
+    /**
+     * Tổng số lượng của một chỉ số (toàn hệ thống, toàn thời gian)
+     */
+    @Transactional(readOnly = true)
+    public long getTotalCount(StatisticMetric metric) {
+        return dailyStatisticRepository.sumCount(metric, StatisticDimension.ALL, ALL_KEY);
+    }
+
+    /**
+     * Tổng số tiền của một chỉ số trong khoảng ngày (toàn hệ thống)
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getAmountBetween(StatisticMetric metric, LocalDate startDate, LocalDate endDate) {
+        return dailyStatisticRepository.sumAmountBetween(metric, StatisticDimension.ALL, ALL_KEY, startDate, endDate);
+    }
+
+    /**
+     * Tổng số tiền của một chỉ số (toàn hệ thống, toàn thời gian)
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalAmount(StatisticMetric metric) {
+        return dailyStatisticRepository.sumAmount(metric, StatisticDimension.ALL, ALL_KEY);
+    }
+
+    /**
+     * Tổng số user, đếm trực tiếp bảng users
+     * (bộ đếm USER_REGISTRATIONS bỏ qua user không có ngày tạo nên không dùng cho tổng này)
+     */
+    @Transactional(readOnly = true)
+    public long getTotalUserCount() {
+        return userRepository.count();
+    }
+
+    /**
+     * Số user theo từng role, đếm trực tiếp bảng users
+     * (như getTotalUserCount, để không bỏ sót user không có ngày tạo)
+     */
+    @Transactional(readOnly = true)
+    public Map<Role, Long> getUserCountByRole() {
+        Map<Role, Long> result = new EnumMap<>(Role.class);
+        for (Object[] row : userRepository.countGroupByRole()) {
+            if (row[0] != null) {
+                result.put((Role) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return result;
+    }
+
+    // ==================== Đối soát ====================
+
+    /**
+     * Chạy lúc 1:30 sáng mỗi ngày để tính lại toàn bộ bảng thống kê từ dữ liệu gốc
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void reconcileNightly() {
+        try {
+            int corrected = rebuildAll();
+            System.out.println("Reconciled dashboard statistics: " + corrected + " buckets corrected");
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild dashboard statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Khởi tạo bảng thống kê khi ứng dụng khởi động lần đầu (bảng còn trống)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void initializeIfEmpty() {
+        try {
+            if (dailyStatisticRepository.count() == 0) {
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to initialize dashboard statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát toàn bộ bảng thống kê với các truy vấn GROUP BY trên dữ liệu gốc
+     * - Dữ liệu gốc và bộ đếm được đọc trong cùng một snapshot (REPEATABLE READ); bộ đếm được cộng dồn trong cùng
+     *   transaction với thay đổi nghiệp vụ nên snapshot luôn thấy cả hai hoặc không thấy cả hai
+     * - Mỗi bucket sai lệch được sửa bằng cách cộng phần chênh lệch (giá trị đúng - giá trị trong snapshot) bằng câu
+     *   cộng dồn, không ghi đè, nên các lần cộng dồn commit trong lúc đối soát vẫn được giữ
+     * - Bucket được sửa theo thứ tự (metric, ngày, chiều, khóa), cùng thứ tự khóa dòng của các lần cộng dồn
+     *   (ALL → CENTER/ROLE → VACCINE), để không deadlock với transaction nghiệp vụ
+     * - Bucket không còn dữ liệu gốc bị trừ về 0 rồi xóa
+     * @return Số bucket đã sửa
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuildAll() {
+        return applyCorrections(computeCorrections());
+    }
+
+    /**
+     * Tính phần chênh lệch của từng bucket giữa dữ liệu gốc và bộ đếm (cùng snapshot), theo thứ tự khóa dòng
+     * @return Các bucket cần sửa: countValue/amountValue là phần chênh lệch; id khác null nếu bucket không còn dữ liệu gốc
+     */
+    List<DailyStatistic> computeCorrections() {
+        Map<String, DailyStatistic> buckets = new HashMap<>();
+
+        // Mũi tiêm theo ngày tiêm
+        for (Object[] row : vaccinationRecordRepository.countGroupByInjectionDateCenterAndVaccine()) {
+            LocalDate date = (LocalDate) row[0];
+            long count = ((Number) row[3]).longValue();
+            addByCenterAndVaccine(buckets, StatisticMetric.INJECTIONS, date, (Long) row[1], (Long) row[2], count, BigDecimal.ZERO);
+        }
+
+        // Lịch hẹn theo ngày hẹn (và lịch đã hoàn thành)
+        for (Object[] row : appointmentRepository.countGroupByAppointmentDateCenterVaccineAndStatus()) {
+            LocalDate date = (LocalDate) row[0];
+            Long centerId = (Long) row[1];
+            Long vaccineId = (Long) row[2];
+            long count = ((Number) row[4]).longValue();
+            addByCenterAndVaccine(buckets, StatisticMetric.APPOINTMENTS, date, centerId, vaccineId, count, BigDecimal.ZERO);
+            if (row[3] == AppointmentStatus.COMPLETED) {
+                addByCenterAndVaccine(buckets, StatisticMetric.COMPLETED_APPOINTMENTS, date, centerId, vaccineId, count, BigDecimal.ZERO);
+            }
+        }
+
+        // Yêu cầu tư vấn (chưa có ngày hẹn) theo ngày tạo
+        for (Object[] row : appointmentRepository.countUndatedGroupByCreatedDate()) {
+            if (row[0] != null) {
+                add(buckets, StatisticMetric.CONSULTATION_REQUESTS, (LocalDate) row[0], StatisticDimension.ALL, ALL_KEY,
+                        ((Number) row[1]).longValue(), BigDecimal.ZERO);
+            }
+        }
+
+        // Doanh thu theo ngày thanh toán
+        for (Object[] row : paymentRepository.sumGroupByPaidDateAndCenter(PaymentStatus.PAID)) {
+            LocalDate date = (LocalDate) row[0];
+            long count = ((Number) row[2]).longValue();
+            BigDecimal amount = toBigDecimal(row[3]);
+            add(buckets, StatisticMetric.REVENUE, date, StatisticDimension.ALL, ALL_KEY, count, amount);
+            if (row[1] != null) {
+                add(buckets, StatisticMetric.REVENUE, date, StatisticDimension.CENTER, String.valueOf(row[1]), count, amount);
+            }
+        }
+
+        // User theo ngày tạo và role
+        for (Object[] row : userRepository.countGroupByCreateAtAndRole()) {
+            LocalDate date = (LocalDate) row[0];
+            long count = ((Number) row[2]).longValue();
+            add(buckets, StatisticMetric.USER_REGISTRATIONS, date, StatisticDimension.ALL, ALL_KEY, count, BigDecimal.ZERO);
+            add(buckets, StatisticMetric.USER_REGISTRATIONS, date, StatisticDimension.ROLE, String.valueOf(row[1]), count, BigDecimal.ZERO);
+        }
+
+        // Bộ đếm hiện tại (cùng snapshot với dữ liệu gốc)
+        Map<String, DailyStatistic> current = new HashMap<>();
+        for (DailyStatistic statistic : dailyStatisticRepository.findAll()) {
+            current.put(bucketKey(statistic.getMetric(), statistic.getDimension(),
+                    statistic.getDimensionKey(), statistic.getStatDate()), statistic);
+        }
+
+        List<DailyStatistic> corrections = new ArrayList<>();
+        Set<String> keys = new TreeSet<>(buckets.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            DailyStatistic expected = buckets.get(key);
+            DailyStatistic actual = current.get(key);
+            DailyStatistic bucket = expected != null ? expected : actual;
+            long countDelta = (expected != null ? expected.getCountValue() : 0L)
+                    - (actual != null ? actual.getCountValue() : 0L);
+            BigDecimal amountDelta = (expected != null ? expected.getAmountValue() : BigDecimal.ZERO)
+                    .subtract(actual != null ? actual.getAmountValue() : BigDecimal.ZERO);
+            if (countDelta == 0 && amountDelta.signum() == 0 && expected != null) {
+                continue;
+            }
+            DailyStatistic correction = new DailyStatistic();
+            correction.setId(expected == null ? actual.getId() : null);
+            correction.setStatDate(bucket.getStatDate());
+            correction.setMetric(bucket.getMetric());
+            correction.setDimension(bucket.getDimension());
+            correction.setDimensionKey(bucket.getDimensionKey());
+            correction.setCountValue(countDelta);
+            correction.setAmountValue(amountDelta);
+            corrections.add(correction);
+        }
+        return corrections;
+    }
+
+    /**
+     * Cộng phần chênh lệch vào bộ đếm (không ghi đè) và xóa các bucket không còn dữ liệu gốc đã về 0
+     * @return Số bucket đã sửa
+     */
+    int applyCorrections(List<DailyStatistic> corrections) {
+        int corrected = 0;
+        List<Long> emptiedIds = new ArrayList<>();
+        for (DailyStatistic correction : corrections) {
+            if (correction.getCountValue() != 0 || correction.getAmountValue().signum() != 0) {
+                increment(correction.getMetric(), correction.getStatDate(), correction.getDimension(),
+                        correction.getDimensionKey(), correction.getCountValue(), correction.getAmountValue());
+                corrected++;
+            }
+            if (correction.getId() != null) {
+                emptiedIds.add(correction.getId());
+            }
+        }
+        if (!emptiedIds.isEmpty()) {
+            dailyStatisticRepository.deleteEmptyByIdIn(emptiedIds);
+        }
+        return corrected;
+    }
+
+    // ==================== Helpers ====================
+
+    private void applyAppointment(Appointment appointment, long delta) {
+        if (appointment == null) {
+            return;
+        }
+        if (appointment.getAppointmentDate() == null) {
+            // Yêu cầu tư vấn chưa có ngày hẹn → thống kê theo ngày tạo
+            if (appointment.getCreatedAt() != null) {
+                increment(StatisticMetric.CONSULTATION_REQUESTS, appointment.getCreatedAt().toLocalDate(),
+                        StatisticDimension.ALL, ALL_KEY, delta, BigDecimal.ZERO);
+            }
+            return;
+        }
+        incrementByCenterAndVaccine(StatisticMetric.APPOINTMENTS, appointment.getAppointmentDate(),
+                centerId(appointment), vaccineId(appointment), delta, BigDecimal.ZERO);
+        if (appointment.getStatus() == AppointmentStatus.COMPLETED) {
+            incrementByCenterAndVaccine(StatisticMetric.COMPLETED_APPOINTMENTS, appointment.getAppointmentDate(),
+                    centerId(appointment), vaccineId(appointment), delta, BigDecimal.ZERO);
+        }
+    }
+
+    private void applyInjection(VaccinationRecord record, long delta) {
+        if (record == null || record.getInjectionDate() == null) {
+            return;
+        }
+        Long centerId = record.getAppointment() != null ? centerId(record.getAppointment()) : null;
+        Long vaccineId = record.getVaccine() != null ? record.getVaccine().getId() : null;
+        incrementByCenterAndVaccine(StatisticMetric.INJECTIONS, record.getInjectionDate(),
+                centerId, vaccineId, delta, BigDecimal.ZERO);
+    }
+
+    private void applyRevenue(Payment payment, LocalDate paidDate, long delta) {
+        BigDecimal amount = payment.getAmount() != null ? payment.getAmount() : BigDecimal.ZERO;
+        if (delta < 0) {
+            amount = amount.negate();
+        }
+        Long centerId = payment.getAppointment() != null ? centerId(payment.getAppointment()) : null;
+        incrementByCenterAndVaccine(StatisticMetric.REVENUE, paidDate, centerId, null, delta, amount);
+    }
+
+    private void applyUser(User user, Role role, long delta) {
+        if (user == null || user.getCreateAt() == null) {
+            return;
+        }
+        increment(StatisticMetric.USER_REGISTRATIONS, user.getCreateAt(), StatisticDimension.ALL, ALL_KEY, delta, BigDecimal.ZERO);
+        increment(StatisticMetric.USER_REGISTRATIONS, user.getCreateAt(), StatisticDimension.ROLE,
+                String.valueOf(role), delta, BigDecimal.ZERO);
+    }
+
+    private void incrementByCenterAndVaccine(StatisticMetric metric, LocalDate date, Long centerId, Long vaccineId,
+                                             long delta, BigDecimal amount) {
+        increment(metric, date, StatisticDimension.ALL, ALL_KEY, delta, amount);
+        if (centerId != null) {
+            increment(metric, date, StatisticDimension.CENTER, String.valueOf(centerId), delta, amount);
+        }
+        if (vaccineId != null) {
+            increment(metric, date, StatisticDimension.VACCINE, String.valueOf(vaccineId), delta, amount);
+        }
+    }
+
+    private void increment(StatisticMetric metric, LocalDate date, StatisticDimension dimension, String key,
+                           long delta, BigDecimal amount) {
+        dailyStatisticRepository.increment(date, metric.name(), dimension.name(), key, delta, amount);
+    }
+
+    private void addByCenterAndVaccine(Map<String, DailyStatistic> buckets, StatisticMetric metric, LocalDate date,
+                                       Long centerId, Long vaccineId, long count, BigDecimal amount) {
+        add(buckets, metric, date, StatisticDimension.ALL, ALL_KEY, count, amount);
+        if (centerId != null) {
+            add(buckets, metric, date, StatisticDimension.CENTER, String.valueOf(centerId), count, amount);
+        }
+        if (vaccineId != null) {
+            add(buckets, metric, date, StatisticDimension.VACCINE, String.valueOf(vaccineId), count, amount);
+        }
+    }
+
+    private void add(Map<String, DailyStatistic> buckets, StatisticMetric metric, LocalDate date,
+                     StatisticDimension dimension, String key, long count, BigDecimal amount) {
+        String bucketKey = bucketKey(metric, dimension, key, date);
+        DailyStatistic statistic = buckets.get(bucketKey);
+        if (statistic == null) {
+            statistic = new DailyStatistic();
+            statistic.setStatDate(date);
+            statistic.setMetric(metric);
+            statistic.setDimension(dimension);
+            statistic.setDimensionKey(key);
+            buckets.put(bucketKey, statistic);
+        }
+        statistic.setCountValue(statistic.getCountValue() + count);
+        statistic.setAmountValue(statistic.getAmountValue().add(amount));
+    }
+
+    private String bucketKey(StatisticMetric metric, StatisticDimension dimension, String key, LocalDate date) {
+        return metric + "|" + date + "|" + dimension + "|" + key;
+    }
+
+    private Long centerId(Appointment appointment) {
+        return appointment.getCenter() != null ? appointment.getCenter().getId() : null;
+    }
+
+    private Long vaccineId(Appointment appointment) {
+        return appointment.getVaccine() != null ? appointment.getVaccine().getId() : null;
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+}
@@ -28,6 +28,9 @@ public class EmailVerificationService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserStatusCacheService userStatusCacheService;
+    
     /**
      * Tạo token xác thực email cho user
      */
@@ -75,6 +78,7 @@ public class EmailVerificationService {
         User user = token.getUser();
         user.setStatus(UserStatus.ACTIVE);
         userRepository.save(user); // Lưu user sau khi cập nhật status
+        userStatusCacheService.invalidate(user.getId());
         
         return true;
     }
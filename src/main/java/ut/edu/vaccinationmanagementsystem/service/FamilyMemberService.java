@@ -17,6 +17,12 @@ public class FamilyMemberService {
     @Autowired
     private FamilyMemberRepository familyMemberRepository;
     
+    @Autowired
+    private AppointmentSearchIndexService appointmentSearchIndexService;
+    
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     /**
      * Lấy danh sách người thân của user hiện tại
      */
@@ -100,14 +106,23 @@ public class FamilyMemberService {
         if (dto.getCitizenId() != null) {
             familyMember.setCitizenId(dto.getCitizenId().trim().isEmpty() ? null : dto.getCitizenId().trim());
         }
+        boolean phoneChanged = false;
         if (dto.getPhoneNumber() != null) {
+            phoneChanged = !dto.getPhoneNumber().equals(familyMember.getPhoneNumber());
             familyMember.setPhoneNumber(dto.getPhoneNumber());
         }
         if (dto.getRelationship() != null) {
             familyMember.setRelationship(dto.getRelationship());
         }
         
-        return familyMemberRepository.save(familyMember);
+        FamilyMember savedMember = familyMemberRepository.save(familyMember);
+        
+        // Cập nhật bảng tra cứu lịch hẹn của lễ tân nếu số điện thoại thay đổi
+        if (phoneChanged) {
+            appointmentSearchIndexService.reindexFamilyMember(savedMember.getId());
+        }
+        patientTimelineService.familyMemberChanged(savedMember);
+        return savedMember;
     }
     
     /**
@@ -120,6 +135,7 @@ public class FamilyMemberService {
         
         // Xóa
         familyMemberRepository.delete(familyMember);
+        patientTimelineService.familyMemberChanged(familyMember);
     }
     
     /**
@@ -0,0 +1,443 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.CenterVaccineRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineLotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bảng tồn kho trong bộ nhớ cho cảnh báo tồn kho của admin và thống kê kho của y tá
+ * - Mỗi vaccine giữ tồn kho còn dùng được và số liều đang giữ cho lịch hẹn tại từng trung tâm (center_vaccines),
+ *   cùng số liều của các lô còn dùng được và số liều sắp hết hạn (lô vaccine không gắn với trung tâm)
+ * - Khi lô được nhập/sửa/xóa, vaccine được giữ/trả lại/tiêm hoặc tồn kho trung tâm thay đổi, vaccine đó được đánh dấu
+ *   sau khi transaction kết thúc và được đọc lại (4 câu truy vấn cho tất cả vaccine đã đánh dấu) trước lần đọc tiếp theo
+ * - Mỗi lần cảnh báo xuất hiện/đổi mức/hết, một sự kiện được thêm vào luồng cảnh báo có số thứ tự,
+ *   client chỉ cần hỏi các sự kiện sau số thứ tự đã biết thay vì tính lại toàn bộ cảnh báo
+ * - Đọc lại toàn bộ mỗi 10 phút để nhận thay đổi từ instance khác hoặc từ chỗ ghi chưa báo (ví dụ lịch hẹn bị từ chối)
+ */
+@Service
+public class InventoryPositionService {
+
+    /** Tồn kho còn dùng được tại trung tâm từ mức này trở xuống là sắp hết hàng */
+    public static final int LOW_STOCK_THRESHOLD = 50;
+
+    /** Lô hết hạn trong số ngày này được tính là sắp hết hạn */
+    public static final int EXPIRY_WARNING_DAYS = 30;
+
+    /** Số sự kiện cảnh báo gần nhất được giữ lại cho client hỏi theo số thứ tự */
+    private static final int FEED_CAPACITY = 500;
+
+    /** Lịch hẹn ở các trạng thái này và có lô đã giữ là đang giữ một liều (đã trừ khỏi kho nhưng chưa tiêm) */
+    private static final List<AppointmentStatus> RESERVED_STATUSES = List.of(
+            AppointmentStatus.CONFIRMED, AppointmentStatus.CHECKED_IN, AppointmentStatus.SCREENING,
+            AppointmentStatus.APPROVED, AppointmentStatus.INJECTING);
+
+    private static final List<String> STATUS_ORDER = List.of("OUT_OF_STOCK", "LOW_STOCK", "EXPIRING_SOON");
+
+    /** Hết hàng trước, sau đó sắp hết hàng, sau đó sắp hết hạn; cùng mức thì số lượng ít hơn trước */
+    private static final Comparator<Map<String, Object>> ALERT_ORDER = Comparator
+            .comparing((Map<String, Object> alert) -> STATUS_ORDER.indexOf((String) alert.get("status")))
+            .thenComparing(alert -> (Integer) alert.get("stockQuantity"))
+            .thenComparing(alert -> (Long) alert.get("vaccineId"));
+
+    /** vaccineId → tồn kho của vaccine (thay cả đối tượng khi đọc lại) */
+    private final ConcurrentMap<Long, VaccinePosition> positions = new ConcurrentHashMap<>();
+
+    /** Vaccine có thay đổi chưa được đọc lại */
+    private final Set<Long> dirtyVaccineIds = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loaded;
+
+    // Các trường dưới đây chỉ được đọc/sửa khi giữ khóa của service
+
+    /** Khóa cảnh báo → cảnh báo hiện tại */
+    private final Map<String, Map<String, Object>> alerts = new HashMap<>();
+
+    /** Các sự kiện cảnh báo gần nhất (cũ nhất trước) */
+    private final Deque<Map<String, Object>> feed = new ArrayDeque<>();
+
+    /** Số thứ tự của sự kiện cảnh báo mới nhất */
+    private long version;
+
+    @Autowired
+    private VaccineRepository vaccineRepository;
+
+    @Autowired
+    private CenterVaccineRepository centerVaccineRepository;
+
+    @Autowired
+    private VaccineLotRepository vaccineLotRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    // ==================== Ghi nhận thay đổi ====================
+
+    /**
+     * Tồn kho của vaccine vừa thay đổi (lô, tồn kho trung tâm, giữ/trả lại/tiêm, thông tin vaccine)
+     * Vaccine được đọc lại sau khi transaction hiện tại kết thúc
+     */
+    public void vaccineChanged(Long vaccineId) {
+        if (vaccineId == null) {
+            return;
+        }
+        afterCompletion(() -> dirtyVaccineIds.add(vaccineId));
+    }
+
+    /**
+     * Tồn kho của nhiều vaccine vừa thay đổi cùng lúc (ví dụ cập nhật trạng thái lô hàng loạt)
+     * Toàn bộ bảng được đọc lại sau khi transaction hiện tại kết thúc
+     */
+    public void allChanged() {
+        afterCompletion(() -> loaded = false);
+    }
+
+    // ==================== Đọc tồn kho ====================
+
+    /**
+     * Cảnh báo tồn kho hiện tại: hết hàng/sắp hết hàng theo (trung tâm, vaccine), sắp hết hạn theo vaccine
+     * @return Tối đa limit cảnh báo, hết hàng trước
+     */
+    public List<Map<String, Object>> getAlerts(int limit) {
+        ensureFresh();
+        synchronized (this) {
+            List<Map<String, Object>> result = new ArrayList<>(alerts.values());
+            result.sort(ALERT_ORDER);
+            return result.size() > limit ? new ArrayList<>(result.subList(0, Math.max(limit, 0))) : result;
+        }
+    }
+
+    /**
+     * Các sự kiện cảnh báo sau số thứ tự since (RAISED: cảnh báo mới, CHANGED: đổi mức, CLEARED: hết cảnh báo)
+     * @return Map gồm version (số thứ tự mới nhất), resync (true nếu sự kiện sau since đã bị bỏ, client cần đọc lại
+     *         toàn bộ cảnh báo) và events (cũ nhất trước)
+     */
+    public Map<String, Object> getAlertFeed(long since) {
+        ensureFresh();
+        synchronized (this) {
+            List<Map<String, Object>> events = new ArrayList<>();
+            for (Map<String, Object> event : feed) {
+                if ((Long) event.get("sequence") > since) {
+                    events.add(event);
+                }
+            }
+            long oldestSequence = feed.isEmpty() ? version + 1 : (Long) feed.peekFirst().get("sequence");
+            Map<String, Object> result = new HashMap<>();
+            result.put("version", version);
+            result.put("resync", since < oldestSequence - 1 || since > version);
+            result.put("events", events);
+            return result;
+        }
+    }
+
+    /**
+     * Tồn kho theo vaccine (tổng tồn kho còn dùng được tại các trung tâm), nhiều nhất trước
+     * @return Danh sách gồm id, name, manufacturer, totalStock, reservedQuantity, centersCount,
+     *         usableLotQuantity, expiringQuantity
+     */
+    public List<Map<String, Object>> getVaccineInventory() {
+        ensureFresh();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (VaccinePosition position : positions.values()) {
+            int totalStock = 0;
+            int reserved = 0;
+            for (CenterPosition center : position.centers) {
+                totalStock += center.stock;
+                reserved += center.reserved;
+            }
+            Map<String, Object> inv = new HashMap<>();
+            inv.put("id", position.vaccineId);
+            inv.put("name", position.name);
+            inv.put("manufacturer", position.manufacturer);
+            inv.put("totalStock", totalStock);
+            inv.put("reservedQuantity", reserved);
+            inv.put("centersCount", position.centers.size());
+            inv.put("usableLotQuantity", position.usableLotQuantity);
+            inv.put("expiringQuantity", position.expiringQuantity);
+            result.add(inv);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> inv) -> (Integer) inv.get("totalStock")).reversed()
+                .thenComparing(inv -> (Long) inv.get("id")));
+        return result;
+    }
+
+    // ==================== Làm mới ====================
+
+    /**
+     * Chạy mỗi 5 giây: đọc lại các vaccine có thay đổi để luồng cảnh báo không phải đợi lần đọc tiếp theo
+     */
+    @Scheduled(fixedDelay = 5_000)
+    public void refreshChanged() {
+        try {
+            ensureFresh();
+        } catch (Exception e) {
+            System.err.println("Failed to refresh inventory positions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Chạy mỗi 10 phút: đọc lại toàn bộ (ngày hết hạn dịch theo ngày, thay đổi từ instance khác)
+     */
+    @Scheduled(cron = "0 */10 * * * ?")
+    public void reloadPeriodically() {
+        try {
+            reloadAll();
+        } catch (Exception e) {
+            System.err.println("Failed to reload inventory positions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc bảng tồn kho khi ứng dụng khởi động
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            reloadAll();
+        } catch (Exception e) {
+            System.err.println("Failed to initialize inventory positions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc lại tồn kho của tất cả vaccine
+     * @return Số vaccine trong bảng tồn kho
+     */
+    public synchronized int reloadAll() {
+        dirtyVaccineIds.clear();
+        refresh(null);
+        loaded = true;
+        return positions.size();
+    }
+
+    private void ensureFresh() {
+        if (!loaded) {
+            reloadAll();
+        } else {
+            drainChanged();
+        }
+    }
+
+    private synchronized void drainChanged() {
+        if (dirtyVaccineIds.isEmpty()) {
+            return;
+        }
+        Set<Long> vaccineIds = new HashSet<>(dirtyVaccineIds);
+        dirtyVaccineIds.removeAll(vaccineIds);
+        refresh(vaccineIds);
+    }
+
+    /**
+     * Đọc lại tồn kho của các vaccine (null = tất cả) và ghi sự kiện cho các cảnh báo thay đổi
+     */
+    private void refresh(Collection<Long> vaccineIds) {
+        LocalDate today = LocalDate.now();
+        List<Object[]> vaccineRows = vaccineIds == null
+                ? vaccineRepository.findInventoryRows()
+                : vaccineRepository.findInventoryRowsByIds(vaccineIds);
+
+        Map<Long, VaccinePosition> loadedPositions = new LinkedHashMap<>();
+        for (Object[] row : vaccineRows) {
+            loadedPositions.put((Long) row[0], new VaccinePosition((Long) row[0], (String) row[1], (String) row[2]));
+        }
+        if (!loadedPositions.isEmpty()) {
+            Set<Long> ids = loadedPositions.keySet();
+            Map<String, Integer> reservedCounts = new HashMap<>();
+            for (Object[] row : appointmentRepository.countReservedGroupByCenterAndVaccine(ids, RESERVED_STATUSES)) {
+                reservedCounts.put(row[0] + "|" + row[1], ((Number) row[2]).intValue());
+            }
+            for (Object[] row : centerVaccineRepository.findInventoryRowsByVaccineIds(ids)) {
+                Integer reserved = reservedCounts.get(row[0] + "|" + row[2]);
+                loadedPositions.get((Long) row[2]).centers.add(new CenterPosition((Long) row[0], (String) row[1],
+                        row[3] != null ? (Integer) row[3] : 0, reserved != null ? reserved : 0));
+            }
+            for (Object[] row : vaccineLotRepository.sumUsableGroupByVaccine(ids, today,
+                    today.plusDays(EXPIRY_WARNING_DAYS))) {
+                VaccinePosition position = loadedPositions.get((Long) row[0]);
+                position.usableLotQuantity = toInt(row[1]);
+                position.expiringQuantity = toInt(row[2]);
+                position.nearestExpiryDate = (LocalDate) row[3];
+            }
+        }
+
+        Set<Long> removedIds = new HashSet<>(vaccineIds != null ? vaccineIds : positions.keySet());
+        removedIds.removeAll(loadedPositions.keySet());
+        synchronized (this) {
+            for (VaccinePosition position : loadedPositions.values()) {
+                updateAlerts(alertsOf(positions.put(position.vaccineId, position)), alertsOf(position));
+            }
+            for (Long vaccineId : removedIds) {
+                updateAlerts(alertsOf(positions.remove(vaccineId)), Collections.emptyMap());
+            }
+        }
+    }
+
+    // ==================== Cảnh báo ====================
+
+    /**
+     * Cảnh báo của một vaccine theo khóa: "S|centerId|vaccineId" (tồn kho trung tâm),
+     * "V|vaccineId" (vaccine chưa gán trung tâm, tính theo lô), "E|vaccineId" (lô sắp hết hạn)
+     */
+    private Map<String, Map<String, Object>> alertsOf(VaccinePosition position) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        if (position == null) {
+            return result;
+        }
+        if (position.centers.isEmpty()) {
+            String status = stockStatus(position.usableLotQuantity);
+            if (status != null) {
+                result.put("V|" + position.vaccineId, alert(position, null, null, position.usableLotQuantity, 0, status));
+            }
+        }
+        for (CenterPosition center : position.centers) {
+            String status = stockStatus(center.stock);
+            if (status != null) {
+                result.put("S|" + center.centerId + "|" + position.vaccineId,
+                        alert(position, center.centerId, center.centerName, center.stock, center.reserved, status));
+            }
+        }
+        if (position.expiringQuantity > 0) {
+            Map<String, Object> expiring = alert(position, null, "Tất cả trung tâm", position.expiringQuantity, 0,
+                    "EXPIRING_SOON");
+            expiring.put("nearestExpiryDate", position.nearestExpiryDate);
+            result.put("E|" + position.vaccineId, expiring);
+        }
+        return result;
+    }
+
+    private Map<String, Object> alert(VaccinePosition position, Long centerId, String centerName,
+                                      int stockQuantity, int reservedQuantity, String status) {
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("vaccineId", position.vaccineId);
+        alert.put("vaccineName", position.name);
+        alert.put("centerId", centerId);
+        alert.put("centerName", centerName != null ? centerName : "Chưa gán trung tâm");
+        alert.put("stockQuantity", stockQuantity);
+        alert.put("reservedQuantity", reservedQuantity);
+        alert.put("status", status);
+        return alert;
+    }
+
+    private static String stockStatus(int stock) {
+        if (stock <= 0) {
+            return "OUT_OF_STOCK";
+        }
+        return stock <= LOW_STOCK_THRESHOLD ? "LOW_STOCK" : null;
+    }
+
+    /**
+     * Thay cảnh báo cũ của một vaccine bằng cảnh báo mới, ghi sự kiện khi cảnh báo xuất hiện, đổi mức hoặc hết
+     * (số lượng thay đổi trong cùng mức chỉ cập nhật cảnh báo hiện tại, không tạo sự kiện)
+     */
+    private void updateAlerts(Map<String, Map<String, Object>> oldAlerts, Map<String, Map<String, Object>> newAlerts) {
+        for (Map.Entry<String, Map<String, Object>> entry : oldAlerts.entrySet()) {
+            if (!newAlerts.containsKey(entry.getKey())) {
+                alerts.remove(entry.getKey());
+                appendEvent("CLEARED", entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : newAlerts.entrySet()) {
+            Map<String, Object> previous = alerts.put(entry.getKey(), entry.getValue());
+            if (previous == null) {
+                appendEvent("RAISED", entry.getValue());
+            } else if (!previous.get("status").equals(entry.getValue().get("status"))) {
+                appendEvent("CHANGED", entry.getValue());
+            }
+        }
+    }
+
+    private void appendEvent(String type, Map<String, Object> alert) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("sequence", ++version);
+        event.put("type", type);
+        event.put("occurredAt", LocalDateTime.now());
+        event.put("alert", alert);
+        feed.addLast(event);
+        while (feed.size() > FEED_CAPACITY) {
+            feed.removeFirst();
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Chạy sau khi transaction hiện tại kết thúc (commit hoặc rollback), chạy ngay nếu không có transaction
+     */
+    private void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * Tồn kho của một vaccine (chỉ được sửa trong lúc đọc lại, trước khi đưa vào bảng)
+     */
+    private static class VaccinePosition {
+        private final Long vaccineId;
+        private final String name;
+        private final String manufacturer;
+        private final List<CenterPosition> centers = new ArrayList<>();
+        private int usableLotQuantity; // Tổng số liều của các lô còn dùng được
+        private int expiringQuantity; // Số liều của các lô hết hạn trong EXPIRY_WARNING_DAYS ngày tới
+        private LocalDate nearestExpiryDate; // Ngày hết hạn gần nhất của các lô còn dùng được
+
+        private VaccinePosition(Long vaccineId, String name, String manufacturer) {
+            this.vaccineId = vaccineId;
+            this.name = name;
+            this.manufacturer = manufacturer;
+        }
+    }
+
+    /**
+     * Tồn kho của một vaccine tại một trung tâm
+     */
+    private static class CenterPosition {
+        private final Long centerId;
+        private final String centerName;
+        private final int stock; // Còn dùng được (center_vaccines.stock_quantity, đã trừ số liều đang giữ)
+        private final int reserved; // Đang giữ cho lịch hẹn đã xác nhận, chưa tiêm
+
+        private CenterPosition(Long centerId, String centerName, int stock, int reserved) {
+            this.centerId = centerId;
+            this.centerName = centerName;
+            this.stock = stock;
+            this.reserved = reserved;
+        }
+    }
+}
@@ -2,19 +2,42 @@ package ut.edu.vaccinationmanagementsystem.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Mock SMS Service - In mã OTP ra console/log
  * Dùng cho development và testing
+ * Có thể giả lập độ trễ (app.sms.mock.latency-ms) và tỉ lệ lỗi (app.sms.mock.failure-rate) của nhà cung cấp SMS
+ * để thử hàng đợi gửi SMS (gửi lại, giới hạn tốc độ)
  */
 @Service
 public class MockSmsService implements SmsService {
     
     private static final Logger log = LoggerFactory.getLogger(MockSmsService.class);
     
+    @Value("${app.sms.mock.latency-ms:0}")
+    private long latencyMs;
+    
+    @Value("${app.sms.mock.failure-rate:0}")
+    private double failureRate;
+    
     @Override
     public void sendSms(String phoneNumber, String message) throws SmsException {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SmsException("Interrupted while sending SMS", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new SmsException("[MOCK SMS] Simulated provider failure");
+        }
+        
         // In ra console/log thay vì gửi SMS thật
         log.info("═══════════════════════════════════════════════════════");
         log.info("📱 [MOCK SMS] Gửi tin nhắn đến: {}", phoneNumber);
@@ -0,0 +1,155 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationArchive;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationArchiveRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lưu trữ thông báo cũ theo tháng
+ * - Thông báo đã đọc và cũ hơn app.notification-archive.read-after-days được chuyển sang notification_archives
+ *   theo từng lô (INSERT ... SELECT rồi DELETE, mỗi lô một transaction), giữ bảng notifications nhỏ cho inbox và polling
+ * - Bảng lưu trữ được phân vùng theo tháng tạo (partition_month); hết hạn lưu trữ thì xóa nguyên tháng
+ * - Thông báo chưa đọc không bao giờ bị chuyển đi, nên số thông báo chưa đọc không thay đổi
+ */
+@Service
+public class NotificationArchiveService {
+
+    /** Số thông báo chuyển sang bảng lưu trữ trong một transaction */
+    public static final int ARCHIVE_BATCH_SIZE = 1000;
+
+    /** Số thông báo lưu trữ tối đa trả về cho một lần xem lịch sử */
+    public static final int MAX_ARCHIVE_LIMIT = 200;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${app.notification-archive.read-after-days:90}")
+    private int readAfterDays;
+
+    @Value("${app.notification-archive.retention-months:24}")
+    private int retentionMonths;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository notificationArchiveRepository;
+
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Chạy lúc 3:30 sáng mỗi ngày: chuyển thông báo đã đọc sang bảng lưu trữ, sau đó xóa các tháng hết hạn lưu trữ
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void archiveNightly() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long archived = archiveReadNotifications();
+            long purged = purgeExpiredArchives();
+            if (archived > 0 || purged > 0) {
+                System.out.println("Archived " + archived + " read notifications, purged " + purged + " expired archived notifications");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to archive notifications: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Chuyển thông báo đã đọc cũ hơn readAfterDays ngày sang bảng lưu trữ
+     * @return Số thông báo đã chuyển
+     */
+    public long archiveReadNotifications() {
+        if (readAfterDays <= 0) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(readAfterDays).atStartOfDay();
+        TransactionTemplate transaction = newTransaction();
+        long total = 0;
+        while (true) {
+            Integer moved = transaction.execute(status -> {
+                List<Long> ids = notificationRepository.findArchivableIds(cutoff, PageRequest.of(0, ARCHIVE_BATCH_SIZE));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                notificationArchiveRepository.copyFromNotifications(ids, LocalDateTime.now());
+                return notificationRepository.deleteByIds(ids);
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            total += moved;
+        }
+        return total;
+    }
+
+    /**
+     * Xóa các tháng lưu trữ cũ hơn retentionMonths tháng (0 = giữ vĩnh viễn), mỗi tháng một transaction
+     * @return Số thông báo lưu trữ đã xóa
+     */
+    public long purgeExpiredArchives() {
+        if (retentionMonths <= 0) {
+            return 0;
+        }
+        LocalDate cutoffDate = LocalDate.now().minusMonths(retentionMonths);
+        int cutoffMonth = toPartitionMonth(cutoffDate);
+        TransactionTemplate transaction = newTransaction();
+        long total = 0;
+        for (Integer month : notificationArchiveRepository.findPartitionMonthsBefore(cutoffMonth)) {
+            Integer deleted = transaction.execute(status -> {
+                for (Object[] row : notificationArchiveRepository.countGroupByCreatedDateAndTypeForMonth(month)) {
+                    long count = ((Number) row[2]).longValue();
+                    notificationCounterService.recordDeleted((LocalDate) row[0], (NotificationType) row[1], count, count);
+                }
+                return notificationArchiveRepository.deleteByPartitionMonth(month);
+            });
+            total += deleted != null ? deleted : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Thông báo đã lưu trữ của user, mới nhất trước
+     * @param limit Số thông báo tối đa (giới hạn bởi MAX_ARCHIVE_LIMIT)
+     */
+    public List<NotificationArchive> getArchivedNotifications(Long userId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_ARCHIVE_LIMIT));
+        return notificationArchiveRepository.findLatestByUserId(userId, PageRequest.of(0, size));
+    }
+
+    /**
+     * Khóa phân vùng theo tháng: yyyyMM
+     */
+    public static int toPartitionMonth(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    /**
+     * Transaction riêng cho từng lô (không tham gia transaction đang có của request)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -0,0 +1,554 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationBroadcast;
+import ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.BroadcastTarget;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationBroadcastRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Gửi thông báo hàng loạt chạy nền (gửi theo danh sách user, theo role hoặc cho tất cả)
+ * - Request chỉ tạo một job (notification_broadcasts) và trả về ID để theo dõi tiến độ
+ * - Worker duyệt người nhận theo ID tăng dần từng lô, tạo thông báo bằng JDBC batch insert;
+ *   mỗi lô là một transaction ngắn nên không giữ connection database trong suốt đợt gửi
+ * - SMS và email được gửi ngoài transaction, mỗi kênh có giới hạn tốc độ riêng
+ * - Tiến độ (lastUserId) được ghi sau mỗi lô: job lỗi hoặc instance bị dừng sẽ gửi tiếp từ vị trí đã ghi
+ */
+@Service
+public class NotificationBroadcastService {
+
+    /** Số người nhận xử lý trong một lô khi chỉ tạo thông báo IN_APP */
+    public static final int CHUNK_SIZE = 1000;
+
+    /** Số người nhận trong một lô khi có gửi SMS/email (lô nhỏ để tiến độ được ghi thường xuyên) */
+    public static final int CHANNEL_CHUNK_SIZE = 200;
+
+    /** Số user tối đa khi gửi theo danh sách chọn tay (nhiều hơn thì nên gửi theo role) */
+    public static final int MAX_SELECTED_USERS = 5000;
+
+    /** Số job được xử lý đồng thời trên một instance */
+    private static final int WORKER_THREADS = 2;
+
+    /** Job RUNNING không ghi tiến độ quá thời gian này được coi là worker đã dừng */
+    private static final long STALE_MINUTES = 10;
+
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (user_id, type, title, content, status, is_read, created_at, sent_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "notification-broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    private final RateLimiter smsLimiter = new RateLimiter();
+
+    private final RateLimiter emailLimiter = new RateLimiter();
+
+    @Value("${app.broadcast.sms-per-second:20}")
+    private int smsPerSecond;
+
+    @Value("${app.broadcast.email-per-second:10}")
+    private int emailPerSecond;
+
+    @Autowired
+    private NotificationBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SmsService smsService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UnreadNotificationCacheService unreadNotificationCacheService;
+
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+
+    /**
+     * Tạo đợt gửi cho danh sách user được chọn
+     * @throws IllegalArgumentException nếu dữ liệu không hợp lệ
+     */
+    @Transactional
+    public NotificationBroadcast enqueueForUsers(List<Long> userIds, String title, String content,
+                                                 boolean sendApp, boolean sendSms, boolean sendEmail, Long createdById) {
+        TreeSet<Long> ids = new TreeSet<>(userIds);
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("User IDs are required");
+        }
+        if (ids.size() > MAX_SELECTED_USERS) {
+            throw new IllegalArgumentException("Too many users selected (max " + MAX_SELECTED_USERS + "), please send by role instead");
+        }
+        String targetUserIds = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return enqueue(BroadcastTarget.USERS, null, targetUserIds, userRepository.countByIdIn(ids),
+                title, content, sendApp, sendSms, sendEmail, createdById);
+    }
+
+    /**
+     * Tạo đợt gửi cho tất cả user thuộc các role
+     * @throws IllegalArgumentException nếu dữ liệu không hợp lệ
+     */
+    @Transactional
+    public NotificationBroadcast enqueueForRoles(List<Role> roles, String title, String content,
+                                                 boolean sendApp, boolean sendSms, boolean sendEmail, Long createdById) {
+        if (roles.isEmpty()) {
+            throw new IllegalArgumentException("Roles are required");
+        }
+        String targetRoles = roles.stream().distinct().map(Role::name).collect(Collectors.joining(","));
+        return enqueue(BroadcastTarget.ROLES, targetRoles, null, userRepository.countByRoleIn(roles),
+                title, content, sendApp, sendSms, sendEmail, createdById);
+    }
+
+    /**
+     * Tạo đợt gửi cho tất cả user
+     * @throws IllegalArgumentException nếu dữ liệu không hợp lệ
+     */
+    @Transactional
+    public NotificationBroadcast enqueueForAll(String title, String content,
+                                               boolean sendApp, boolean sendSms, boolean sendEmail, Long createdById) {
+        return enqueue(BroadcastTarget.ALL, null, null, userRepository.count(),
+                title, content, sendApp, sendSms, sendEmail, createdById);
+    }
+
+    /**
+     * Đưa đợt gửi đã thất bại về hàng đợi, gửi tiếp từ người nhận cuối cùng đã xử lý
+     * @throws RuntimeException nếu đợt gửi không tồn tại hoặc không ở trạng thái FAILED
+     */
+    @Transactional
+    public void retry(Long broadcastId) {
+        if (!broadcastRepository.existsById(broadcastId)) {
+            throw new RuntimeException("Broadcast not found");
+        }
+        if (broadcastRepository.requeueFailed(broadcastId) == 0) {
+            throw new IllegalArgumentException("Only failed broadcasts can be retried");
+        }
+        dispatchAfterCommit();
+    }
+
+    /**
+     * Lấy tiến độ của một đợt gửi
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProgress(Long broadcastId) {
+        NotificationBroadcast broadcast = broadcastRepository.findById(broadcastId)
+                .orElseThrow(() -> new RuntimeException("Broadcast not found"));
+        return toMap(broadcast);
+    }
+
+    /**
+     * Lấy tiến độ các đợt gửi gần nhất
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getRecentBroadcasts() {
+        return broadcastRepository.findTop20ByOrderByCreatedAtDesc().stream()
+                .map(this::toMap)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Chạy mỗi 30 giây: đưa job của worker đã dừng về hàng đợi và nhận các job đang chờ
+     * (job mới được nhận ngay sau khi tạo, job này chỉ là lưới an toàn khi khởi động lại hoặc chạy nhiều instance)
+     */
+    @Scheduled(cron = "*/30 * * * * ?")
+    public void dispatchPendingBroadcasts() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(STALE_MINUTES);
+            Integer requeued = newTransaction().execute(status -> broadcastRepository.requeueStale(cutoff));
+            if (requeued != null && requeued > 0) {
+                System.out.println("Requeued " + requeued + " stalled notification broadcasts");
+            }
+            dispatchQueued();
+        } catch (Exception e) {
+            System.err.println("Failed to dispatch notification broadcasts: " + e.getMessage());
+        }
+    }
+
+    private NotificationBroadcast enqueue(BroadcastTarget targetType, String targetRoles, String targetUserIds,
+                                          long totalRecipients, String title, String content,
+                                          boolean sendApp, boolean sendSms, boolean sendEmail, Long createdById) {
+        if (!sendApp && !sendSms && !sendEmail) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+
+        NotificationBroadcast broadcast = new NotificationBroadcast();
+        broadcast.setTitle(title);
+        broadcast.setContent(content);
+        broadcast.setTargetType(targetType);
+        broadcast.setTargetRoles(targetRoles);
+        broadcast.setTargetUserIds(targetUserIds);
+        broadcast.setSendApp(sendApp);
+        broadcast.setSendSms(sendSms);
+        broadcast.setSendEmail(sendEmail);
+        broadcast.setStatus(BroadcastStatus.QUEUED);
+        broadcast.setTotalRecipients((int) totalRecipients);
+        broadcast.setProcessedCount(0);
+        broadcast.setInAppCount(0);
+        broadcast.setSmsSentCount(0);
+        broadcast.setSmsFailedCount(0);
+        broadcast.setEmailSentCount(0);
+        broadcast.setEmailFailedCount(0);
+        broadcast.setLastUserId(0L);
+        broadcast.setAttempts(0);
+        broadcast.setCreatedById(createdById);
+        broadcast.setCreatedAt(LocalDateTime.now());
+        broadcast = broadcastRepository.save(broadcast);
+
+        dispatchAfterCommit();
+        return broadcast;
+    }
+
+    /**
+     * Nhận job QUEUED cho các worker còn rảnh
+     */
+    private synchronized void dispatchQueued() {
+        while (runningJobs.get() < WORKER_THREADS) {
+            List<Long> queuedIds = broadcastRepository.findIdsByStatus(
+                    BroadcastStatus.QUEUED, PageRequest.of(0, WORKER_THREADS));
+            boolean claimed = false;
+            for (Long broadcastId : queuedIds) {
+                if (runningJobs.get() >= WORKER_THREADS) {
+                    break;
+                }
+                Integer attempt = newTransaction().execute(status ->
+                        broadcastRepository.claim(broadcastId, LocalDateTime.now()) == 1
+                                ? broadcastRepository.findById(broadcastId).map(NotificationBroadcast::getAttempts).orElse(null)
+                                : null);
+                if (attempt != null) {
+                    runningJobs.incrementAndGet();
+                    workers.submit(() -> process(broadcastId, attempt));
+                    claimed = true;
+                }
+            }
+            if (!claimed) {
+                break; // Không còn job chờ hoặc worker khác đã nhận hết
+            }
+        }
+    }
+
+    /**
+     * Xử lý một job: duyệt người nhận từng lô từ lastUserId cho đến hết
+     * @param attempt Lượt nhận job; nếu job bị nhận lại (attempts thay đổi) thì worker này dừng
+     */
+    private void process(Long broadcastId, Integer attempt) {
+        try {
+            NotificationBroadcast broadcast = broadcastRepository.findById(broadcastId).orElse(null);
+            if (broadcast == null) {
+                return;
+            }
+
+            List<Long> selectedIds = parseUserIds(broadcast.getTargetUserIds());
+            List<Role> roles = parseRoles(broadcast.getTargetRoles());
+            boolean usesChannels = Boolean.TRUE.equals(broadcast.getSendSms()) || Boolean.TRUE.equals(broadcast.getSendEmail());
+            int chunkSize = usesChannels ? CHANNEL_CHUNK_SIZE : CHUNK_SIZE;
+            long lastUserId = broadcast.getLastUserId();
+
+            while (true) {
+                Chunk chunk = loadChunk(broadcast, selectedIds, roles, lastUserId, chunkSize);
+                if (chunk == null) {
+                    break;
+                }
+                ChunkResult result = deliver(broadcast, chunk.contacts);
+
+                Boolean stillOwned = newTransaction().execute(status -> {
+                    saveNotifications(broadcast, chunk.contacts, result);
+                    int updated = broadcastRepository.recordProgress(broadcastId, attempt, chunk.lastUserId,
+                            chunk.contacts.size(), result.inAppCount, result.smsSent, result.smsFailed,
+                            result.emailSent, result.emailFailed, LocalDateTime.now());
+                    if (updated == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(stillOwned)) {
+                    System.out.println("Notification broadcast " + broadcastId + " was taken over by another worker");
+                    return;
+                }
+                for (Object[] contact : chunk.contacts) {
+                    unreadNotificationCacheService.invalidate(((Number) contact[0]).longValue());
+                }
+                lastUserId = chunk.lastUserId;
+            }
+
+            newTransaction().executeWithoutResult(status ->
+                    broadcastRepository.markCompleted(broadcastId, attempt, LocalDateTime.now()));
+            System.out.println("Notification broadcast " + broadcastId + " completed");
+        } catch (Exception e) {
+            System.err.println("Notification broadcast " + broadcastId + " failed: " + e.getMessage());
+            e.printStackTrace();
+            try {
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                String errorMessage = message.length() > 1000 ? message.substring(0, 1000) : message;
+                newTransaction().executeWithoutResult(status ->
+                        broadcastRepository.markFailed(broadcastId, attempt, errorMessage, LocalDateTime.now()));
+            } catch (Exception markException) {
+                System.err.println("Failed to mark notification broadcast " + broadcastId + " as failed: " + markException.getMessage());
+            }
+        } finally {
+            runningJobs.decrementAndGet();
+            dispatchQueued();
+        }
+    }
+
+    /**
+     * Lấy lô người nhận tiếp theo sau lastUserId
+     * @return null nếu đã hết người nhận
+     */
+    private Chunk loadChunk(NotificationBroadcast broadcast, List<Long> selectedIds, List<Role> roles,
+                            long lastUserId, int chunkSize) {
+        if (broadcast.getTargetType() == BroadcastTarget.USERS) {
+            List<Long> nextIds = selectedIds.stream()
+                    .filter(id -> id > lastUserId)
+                    .limit(chunkSize)
+                    .collect(Collectors.toList());
+            if (nextIds.isEmpty()) {
+                return null;
+            }
+            // User đã bị xóa không có trong kết quả nhưng vẫn được tính là đã xử lý qua lastUserId
+            return new Chunk(userRepository.findContactsByIds(nextIds), nextIds.get(nextIds.size() - 1));
+        }
+
+        List<Object[]> contacts = broadcast.getTargetType() == BroadcastTarget.ROLES
+                ? userRepository.findContactsByRolesAfter(roles, lastUserId, PageRequest.of(0, chunkSize))
+                : userRepository.findContactsAfter(lastUserId, PageRequest.of(0, chunkSize));
+        if (contacts.isEmpty()) {
+            return null;
+        }
+        return new Chunk(contacts, ((Number) contacts.get(contacts.size() - 1)[0]).longValue());
+    }
+
+    /**
+     * Gửi SMS/email cho một lô người nhận (ngoài transaction, theo giới hạn tốc độ của từng kênh)
+     */
+    private ChunkResult deliver(NotificationBroadcast broadcast, List<Object[]> contacts) throws InterruptedException {
+        ChunkResult result = new ChunkResult(contacts.size());
+        String smsMessage = broadcast.getTitle() + ": " + broadcast.getContent();
+
+        for (int i = 0; i < contacts.size(); i++) {
+            Object[] contact = contacts.get(i);
+            if (Boolean.TRUE.equals(broadcast.getSendApp())) {
+                result.inAppCount++;
+            }
+            if (Boolean.TRUE.equals(broadcast.getSendSms())) {
+                String phoneNumber = (String) contact[1];
+                boolean sent = false;
+                if (phoneNumber != null && !phoneNumber.trim().isEmpty()) {
+                    smsLimiter.acquire(smsPerSecond);
+                    try {
+                        smsService.sendSms(phoneNumber, smsMessage);
+                        sent = true;
+                    } catch (Exception e) {
+                        System.err.println("Failed to send broadcast SMS to user " + contact[0] + ": " + e.getMessage());
+                    }
+                }
+                result.smsStatuses[i] = sent ? NotificationStatus.SENT : NotificationStatus.FAILED;
+                if (sent) {
+                    result.smsSent++;
+                } else {
+                    result.smsFailed++;
+                }
+            }
+            if (Boolean.TRUE.equals(broadcast.getSendEmail())) {
+                String email = (String) contact[2];
+                boolean sent = false;
+                if (email != null && !email.trim().isEmpty()) {
+                    emailLimiter.acquire(emailPerSecond);
+                    try {
+                        notificationService.sendEmail(email, broadcast.getTitle(), broadcast.getContent());
+                        sent = true;
+                    } catch (Exception e) {
+                        System.err.println("Failed to send broadcast email to user " + contact[0] + ": " + e.getMessage());
+                    }
+                }
+                result.emailStatuses[i] = sent ? NotificationStatus.SENT : NotificationStatus.FAILED;
+                if (sent) {
+                    result.emailSent++;
+                } else {
+                    result.emailFailed++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ghi thông báo của một lô bằng JDBC batch insert (một câu lệnh cho cả lô thay vì từng entity)
+     */
+    private void saveNotifications(NotificationBroadcast broadcast, List<Object[]> contacts, ChunkResult result) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < contacts.size(); i++) {
+            Object userId = contacts.get(i)[0];
+            if (Boolean.TRUE.equals(broadcast.getSendApp())) {
+                rows.add(notificationRow(userId, NotificationType.IN_APP, broadcast, NotificationStatus.SENT, now));
+            }
+            if (result.smsStatuses[i] != null) {
+                rows.add(notificationRow(userId, NotificationType.SMS, broadcast, result.smsStatuses[i], now));
+            }
+            if (result.emailStatuses[i] != null) {
+                rows.add(notificationRow(userId, NotificationType.EMAIL, broadcast, result.emailStatuses[i], now));
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, rows);
+
+            // Cộng bộ đếm thống kê theo loại cho cả lô
+            Map<String, Long> countsByType = new HashMap<>();
+            for (Object[] row : rows) {
+                countsByType.merge((String) row[1], 1L, Long::sum);
+            }
+            for (Map.Entry<String, Long> entry : countsByType.entrySet()) {
+                notificationCounterService.recordCreated(now.toLocalDate(), NotificationType.valueOf(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    private Object[] notificationRow(Object userId, NotificationType type, NotificationBroadcast broadcast,
+                                     NotificationStatus status, LocalDateTime now) {
+        return new Object[] {
+                userId, type.name(), broadcast.getTitle(), broadcast.getContent(), status.name(), false, now,
+                status == NotificationStatus.SENT ? now : null
+        };
+    }
+
+    /**
+     * Nhận job ngay sau khi transaction tạo/thử lại job commit
+     */
+    private void dispatchAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatchQueued();
+                }
+            });
+        } else {
+            dispatchQueued();
+        }
+    }
+
+    /**
+     * Transaction riêng cho từng bước của worker (không tham gia transaction đang có của request)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private List<Long> parseUserIds(String targetUserIds) {
+        if (targetUserIds == null || targetUserIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(targetUserIds.split(","))
+                .map(Long::valueOf)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private List<Role> parseRoles(String targetRoles) {
+        if (targetRoles == null || targetRoles.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(targetRoles.split(","))
+                .map(Role::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Object> toMap(NotificationBroadcast broadcast) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", broadcast.getId());
+        map.put("title", broadcast.getTitle());
+        map.put("targetType", broadcast.getTargetType().name());
+        map.put("status", broadcast.getStatus().name());
+        map.put("sendApp", broadcast.getSendApp());
+        map.put("sendSms", broadcast.getSendSms());
+        map.put("sendEmail", broadcast.getSendEmail());
+        map.put("totalRecipients", broadcast.getTotalRecipients());
+        map.put("processedCount", broadcast.getProcessedCount());
+        map.put("inAppCount", broadcast.getInAppCount());
+        map.put("smsSentCount", broadcast.getSmsSentCount());
+        map.put("smsFailedCount", broadcast.getSmsFailedCount());
+        map.put("emailSentCount", broadcast.getEmailSentCount());
+        map.put("emailFailedCount", broadcast.getEmailFailedCount());
+        int total = broadcast.getTotalRecipients();
+        int percent = total > 0 ? (int) Math.min(100, broadcast.getProcessedCount() * 100L / total) : 100;
+        map.put("progressPercent", broadcast.getStatus() == BroadcastStatus.COMPLETED ? 100 : percent);
+        map.put("errorMessage", broadcast.getErrorMessage());
+        map.put("createdAt", broadcast.getCreatedAt());
+        map.put("startedAt", broadcast.getStartedAt());
+        map.put("completedAt", broadcast.getCompletedAt());
+        return map;
+    }
+
+    /**
+     * Lô người nhận: [id, phoneNumber, email] và user ID cuối cùng của lô
+     */
+    private static class Chunk {
+        private final List<Object[]> contacts;
+        private final Long lastUserId;
+
+        Chunk(List<Object[]> contacts, Long lastUserId) {
+            this.contacts = contacts;
+            this.lastUserId = lastUserId;
+        }
+    }
+
+    /**
+     * Kết quả gửi của một lô (trạng thái SMS/email theo vị trí người nhận, null nếu không gửi kênh đó)
+     */
+    private static class ChunkResult {
+        private final NotificationStatus[] smsStatuses;
+        private final NotificationStatus[] emailStatuses;
+        private int inAppCount;
+        private int smsSent;
+        private int smsFailed;
+        private int emailSent;
+        private int emailFailed;
+
+        ChunkResult(int size) {
+            this.smsStatuses = new NotificationStatus[size];
+            this.emailStatuses = new NotificationStatus[size];
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.Notification;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationDailyCounter;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationArchiveRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationDailyCounterRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bộ đếm thông báo theo ngày tạo và loại (notification_daily_counters) cho thống kê thông báo của admin
+ * - Được cộng dồn khi thông báo được tạo/đọc/xóa, nên các API thống kê không phải quét bảng notifications
+ * - Tính cả thông báo đã chuyển sang bảng lưu trữ; chỉ giảm khi thông báo bị xóa hẳn
+ * - Đối soát lại toàn bộ từ dữ liệu gốc mỗi đêm
+ */
+@Service
+@Transactional
+public class NotificationCounterService {
+
+    @Autowired
+    private NotificationDailyCounterRepository counterRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository notificationArchiveRepository;
+
+    // ==================== Ghi nhận thay đổi ====================
+
+    /**
+     * Ghi nhận thông báo mới
+     */
+    public void recordCreated(Notification notification) {
+        if (notification != null && notification.getCreatedAt() != null) {
+            increment(notification.getCreatedAt().toLocalDate(), notification.getType(), 1,
+                    Boolean.TRUE.equals(notification.getIsRead()) ? 1 : 0);
+        }
+    }
+
+    /**
+     * Ghi nhận một nhóm thông báo cùng ngày và loại được tạo (gửi hàng loạt)
+     */
+    public void recordCreated(LocalDate createdDate, NotificationType type, long count) {
+        increment(createdDate, type, count, 0);
+    }
+
+    /**
+     * Ghi nhận các thông báo (tạo lúc createdAt) vừa chuyển sang đã đọc
+     */
+    public void recordRead(LocalDateTime createdAt, NotificationType type, long count) {
+        if (createdAt != null) {
+            increment(createdAt.toLocalDate(), type, 0, count);
+        }
+    }
+
+    /**
+     * Ghi nhận thông báo bị xóa
+     */
+    public void recordDeleted(Notification notification) {
+        if (notification != null && notification.getCreatedAt() != null) {
+            increment(notification.getCreatedAt().toLocalDate(), notification.getType(), -1,
+                    Boolean.TRUE.equals(notification.getIsRead()) ? -1 : 0);
+        }
+    }
+
+    /**
+     * Ghi nhận một nhóm thông báo cùng ngày và loại bị xóa hẳn (xóa hàng loạt)
+     */
+    public void recordDeleted(LocalDate createdDate, NotificationType type, long count, long readCount) {
+        increment(createdDate, type, -count, -readCount);
+    }
+
+    // ==================== Đọc thống kê ====================
+
+    /**
+     * Tổng số thông báo và số đã đọc (toàn thời gian)
+     * @return [tổng số thông báo, số đã đọc]
+     */
+    @Transactional(readOnly = true)
+    public long[] getTotals() {
+        return toTotals(counterRepository.sumCounts());
+    }
+
+    /**
+     * Tổng số thông báo và số đã đọc của các thông báo tạo trong khoảng ngày
+     * @return [tổng số thông báo, số đã đọc]
+     */
+    @Transactional(readOnly = true)
+    public long[] getTotalsBetween(LocalDate startDate, LocalDate endDate) {
+        return toTotals(counterRepository.sumCountsBetween(startDate, endDate));
+    }
+
+    /**
+     * Số thông báo tạo theo từng ngày (ngày không có thông báo không có trong Map)
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getDailyCreated(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, Long> result = new HashMap<>();
+        for (Object[] row : counterRepository.sumCreatedGroupByDateBetween(startDate, endDate)) {
+            result.put((LocalDate) row[0], ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * Số thông báo theo từng loại (bỏ qua loại có số lượng 0)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getCreatedByType() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Object[] row : counterRepository.sumCreatedGroupByType()) {
+            long count = ((Number) row[1]).longValue();
+            if (count > 0) {
+                result.put(row[0] != null ? row[0].toString() : "UNKNOWN", count);
+            }
+        }
+        return result;
+    }
+
+    // ==================== Đối soát ====================
+
+    /**
+     * Chạy lúc 1:45 sáng mỗi ngày để tính lại bộ đếm từ bảng notifications và bảng lưu trữ
+     */
+    @Scheduled(cron = "0 45 1 * * ?")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void reconcileNightly() {
+        try {
+            int corrected = rebuildAll();
+            System.out.println("Reconciled notification counters: " + corrected + " buckets corrected");
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild notification counters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Khởi tạo bộ đếm khi ứng dụng khởi động lần đầu (bảng còn trống)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void initializeIfEmpty() {
+        try {
+            if (counterRepository.count() == 0) {
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to initialize notification counters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát toàn bộ bộ đếm với các truy vấn GROUP BY trên bảng notifications và bảng lưu trữ
+     * - Dữ liệu gốc và bộ đếm được đọc trong cùng một snapshot (REPEATABLE READ); bộ đếm được cộng dồn trong cùng
+     *   transaction với thay đổi thông báo nên snapshot luôn thấy cả hai hoặc không thấy cả hai
+     * - Mỗi bucket sai lệch được sửa bằng cách cộng phần chênh lệch bằng câu cộng dồn, không ghi đè,
+     *   nên thông báo được tạo/đọc/xóa trong lúc đối soát vẫn được tính
+     * - Bucket được sửa theo thứ tự (ngày, loại); bucket không còn thông báo nào bị trừ về 0 rồi xóa
+     * @return Số bucket đã sửa
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuildAll() {
+        return applyCorrections(computeCorrections());
+    }
+
+    /**
+     * Tính phần chênh lệch của từng bucket giữa dữ liệu gốc và bộ đếm (cùng snapshot)
+     * @return Các bucket cần sửa: createdCount/readCount là phần chênh lệch; id khác null nếu bucket không còn thông báo
+     */
+    List<NotificationDailyCounter> computeCorrections() {
+        Map<String, NotificationDailyCounter> buckets = new HashMap<>();
+
+        for (Object[] row : notificationRepository.countGroupByCreatedDateTypeAndRead()) {
+            long count = ((Number) row[3]).longValue();
+            add(buckets, (LocalDate) row[0], (NotificationType) row[1], count,
+                    Boolean.TRUE.equals(row[2]) ? count : 0);
+        }
+        // Thông báo lưu trữ đều đã đọc
+        for (Object[] row : notificationArchiveRepository.countGroupByCreatedDateAndType()) {
+            long count = ((Number) row[2]).longValue();
+            add(buckets, (LocalDate) row[0], (NotificationType) row[1], count, count);
+        }
+
+        // Bộ đếm hiện tại (cùng snapshot với dữ liệu gốc)
+        Map<String, NotificationDailyCounter> current = new HashMap<>();
+        for (NotificationDailyCounter counter : counterRepository.findAll()) {
+            current.put(bucketKey(counter.getStatDate(), counter.getType()), counter);
+        }
+
+        List<NotificationDailyCounter> corrections = new ArrayList<>();
+        Set<String> keys = new TreeSet<>(buckets.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            NotificationDailyCounter expected = buckets.get(key);
+            NotificationDailyCounter actual = current.get(key);
+            NotificationDailyCounter bucket = expected != null ? expected : actual;
+            long createdDelta = (expected != null ? expected.getCreatedCount() : 0L)
+                    - (actual != null ? actual.getCreatedCount() : 0L);
+            long readDelta = (expected != null ? expected.getReadCount() : 0L)
+                    - (actual != null ? actual.getReadCount() : 0L);
+            if (createdDelta == 0 && readDelta == 0 && expected != null) {
+                continue;
+            }
+            NotificationDailyCounter correction = new NotificationDailyCounter();
+            correction.setId(expected == null ? actual.getId() : null);
+            correction.setStatDate(bucket.getStatDate());
+            correction.setType(bucket.getType());
+            correction.setCreatedCount(createdDelta);
+            correction.setReadCount(readDelta);
+            corrections.add(correction);
+        }
+        return corrections;
+    }
+
+    /**
+     * Cộng phần chênh lệch vào bộ đếm (không ghi đè) và xóa các bucket không còn thông báo đã về 0
+     * @return Số bucket đã sửa
+     */
+    int applyCorrections(List<NotificationDailyCounter> corrections) {
+        int corrected = 0;
+        List<Long> emptiedIds = new ArrayList<>();
+        for (NotificationDailyCounter correction : corrections) {
+            if (correction.getCreatedCount() != 0 || correction.getReadCount() != 0) {
+                increment(correction.getStatDate(), correction.getType(),
+                        correction.getCreatedCount(), correction.getReadCount());
+                corrected++;
+            }
+            if (correction.getId() != null) {
+                emptiedIds.add(correction.getId());
+            }
+        }
+        if (!emptiedIds.isEmpty()) {
+            counterRepository.deleteEmptyByIdIn(emptiedIds);
+        }
+        return corrected;
+    }
+
+    // ==================== Helpers ====================
+
+    private void increment(LocalDate date, NotificationType type, long createdDelta, long readDelta) {
+        if (date == null || type == null || (createdDelta == 0 && readDelta == 0)) {
+            return;
+        }
+        counterRepository.increment(date, type.name(), createdDelta, readDelta);
+    }
+
+    private void add(Map<String, NotificationDailyCounter> buckets, LocalDate date, NotificationType type,
+                     long createdCount, long readCount) {
+        if (date == null || type == null) {
+            return;
+        }
+        NotificationDailyCounter counter = buckets.get(bucketKey(date, type));
+        if (counter == null) {
+            counter = new NotificationDailyCounter();
+            counter.setStatDate(date);
+            counter.setType(type);
+            buckets.put(bucketKey(date, type), counter);
+        }
+        counter.setCreatedCount(counter.getCreatedCount() + createdCount);
+        counter.setReadCount(counter.getReadCount() + readCount);
+    }
+
+    private static String bucketKey(LocalDate date, NotificationType type) {
+        return date + "|" + type;
+    }
+
+    private long[] toTotals(List<Object[]> rows) {
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return new long[] {0, 0};
+        }
+        Object[] row = rows.get(0);
+        return new long[] {((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+    }
+}
@@ -2,14 +2,16 @@ package ut.edu.vaccinationmanagementsystem.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ut.edu.vaccinationmanagementsystem.entity.Appointment;
 import ut.edu.vaccinationmanagementsystem.entity.Notification;
 import ut.edu.vaccinationmanagementsystem.entity.User;
-import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
 import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
@@ -18,19 +20,33 @@ import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class NotificationService {
     
+    /** Số thông báo mặc định trả về cho inbox */
+    public static final int DEFAULT_INBOX_LIMIT = 50;
+    
+    /** Số thông báo tối đa trả về cho một lần xem inbox */
+    public static final int MAX_INBOX_LIMIT = 200;
+    
     @Autowired
     private NotificationRepository notificationRepository;
     
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+    
     @Autowired
     private JavaMailSender mailSender;
     
+    @Autowired
+    private UnreadNotificationCacheService unreadNotificationCacheService;
+    
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
     
@@ -163,6 +179,8 @@ public class NotificationService {
         notification.setSentAt(LocalDateTime.now());
         
         notificationRepository.save(notification);
+        notificationCounterService.recordCreated(notification);
+        unreadNotificationCacheService.invalidate(user.getId());
     }
     
     /**
@@ -198,12 +216,15 @@ public class NotificationService {
         }
         
         notificationRepository.save(notification);
+        notificationCounterService.recordCreated(notification);
+        unreadNotificationCacheService.invalidate(user.getId());
     }
     
     /**
      * Gửi email
+     * @throws RuntimeException nếu gửi thất bại
      */
-    private void sendEmail(String toEmail, String subject, String content) {
+    public void sendEmail(String toEmail, String subject, String content) {
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(fromEmail);
@@ -343,30 +364,44 @@ public class NotificationService {
     }
     
     /**
-     * Lấy danh sách thông báo của user
+     * Lấy N thông báo mới nhất của user (thông báo cũ đã đọc nằm ở bảng lưu trữ)
+     * @param filter "all" (mặc định), "unread", "appointment", "system"
+     * @param limit Số thông báo tối đa (giới hạn bởi MAX_INBOX_LIMIT)
      */
-    public List<Notification> getUserNotifications(Long userId) {
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    @Transactional(readOnly = true)
+    public List<Notification> getLatestNotifications(Long userId, String filter, int limit) {
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_INBOX_LIMIT)));
+        switch (filter == null ? "all" : filter.toLowerCase()) {
+            case "unread":
+                return notificationRepository.findLatestUnreadByUserId(userId, page);
+            case "appointment":
+                return notificationRepository.findLatestWithAppointmentByUserId(userId, page);
+            case "system":
+                return notificationRepository.findLatestWithoutAppointmentByUserId(userId, page);
+            case "all":
+            default:
+                return notificationRepository.findLatestByUserId(userId, page);
+        }
     }
     
     /**
-     * Lấy số lượng thông báo chưa đọc
+     * Lấy số lượng thông báo chưa đọc (đọc từ cache, chỉ đếm lại trong database khi cần)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return unreadNotificationCacheService.getUnreadCount(userId);
     }
     
     /**
      * Đánh dấu thông báo đã đọc
      */
     public void markAsRead(Long notificationId, Long userId) {
-        Optional<Notification> notificationOpt = notificationRepository.findById(notificationId);
-        if (notificationOpt.isPresent()) {
-            Notification notification = notificationOpt.get();
-            if (notification.getUser().getId().equals(userId)) {
-                notification.setIsRead(true);
-                notificationRepository.save(notification);
+        List<Object[]> unread = notificationRepository.findUnreadCreatedAtAndType(notificationId, userId);
+        if (notificationRepository.markAsRead(notificationId, userId) > 0) {
+            if (!unread.isEmpty()) {
+                notificationCounterService.recordRead((LocalDateTime) unread.get(0)[0], (NotificationType) unread.get(0)[1], 1);
             }
+            unreadNotificationCacheService.invalidate(userId);
         }
     }
     
@@ -379,6 +414,8 @@ public class NotificationService {
             Notification notification = notificationOpt.get();
             if (notification.getUser().getId().equals(userId)) {
                 notificationRepository.delete(notification);
+                notificationCounterService.recordDeleted(notification);
+                unreadNotificationCacheService.invalidate(userId);
             }
         }
     }
@@ -387,11 +424,23 @@ public class NotificationService {
      * Đánh dấu tất cả thông báo đã đọc
      */
     public void markAllAsRead(Long userId) {
-        List<Notification> unreadNotifications = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId);
-        for (Notification notification : unreadNotifications) {
-            notification.setIsRead(true);
+        List<Object[]> unread = notificationRepository.findUnreadCreatedAtAndTypeByUserId(userId);
+        if (notificationRepository.markAllAsRead(userId) > 0) {
+            // Gộp theo (ngày tạo, loại) để mỗi bộ đếm chỉ cập nhật một lần
+            Map<String, Long> readCounts = new HashMap<>();
+            Map<String, Object[]> readKeys = new HashMap<>();
+            for (Object[] row : unread) {
+                if (row[0] == null) {
+                    continue;
+                }
+                String key = ((LocalDateTime) row[0]).toLocalDate() + "|" + row[1];
+                readCounts.merge(key, 1L, Long::sum);
+                readKeys.putIfAbsent(key, row);
+            }
+            readCounts.forEach((key, count) -> notificationCounterService.recordRead(
+                    (LocalDateTime) readKeys.get(key)[0], (NotificationType) readKeys.get(key)[1], count));
+            unreadNotificationCacheService.invalidate(userId);
         }
-        notificationRepository.saveAll(unreadNotifications);
     }
     
     /**
@@ -434,7 +483,10 @@ public class NotificationService {
             notification.setSentAt(LocalDateTime.now());
         }
         
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        notificationCounterService.recordCreated(saved);
+        unreadNotificationCacheService.invalidate(userId);
+        return saved;
     }
     
     @Autowired
@@ -442,52 +494,4 @@ public class NotificationService {
     
     @Autowired
     private UserRepository userRepository;
-    
-    /**
-     * Gửi thông báo nhắc lịch cho tất cả appointments sắp tới
-     * Có thể gọi từ cron job hoặc manual
-     */
-    public int sendAppointmentReminders() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Appointment> appointments = appointmentRepository.findAll();
-        int sentCount = 0;
-        
-        for (Appointment appointment : appointments) {
-            // Chỉ xử lý appointments có status PENDING hoặc CONFIRMED
-            if (appointment.getStatus() != AppointmentStatus.PENDING && 
-                appointment.getStatus() != AppointmentStatus.CONFIRMED) {
-                continue;
-            }
-            
-            // Kiểm tra nếu appointment có đầy đủ thông tin
-            if (appointment.getAppointmentDate() == null || 
-                appointment.getAppointmentTime() == null) {
-                continue;
-            }
-            
-            // Tính toán thời gian appointment
-            LocalDateTime appointmentDateTime = LocalDateTime.of(
-                appointment.getAppointmentDate(),
-                appointment.getAppointmentTime()
-            );
-            
-            // Tính số giờ còn lại
-            long hoursUntil = java.time.Duration.between(now, appointmentDateTime).toHours();
-            
-            // Tạo thông báo nhắc nhở 1 ngày trước (24-25 giờ)
-            if (hoursUntil >= 24 && hoursUntil <= 25) {
-                createAppointmentReminderNotification(appointment, 1, 0, 0);
-                sentCount++;
-            }
-            
-            // Tạo thông báo nhắc nhở 2 giờ trước (2-3 giờ)
-            if (hoursUntil >= 2 && hoursUntil <= 3) {
-                createAppointmentReminderNotification(appointment, 0, 2, 0);
-                sentCount++;
-            }
-        }
-        
-        return sentCount;
-    }
 }
-
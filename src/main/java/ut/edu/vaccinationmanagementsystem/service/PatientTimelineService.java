@@ -0,0 +1,256 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.dto.PatientTimelineDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineAppointmentDTO;
+import ut.edu.vaccinationmanagementsystem.dto.TimelineDoseDTO;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.FamilyMember;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Dòng thời gian tiêm chủng theo từng người (user hoặc người thân), giữ trong bộ nhớ cho trang chủ và lịch sử tiêm chủng
+ * - Mỗi dòng thời gian được đọc bằng 2 câu truy vấn chỉ lấy các cột cần thiết (appointment và hồ sơ tiêm),
+ *   không load entity Appointment/VaccinationRecord cùng vaccine, trung tâm, phòng, người đặt
+ * - Khi appointment hoặc hồ sơ tiêm thay đổi, dòng thời gian của những người liên quan bị bỏ sau khi transaction commit
+ *   và được đọc lại ở lần xem tiếp theo
+ * - Dữ liệu chỉ sống TIMELINE_TTL_MILLIS để nhận thay đổi từ instance khác hoặc từ chỗ ghi chưa báo
+ */
+@Service
+public class PatientTimelineService {
+
+    /** Thời gian sống của một dòng thời gian trong bộ nhớ */
+    private static final long TIMELINE_TTL_MILLIS = 300_000;
+
+    private static final Comparator<TimelineAppointmentDTO> APPOINTMENT_ORDER = Comparator
+            .comparing(TimelineAppointmentDTO::getAppointmentDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineAppointmentDTO::getAppointmentTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineAppointmentDTO::getId, Comparator.reverseOrder());
+
+    private static final Comparator<TimelineDoseDTO> DOSE_ORDER = Comparator
+            .comparing(TimelineDoseDTO::getInjectionDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineDoseDTO::getInjectionTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineDoseDTO::getId, Comparator.reverseOrder());
+
+    /** "U" + userId hoặc "F" + familyMemberId → dòng thời gian (hoặc dấu đã bỏ nếu vừa có thay đổi) */
+    private final ConcurrentMap<String, CachedTimeline> timelines = new ConcurrentHashMap<>();
+
+    /** Tăng mỗi lần bỏ một dòng thời gian, dùng để nhận ra dữ liệu đọc trong lúc có thay đổi */
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    /**
+     * Dòng thời gian của một user: lịch hẹn user đặt hoặc được đặt cho (kể cả đặt cho người thân) và các mũi user đã tiêm
+     */
+    public PatientTimelineDTO getUserTimeline(Long userId) {
+        return getTimeline(userKey(userId), () -> build(
+                appointmentRepository.findTimelineRowsByUserId(userId),
+                vaccinationRecordRepository.findTimelineRowsByUserId(userId)));
+    }
+
+    /**
+     * Dòng thời gian của một người thân: lịch hẹn và các mũi đã tiêm của người thân
+     */
+    public PatientTimelineDTO getFamilyMemberTimeline(Long familyMemberId) {
+        return getTimeline(familyMemberKey(familyMemberId), () -> build(
+                appointmentRepository.findTimelineRowsByFamilyMemberId(familyMemberId),
+                vaccinationRecordRepository.findTimelineRowsByFamilyMemberId(familyMemberId)));
+    }
+
+    /**
+     * Appointment vừa được tạo/sửa/xóa: bỏ dòng thời gian của người đặt, người được tiêm và người thân (sau khi commit)
+     */
+    public void appointmentChanged(Appointment appointment) {
+        if (appointment == null) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        if (appointment.getBookedByUser() != null) {
+            keys.add(userKey(appointment.getBookedByUser().getId()));
+        }
+        if (appointment.getBookedForUser() != null) {
+            keys.add(userKey(appointment.getBookedForUser().getId()));
+        }
+        if (appointment.getFamilyMember() != null) {
+            keys.add(familyMemberKey(appointment.getFamilyMember().getId()));
+        }
+        invalidate(keys);
+    }
+
+    /**
+     * Hồ sơ tiêm vừa được tạo/sửa: bỏ dòng thời gian của người được tiêm và những người liên quan tới appointment
+     */
+    public void vaccinationRecordChanged(VaccinationRecord record) {
+        if (record == null) {
+            return;
+        }
+        if (record.getUser() != null) {
+            invalidate(Set.of(userKey(record.getUser().getId())));
+        }
+        appointmentChanged(record.getAppointment());
+    }
+
+    /**
+     * Người thân vừa được sửa/xóa: bỏ dòng thời gian của người thân và của user sở hữu (có hiển thị tên người thân)
+     */
+    public void familyMemberChanged(FamilyMember familyMember) {
+        if (familyMember == null) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(familyMemberKey(familyMember.getId()));
+        if (familyMember.getUser() != null) {
+            keys.add(userKey(familyMember.getUser().getId()));
+        }
+        invalidate(keys);
+    }
+
+    /**
+     * Bỏ dòng thời gian của các user (sau khi commit), ví dụ khi xóa user hàng loạt
+     */
+    public void invalidateUsers(Collection<Long> userIds) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            keys.add(userKey(userId));
+        }
+        invalidate(keys);
+    }
+
+    /**
+     * Chạy mỗi 5 phút: bỏ các dòng thời gian đã hết hạn để bảng không lớn dần theo số người đã xem
+     */
+    @Scheduled(fixedDelay = 300_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        timelines.values().removeIf(cached -> cached.expiresAt <= now);
+    }
+
+    // ==================== Helpers ====================
+
+    private PatientTimelineDTO getTimeline(String key, Supplier<PatientTimelineDTO> loader) {
+        long now = System.currentTimeMillis();
+        CachedTimeline cached = timelines.get(key);
+        if (cached != null && cached.timeline != null && cached.expiresAt > now) {
+            return cached.timeline;
+        }
+
+        long sequence = invalidationSequence.get();
+        PatientTimelineDTO timeline = loader.get();
+        CachedTimeline loaded = new CachedTimeline(timeline, sequence, now + TIMELINE_TTL_MILLIS);
+        // Có thay đổi của người này (hoặc lần đọc mới hơn đã xong) trong lúc đọc → dữ liệu vừa đọc chỉ dùng cho request này
+        timelines.compute(key, (k, current) -> current != null && current.sequence > sequence ? current : loaded);
+        return timeline;
+    }
+
+    private void invalidate(Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            long sequence = invalidationSequence.incrementAndGet();
+            // Giữ dấu đã bỏ (không có dữ liệu) thay vì xóa hẳn để lần đọc đang chạy không ghi đè bằng dữ liệu cũ
+            CachedTimeline marker = new CachedTimeline(null, sequence, System.currentTimeMillis() + TIMELINE_TTL_MILLIS);
+            for (String key : keys) {
+                timelines.put(key, marker);
+            }
+        });
+    }
+
+    /**
+     * Tạo dòng thời gian từ các dòng của findTimelineRowsByUserId/findTimelineRowsByFamilyMemberId
+     */
+    private PatientTimelineDTO build(List<Object[]> appointmentRows, List<Object[]> doseRows) {
+        List<TimelineAppointmentDTO> appointments = new ArrayList<>(appointmentRows.size());
+        for (Object[] row : appointmentRows) {
+            appointments.add(new TimelineAppointmentDTO(
+                    (Long) row[0], (String) row[1], (Long) row[2], (String) row[3],
+                    (LocalDate) row[4], (LocalTime) row[5], (Long) row[6], (String) row[7], (String) row[8],
+                    (AppointmentStatus) row[9], (Integer) row[10], (String) row[11], (LocalDateTime) row[12],
+                    (Long) row[13], (String) row[14], (Long) row[15], (Long) row[16], (String) row[17]));
+        }
+        appointments.sort(APPOINTMENT_ORDER);
+
+        List<TimelineDoseDTO> doses = new ArrayList<>(doseRows.size());
+        List<TimelineDoseDTO> nextDoses = new ArrayList<>();
+        for (Object[] row : doseRows) {
+            TimelineDoseDTO dose = new TimelineDoseDTO(
+                    (Long) row[0], (Long) row[1], (String) row[2], (LocalDate) row[3], (LocalTime) row[4],
+                    (Integer) row[5], (Long) row[6], (String) row[7], (String) row[8], (String) row[9],
+                    (String) row[10], (LocalDate) row[11]);
+            doses.add(dose);
+            if (dose.getNextDoseDate() != null) {
+                nextDoses.add(dose);
+            }
+        }
+        doses.sort(DOSE_ORDER);
+        nextDoses.sort(Comparator.comparing(TimelineDoseDTO::getNextDoseDate));
+
+        return new PatientTimelineDTO(appointments, doses, nextDoses);
+    }
+
+    private static String userKey(Long userId) {
+        return "U" + userId;
+    }
+
+    private static String familyMemberKey(Long familyMemberId) {
+        return "F" + familyMemberId;
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Dòng thời gian đã đọc (sequence là invalidationSequence lúc bắt đầu đọc)
+     * hoặc dấu đã bỏ do có thay đổi (timeline = null, sequence là lần bỏ đó)
+     */
+    private static class CachedTimeline {
+        private final PatientTimelineDTO timeline;
+        private final long sequence;
+        private final long expiresAt;
+
+        private CachedTimeline(PatientTimelineDTO timeline, long sequence, long expiresAt) {
+            this.timeline = timeline;
+            this.sequence = sequence;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -23,6 +23,9 @@ public class PaymentService {
     @Autowired
     private PromotionRepository promotionRepository;
     
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+    
     /**
      * Tính giá cuối cùng của vaccine (sau khi áp dụng promotion)
      * @param vaccine Vaccine cần tính giá
@@ -94,15 +97,45 @@ public class PaymentService {
     }
     
     /**
-     * Cập nhật Payment sau khi thanh toán thành công qua VNPay
+     * Cập nhật Payment sau khi thanh toán thành công (VNPay hoặc tiền mặt)
+     * Chuyển trạng thái bằng câu UPDATE có điều kiện, nên callback trùng hoặc đồng thời chỉ được tính một lần
      * @param payment Payment cần cập nhật
      * @param transactionId Mã giao dịch từ VNPay
+     * @return true nếu payment vừa chuyển sang PAID, false nếu trạng thái hiện tại không cho phép
      */
-    public void markPaymentAsPaid(Payment payment, String transactionId) {
+    public boolean markPaymentAsPaid(Payment payment, String transactionId) {
+        PaymentStatus previousStatus = payment.getPaymentStatus();
+        LocalDateTime previousPaidAt = payment.getPaidAt();
+        LocalDateTime paidAt = LocalDateTime.now();
+        if (paymentRepository.transitionStatus(payment.getId(), PaymentStatus.PAID.allowedSources(),
+                PaymentStatus.PAID, transactionId, paidAt) == 0) {
+            return false;
+        }
         payment.setPaymentStatus(PaymentStatus.PAID);
         payment.setTransactionId(transactionId);
-        payment.setPaidAt(LocalDateTime.now());
-        paymentRepository.save(payment);
+        payment.setPaidAt(paidAt);
+        
+        // Cập nhật doanh thu trên dashboard
+        dashboardStatisticsService.recordPaymentPaid(payment, previousStatus, previousPaidAt);
+        return true;
+    }
+    
+    /**
+     * Đánh dấu Payment thất bại (VNPay trả về mã lỗi hoặc người dùng hủy thanh toán)
+     * @param payment Payment cần cập nhật
+     * @param transactionId Mã giao dịch từ VNPay (null nếu không có)
+     * @return true nếu payment vừa chuyển sang FAILED, false nếu trạng thái hiện tại không cho phép
+     */
+    public boolean markPaymentAsFailed(Payment payment, String transactionId) {
+        if (paymentRepository.transitionStatus(payment.getId(), PaymentStatus.FAILED.allowedSources(),
+                PaymentStatus.FAILED, transactionId, null) == 0) {
+            return false;
+        }
+        payment.setPaymentStatus(PaymentStatus.FAILED);
+        if (transactionId != null) {
+            payment.setTransactionId(transactionId);
+        }
+        return true;
     }
     
     /**
@@ -181,14 +214,27 @@ public class PaymentService {
     }
     
     /**
-     * Đánh dấu phí hủy đã được thanh toán
+     * Đánh dấu phí hủy đã được thanh toán (chỉ lần đầu, callback trùng không tính lại doanh thu)
+     * Phí hủy có thể được trả khi payment gốc đang PENDING, FAILED hoặc đã PAID
      * @param payment Payment chứa phí hủy
+     * @return true nếu phí hủy vừa được đánh dấu đã thanh toán
      */
-    public void markCancellationFeeAsPaid(Payment payment) {
+    public boolean markCancellationFeeAsPaid(Payment payment) {
+        PaymentStatus previousStatus = payment.getPaymentStatus();
+        LocalDateTime previousPaidAt = payment.getPaidAt();
+        LocalDateTime paidAt = LocalDateTime.now();
+        if (paymentRepository.markCancellationFeePaid(payment.getId(),
+                List.of(PaymentStatus.PENDING, PaymentStatus.FAILED, PaymentStatus.PAID),
+                PaymentStatus.PAID, paidAt) == 0) {
+            return false;
+        }
         payment.setCancellationFeePaid(true);
         payment.setPaymentStatus(PaymentStatus.PAID);
-        payment.setPaidAt(LocalDateTime.now());
-        paymentRepository.save(payment);
+        payment.setPaidAt(paidAt);
+        
+        // Cập nhật doanh thu trên dashboard
+        dashboardStatisticsService.recordPaymentPaid(payment, previousStatus, previousPaidAt);
+        return true;
     }
 }
 
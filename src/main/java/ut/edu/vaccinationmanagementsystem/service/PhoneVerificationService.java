@@ -22,7 +22,7 @@ public class PhoneVerificationService {
     private static final Logger log = LoggerFactory.getLogger(PhoneVerificationService.class);
     
     @Autowired
-    private SmsService smsService;
+    private SmsOutboxService smsOutboxService;
     
     @Autowired
     private UserRepository userRepository;
@@ -30,11 +30,16 @@ public class PhoneVerificationService {
     @Autowired
     private FamilyMemberRepository familyMemberRepository;
     
+    @Autowired
+    private AppointmentSearchIndexService appointmentSearchIndexService;
+    
     private static final int CODE_LENGTH = 6;
     private static final int CODE_EXPIRY_MINUTES = 5;
     
     /**
      * Gửi mã xác thực cho user
+     * Tin nhắn được đưa vào hàng đợi SMS cùng transaction với mã OTP và được gửi sau khi commit
+     * @throws SmsRateLimitException Nếu số điện thoại yêu cầu mã quá nhiều lần
      */
     @Transactional
     public void sendVerificationCodeForUser(Long userId, String phoneNumber) throws SmsException {
@@ -47,6 +52,11 @@ public class PhoneVerificationService {
         // Normalize số điện thoại mới
         String normalizedPhone = normalizePhoneNumber(phoneNumber);
         
+        // Đưa SMS vào hàng đợi trước khi lưu mã (vượt giới hạn thì không đổi mã đang có)
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES);
+        smsOutboxService.enqueue(normalizedPhone, verificationMessage(code),
+            SmsOutboxService.PURPOSE_PHONE_VERIFICATION, expiresAt);
+        
         // Kiểm tra xem số điện thoại có thay đổi không
         String currentNormalizedPhone = user.getPhoneNumber() != null 
             ? normalizePhoneNumber(user.getPhoneNumber()) 
@@ -63,22 +73,19 @@ public class PhoneVerificationService {
         // Lưu số điện thoại và mã OTP mới
         user.setPhoneNumber(normalizedPhone);
         user.setPhoneVerificationCode(code);
-        user.setPhoneVerificationExpiresAt(LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES));
+        user.setPhoneVerificationExpiresAt(expiresAt);
         userRepository.save(user);
         
-        // Gửi SMS
-        String message = String.format(
-            "Ma xac thuc cua ban la: %s. Ma co hieu luc trong %d phut. VacciCare",
-            code, CODE_EXPIRY_MINUTES
-        );
-        
-        smsService.sendSms(phoneNumber, message);
+        // Cập nhật bảng tra cứu lịch hẹn của lễ tân nếu số điện thoại thay đổi
+        if (phoneNumberChanged) {
+            appointmentSearchIndexService.reindexUser(userId);
+        }
         
-        log.info("Verification code sent to user {} phone: {}", userId, phoneNumber);
+        log.info("Verification code queued for user {} phone: {}", userId, phoneNumber);
     }
     
     /**
-     * Gửi mã xác thực cho family member
+     * Gửi mã xác thực cho family member (gửi qua hàng đợi SMS như sendVerificationCodeForUser)
      */
     @Transactional
     public void sendVerificationCodeForFamilyMember(Long familyMemberId, String phoneNumber) throws SmsException {
@@ -91,6 +98,11 @@ public class PhoneVerificationService {
         // Normalize số điện thoại mới
         String normalizedPhone = normalizePhoneNumber(phoneNumber);
         
+        // Đưa SMS vào hàng đợi trước khi lưu mã (vượt giới hạn thì không đổi mã đang có)
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES);
+        smsOutboxService.enqueue(normalizedPhone, verificationMessage(code),
+            SmsOutboxService.PURPOSE_PHONE_VERIFICATION, expiresAt);
+        
         // Kiểm tra xem số điện thoại có thay đổi không
         String currentNormalizedPhone = familyMember.getPhoneNumber() != null 
             ? normalizePhoneNumber(familyMember.getPhoneNumber()) 
@@ -107,18 +119,15 @@ public class PhoneVerificationService {
         // Lưu số điện thoại và mã OTP mới
         familyMember.setPhoneNumber(normalizedPhone);
         familyMember.setPhoneVerificationCode(code);
-        familyMember.setPhoneVerificationExpiresAt(LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES));
+        familyMember.setPhoneVerificationExpiresAt(expiresAt);
         familyMemberRepository.save(familyMember);
         
-        // Gửi SMS
-        String message = String.format(
-            "Ma xac thuc cua ban la: %s. Ma co hieu luc trong %d phut. VacciCare",
-            code, CODE_EXPIRY_MINUTES
-        );
-        
-        smsService.sendSms(phoneNumber, message);
+        // Cập nhật bảng tra cứu lịch hẹn của lễ tân nếu số điện thoại thay đổi
+        if (phoneNumberChanged) {
+            appointmentSearchIndexService.reindexFamilyMember(familyMemberId);
+        }
         
-        log.info("Verification code sent to family member {} phone: {}", familyMemberId, phoneNumber);
+        log.info("Verification code queued for family member {} phone: {}", familyMemberId, phoneNumber);
     }
     
     /**
@@ -268,6 +277,16 @@ public class PhoneVerificationService {
         return phoneNumber.replaceAll("[\\s\\-\\(\\)]", "").trim();
     }
     
+    /**
+     * Nội dung SMS chứa mã OTP
+     */
+    private String verificationMessage(String code) {
+        return String.format(
+            "Ma xac thuc cua ban la: %s. Ma co hieu luc trong %d phut. VacciCare",
+            code, CODE_EXPIRY_MINUTES
+        );
+    }
+    
     /**
      * Generate mã OTP 6 số
      */
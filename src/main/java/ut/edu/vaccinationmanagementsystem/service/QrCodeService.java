@@ -0,0 +1,137 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ut.edu.vaccinationmanagementsystem.service.qr.QrCodeRenderer;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tạo ảnh QR code của booking code (PNG, SVG) và cache ảnh đã tạo
+ * - Booking code không đổi nên ảnh của một booking code luôn giống nhau: chỉ encode/vẽ lần đầu, các lần sau trả bytes từ cache
+ * - Cache LRU giới hạn theo tổng số byte (app.qr-cache.max-bytes), bỏ ảnh ít được xem nhất khi đầy
+ * - ETag mạnh tính từ nội dung ảnh để trình duyệt gửi lại If-None-Match và nhận 304
+ */
+@Service
+public class QrCodeService {
+
+    /** Kích thước ảnh QR code (pixel) */
+    public static final int QR_SIZE = 200;
+
+    private final LinkedHashMap<String, RenderedQrCode> cache = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long cachedBytes;
+
+    @Value("${app.qr-cache.max-bytes:4194304}")
+    private long maxBytes;
+
+    @Autowired
+    private List<QrCodeRenderer> renderers;
+
+    /**
+     * Lấy ảnh QR code của booking code
+     * @param format Định dạng ảnh (png, svg)
+     * @throws IllegalArgumentException nếu định dạng không được hỗ trợ
+     */
+    public RenderedQrCode getQrCode(String bookingCode, String format) throws WriterException, IOException {
+        QrCodeRenderer renderer = findRenderer(format);
+        String key = renderer.format() + ":" + bookingCode;
+        synchronized (cache) {
+            RenderedQrCode cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Vẽ ngoài khóa để các request khác vẫn đọc được cache
+        byte[] bytes = renderer.render(encode(bookingCode), QR_SIZE);
+        RenderedQrCode rendered = new RenderedQrCode(bytes, renderer.contentType(),
+                "\"qr-" + renderer.format() + "-" + hash(bytes) + "\"");
+        synchronized (cache) {
+            RenderedQrCode existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            cache.put(key, rendered);
+            cachedBytes += bytes.length;
+            Iterator<RenderedQrCode> eldest = cache.values().iterator();
+            while (cachedBytes > maxBytes && cache.size() > 1) {
+                cachedBytes -= eldest.next().getBytes().length;
+                eldest.remove();
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Encode nội dung (booking code, URL xác minh...) thành ma trận module (1 bit = 1 module, lề 1 module)
+     * Việc phóng to do renderer thực hiện
+     */
+    public BitMatrix encode(String content) throws WriterException {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.MARGIN, 1);
+        return new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, 0, 0, hints);
+    }
+
+    private QrCodeRenderer findRenderer(String format) {
+        for (QrCodeRenderer renderer : renderers) {
+            if (renderer.format().equalsIgnoreCase(format)) {
+                return renderer;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported QR code format: " + format);
+    }
+
+    private String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Ảnh QR code đã tạo (không thay đổi sau khi tạo)
+     */
+    public static final class RenderedQrCode {
+        private final byte[] bytes;
+        private final String contentType;
+        private final String etag;
+
+        RenderedQrCode(byte[] bytes, String contentType, String etag) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.etag = etag;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Giới hạn tốc độ gửi của một kênh trên instance này (các lượt gửi cách nhau đều 1/permitsPerSecond giây)
+ */
+class RateLimiter {
+    private long nextFreeAt = System.nanoTime();
+
+    void acquire(int permitsPerSecond) throws InterruptedException {
+        if (permitsPerSecond <= 0) {
+            return; // Không giới hạn
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextFreeAt);
+            nextFreeAt = slot + interval;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
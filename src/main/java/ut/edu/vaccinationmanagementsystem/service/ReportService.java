@@ -6,21 +6,35 @@ import org.springframework.transaction.annotation.Transactional;
 import ut.edu.vaccinationmanagementsystem.entity.*;
 import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
 import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
 import ut.edu.vaccinationmanagementsystem.repository.*;
+import ut.edu.vaccinationmanagementsystem.service.export.ReportRowWriter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service xử lý logic báo cáo và thống kê
+ * Các báo cáo được tính bằng truy vấn GROUP BY trong database (lọc ngày ngay trong SQL),
+ * không nạp toàn bộ hồ sơ tiêm/lịch hẹn vào bộ nhớ
  */
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class ReportService {
     
+    /** Ngày bắt đầu mặc định khi không truyền startDate */
+    private static final LocalDate MIN_REPORT_DATE = LocalDate.of(1900, 1, 1);
+    
+    /** Ngày kết thúc mặc định khi không truyền endDate */
+    private static final LocalDate MAX_REPORT_DATE = LocalDate.of(9999, 12, 31);
+    
+    /** Số dòng giữa hai lần đẩy dữ liệu xuống client khi xuất báo cáo */
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+    
     @Autowired
     private VaccinationRecordRepository vaccinationRecordRepository;
     
@@ -36,85 +50,182 @@ public class ReportService {
     @Autowired
     private PaymentRepository paymentRepository;
     
-    @Autowired
-    private AppointmentSlotRepository appointmentSlotRepository;
-    
     /**
      * Báo cáo tiêm chủng
      */
     public Map<String, Object> getVaccinationReport(LocalDate startDate, LocalDate endDate) {
-        List<VaccinationRecord> records = vaccinationRecordRepository.findAll();
-        
-        // Filter theo ngày nếu có
-        if (startDate != null || endDate != null) {
-            records = records.stream()
-                    .filter(record -> {
-                        if (record.getInjectionDate() == null) return false;
-                        if (startDate != null && record.getInjectionDate().isBefore(startDate)) return false;
-                        if (endDate != null && record.getInjectionDate().isAfter(endDate)) return false;
-                        return true;
-                    })
-                    .collect(Collectors.toList());
-        }
+        LocalDate from = startDate != null ? startDate : MIN_REPORT_DATE;
+        LocalDate to = endDate != null ? endDate : MAX_REPORT_DATE;
         
-        // Thống kê theo vaccine
-        Map<Long, Map<String, Object>> vaccineStats = new HashMap<>();
-        for (VaccinationRecord record : records) {
-            Long vaccineId = record.getVaccine().getId();
-            vaccineStats.putIfAbsent(vaccineId, new HashMap<>());
-            Map<String, Object> stats = vaccineStats.get(vaccineId);
-            
-            stats.put("vaccineId", vaccineId);
-            stats.put("vaccineName", record.getVaccine().getName());
-            stats.put("count", ((Integer) stats.getOrDefault("count", 0)) + 1);
+        // Thống kê theo vaccine và mũi tiêm
+        Map<Long, Map<String, Object>> vaccineStats = new LinkedHashMap<>();
+        for (Object[] row : vaccinationRecordRepository.countGroupByVaccineAndDose(from, to)) {
+            Long vaccineId = (Long) row[0];
+            int count = ((Number) row[3]).intValue();
+            Map<String, Object> stats = vaccineStats.computeIfAbsent(vaccineId, id -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("vaccineId", id);
+                map.put("vaccineName", row[1]);
+                map.put("count", 0);
+                map.put("doseStats", new HashMap<Integer, Integer>());
+                return map;
+            });
+            stats.put("count", (Integer) stats.get("count") + count);
             
-            // Thống kê theo mũi tiêm
             @SuppressWarnings("unchecked")
-            Map<Integer, Integer> doseStats = (Map<Integer, Integer>) stats.getOrDefault("doseStats", new HashMap<>());
-            Integer doseNumber = record.getDoseNumber();
-            doseStats.put(doseNumber, doseStats.getOrDefault(doseNumber, 0) + 1);
-            stats.put("doseStats", doseStats);
+            Map<Integer, Integer> doseStats = (Map<Integer, Integer>) stats.get("doseStats");
+            doseStats.merge((Integer) row[2], count, Integer::sum);
         }
         
         // Thống kê theo trung tâm
-        Map<Long, Map<String, Object>> centerStats = new HashMap<>();
-        for (VaccinationRecord record : records) {
-            if (record.getAppointment() != null && record.getAppointment().getCenter() != null) {
-                Long centerId = record.getAppointment().getCenter().getId();
-                centerStats.putIfAbsent(centerId, new HashMap<>());
-                Map<String, Object> stats = centerStats.get(centerId);
-                
-                stats.put("centerId", centerId);
-                stats.put("centerName", record.getAppointment().getCenter().getName());
-                stats.put("count", ((Integer) stats.getOrDefault("count", 0)) + 1);
-            }
+        List<Map<String, Object>> centerStats = new ArrayList<>();
+        for (Object[] row : vaccinationRecordRepository.countGroupByCenter(from, to)) {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("centerId", row[0]);
+            stats.put("centerName", row[1]);
+            stats.put("count", ((Number) row[2]).intValue());
+            centerStats.add(stats);
         }
         
         // Thống kê theo ngày
-        Map<LocalDate, Integer> dailyStats = records.stream()
-                .filter(record -> record.getInjectionDate() != null)
-                .collect(Collectors.groupingBy(
-                        VaccinationRecord::getInjectionDate,
-                        Collectors.collectingAndThen(Collectors.counting(), Long::intValue)
-                ));
+        Map<LocalDate, Integer> dailyStats = new TreeMap<>();
+        int totalInjections = 0;
+        for (Object[] row : vaccinationRecordRepository.countGroupByInjectionDate(from, to)) {
+            int count = ((Number) row[1]).intValue();
+            dailyStats.put((LocalDate) row[0], count);
+            totalInjections += count;
+        }
         
         Map<String, Object> report = new HashMap<>();
-        report.put("totalInjections", records.size());
+        report.put("totalInjections", totalInjections);
         report.put("startDate", startDate);
         report.put("endDate", endDate);
         report.put("vaccineStatistics", new ArrayList<>(vaccineStats.values()));
-        report.put("centerStatistics", new ArrayList<>(centerStats.values()));
+        report.put("centerStatistics", centerStats);
         report.put("dailyStatistics", dailyStats);
         
         return report;
     }
     
+    /**
+     * Xuất chi tiết từng hồ sơ tiêm trong khoảng ngày (streaming từ database thẳng ra writer)
+     * Bộ nhớ sử dụng không phụ thuộc số dòng, dữ liệu được đẩy xuống client sau mỗi EXPORT_FLUSH_ROWS dòng
+     * @return Số dòng đã xuất
+     */
+    public long exportVaccinationRecords(LocalDate startDate, LocalDate endDate, ReportRowWriter writer) throws IOException {
+        LocalDate from = startDate != null ? startDate : MIN_REPORT_DATE;
+        LocalDate to = endDate != null ? endDate : MAX_REPORT_DATE;
+        
+        writer.writeHeader("recordId", "injectionDate", "injectionTime", "vaccineName", "doseNumber", "batchNumber",
+                "certificateNumber", "userId", "fullName", "dayOfBirth", "centerName", "nurseName", "nextDoseDate");
+        long rowCount;
+        try (Stream<Object[]> rows = vaccinationRecordRepository.streamRecordsForExport(from, to)) {
+            rowCount = writeRows(rows, writer);
+        }
+        writer.finish();
+        return rowCount;
+    }
+    
+    /**
+     * Xuất báo cáo tiêm chủng theo ngày, vaccine, mũi và trung tâm (streaming)
+     * @return Số dòng đã xuất
+     */
+    public long exportDailyVaccinationReport(LocalDate startDate, LocalDate endDate, ReportRowWriter writer) throws IOException {
+        LocalDate from = startDate != null ? startDate : MIN_REPORT_DATE;
+        LocalDate to = endDate != null ? endDate : MAX_REPORT_DATE;
+        
+        writer.writeHeader("date", "vaccineId", "vaccineName", "doseNumber", "centerId", "centerName", "count");
+        long rowCount;
+        try (Stream<Object[]> rows = vaccinationRecordRepository.streamDailyGroupByVaccineDoseAndCenter(from, to)) {
+            rowCount = writeRows(rows, writer);
+        }
+        writer.finish();
+        return rowCount;
+    }
+    
+    /**
+     * Xuất báo cáo vaccine (mỗi vaccine một dòng)
+     * @return Số dòng đã xuất
+     */
+    public long exportVaccineReport(ReportRowWriter writer) throws IOException {
+        writer.writeHeader("vaccineId", "vaccineName", "price", "dosesRequired", "daysBetweenDoses",
+                "totalInjections", "totalUsers", "doseCounts", "revenue");
+        long rowCount = 0;
+        for (Object item : (List<?>) getVaccineReport().get("vaccines")) {
+            Map<?, ?> vaccine = (Map<?, ?>) item;
+            String doseCounts = ((Map<?, ?>) vaccine.get("doseCounts")).entrySet().stream()
+                    .map(entry -> "Mũi " + entry.getKey() + ": " + entry.getValue())
+                    .collect(Collectors.joining("; "));
+            writer.writeRow(vaccine.get("vaccineId"), vaccine.get("vaccineName"), vaccine.get("price"),
+                    vaccine.get("dosesRequired"), vaccine.get("daysBetweenDoses"), vaccine.get("totalInjections"),
+                    vaccine.get("totalUsers"), doseCounts, vaccine.get("revenue"));
+            rowCount++;
+        }
+        writer.finish();
+        return rowCount;
+    }
+    
+    /**
+     * Xuất báo cáo khách hàng (mỗi khách hàng một dòng)
+     * @return Số dòng đã xuất
+     */
+    public long exportCustomerReport(LocalDate startDate, LocalDate endDate, ReportRowWriter writer) throws IOException {
+        writer.writeHeader("userId", "fullName", "email", "phoneNumber", "status", "createdAt",
+                "totalInjections", "uniqueVaccines", "totalAppointments", "totalSpent");
+        long rowCount = 0;
+        for (Object item : (List<?>) getCustomerReport(startDate, endDate).get("customers")) {
+            Map<?, ?> customer = (Map<?, ?>) item;
+            writer.writeRow(customer.get("userId"), customer.get("fullName"), customer.get("email"),
+                    customer.get("phoneNumber"), customer.get("status"), customer.get("createdAt"),
+                    customer.get("totalInjections"), customer.get("uniqueVaccines"),
+                    customer.get("totalAppointments"), customer.get("totalSpent"));
+            if (++rowCount % EXPORT_FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.finish();
+        return rowCount;
+    }
+    
+    /**
+     * Ghi lần lượt các dòng từ Stream ra writer, đẩy dữ liệu xuống client theo từng đoạn
+     */
+    private long writeRows(Stream<Object[]> rows, ReportRowWriter writer) throws IOException {
+        long rowCount = 0;
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.writeRow(iterator.next());
+            if (++rowCount % EXPORT_FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        return rowCount;
+    }
+    
     /**
      * Báo cáo vaccine
      */
     public Map<String, Object> getVaccineReport() {
         List<Vaccine> vaccines = vaccineRepository.findAll();
-        List<VaccinationRecord> records = vaccinationRecordRepository.findAll();
+        
+        // Số lần tiêm và số user đã tiêm theo vaccine
+        Map<Long, Object[]> injectionCounts = new HashMap<>();
+        for (Object[] row : vaccinationRecordRepository.countInjectionsAndUsersGroupByVaccine()) {
+            injectionCounts.put((Long) row[0], row);
+        }
+        
+        // Thống kê theo mũi tiêm
+        Map<Long, Map<Integer, Long>> doseCountsByVaccine = new HashMap<>();
+        for (Object[] row : vaccinationRecordRepository.countGroupByVaccineAndDose(MIN_REPORT_DATE, MAX_REPORT_DATE)) {
+            doseCountsByVaccine.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .put((Integer) row[2], ((Number) row[3]).longValue());
+        }
+        
+        // Doanh thu từ các appointment đã hoàn thành và đã thanh toán
+        Map<Long, BigDecimal> revenueByVaccine = new HashMap<>();
+        for (Object[] row : paymentRepository.sumAmountGroupByVaccine(PaymentStatus.PAID, AppointmentStatus.COMPLETED)) {
+            revenueByVaccine.put((Long) row[0], toBigDecimal(row[1]));
+        }
         
         List<Map<String, Object>> vaccineReports = vaccines.stream().map(vaccine -> {
             Map<String, Object> report = new HashMap<>();
@@ -124,42 +235,11 @@ public class ReportService {
             report.put("dosesRequired", vaccine.getDosesRequired());
             report.put("daysBetweenDoses", vaccine.getDaysBetweenDoses());
             
-            // Đếm số lần tiêm vaccine này
-            long injectionCount = records.stream()
-                    .filter(record -> record.getVaccine().getId().equals(vaccine.getId()))
-                    .count();
-            report.put("totalInjections", injectionCount);
-            
-            // Đếm số user đã tiêm vaccine này
-            long userCount = records.stream()
-                    .filter(record -> record.getVaccine().getId().equals(vaccine.getId()))
-                    .map(record -> record.getUser().getId())
-                    .distinct()
-                    .count();
-            report.put("totalUsers", userCount);
-            
-            // Thống kê theo mũi tiêm
-            Map<Integer, Long> doseCounts = records.stream()
-                    .filter(record -> record.getVaccine().getId().equals(vaccine.getId()))
-                    .collect(Collectors.groupingBy(
-                            VaccinationRecord::getDoseNumber,
-                            Collectors.counting()
-                    ));
-            report.put("doseCounts", doseCounts);
-            
-            // Tính doanh thu từ vaccine này
-            BigDecimal revenue = appointmentRepository.findAll().stream()
-                    .filter(apt -> apt.getVaccine() != null && apt.getVaccine().getId().equals(vaccine.getId()))
-                    .filter(apt -> apt.getStatus() == AppointmentStatus.COMPLETED)
-                    .map(apt -> {
-                        Optional<Payment> paymentOpt = paymentRepository.findByAppointment(apt);
-                        if (paymentOpt.isPresent() && paymentOpt.get().getPaymentStatus() == PaymentStatus.PAID) {
-                            return paymentOpt.get().getAmount();
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            report.put("revenue", revenue);
+            Object[] counts = injectionCounts.get(vaccine.getId());
+            report.put("totalInjections", counts != null ? ((Number) counts[1]).longValue() : 0L);
+            report.put("totalUsers", counts != null ? ((Number) counts[2]).longValue() : 0L);
+            report.put("doseCounts", doseCountsByVaccine.getOrDefault(vaccine.getId(), new HashMap<>()));
+            report.put("revenue", revenueByVaccine.getOrDefault(vaccine.getId(), BigDecimal.ZERO));
             
             return report;
         }).collect(Collectors.toList());
@@ -175,9 +255,23 @@ public class ReportService {
      * Báo cáo khách hàng
      */
     public Map<String, Object> getCustomerReport(LocalDate startDate, LocalDate endDate) {
-        List<User> customers = userRepository.findAll().stream()
-                .filter(user -> user.getRole() == ut.edu.vaccinationmanagementsystem.entity.enums.Role.CUSTOMER)
-                .collect(Collectors.toList());
+        LocalDate from = startDate != null ? startDate : MIN_REPORT_DATE;
+        LocalDate to = endDate != null ? endDate : MAX_REPORT_DATE;
+        
+        List<User> customers = userRepository.findByRole(Role.CUSTOMER);
+        
+        // Số lần tiêm và số vaccine khác nhau theo khách hàng
+        Map<Long, Object[]> injectionCounts = new HashMap<>();
+        for (Object[] row : vaccinationRecordRepository.countGroupByUserWithRole(Role.CUSTOMER, from, to)) {
+            injectionCounts.put((Long) row[0], row);
+        }
+        
+        // Số appointments và tổng chi tiêu theo khách hàng
+        Map<Long, Object[]> appointmentCounts = new HashMap<>();
+        for (Object[] row : appointmentRepository.countAndSumPaidGroupByUserWithRole(
+                Role.CUSTOMER, PaymentStatus.PAID, from, to)) {
+            appointmentCounts.put((Long) row[0], row);
+        }
         
         List<Map<String, Object>> customerReports = customers.stream().map(customer -> {
             Map<String, Object> report = new HashMap<>();
@@ -188,60 +282,13 @@ public class ReportService {
             report.put("status", customer.getStatus().name());
             report.put("createdAt", customer.getCreateAt());
             
-            // Đếm số lần tiêm
-            List<VaccinationRecord> customerRecords = vaccinationRecordRepository.findAll().stream()
-                    .filter(record -> record.getUser().getId().equals(customer.getId()))
-                    .filter(record -> {
-                        if (startDate != null && record.getInjectionDate() != null && 
-                            record.getInjectionDate().isBefore(startDate)) return false;
-                        if (endDate != null && record.getInjectionDate() != null && 
-                            record.getInjectionDate().isAfter(endDate)) return false;
-                        return true;
-                    })
-                    .collect(Collectors.toList());
-            report.put("totalInjections", customerRecords.size());
-            
-            // Đếm số vaccine khác nhau đã tiêm
-            long uniqueVaccines = customerRecords.stream()
-                    .map(record -> record.getVaccine().getId())
-                    .distinct()
-                    .count();
-            report.put("uniqueVaccines", uniqueVaccines);
+            Object[] injections = injectionCounts.get(customer.getId());
+            report.put("totalInjections", injections != null ? ((Number) injections[1]).intValue() : 0);
+            report.put("uniqueVaccines", injections != null ? ((Number) injections[2]).longValue() : 0L);
             
-            // Đếm số appointments
-            long appointmentCount = appointmentRepository.findAll().stream()
-                    .filter(apt -> (apt.getBookedByUser() != null && apt.getBookedByUser().getId().equals(customer.getId())) ||
-                                  (apt.getBookedForUser() != null && apt.getBookedForUser().getId().equals(customer.getId())))
-                    .filter(apt -> {
-                        if (startDate != null && apt.getAppointmentDate() != null && 
-                            apt.getAppointmentDate().isBefore(startDate)) return false;
-                        if (endDate != null && apt.getAppointmentDate() != null && 
-                            apt.getAppointmentDate().isAfter(endDate)) return false;
-                        return true;
-                    })
-                    .count();
-            report.put("totalAppointments", appointmentCount);
-            
-            // Tính tổng chi tiêu
-            BigDecimal totalSpent = appointmentRepository.findAll().stream()
-                    .filter(apt -> (apt.getBookedByUser() != null && apt.getBookedByUser().getId().equals(customer.getId())) ||
-                                  (apt.getBookedForUser() != null && apt.getBookedForUser().getId().equals(customer.getId())))
-                    .filter(apt -> {
-                        if (startDate != null && apt.getAppointmentDate() != null && 
-                            apt.getAppointmentDate().isBefore(startDate)) return false;
-                        if (endDate != null && apt.getAppointmentDate() != null && 
-                            apt.getAppointmentDate().isAfter(endDate)) return false;
-                        return true;
-                    })
-                    .map(apt -> {
-                        Optional<Payment> paymentOpt = paymentRepository.findByAppointment(apt);
-                        if (paymentOpt.isPresent() && paymentOpt.get().getPaymentStatus() == PaymentStatus.PAID) {
-                            return paymentOpt.get().getAmount();
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            report.put("totalSpent", totalSpent);
+            Object[] appointments = appointmentCounts.get(customer.getId());
+            report.put("totalAppointments", appointments != null ? ((Number) appointments[1]).longValue() : 0L);
+            report.put("totalSpent", appointments != null ? toBigDecimal(appointments[2]) : BigDecimal.ZERO);
             
             return report;
         }).collect(Collectors.toList());
@@ -254,5 +301,11 @@ public class ReportService {
         
         return report;
     }
+    
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
 }
-
@@ -0,0 +1,48 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Nâng cấp schema của database đã có mà spring.jpa.hibernate.ddl-auto=update không tự làm
+ * (ddl-auto=update chỉ thêm bảng/cột mới, không bỏ ràng buộc NOT NULL của cột đã có)
+ */
+@Service
+public class SchemaUpgradeService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chạy khi ứng dụng khởi động, mỗi bước chỉ thay đổi schema nếu database còn ở trạng thái cũ
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void upgrade() {
+        // Xóa tài khoản y tá giữ lại hồ sơ tiêm và bỏ liên kết y tá (UserPurgeService)
+        makeNullable("vaccination_records", "nurse_id", "BIGINT");
+    }
+
+    /**
+     * Bỏ ràng buộc NOT NULL của một cột (giữ nguyên foreign key)
+     */
+    private void makeNullable(String table, String column, String columnType) {
+        try {
+            List<String> nullable = jdbcTemplate.queryForList(
+                    "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                    String.class, table, column);
+            if (nullable.isEmpty() || !"NO".equalsIgnoreCase(nullable.get(0))) {
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY " + column + " " + columnType + " NULL");
+            System.out.println("Schema upgrade: " + table + "." + column + " is now nullable");
+        } catch (Exception e) {
+            System.err.println("Failed to make " + table + "." + column + " nullable: " + e.getMessage());
+        }
+    }
+}
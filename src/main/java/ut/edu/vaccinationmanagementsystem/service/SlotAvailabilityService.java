@@ -0,0 +1,377 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.dto.AvailableSlotDTO;
+import ut.edu.vaccinationmanagementsystem.dto.SlotAvailabilityDayDTO;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentSlotRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bảng chỗ trống của slot theo trung tâm và ngày, giữ trong bộ nhớ cho các API /api/appointment-slots/available/...
+ * - Mỗi ngày của một trung tâm được đọc bằng một câu truy vấn chỉ lấy các cột cần thiết (không load entity
+ *   AppointmentSlot cùng center/room) và lưu dạng mảng gọn: slot id, giờ bắt đầu/kết thúc, sức chứa, số lượt đặt
+ * - Giữ chỗ/trả chỗ được cập nhật thẳng vào bảng sau khi transaction commit; admin tạo/sửa/xóa slot thì ngày đó được đọc lại
+ * - Dữ liệu mỗi ngày chỉ sống DAY_TTL_MILLIS để nhận thay đổi từ instance khác
+ */
+@Service
+public class SlotAvailabilityService {
+
+    /** Thời gian sống của dữ liệu một ngày trong bộ nhớ */
+    private static final long DAY_TTL_MILLIS = 30_000;
+
+    /** Khoảng ngày dài hơn giới hạn này được đọc thẳng từ database, không giữ trong bộ nhớ */
+    public static final int MAX_CACHED_RANGE_DAYS = 93;
+
+    private final ConcurrentMap<Long, CenterAvailability> centers = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AppointmentSlotRepository appointmentSlotRepository;
+
+    /**
+     * Slot còn trống của một trung tâm trong khoảng ngày, sắp xếp theo ngày và giờ bắt đầu
+     */
+    public List<AvailableSlotDTO> getAvailableSlots(Long centerId, LocalDate startDate, LocalDate endDate) {
+        List<AvailableSlotDTO> result = new ArrayList<>();
+        for (DayAvailability day : getDays(centerId, startDate, endDate)) {
+            day.addAvailableSlots(centerId, 0, Integer.MAX_VALUE, result);
+        }
+        return result;
+    }
+
+    /**
+     * Slot còn trống của một trung tâm trong một ngày, nằm trọn trong khoảng [startTime, endTime]
+     */
+    public List<AvailableSlotDTO> getAvailableSlots(Long centerId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        List<AvailableSlotDTO> result = new ArrayList<>();
+        for (DayAvailability day : getDays(centerId, date, date)) {
+            day.addAvailableSlots(centerId, startTime.toSecondOfDay(), endTime.toSecondOfDay(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Tổng hợp chỗ trống theo từng ngày trong khoảng (lịch tháng), mỗi ngày một phần tử kể cả ngày không có slot
+     */
+    public List<SlotAvailabilityDayDTO> getDailySummary(Long centerId, LocalDate startDate, LocalDate endDate) {
+        List<SlotAvailabilityDayDTO> result = new ArrayList<>();
+        for (DayAvailability day : getDays(centerId, startDate, endDate)) {
+            result.add(day.summary());
+        }
+        return result;
+    }
+
+    /**
+     * Slot còn trống của tất cả trung tâm (đọc từ database, không giới hạn ngày nên không giữ trong bộ nhớ)
+     */
+    public List<AvailableSlotDTO> getAllAvailableSlots() {
+        return toAvailableSlots(appointmentSlotRepository.findAvailableSlotRows());
+    }
+
+    /**
+     * Slot còn trống của một trung tâm ở mọi ngày (đọc từ database)
+     */
+    public List<AvailableSlotDTO> getAvailableSlotsByCenter(Long centerId) {
+        return toAvailableSlots(appointmentSlotRepository.findAvailableSlotRowsByCenter(centerId));
+    }
+
+    /**
+     * Ghi nhận một chỗ vừa được giữ trong slot (áp dụng khi transaction hiện tại commit)
+     */
+    public void slotReserved(AppointmentSlot slot) {
+        afterCommit(() -> applyBookingChange(slot, true));
+    }
+
+    /**
+     * Ghi nhận một chỗ vừa được trả lại trong slot (áp dụng khi transaction hiện tại commit)
+     */
+    public void slotReleased(AppointmentSlot slot) {
+        afterCommit(() -> applyBookingChange(slot, false));
+    }
+
+    /**
+     * Đọc lại ngày của trung tâm ở lần truy cập sau (khi admin tạo/sửa/xóa slot)
+     */
+    public void invalidate(Long centerId, LocalDate date) {
+        if (centerId == null || date == null) {
+            return;
+        }
+        afterCommit(() -> {
+            CenterAvailability center = centers.get(centerId);
+            if (center != null) {
+                center.version.incrementAndGet();
+                center.days.remove(date);
+            }
+        });
+    }
+
+    /**
+     * Đọc lại mọi ngày của trung tâm ở lần truy cập sau (khi tạo slot hàng loạt)
+     */
+    public void invalidateCenter(Long centerId) {
+        afterCommit(() -> centers.remove(centerId));
+    }
+
+    /**
+     * Xóa toàn bộ bảng chỗ trống (khi cập nhật availability hàng loạt)
+     */
+    public void invalidateAll() {
+        afterCommit(centers::clear);
+    }
+
+    /**
+     * Chạy mỗi 5 phút: bỏ các ngày đã hết hạn để bảng không lớn dần theo số ngày được xem
+     */
+    @Scheduled(fixedDelay = 300_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (CenterAvailability center : centers.values()) {
+            center.days.values().removeIf(day -> day.isExpired(now));
+        }
+        centers.values().removeIf(center -> center.days.isEmpty());
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Dữ liệu từng ngày trong khoảng [startDate, endDate]; các ngày chưa có hoặc đã hết hạn được đọc bằng một câu truy vấn
+     */
+    private List<DayAvailability> getDays(Long centerId, LocalDate startDate, LocalDate endDate) {
+        long dayCount = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (dayCount > MAX_CACHED_RANGE_DAYS) {
+            return new ArrayList<>(load(centerId, startDate, endDate, 0).values());
+        }
+
+        CenterAvailability center = centers.computeIfAbsent(centerId, id -> new CenterAvailability());
+        long now = System.currentTimeMillis();
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            DayAvailability day = center.days.get(date);
+            if (day == null || day.isExpired(now)) {
+                if (firstMissing == null) {
+                    firstMissing = date;
+                }
+                lastMissing = date;
+            }
+        }
+
+        Map<LocalDate, DayAvailability> loaded = Map.of();
+        if (firstMissing != null) {
+            long version = center.version.get();
+            loaded = load(centerId, firstMissing, lastMissing, now + DAY_TTL_MILLIS);
+            for (DayAvailability day : loaded.values()) {
+                // Có giữ chỗ/trả chỗ trong lúc đọc → dữ liệu vừa đọc có thể đã cũ, chỉ dùng cho request này
+                center.days.compute(day.date, (date, current) -> center.version.get() == version ? day : current);
+            }
+        }
+
+        List<DayAvailability> days = new ArrayList<>((int) dayCount);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            DayAvailability day = loaded.get(date);
+            if (day == null) {
+                day = center.days.get(date);
+            }
+            if (day != null) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Đọc các slot của trung tâm trong khoảng ngày, mỗi ngày (kể cả ngày không có slot) một DayAvailability
+     */
+    private Map<LocalDate, DayAvailability> load(Long centerId, LocalDate startDate, LocalDate endDate, long expiresAt) {
+        Map<LocalDate, List<Object[]>> rowsByDate = new HashMap<>();
+        for (Object[] row : appointmentSlotRepository.findAvailabilityRows(centerId, startDate, endDate)) {
+            rowsByDate.computeIfAbsent((LocalDate) row[1], date -> new ArrayList<>()).add(row);
+        }
+        Map<LocalDate, DayAvailability> days = new LinkedHashMap<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            days.put(date, new DayAvailability(date, rowsByDate.getOrDefault(date, List.of()), expiresAt));
+        }
+        return days;
+    }
+
+    private void applyBookingChange(AppointmentSlot slot, boolean reserved) {
+        if (slot == null || slot.getId() == null || slot.getCenter() == null || slot.getDate() == null) {
+            return;
+        }
+        CenterAvailability center = centers.get(slot.getCenter().getId());
+        if (center == null) {
+            return;
+        }
+        center.version.incrementAndGet();
+        center.days.computeIfPresent(slot.getDate(), (date, day) -> day.withBookingChange(slot.getId(), reserved));
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Chuyển các dòng [id, centerId, date, startTime, endTime, maxCapacity, currentBookings] thành DTO
+     */
+    private List<AvailableSlotDTO> toAvailableSlots(List<Object[]> rows) {
+        List<AvailableSlotDTO> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            int maxCapacity = ((Number) row[5]).intValue();
+            int currentBookings = ((Number) row[6]).intValue();
+            result.add(new AvailableSlotDTO((Long) row[0], (Long) row[1], (LocalDate) row[2],
+                    (LocalTime) row[3], (LocalTime) row[4], maxCapacity, currentBookings,
+                    Math.max(0, maxCapacity - currentBookings)));
+        }
+        return result;
+    }
+
+    /**
+     * Các ngày đã đọc của một trung tâm
+     * version tăng mỗi khi có thay đổi, để dữ liệu đọc song song với thay đổi không ghi đè kết quả mới hơn
+     */
+    private static class CenterAvailability {
+        private final ConcurrentMap<LocalDate, DayAvailability> days = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+    }
+
+    /**
+     * Các slot của một trung tâm trong một ngày (theo thứ tự giờ bắt đầu)
+     * Không sửa tại chỗ: mỗi lần giữ chỗ/trả chỗ tạo bản sao mới, nên request đang đọc luôn thấy dữ liệu nhất quán
+     */
+    private static class DayAvailability {
+        private final LocalDate date;
+        private final long[] slotIds;
+        private final int[] startSeconds;
+        private final int[] endSeconds;
+        private final int[] capacities;
+        private final int[] bookings;
+        private final boolean[] available;
+        private final long expiresAt;
+
+        DayAvailability(LocalDate date, List<Object[]> rows, long expiresAt) {
+            int size = rows.size();
+            this.date = date;
+            this.slotIds = new long[size];
+            this.startSeconds = new int[size];
+            this.endSeconds = new int[size];
+            this.capacities = new int[size];
+            this.bookings = new int[size];
+            this.available = new boolean[size];
+            this.expiresAt = expiresAt;
+            // Mỗi dòng: [id, date, startTime, endTime, maxCapacity, currentBookings, isAvailable]
+            for (int i = 0; i < size; i++) {
+                Object[] row = rows.get(i);
+                slotIds[i] = (Long) row[0];
+                startSeconds[i] = ((LocalTime) row[2]).toSecondOfDay();
+                endSeconds[i] = ((LocalTime) row[3]).toSecondOfDay();
+                capacities[i] = ((Number) row[4]).intValue();
+                bookings[i] = ((Number) row[5]).intValue();
+                available[i] = Boolean.TRUE.equals(row[6]);
+            }
+        }
+
+        private DayAvailability(DayAvailability source, int[] bookings, boolean[] available) {
+            this.date = source.date;
+            this.slotIds = source.slotIds;
+            this.startSeconds = source.startSeconds;
+            this.endSeconds = source.endSeconds;
+            this.capacities = source.capacities;
+            this.bookings = bookings;
+            this.available = available;
+            this.expiresAt = source.expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        int remaining(int index) {
+            return available[index] ? Math.max(0, capacities[index] - bookings[index]) : 0;
+        }
+
+        /**
+         * Thêm các slot còn chỗ nằm trọn trong khoảng [fromSecond, toSecond] của ngày vào kết quả
+         */
+        void addAvailableSlots(Long centerId, int fromSecond, int toSecond, List<AvailableSlotDTO> result) {
+            for (int i = 0; i < slotIds.length; i++) {
+                int remaining = remaining(i);
+                if (remaining > 0 && startSeconds[i] >= fromSecond && endSeconds[i] <= toSecond) {
+                    result.add(new AvailableSlotDTO(slotIds[i], centerId, date,
+                            LocalTime.ofSecondOfDay(startSeconds[i]), LocalTime.ofSecondOfDay(endSeconds[i]),
+                            capacities[i], bookings[i], remaining));
+                }
+            }
+        }
+
+        SlotAvailabilityDayDTO summary() {
+            int availableSlotCount = 0;
+            int totalCapacity = 0;
+            int remainingCapacity = 0;
+            for (int i = 0; i < slotIds.length; i++) {
+                int remaining = remaining(i);
+                if (remaining > 0) {
+                    availableSlotCount++;
+                }
+                totalCapacity += capacities[i];
+                remainingCapacity += remaining;
+            }
+            return new SlotAvailabilityDayDTO(date, slotIds.length, availableSlotCount, totalCapacity, remainingCapacity);
+        }
+
+        /**
+         * Bản sao sau khi giữ/trả một chỗ, cùng quy tắc với reserveCapacity/releaseCapacity trong AppointmentSlotRepository
+         * @return null nếu slot không có trong ngày (slot mới tạo) → ngày sẽ được đọc lại
+         */
+        DayAvailability withBookingChange(long slotId, boolean reserved) {
+            int index = -1;
+            for (int i = 0; i < slotIds.length; i++) {
+                if (slotIds[i] == slotId) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return null;
+            }
+            int[] newBookings = bookings.clone();
+            boolean[] newAvailable = available.clone();
+            if (reserved) {
+                newBookings[index]++;
+                newAvailable[index] = newBookings[index] < capacities[index];
+            } else if (newBookings[index] > 0) {
+                newBookings[index]--;
+                if (newBookings[index] < capacities[index]) {
+                    newAvailable[index] = true;
+                }
+            }
+            return new DayAvailability(this, newBookings, newAvailable);
+        }
+    }
+}
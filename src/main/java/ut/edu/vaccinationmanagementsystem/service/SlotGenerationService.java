@@ -0,0 +1,298 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.dto.SlotGenerationDTO;
+import ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.DayOfWeek;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentSlotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.CenterWorkingHoursRepository;
+import ut.edu.vaccinationmanagementsystem.repository.ClinicRoomRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tạo slot hàng loạt từ giờ làm việc (CenterWorkingHours) của trung tâm
+ * - Giờ làm việc, phòng khám active và các slot đã có được đọc một lần (theo trung tâm), không load entity
+ * - Kiểm tra trùng lịch trong bộ nhớ theo từng ngày (tập khoảng thời gian đã sắp xếp), cùng quy tắc với
+ *   findOverlappingSlots: slot mới không được giao với slot khác của trung tâm trong cùng ngày
+ * - Slot mới được ghi bằng JDBC batch insert, mỗi trung tâm một transaction
+ * - Phòng khám active của trung tâm được gán lần lượt cho các slot trong ngày (không có phòng thì để trống)
+ */
+@Service
+public class SlotGenerationService {
+
+    /** Số ngày tối đa của một lần tạo */
+    public static final int MAX_DAYS = 366;
+
+    /** Độ dài slot tối thiểu (phút) */
+    public static final int MIN_SLOT_MINUTES = 5;
+
+    /** Số slot trong một lần batch insert */
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private static final String INSERT_SLOT_SQL =
+            "INSERT INTO appointment_slots (center_id, room_id, date, start_time, end_time, max_capacity, " +
+            "current_bookings, is_available, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Autowired
+    private VaccinationCenterRepository vaccinationCenterRepository;
+
+    @Autowired
+    private CenterWorkingHoursRepository centerWorkingHoursRepository;
+
+    @Autowired
+    private ClinicRoomRepository clinicRoomRepository;
+
+    @Autowired
+    private AppointmentSlotRepository appointmentSlotRepository;
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Tạo slot cho các trung tâm trong khoảng ngày
+     * @return Số slot đã tạo / bỏ qua (trùng lịch hoặc đã qua giờ) theo từng trung tâm
+     * @throws RuntimeException nếu dữ liệu không hợp lệ hoặc đang có một lần tạo khác chạy
+     */
+    public Map<String, Object> generate(SlotGenerationDTO dto) {
+        validate(dto);
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Slot generation is already running");
+        }
+        try {
+            List<Long> centerIds = resolveCenterIds(dto.getCenterIds());
+            Map<Long, Map<DayOfWeek, List<int[]>>> hoursByCenter = loadWorkingHours(centerIds);
+            Map<Long, List<Long>> roomsByCenter = loadRooms(centerIds);
+            int slotSeconds = dto.getSlotMinutes() * 60;
+            LocalDateTime now = LocalDateTime.now();
+
+            List<Map<String, Object>> centers = new ArrayList<>();
+            long totalCreated = 0;
+            long totalSkipped = 0;
+            for (Long centerId : centerIds) {
+                Map<String, Object> centerResult = new HashMap<>();
+                centerResult.put("centerId", centerId);
+                Map<DayOfWeek, List<int[]>> hours = hoursByCenter.get(centerId);
+                if (hours == null) {
+                    centerResult.put("created", 0);
+                    centerResult.put("skipped", 0);
+                    centerResult.put("message", "Center has no active working hours");
+                    centers.add(centerResult);
+                    continue;
+                }
+                List<Long> roomIds = roomsByCenter.getOrDefault(centerId, List.of());
+                int[] counts = newTransaction().execute(status -> generateForCenter(centerId, hours, roomIds,
+                        dto.getStartDate(), dto.getEndDate(), slotSeconds, dto.getMaxCapacity(), now));
+                centerResult.put("created", counts[0]);
+                centerResult.put("skipped", counts[1]);
+                centers.add(centerResult);
+                totalCreated += counts[0];
+                totalSkipped += counts[1];
+            }
+            System.out.println("Generated " + totalCreated + " appointment slots for " + centerIds.size() +
+                    " centers (" + totalSkipped + " skipped)");
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("centerCount", centerIds.size());
+            result.put("createdCount", totalCreated);
+            result.put("skippedCount", totalSkipped);
+            result.put("centers", centers);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private void validate(SlotGenerationDTO dto) {
+        if (dto.getStartDate() == null || dto.getEndDate() == null) {
+            throw new RuntimeException("Start date and end date are required");
+        }
+        if (dto.getStartDate().isAfter(dto.getEndDate())) {
+            throw new RuntimeException("Start date must be before or equal to end date");
+        }
+        if (dto.getStartDate().isBefore(LocalDate.now())) {
+            throw new RuntimeException("Cannot create slot for past date");
+        }
+        if (ChronoUnit.DAYS.between(dto.getStartDate(), dto.getEndDate()) >= MAX_DAYS) {
+            throw new RuntimeException("Date range must not exceed " + MAX_DAYS + " days");
+        }
+        if (dto.getSlotMinutes() == null || dto.getSlotMinutes() < MIN_SLOT_MINUTES || dto.getSlotMinutes() > 24 * 60) {
+            throw new RuntimeException("Slot length must be between " + MIN_SLOT_MINUTES + " and 1440 minutes");
+        }
+        if (dto.getMaxCapacity() == null || dto.getMaxCapacity() <= 0) {
+            throw new RuntimeException("Max capacity must be greater than 0");
+        }
+    }
+
+    /**
+     * Danh sách trung tâm cần tạo slot: các trung tâm được chọn, hoặc tất cả trung tâm ACTIVE
+     */
+    private List<Long> resolveCenterIds(List<Long> requestedIds) {
+        if (requestedIds == null || requestedIds.isEmpty()) {
+            return vaccinationCenterRepository.findIdsByStatus(CenterStatus.ACTIVE);
+        }
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(requestedIds);
+        List<Long> existingIds = vaccinationCenterRepository.findExistingIds(ids);
+        ids.removeAll(existingIds);
+        if (!ids.isEmpty()) {
+            throw new RuntimeException("Vaccination center not found with id: " + ids.iterator().next());
+        }
+        return existingIds;
+    }
+
+    /**
+     * Giờ làm việc theo trung tâm và thứ trong tuần, mỗi khoảng là [giây bắt đầu, giây kết thúc] trong ngày
+     */
+    private Map<Long, Map<DayOfWeek, List<int[]>>> loadWorkingHours(List<Long> centerIds) {
+        Map<Long, Map<DayOfWeek, List<int[]>>> hoursByCenter = new HashMap<>();
+        if (centerIds.isEmpty()) {
+            return hoursByCenter;
+        }
+        for (Object[] row : centerWorkingHoursRepository.findActiveHoursByCenterIds(centerIds)) {
+            int start = ((LocalTime) row[2]).toSecondOfDay();
+            int end = ((LocalTime) row[3]).toSecondOfDay();
+            if (end <= start) {
+                continue;
+            }
+            hoursByCenter.computeIfAbsent((Long) row[0], id -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent((DayOfWeek) row[1], day -> new ArrayList<>())
+                    .add(new int[] {start, end});
+        }
+        return hoursByCenter;
+    }
+
+    private Map<Long, List<Long>> loadRooms(List<Long> centerIds) {
+        Map<Long, List<Long>> roomsByCenter = new HashMap<>();
+        if (centerIds.isEmpty()) {
+            return roomsByCenter;
+        }
+        for (Object[] row : clinicRoomRepository.findActiveRoomIdsByCenterIds(centerIds)) {
+            roomsByCenter.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return roomsByCenter;
+    }
+
+    /**
+     * Tạo slot cho một trung tâm (trong transaction của trung tâm đó)
+     * @return [số slot đã tạo, số slot bỏ qua]
+     */
+    private int[] generateForCenter(Long centerId, Map<DayOfWeek, List<int[]>> hours, List<Long> roomIds,
+                                    LocalDate startDate, LocalDate endDate, int slotSeconds, int maxCapacity,
+                                    LocalDateTime now) {
+        Map<LocalDate, IntervalSet> occupiedByDate = new HashMap<>();
+        for (Object[] row : appointmentSlotRepository.findSlotTimesByCenterAndDateRange(centerId, startDate, endDate)) {
+            occupiedByDate.computeIfAbsent((LocalDate) row[0], date -> new IntervalSet())
+                    .add(((LocalTime) row[1]).toSecondOfDay(), ((LocalTime) row[2]).toSecondOfDay());
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        int created = 0;
+        int skipped = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            List<int[]> windows = hours.get(DayOfWeek.valueOf(date.getDayOfWeek().name()));
+            if (windows == null) {
+                continue;
+            }
+            IntervalSet occupied = occupiedByDate.computeIfAbsent(date, d -> new IntervalSet());
+            // Hôm nay: bỏ qua các slot đã bắt đầu
+            int earliestStart = date.equals(now.toLocalDate()) ? now.toLocalTime().toSecondOfDay() : 0;
+            int roomIndex = 0;
+            for (int[] window : windows) {
+                for (int start = window[0]; start + slotSeconds <= window[1]; start += slotSeconds) {
+                    int end = start + slotSeconds;
+                    if (start < earliestStart || occupied.overlaps(start, end)) {
+                        skipped++;
+                        continue;
+                    }
+                    occupied.add(start, end);
+                    Long roomId = roomIds.isEmpty() ? null : roomIds.get(roomIndex++ % roomIds.size());
+                    rows.add(new Object[] {
+                            centerId, roomId, date, LocalTime.ofSecondOfDay(start), LocalTime.ofSecondOfDay(end),
+                            maxCapacity, 0, true, now
+                    });
+                    if (rows.size() >= INSERT_BATCH_SIZE) {
+                        jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, rows);
+                        created += rows.size();
+                        rows.clear();
+                    }
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, rows);
+            created += rows.size();
+        }
+        if (created > 0) {
+            slotAvailabilityService.invalidateCenter(centerId);
+        }
+        return new int[] {created, skipped};
+    }
+
+    /**
+     * Transaction riêng cho từng trung tâm (lỗi ở một trung tâm không hủy các trung tâm đã tạo xong)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * Các khoảng thời gian đã có slot trong một ngày (giây trong ngày), các khoảng giao nhau được gộp lại
+     * Hai slot liền nhau (slot này kết thúc đúng lúc slot kia bắt đầu) không tính là trùng
+     */
+    private static class IntervalSet {
+        private final TreeMap<Integer, Integer> intervals = new TreeMap<>(); // start → end
+
+        boolean overlaps(int start, int end) {
+            Map.Entry<Integer, Integer> before = intervals.floorEntry(start);
+            if (before != null && before.getValue() > start) {
+                return true;
+            }
+            Map.Entry<Integer, Integer> after = intervals.higherEntry(start);
+            return after != null && after.getKey() < end;
+        }
+
+        void add(int start, int end) {
+            Map.Entry<Integer, Integer> before = intervals.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+                intervals.remove(before.getKey());
+            }
+            Map.Entry<Integer, Integer> next;
+            while ((next = intervals.ceilingEntry(start)) != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                intervals.remove(next.getKey());
+            }
+            intervals.put(start, end);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentSlotRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Giữ chỗ / trả chỗ trong AppointmentSlot
+ * - Database là nguồn dữ liệu chính: giữ chỗ bằng một câu UPDATE có điều kiện nên không bao giờ vượt maxCapacity
+ * - Cổng kiểm soát trong bộ nhớ (theo từng slot) giới hạn số request đang giữ chỗ đồng thời bằng số chỗ còn lại,
+ *   các request vượt quá bị từ chối ngay mà không phải chờ khóa dòng trong database
+ */
+@Service
+@Transactional
+public class SlotReservationService {
+
+    /** Thời gian sống của cổng kiểm soát, hết hạn sẽ đọc lại số chỗ từ database (đồng bộ giữa nhiều instance) */
+    private static final long GATE_TTL_MILLIS = 30_000;
+
+    private final ConcurrentMap<Long, SlotGate> gates = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AppointmentSlotRepository appointmentSlotRepository;
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
+    /**
+     * Giữ một chỗ trong slot cho lịch hẹn đang tạo
+     * Nếu transaction hiện tại rollback, chỗ trong database được hoàn lại cùng transaction
+     * và quyền giữ chỗ trong cổng kiểm soát cũng được trả lại
+     * @throws RuntimeException nếu slot đã hết chỗ
+     */
+    public void reserve(AppointmentSlot slot) {
+        SlotGate gate = getGate(slot);
+        if (!gate.tryAcquire()) {
+            throw new RuntimeException("Slot is no longer available");
+        }
+
+        int updated;
+        try {
+            updated = appointmentSlotRepository.reserveCapacity(slot.getId());
+        } catch (RuntimeException e) {
+            gate.release();
+            throw e;
+        }
+        if (updated == 0) {
+            // Database xác nhận slot đã đầy → chặn các request sau cho đến khi có người hủy hoặc cổng hết hạn
+            gate.markFull();
+            throw new RuntimeException("Slot is no longer available");
+        }
+        slotAvailabilityService.slotReserved(slot);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        gate.release();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Trả lại một chỗ trong slot (khi hủy/xóa lịch hẹn)
+     */
+    public void release(AppointmentSlot slot) {
+        if (slot == null) {
+            return;
+        }
+        if (appointmentSlotRepository.releaseCapacity(slot.getId()) > 0) {
+            slotAvailabilityService.slotReleased(slot);
+        }
+        invalidateAfterCommit(slot.getId());
+    }
+
+    /**
+     * Xóa cổng kiểm soát của slot (khi admin sửa sức chứa/số lượt đặt) để lần sau đọc lại từ database
+     */
+    public void invalidate(Long slotId) {
+        if (slotId != null) {
+            invalidateAfterCommit(slotId);
+        }
+    }
+
+    /**
+     * Chạy mỗi phút: bỏ các cổng kiểm soát đã hết hạn (slot đã qua hoặc không còn ai đặt)
+     * để bảng không lớn dần theo số slot từng được đặt
+     */
+    @Scheduled(fixedDelay = 60_000)
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        gates.values().removeIf(gate -> gate.isExpired(now));
+    }
+
+    private void invalidateAfterCommit(Long slotId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    gates.remove(slotId);
+                }
+            });
+        } else {
+            gates.remove(slotId);
+        }
+    }
+
+    /**
+     * Lấy cổng kiểm soát của slot, khởi tạo từ số chỗ còn lại của slot nếu chưa có hoặc đã hết hạn
+     */
+    private SlotGate getGate(AppointmentSlot slot) {
+        long now = System.currentTimeMillis();
+        return gates.compute(slot.getId(), (id, gate) -> {
+            if (gate != null && !gate.isExpired(now)) {
+                return gate;
+            }
+            int remaining = 0;
+            if (Boolean.TRUE.equals(slot.getIsAvailable()) && slot.getMaxCapacity() != null) {
+                int bookings = slot.getCurrentBookings() != null ? slot.getCurrentBookings() : 0;
+                remaining = Math.max(0, slot.getMaxCapacity() - bookings);
+            }
+            return new SlotGate(remaining, now + GATE_TTL_MILLIS);
+        });
+    }
+
+    /**
+     * Số chỗ còn lại (ước tính) của một slot trong bộ nhớ
+     */
+    private static class SlotGate {
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+
+        SlotGate(int remaining, long expiresAt) {
+            this.remaining = new AtomicInteger(remaining);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            remaining.incrementAndGet();
+        }
+
+        void markFull() {
+            remaining.set(0);
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
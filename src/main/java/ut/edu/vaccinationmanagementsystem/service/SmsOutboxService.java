@@ -0,0 +1,435 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.SmsOutboxMessage;
+import ut.edu.vaccinationmanagementsystem.entity.SmsPhoneLimit;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SmsOutboxStatus;
+import ut.edu.vaccinationmanagementsystem.repository.SmsOutboxMessageRepository;
+import ut.edu.vaccinationmanagementsystem.repository.SmsPhoneLimitRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi gửi SMS (sms_outbox) cho mã OTP và các tin nhắn khác
+ * - enqueue() chỉ ghi một dòng trong transaction của nghiệp vụ, không gọi nhà cung cấp SMS,
+ *   nên độ trễ của nhà cung cấp không giữ transaction và connection database
+ * - Sau khi commit (và mỗi giây), dispatcher nhận các tin đến hạn bằng UPDATE có điều kiện rồi giao cho worker;
+ *   worker gọi SmsService ngoài transaction theo giới hạn tốc độ chung app.sms-outbox.per-second,
+ *   chờ tối đa app.sms-outbox.send-timeout-seconds; thời gian giữ tin dài hơn thời gian chờ này
+ * - Mỗi lần nhận tin có một claim token, chỉ worker giữ token đó được ghi kết quả gửi
+ * - Gửi lỗi thì gửi lại sau thời gian chờ tăng gấp đôi mỗi lần (có jitter) tới app.sms-outbox.max-attempts lần;
+ *   tin có hạn (mã OTP) quá hạn trước khi gửi được thì bỏ
+ * - Nội dung tin (mã OTP) được thay bằng REDACTED_CONTENT ngay khi tin kết thúc (SENT/FAILED/EXPIRED),
+ *   chỉ giữ số điện thoại, trạng thái và thời gian tới khi bị xóa sau app.sms-outbox.retention-days ngày
+ * - Mỗi số điện thoại bị giới hạn khoảng cách giữa hai tin và số tin trong một giờ
+ *   (kiểm tra khi enqueue trên dòng bộ đếm sms_phone_limits của số đó)
+ */
+@Service
+public class SmsOutboxService {
+
+    public static final String PURPOSE_PHONE_VERIFICATION = "PHONE_VERIFICATION";
+
+    /** Nội dung thay cho nội dung tin đã kết thúc (không lưu mã OTP sau khi không còn cần gửi) */
+    public static final String REDACTED_CONTENT = "[redacted]";
+
+    /** Các trạng thái kết thúc: tin không được gửi lại nữa */
+    private static final List<SmsOutboxStatus> FINISHED_STATUSES =
+            List.of(SmsOutboxStatus.SENT, SmsOutboxStatus.FAILED, SmsOutboxStatus.EXPIRED);
+
+    /**
+     * Thời gian giữ tin cộng thêm ngoài thời gian chờ nhà cung cấp SMS (chờ giới hạn tốc độ, ghi kết quả);
+     * quá hạn giữ mà chưa ghi kết quả thì tin được nhận lại
+     */
+    private static final long LOCK_MARGIN_SECONDS = 30;
+
+    /** Thời gian chờ tối đa giữa hai lần gửi lại */
+    private static final long MAX_RETRY_DELAY_SECONDS = 600;
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicBoolean dispatchPending = new AtomicBoolean(false);
+
+    private final RateLimiter sendLimiter = new RateLimiter();
+
+    // Số liệu gửi trên instance này (từ lúc khởi động)
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong sendNanosTotal = new AtomicLong();
+    private final AtomicLong sendNanosMax = new AtomicLong();
+
+    @Value("${app.sms-outbox.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.sms-outbox.per-second:20}")
+    private int perSecond;
+
+    @Value("${app.sms-outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.sms-outbox.retry-base-seconds:5}")
+    private long retryBaseSeconds;
+
+    @Value("${app.sms-outbox.send-timeout-seconds:30}")
+    private long sendTimeoutSeconds;
+
+    @Value("${app.sms-outbox.phone-cooldown-seconds:60}")
+    private long phoneCooldownSeconds;
+
+    @Value("${app.sms-outbox.phone-max-per-hour:5}")
+    private int phoneMaxPerHour;
+
+    @Value("${app.sms-outbox.retention-days:7}")
+    private int retentionDays;
+
+    private ExecutorService workers;
+
+    // Thread gọi nhà cung cấp SMS, để worker dừng chờ khi quá send-timeout-seconds
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sms-outbox-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sms-outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private SmsOutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private SmsPhoneLimitRepository phoneLimitRepository;
+
+    @Autowired
+    private SmsService smsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // ==================== Ghi tin ====================
+
+    /**
+     * Thêm tin nhắn vào hàng đợi trong transaction hiện tại; tin được gửi sau khi transaction commit
+     * @param phoneNumber Số điện thoại đã normalize
+     * @param content Nội dung tin nhắn
+     * @param purpose Mục đích (ví dụ PURPOSE_PHONE_VERIFICATION)
+     * @param expiresAt Không gửi sau thời điểm này (null = không hết hạn)
+     * @throws SmsRateLimitException Nếu số điện thoại vượt giới hạn gửi
+     */
+    @Transactional
+    public SmsOutboxMessage enqueue(String phoneNumber, String content, String purpose, LocalDateTime expiresAt)
+            throws SmsRateLimitException {
+        LocalDateTime now = LocalDateTime.now();
+        checkPhoneLimit(phoneNumber, now);
+
+        SmsOutboxMessage message = new SmsOutboxMessage();
+        message.setPhoneNumber(phoneNumber);
+        message.setContent(content);
+        message.setPurpose(purpose);
+        message.setStatus(SmsOutboxStatus.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(now);
+        message.setExpiresAt(expiresAt);
+        message.setCreatedAt(now);
+        SmsOutboxMessage saved = outboxRepository.save(message);
+        enqueuedCount.incrementAndGet();
+
+        afterCommit(this::requestDispatch);
+        return saved;
+    }
+
+    // ==================== Gửi tin ====================
+
+    /**
+     * Chạy mỗi giây: nhận các tin đến hạn (gửi lại, tin của instance khác, tin bị bỏ dở)
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void dispatchDue() {
+        requestDispatch();
+    }
+
+    /**
+     * Yêu cầu dispatcher chạy (gộp các yêu cầu đến trong lúc dispatcher chưa chạy)
+     */
+    public void requestDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            dispatcher.submit(() -> {
+                dispatchPending.set(false);
+                try {
+                    dispatch();
+                } catch (Exception e) {
+                    System.err.println("Failed to dispatch SMS outbox: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Nhận tin đến hạn vừa đủ số worker đang rảnh (mỗi worker giữ tối đa 2 tin) và giao cho worker
+     */
+    private void dispatch() {
+        ExecutorService pool = workers();
+        while (true) {
+            int capacity = workerThreads * 2 - inFlight.get();
+            if (capacity <= 0) {
+                return; // Worker gửi xong một tin sẽ gọi lại dispatcher
+            }
+            List<SmsOutboxMessage> claimed = claimDue(capacity);
+            if (claimed.isEmpty()) {
+                return;
+            }
+            for (SmsOutboxMessage message : claimed) {
+                inFlight.incrementAndGet();
+                pool.submit(() -> {
+                    try {
+                        deliver(message);
+                    } catch (Exception e) {
+                        System.err.println("Failed to deliver SMS outbox message " + message.getId() + ": " + e.getMessage());
+                    } finally {
+                        inFlight.decrementAndGet();
+                        requestDispatch();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Nhận tối đa limit tin đến hạn trong một transaction ngắn
+     */
+    private List<SmsOutboxMessage> claimDue(int limit) {
+        return newTransaction().execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime lockedUntil = now.plusSeconds(sendTimeoutSeconds + LOCK_MARGIN_SECONDS);
+            List<Long> claimedIds = new ArrayList<>();
+            for (Long id : outboxRepository.findDueIds(now, PageRequest.of(0, limit))) {
+                if (outboxRepository.claim(id, now, lockedUntil, UUID.randomUUID().toString()) == 1) {
+                    claimedIds.add(id);
+                }
+            }
+            return claimedIds.isEmpty() ? List.of() : outboxRepository.findAllById(claimedIds);
+        });
+    }
+
+    /**
+     * Gửi một tin (ngoài transaction) và ghi kết quả
+     */
+    private void deliver(SmsOutboxMessage message) throws InterruptedException {
+        if (message.getExpiresAt() != null && LocalDateTime.now().isAfter(message.getExpiresAt())) {
+            recordAttempt(message, SmsOutboxStatus.EXPIRED, 0, message.getNextAttemptAt(), "Expired before sending", null);
+            expiredCount.incrementAndGet();
+            return;
+        }
+
+        sendLimiter.acquire(perSecond);
+        long start = System.nanoTime();
+        String error = null;
+        Future<?> call = senders.submit(() -> {
+            smsService.sendSms(message.getPhoneNumber(), message.getContent());
+            return null;
+        });
+        try {
+            call.get(sendTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            error = "SMS provider timed out after " + sendTimeoutSeconds + "s";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+        long elapsed = System.nanoTime() - start;
+        sendNanosTotal.addAndGet(elapsed);
+        sendNanosMax.accumulateAndGet(elapsed, Math::max);
+
+        LocalDateTime now = LocalDateTime.now();
+        if (error == null) {
+            recordAttempt(message, SmsOutboxStatus.SENT, 1, message.getNextAttemptAt(), null, now);
+            sentCount.incrementAndGet();
+            return;
+        }
+
+        int attempts = message.getAttempts() + 1;
+        LocalDateTime retryAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(retryDelayMillis(attempts)));
+        boolean expiresBeforeRetry = message.getExpiresAt() != null && retryAt.isAfter(message.getExpiresAt());
+        if (attempts >= maxAttempts || expiresBeforeRetry) {
+            recordAttempt(message, SmsOutboxStatus.FAILED, 1, message.getNextAttemptAt(), error, null);
+            failedCount.incrementAndGet();
+            System.err.println("SMS to " + message.getPhoneNumber() + " failed after " + attempts + " attempts: " + error);
+        } else {
+            recordAttempt(message, SmsOutboxStatus.PENDING, 1, retryAt, error, null);
+            retryCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ghi kết quả gửi nếu tin vẫn do lần nhận của worker này giữ; tin kết thúc thì xóa nội dung trong cùng câu UPDATE
+     */
+    private void recordAttempt(SmsOutboxMessage message, SmsOutboxStatus newStatus, int attemptDelta,
+                               LocalDateTime nextAttemptAt, String error, LocalDateTime sentAt) {
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        String content = FINISHED_STATUSES.contains(newStatus) ? REDACTED_CONTENT : null;
+        Integer rows = newTransaction().execute(status -> outboxRepository.recordAttempt(message.getId(),
+                message.getClaimToken(), newStatus, attemptDelta, nextAttemptAt, lastError, sentAt, content));
+        if (rows == null || rows == 0) {
+            System.err.println("SMS outbox message " + message.getId() + " was reclaimed by another worker, "
+                    + newStatus + " result not recorded");
+        }
+    }
+
+    /**
+     * Thời gian chờ trước lần gửi thứ attempts + 1: retryBaseSeconds * 2^(attempts - 1), tối đa 10 phút, jitter ±20%
+     */
+    private long retryDelayMillis(int attempts) {
+        long delaySeconds = Math.min(MAX_RETRY_DELAY_SECONDS, retryBaseSeconds << Math.min(attempts - 1, 20));
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (delaySeconds * 1000 * jitter);
+    }
+
+    // ==================== Thống kê ====================
+
+    /**
+     * Số liệu gửi SMS: số tin theo trạng thái trong hàng đợi và bộ đếm của instance này từ lúc khởi động
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Long> queue = new HashMap<>();
+        for (SmsOutboxStatus status : SmsOutboxStatus.values()) {
+            queue.put(status.name(), 0L);
+        }
+        for (Object[] row : outboxRepository.countGroupByStatus()) {
+            queue.put(((SmsOutboxStatus) row[0]).name(), ((Number) row[1]).longValue());
+        }
+
+        long sent = sentCount.get();
+        long attempts = sent + retryCount.get() + failedCount.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queue", queue);
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("enqueued", enqueuedCount.get());
+        metrics.put("rateLimited", rateLimitedCount.get());
+        metrics.put("sent", sent);
+        metrics.put("retried", retryCount.get());
+        metrics.put("failed", failedCount.get());
+        metrics.put("expired", expiredCount.get());
+        metrics.put("avgSendMs", attempts > 0 ? sendNanosTotal.get() / attempts / 1_000_000.0 : 0.0);
+        metrics.put("maxSendMs", sendNanosMax.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    // ==================== Dọn dẹp ====================
+
+    /**
+     * Chạy lúc 4:15 sáng mỗi ngày: xóa các tin đã kết thúc quá app.sms-outbox.retention-days ngày
+     * và xóa nội dung các tin đã kết thúc còn giữ nội dung
+     */
+    @Scheduled(cron = "0 15 4 * * ?")
+    public void purgeFinished() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+            Integer rows = newTransaction().execute(status -> outboxRepository.deleteFinishedBefore(FINISHED_STATUSES, before));
+            Integer redacted = newTransaction().execute(status ->
+                    outboxRepository.redactFinished(FINISHED_STATUSES, REDACTED_CONTENT));
+            System.out.println("Purged SMS outbox messages: " + rows + ", redacted: " + redacted);
+        } catch (Exception e) {
+            System.err.println("Failed to purge SMS outbox: " + e.getMessage());
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Giới hạn theo số điện thoại: cách tin trước ít nhất phoneCooldownSeconds và tối đa phoneMaxPerHour tin
+     * trong khung một giờ (khung bắt đầu từ tin đầu tiên sau khi khung trước hết hạn)
+     * Kiểm tra và ghi nhận trong một câu UPDATE trên dòng bộ đếm của số điện thoại; dòng bị khóa tới khi transaction
+     * của enqueue commit nên các yêu cầu đồng thời cho cùng số không thể cùng vượt qua giới hạn
+     */
+    private void checkPhoneLimit(String phoneNumber, LocalDateTime now) throws SmsRateLimitException {
+        if (phoneCooldownSeconds <= 0 && phoneMaxPerHour <= 0) {
+            return;
+        }
+        phoneLimitRepository.ensureExists(phoneNumber);
+        int acquired = phoneLimitRepository.tryAcquire(phoneNumber, now,
+                now.minusSeconds(Math.max(0, phoneCooldownSeconds)), now.minusHours(1),
+                phoneMaxPerHour > 0 ? phoneMaxPerHour : Integer.MAX_VALUE);
+        if (acquired == 1) {
+            return;
+        }
+
+        rateLimitedCount.incrementAndGet();
+        SmsPhoneLimit limit = phoneLimitRepository.findByPhoneNumber(phoneNumber).orElse(null);
+        if (phoneCooldownSeconds > 0 && limit != null && limit.getLastRequestedAt() != null
+                && limit.getLastRequestedAt().isAfter(now.minusSeconds(phoneCooldownSeconds))) {
+            throw new SmsRateLimitException(String.format(
+                    "Vui lòng đợi %d giây trước khi yêu cầu gửi lại mã", phoneCooldownSeconds));
+        }
+        throw new SmsRateLimitException("Số điện thoại đã yêu cầu quá nhiều mã trong một giờ. Vui lòng thử lại sau");
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), runnable -> {
+                Thread thread = new Thread(runnable, "sms-outbox-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+    /**
+     * Transaction riêng (không tham gia transaction đang có)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+/**
+ * Exception khi số điện thoại yêu cầu gửi SMS vượt giới hạn (chưa hết thời gian chờ hoặc quá số tin trong giờ)
+ */
+public class SmsRateLimitException extends SmsException {
+    public SmsRateLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,292 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentHistory;
+import ut.edu.vaccinationmanagementsystem.entity.StaffDailyActivity;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentHistoryRepository;
+import ut.edu.vaccinationmanagementsystem.repository.ScreeningRepository;
+import ut.edu.vaccinationmanagementsystem.repository.StaffDailyActivityRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bảng hiệu suất nhân viên theo ngày (staff_daily_activities) cho hiệu suất tuần/tháng trong danh sách nhân viên của admin
+ * - Được cộng dồn khi bác sĩ lưu phiếu khám sàng lọc, y tá ghi nhận mũi tiêm, lễ tân xác nhận/check-in lịch hẹn,
+ *   nên hiệu suất của tất cả nhân viên chỉ cần một truy vấn theo khoảng ngày
+ * - Đối soát lại toàn bộ từ screenings, vaccination_records và appointment_histories mỗi đêm
+ */
+@Service
+@Transactional
+public class StaffActivityService {
+
+    /** Các trạng thái lễ tân chuyển lịch hẹn sang được tính là công việc tiếp đón */
+    private static final List<AppointmentStatus> RECEPTION_STATUSES =
+            List.of(AppointmentStatus.CONFIRMED, AppointmentStatus.CHECKED_IN);
+
+    @Autowired
+    private StaffDailyActivityRepository activityRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Autowired
+    private AppointmentHistoryRepository appointmentHistoryRepository;
+
+    // ==================== Ghi nhận công việc ====================
+
+    /**
+     * Ghi nhận phiếu khám sàng lọc vừa được lưu
+     * Phiếu được tính vào ngày khám; khi phiếu đã có được lưu lại sang ngày khác thì chuyển sang ngày mới
+     * @param doctorId ID bác sĩ của phiếu khám
+     * @param previousScreenedAt Thời gian khám trước khi lưu (null nếu là phiếu mới)
+     * @param screenedAt Thời gian khám vừa lưu
+     */
+    public void recordScreeningSaved(Long doctorId, LocalDateTime previousScreenedAt, LocalDateTime screenedAt) {
+        if (doctorId == null || screenedAt == null) {
+            return;
+        }
+        LocalDate date = screenedAt.toLocalDate();
+        if (previousScreenedAt != null) {
+            LocalDate previousDate = previousScreenedAt.toLocalDate();
+            if (previousDate.equals(date)) {
+                return;
+            }
+            activityRepository.increment(doctorId, previousDate, -1, 0, 0);
+        }
+        activityRepository.increment(doctorId, date, 1, 0, 0);
+    }
+
+    /**
+     * Ghi nhận mũi tiêm y tá vừa thực hiện
+     */
+    public void recordInjection(VaccinationRecord record) {
+        if (record == null || record.getNurse() == null || record.getInjectionDate() == null) {
+            return;
+        }
+        activityRepository.increment(record.getNurse().getId(), record.getInjectionDate(), 0, 1, 0);
+    }
+
+    /**
+     * Ghi nhận hồ sơ tiêm của một y tá trong một ngày bị xóa (xóa user hàng loạt)
+     */
+    public void recordInjectionsDeleted(Long nurseId, LocalDate injectionDate, long count) {
+        if (nurseId == null || injectionDate == null || count == 0) {
+            return;
+        }
+        activityRepository.increment(nurseId, injectionDate, 0, -count, 0);
+    }
+
+    /**
+     * Ghi nhận lễ tân xác nhận/check-in lịch hẹn (appointment đã được lưu với trạng thái mới)
+     * Lưu lịch sử trạng thái (nguồn dữ liệu để đối soát) và cộng vào hiệu suất của người thực hiện trong cùng transaction
+     * @param oldStatus Trạng thái trước khi đổi
+     * @param staff Người thực hiện
+     */
+    public void recordReception(Appointment appointment, AppointmentStatus oldStatus, User staff) {
+        if (appointment == null || staff == null || !RECEPTION_STATUSES.contains(appointment.getStatus())) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        AppointmentHistory history = new AppointmentHistory();
+        history.setAppointment(appointment);
+        history.setOldStatus(oldStatus);
+        history.setNewStatus(appointment.getStatus());
+        history.setChangedBy(staff);
+        history.setChangedAt(now);
+        history.setReason(appointment.getStatus() == AppointmentStatus.CHECKED_IN
+                ? "Check-in tại quầy lễ tân"
+                : "Lễ tân xác nhận lịch hẹn");
+        appointmentHistoryRepository.save(history);
+
+        activityRepository.increment(staff.getId(), now.toLocalDate(), 0, 0, 1);
+    }
+
+    /**
+     * Xóa số liệu của các nhân viên bị xóa (xóa user hàng loạt)
+     */
+    public void deleteStaff(Collection<Long> staffIds) {
+        activityRepository.deleteByStaffIds(staffIds);
+    }
+
+    // ==================== Đọc hiệu suất ====================
+
+    /**
+     * Tổng công việc của từng nhân viên trong khoảng ngày (tính cả hai đầu)
+     * @return staffId → Map gồm screenings, injections, receptions (nhân viên không có công việc không có trong Map)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<String, Long>> getActivityBetween(LocalDate startDate, LocalDate endDate) {
+        Map<Long, Map<String, Long>> activity = new HashMap<>();
+        for (Object[] row : activityRepository.sumByStaffBetween(startDate, endDate)) {
+            Map<String, Long> counts = new HashMap<>();
+            counts.put("screenings", toLong(row[1]));
+            counts.put("injections", toLong(row[2]));
+            counts.put("receptions", toLong(row[3]));
+            activity.put((Long) row[0], counts);
+        }
+        return activity;
+    }
+
+    // ==================== Đối soát ====================
+
+    /**
+     * Chạy lúc 2:30 sáng mỗi ngày để tính lại bảng hiệu suất từ dữ liệu gốc
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void reconcileNightly() {
+        try {
+            int corrected = rebuildAll();
+            System.out.println("Reconciled staff daily activities: " + corrected + " rows corrected");
+        } catch (Exception e) {
+            System.err.println("Failed to reconcile staff daily activities: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Khởi tạo bảng hiệu suất khi ứng dụng khởi động lần đầu (bảng còn trống)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void initializeIfEmpty() {
+        try {
+            if (activityRepository.count() == 0) {
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to initialize staff daily activities: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát toàn bộ bảng hiệu suất với 3 truy vấn GROUP BY (phiếu khám, hồ sơ tiêm, lịch sử xác nhận/check-in)
+     * - Dữ liệu gốc và bảng hiệu suất được đọc trong cùng một snapshot (REPEATABLE READ); hiệu suất được cộng dồn trong
+     *   cùng transaction với phiếu khám/hồ sơ tiêm/lịch sử nên snapshot luôn thấy cả hai hoặc không thấy cả hai
+     * - Mỗi dòng (nhân viên, ngày) sai lệch được sửa bằng cách cộng phần chênh lệch bằng câu cộng dồn, không ghi đè,
+     *   nên công việc được ghi nhận trong lúc đối soát vẫn được tính
+     * - Dòng được sửa theo thứ tự khóa cố định; dòng không còn công việc nào bị trừ về 0 rồi xóa
+     * @return Số dòng đã sửa
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuildAll() {
+        return applyCorrections(computeCorrections());
+    }
+
+    /**
+     * Tính phần chênh lệch của từng dòng (nhân viên, ngày) giữa dữ liệu gốc và bảng hiệu suất (cùng snapshot)
+     * @return Các dòng cần sửa: các cột đếm là phần chênh lệch; id khác null nếu dòng không còn công việc nào
+     */
+    List<StaffDailyActivity> computeCorrections() {
+        Map<String, StaffDailyActivity> activities = new HashMap<>();
+        for (Object[] row : screeningRepository.countGroupByDoctorAndScreenedDate()) {
+            StaffDailyActivity activity = getOrCreate(activities, (Long) row[0], (LocalDate) row[1]);
+            activity.setScreeningCount(activity.getScreeningCount() + toLong(row[2]));
+        }
+        for (Object[] row : vaccinationRecordRepository.countGroupByNurseAndInjectionDate()) {
+            StaffDailyActivity activity = getOrCreate(activities, (Long) row[0], (LocalDate) row[1]);
+            activity.setInjectionCount(activity.getInjectionCount() + toLong(row[2]));
+        }
+        for (Object[] row : appointmentHistoryRepository.countGroupByChangedByAndDate(RECEPTION_STATUSES)) {
+            StaffDailyActivity activity = getOrCreate(activities, (Long) row[0], (LocalDate) row[1]);
+            activity.setReceptionCount(activity.getReceptionCount() + toLong(row[2]));
+        }
+
+        // Bảng hiệu suất hiện tại (cùng snapshot với dữ liệu gốc)
+        Map<String, StaffDailyActivity> current = new HashMap<>();
+        for (StaffDailyActivity activity : activityRepository.findAll()) {
+            current.put(activityKey(activity.getStaffId(), activity.getActivityDate()), activity);
+        }
+
+        List<StaffDailyActivity> corrections = new ArrayList<>();
+        Set<String> keys = new TreeSet<>(activities.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            StaffDailyActivity expected = activities.get(key);
+            StaffDailyActivity actual = current.get(key);
+            StaffDailyActivity bucket = expected != null ? expected : actual;
+            long screeningDelta = (expected != null ? expected.getScreeningCount() : 0L)
+                    - (actual != null ? actual.getScreeningCount() : 0L);
+            long injectionDelta = (expected != null ? expected.getInjectionCount() : 0L)
+                    - (actual != null ? actual.getInjectionCount() : 0L);
+            long receptionDelta = (expected != null ? expected.getReceptionCount() : 0L)
+                    - (actual != null ? actual.getReceptionCount() : 0L);
+            if (screeningDelta == 0 && injectionDelta == 0 && receptionDelta == 0 && expected != null) {
+                continue;
+            }
+            StaffDailyActivity correction = new StaffDailyActivity();
+            correction.setId(expected == null ? actual.getId() : null);
+            correction.setStaffId(bucket.getStaffId());
+            correction.setActivityDate(bucket.getActivityDate());
+            correction.setScreeningCount(screeningDelta);
+            correction.setInjectionCount(injectionDelta);
+            correction.setReceptionCount(receptionDelta);
+            corrections.add(correction);
+        }
+        return corrections;
+    }
+
+    /**
+     * Cộng phần chênh lệch vào bảng hiệu suất (không ghi đè) và xóa các dòng không còn công việc đã về 0
+     * @return Số dòng đã sửa
+     */
+    int applyCorrections(List<StaffDailyActivity> corrections) {
+        int corrected = 0;
+        List<Long> emptiedIds = new ArrayList<>();
+        for (StaffDailyActivity correction : corrections) {
+            if (correction.getScreeningCount() != 0 || correction.getInjectionCount() != 0
+                    || correction.getReceptionCount() != 0) {
+                activityRepository.increment(correction.getStaffId(), correction.getActivityDate(),
+                        correction.getScreeningCount(), correction.getInjectionCount(), correction.getReceptionCount());
+                corrected++;
+            }
+            if (correction.getId() != null) {
+                emptiedIds.add(correction.getId());
+            }
+        }
+        if (!emptiedIds.isEmpty()) {
+            activityRepository.deleteEmptyByIdIn(emptiedIds);
+        }
+        return corrected;
+    }
+
+    // ==================== Helpers ====================
+
+    private StaffDailyActivity getOrCreate(Map<String, StaffDailyActivity> activities, Long staffId, LocalDate date) {
+        return activities.computeIfAbsent(activityKey(staffId, date), key -> {
+            StaffDailyActivity activity = new StaffDailyActivity();
+            activity.setStaffId(staffId);
+            activity.setActivityDate(date);
+            return activity;
+        });
+    }
+
+    private static String activityKey(Long staffId, LocalDate date) {
+        return staffId + "|" + date;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
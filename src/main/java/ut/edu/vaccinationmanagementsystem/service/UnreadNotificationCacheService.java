@@ -0,0 +1,110 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache số thông báo chưa đọc của từng user cho /api/notifications/unread-count (frontend polling)
+ * - Mỗi lần poll chỉ đọc từ bộ nhớ, database chỉ được đếm lại khi entry bị đánh dấu cũ hoặc hết hạn
+ * - Khi thông báo được tạo/đọc/xóa, entry của user bị đánh dấu cũ ngay sau khi transaction commit
+ * - Mỗi entry có version: nếu entry bị đánh dấu cũ trong lúc đang đếm lại, kết quả đếm (có thể đã cũ) bị bỏ qua
+ * - TTL (mặc định 30 giây) giới hạn độ trễ khi thông báo được ghi từ instance khác
+ */
+@Service
+public class UnreadNotificationCacheService {
+
+    private final ConcurrentMap<Long, CachedCount> counts = new ConcurrentHashMap<>();
+
+    @Value("${app.unread-notification-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    /**
+     * Lấy số thông báo chưa đọc của user
+     */
+    public long getUnreadCount(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(userId);
+        if (cached != null && cached.isValid(now)) {
+            return cached.count;
+        }
+        if (cached == null) {
+            // Giữ chỗ trước khi đếm để invalidate() trong lúc đếm có entry để tăng version
+            CachedCount placeholder = new CachedCount(-1, 0, now + ttlSeconds * 1000);
+            cached = counts.putIfAbsent(userId, placeholder);
+            if (cached == null) {
+                cached = placeholder;
+            }
+        }
+
+        long version = cached.version;
+        long count = notificationRepository.countByUserIdAndIsReadFalse(userId);
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        counts.computeIfPresent(userId, (id, current) ->
+                current.version == version ? new CachedCount(count, version, expiresAt) : current);
+        return count;
+    }
+
+    /**
+     * Đánh dấu số đã cache của user là cũ (gọi khi thông báo của user được tạo/đọc/xóa)
+     * Nếu đang trong transaction thì chỉ đánh dấu sau khi commit, tránh poll khác đếm lại dữ liệu chưa commit
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markStale(userId);
+                }
+            });
+        } else {
+            markStale(userId);
+        }
+    }
+
+    /**
+     * Chạy mỗi 5 phút để dọn các entry đã hết hạn (user không còn poll)
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        counts.values().removeIf(cached -> now >= cached.expiresAt);
+    }
+
+    private void markStale(Long userId) {
+        counts.computeIfPresent(userId, (id, current) ->
+                new CachedCount(-1, current.version + 1, current.expiresAt));
+    }
+
+    /**
+     * Số thông báo chưa đọc đã cache (count = -1 nghĩa là cần đếm lại)
+     */
+    private static class CachedCount {
+        private final long count;
+        private final long version;
+        private final long expiresAt;
+
+        CachedCount(long count, long version, long expiresAt) {
+            this.count = count;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid(long now) {
+            return count >= 0 && now < expiresAt;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentHistoryRepository;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.EmailVerificationTokenRepository;
+import ut.edu.vaccinationmanagementsystem.repository.FamilyMemberRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationArchiveRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+import ut.edu.vaccinationmanagementsystem.repository.PasswordResetTokenRepository;
+import ut.edu.vaccinationmanagementsystem.repository.ScreeningRepository;
+import ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserVoucherRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+import ut.edu.vaccinationmanagementsystem.repository.WorkScheduleRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xóa user cùng các bản ghi liên quan bằng các câu UPDATE/DELETE theo danh sách user ID
+ * - Mỗi bảng chỉ cần một câu lệnh cho cả danh sách user, không load và xóa từng entity
+ * - Dùng cho admin xóa một user và job dọn dẹp user INACTIVE (xóa theo lô, mỗi lô một transaction)
+ * - countAffected() đếm số bản ghi sẽ bị ảnh hưởng mà không thay đổi dữ liệu (dry-run)
+ */
+@Service
+@Transactional
+public class UserPurgeService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository notificationArchiveRepository;
+
+    @Autowired
+    private FamilyMemberRepository familyMemberRepository;
+
+    @Autowired
+    private WorkScheduleRepository workScheduleRepository;
+
+    @Autowired
+    private AppointmentHistoryRepository appointmentHistoryRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private AdverseReactionRepository adverseReactionRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private StaffInfoRepository staffInfoRepository;
+
+    @Autowired
+    private EmailVerificationTokenRepository emailVerificationTokenRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Autowired
+    private UserVoucherRepository userVoucherRepository;
+
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+
+    @Autowired
+    private AdverseReactionCounterService adverseReactionCounterService;
+
+    @Autowired
+    private AppointmentSearchIndexService appointmentSearchIndexService;
+
+    @Autowired
+    private UserStatusCacheService userStatusCacheService;
+
+    @Autowired
+    private UnreadNotificationCacheService unreadNotificationCacheService;
+
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+
+    @Autowired
+    private StaffActivityService staffActivityService;
+
+    /**
+     * Đếm số bản ghi sẽ bị xóa/cập nhật nếu xóa các user (dry-run, không thay đổi dữ liệu)
+     * @return Số bản ghi theo từng bảng, cùng khóa với kết quả của purgeUsers()
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> countAffected(Collection<Long> userIds) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counts;
+        }
+        counts.put("notifications", notificationRepository.countByUserIdIn(userIds));
+        counts.put("notificationArchives", notificationArchiveRepository.countByUserIdIn(userIds));
+        counts.put("familyMembers", familyMemberRepository.countByUserIdIn(userIds));
+        counts.put("workSchedules", workScheduleRepository.countByUserIdIn(userIds));
+        counts.put("appointmentHistories", appointmentHistoryRepository.countByChangedByIdIn(userIds));
+        counts.put("screenings", screeningRepository.countByDoctorIdIn(userIds));
+        counts.put("adverseReactionsHandled", adverseReactionRepository.countByHandledByIdIn(userIds));
+        counts.put("adverseReactionsOfRecords", adverseReactionRepository.countByVaccinationRecordUserIdIn(userIds));
+        counts.put("vaccinationRecords", vaccinationRecordRepository.countByUserIdIn(userIds));
+        counts.put("vaccinationRecordsNurseCleared", vaccinationRecordRepository.countByNurseIdIn(userIds));
+        counts.put("appointmentsBookedByCleared", appointmentRepository.countByBookedByUserIdIn(userIds));
+        counts.put("appointmentsBookedForCleared", (long) appointmentRepository.findIdsLinkedToUsers(userIds).size());
+        counts.put("staffInfos", staffInfoRepository.countByUserIdIn(userIds));
+        counts.put("emailVerificationTokens", emailVerificationTokenRepository.countByUserIdIn(userIds));
+        counts.put("passwordResetTokens", passwordResetTokenRepository.countByUserIdIn(userIds));
+        counts.put("userVouchers", userVoucherRepository.countByUserIdIn(userIds));
+        counts.put("users", userRepository.countByIdIn(userIds));
+        return counts;
+    }
+
+    /**
+     * Xóa các user cùng toàn bộ bản ghi liên quan (thứ tự câu lệnh đảm bảo không vi phạm foreign key)
+     * @return Số bản ghi đã xóa/cập nhật theo từng bảng
+     */
+    public Map<String, Long> purgeUsers(Collection<Long> userIds) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counts;
+        }
+
+        // Đọc trước các giá trị cần dùng sau khi xóa (thống kê dashboard, khóa tìm kiếm theo số điện thoại)
+        List<Object[]> injectionGroups = vaccinationRecordRepository.countInjectionsByUserIds(userIds);
+        List<Object[]> userGroups = userRepository.countGroupByCreateAtAndRoleForIds(userIds);
+        List<Long> linkedAppointmentIds = appointmentRepository.findIdsLinkedToUsers(userIds);
+        List<Object[]> notificationGroups = notificationRepository.countGroupByCreatedDateTypeAndReadForUsers(userIds);
+        List<Object[]> archiveGroups = notificationArchiveRepository.countGroupByCreatedDateAndTypeForUsers(userIds);
+        List<Object[]> reactionGroups = adverseReactionRepository.countGroupByCenterForUsers(userIds);
+        List<Object[]> nurseInjectionGroups = vaccinationRecordRepository.countGroupByNurseAndInjectionDateForUsers(userIds);
+
+        counts.put("notifications", (long) notificationRepository.deleteByUserIds(userIds));
+        counts.put("notificationArchives", (long) notificationArchiveRepository.deleteByUserIds(userIds));
+
+        // Appointment đặt cho người thân phải bỏ liên kết trước khi xóa người thân
+        appointmentRepository.clearFamilyMemberOfUsers(userIds);
+        counts.put("familyMembers", (long) familyMemberRepository.deleteByUserIds(userIds));
+
+        counts.put("workSchedules", (long) workScheduleRepository.deleteByUserIds(userIds));
+        counts.put("appointmentHistories", (long) appointmentHistoryRepository.deleteByChangedByIds(userIds));
+        counts.put("screenings", (long) screeningRepository.deleteByDoctorIds(userIds));
+        counts.put("adverseReactionsHandled", (long) adverseReactionRepository.deleteByHandledByIds(userIds));
+
+        // Hồ sơ tiêm của user bị xóa (user_id là NOT NULL), kèm phản ứng phụ của các hồ sơ đó
+        counts.put("adverseReactionsOfRecords", (long) adverseReactionRepository.deleteByVaccinationRecordUserIds(userIds));
+        counts.put("vaccinationRecords", (long) vaccinationRecordRepository.deleteByUserIds(userIds));
+        counts.put("vaccinationRecordsNurseCleared", (long) vaccinationRecordRepository.clearNurse(userIds));
+
+        counts.put("appointmentsBookedByCleared", (long) appointmentRepository.clearBookedByUser(userIds));
+        appointmentRepository.clearBookedForUser(userIds);
+        counts.put("appointmentsBookedForCleared", (long) linkedAppointmentIds.size());
+
+        counts.put("staffInfos", (long) staffInfoRepository.deleteByUserIds(userIds));
+        counts.put("emailVerificationTokens", (long) emailVerificationTokenRepository.deleteByUserIds(userIds));
+        counts.put("passwordResetTokens", (long) passwordResetTokenRepository.deleteByUserIds(userIds));
+        counts.put("userVouchers", (long) userVoucherRepository.deleteByUserIds(userIds));
+        counts.put("users", (long) userRepository.deleteByIds(userIds));
+
+        // Cập nhật thống kê dashboard theo nhóm thay vì từng bản ghi
+        for (Object[] row : injectionGroups) {
+            dashboardStatisticsService.recordInjectionsDeleted((LocalDate) row[0], (Long) row[1], (Long) row[2],
+                    ((Number) row[3]).longValue());
+        }
+        for (Object[] row : userGroups) {
+            dashboardStatisticsService.recordUsersDeleted((LocalDate) row[0], (Role) row[1], ((Number) row[2]).longValue());
+        }
+        for (Object[] row : notificationGroups) {
+            long count = ((Number) row[3]).longValue();
+            notificationCounterService.recordDeleted((LocalDate) row[0], (NotificationType) row[1], count,
+                    Boolean.TRUE.equals(row[2]) ? count : 0);
+        }
+        // Thông báo lưu trữ đều đã đọc
+        for (Object[] row : archiveGroups) {
+            long count = ((Number) row[2]).longValue();
+            notificationCounterService.recordDeleted((LocalDate) row[0], (NotificationType) row[1], count, count);
+        }
+        for (Object[] row : reactionGroups) {
+            adverseReactionCounterService.recordDeleted((Long) row[0], ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(), ((Number) row[3]).longValue());
+        }
+        // Mũi tiêm của y tá khác cho user bị xóa; số liệu của chính nhân viên bị xóa thì bỏ hẳn
+        for (Object[] row : nurseInjectionGroups) {
+            staffActivityService.recordInjectionsDeleted((Long) row[0], (LocalDate) row[1], ((Number) row[2]).longValue());
+        }
+        staffActivityService.deleteStaff(userIds);
+
+        appointmentSearchIndexService.reindexAppointments(linkedAppointmentIds);
+        patientTimelineService.invalidateUsers(userIds);
+        for (Long userId : userIds) {
+            userStatusCacheService.invalidate(userId);
+            unreadNotificationCacheService.invalidate(userId);
+        }
+        return counts;
+    }
+}
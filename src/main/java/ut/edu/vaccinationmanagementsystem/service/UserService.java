@@ -34,38 +34,25 @@ public class UserService {
     private EmailVerificationService emailVerificationService;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.EmailVerificationTokenRepository emailVerificationTokenRepository;
-    
-    @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository staffInfoRepository;
-    
-    @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository vaccinationCenterRepository;
-    
-    @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.NotificationRepository notificationRepository;
+    private DashboardStatisticsService dashboardStatisticsService;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository appointmentRepository;
+    private UserStatusCacheService userStatusCacheService;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository vaccinationRecordRepository;
+    private AppointmentSearchIndexService appointmentSearchIndexService;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.FamilyMemberRepository familyMemberRepository;
-    
-    
-    @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.ScreeningRepository screeningRepository;
+    private ut.edu.vaccinationmanagementsystem.repository.EmailVerificationTokenRepository emailVerificationTokenRepository;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.AdverseReactionRepository adverseReactionRepository;
+    private ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository staffInfoRepository;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.AppointmentHistoryRepository appointmentHistoryRepository;
+    private ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository vaccinationCenterRepository;
     
     @Autowired
-    private ut.edu.vaccinationmanagementsystem.repository.WorkScheduleRepository workScheduleRepository;
+    private UserPurgeService userPurgeService;
     
     // Đăng ký tài khoản mới
     public User register(UserRegisterDTO dto) {
@@ -122,6 +109,7 @@ public class UserService {
         
         try {
             user = userRepository.save(user);
+            dashboardStatisticsService.recordUserCreated(user);
             
             // Tạo token xác thực email và gửi email
             // Nếu gửi email thất bại, vẫn giữ user status = INACTIVE
@@ -160,6 +148,7 @@ public class UserService {
             
             // Xóa user cũ
             userRepository.delete(existingUser);
+            dashboardStatisticsService.recordUserDeleted(existingUser);
         }
         
         // Đăng ký user mới
@@ -208,6 +197,11 @@ public class UserService {
             }
             
             user.setPhoneNumber(newPhoneNumber);
+            
+            // Cập nhật bảng tra cứu lịch hẹn của lễ tân nếu số điện thoại thay đổi
+            if (!normalizedNewPhone.equals(normalizedOldPhone)) {
+                appointmentSearchIndexService.reindexUser(user.getId());
+            }
         }
         if (dto.getDayOfBirth() != null) {
             user.setDayOfBirth(dto.getDayOfBirth());
@@ -265,7 +259,9 @@ public class UserService {
             user.setStatus(UserStatus.ACTIVE);
             user.setCreateAt(LocalDate.now());
             
-            return userRepository.save(user);
+            user = userRepository.save(user);
+            dashboardStatisticsService.recordUserCreated(user);
+            return user;
         } else {
             // Cập nhật thông tin nếu cần
             if (name != null && !name.equals(user.getFullName())) {
@@ -327,6 +323,7 @@ public class UserService {
         user.setCreateAt(LocalDate.now());
         
         User savedUser = userRepository.save(user);
+        dashboardStatisticsService.recordUserCreated(savedUser);
         
         // Handle StaffInfo if role is a staff member
         if (dto.getRole() == Role.DOCTOR || dto.getRole() == Role.NURSE || dto.getRole() == Role.RECEPTIONIST) {
@@ -377,7 +374,9 @@ public class UserService {
         if (dto.getFullName() != null) {
             user.setFullName(dto.getFullName().trim());
         }
+        boolean phoneChanged = false;
         if (dto.getPhoneNumber() != null) {
+            phoneChanged = !dto.getPhoneNumber().trim().equals(user.getPhoneNumber());
             user.setPhoneNumber(dto.getPhoneNumber().trim());
         }
         if (dto.getDayOfBirth() != null) {
@@ -392,6 +391,7 @@ public class UserService {
         if (dto.getCitizenId() != null) {
             user.setCitizenId(dto.getCitizenId().trim().isEmpty() ? null : dto.getCitizenId().trim());
         }
+        Role oldRole = user.getRole();
         if (dto.getRole() != null) {
             user.setRole(dto.getRole());
         }
@@ -400,6 +400,11 @@ public class UserService {
         }
         
         User savedUser = userRepository.save(user);
+        dashboardStatisticsService.recordUserRoleChanged(savedUser, oldRole);
+        userStatusCacheService.invalidate(savedUser.getId());
+        if (phoneChanged) {
+            appointmentSearchIndexService.reindexUser(savedUser.getId());
+        }
         
         // Update StaffInfo if role is a staff member
         if (savedUser.getRole() == Role.DOCTOR || savedUser.getRole() == Role.NURSE || savedUser.getRole() == Role.RECEPTIONIST) {
@@ -442,66 +447,15 @@ public class UserService {
     
     /**
      * Admin xóa user
-     * Xóa tất cả các bản ghi liên quan trước khi xóa user để tránh foreign key constraint
+     * Các bản ghi liên quan được xóa/cập nhật bằng câu lệnh hàng loạt trước khi xóa user để tránh foreign key constraint
+     * @return Số bản ghi đã xóa/cập nhật theo từng bảng
      */
     @Transactional
-    public void deleteUserByAdmin(Long userId) {
-        User user = getUserById(userId);
-        
-        // Không cho phép xóa chính mình
-        // (Có thể thêm check này nếu cần)
-        
-        // Xóa các bản ghi liên quan trước khi xóa user
-        
-        // 1. Xóa notifications
-        notificationRepository.findByUserIdOrderByCreatedAtDesc(userId).forEach(notificationRepository::delete);
-        
-        // 2. Xóa family members
-        familyMemberRepository.findByUserOrderByCreatedAtDesc(user).forEach(familyMemberRepository::delete);
-        
-        // 3. Xóa work schedules
-        workScheduleRepository.findByUserId(userId).forEach(workScheduleRepository::delete);
-        
-        // 4. Xóa appointment histories (nơi user là người thay đổi)
-        // Sử dụng findAll và filter vì không có findByChangedById
-        appointmentHistoryRepository.findAll().stream()
-            .filter(history -> history.getChangedBy() != null && history.getChangedBy().getId().equals(userId))
-            .forEach(appointmentHistoryRepository::delete);
-        
-        // 5. Xóa screenings (nơi user là bác sĩ)
-        screeningRepository.findByDoctorIdOrderByScreenedAtDesc(userId).forEach(screeningRepository::delete);
-        
-        // 6. Xóa adverse reactions (nơi user là người xử lý)
-        adverseReactionRepository.findByHandledById(userId).forEach(adverseReactionRepository::delete);
-        
-        // 7. Xử lý vaccination records
-        // 7a. Xóa tất cả records có user là người được tiêm (vì user_id là NOT NULL)
-        vaccinationRecordRepository.findByUserIdOrderByInjectionDateDesc(userId).forEach(vaccinationRecordRepository::delete);
-        
-        // 7b. Cập nhật records có nurse là user này (set nurse = null)
-        vaccinationRecordRepository.findAll().stream()
-            .filter(record -> record.getNurse() != null && record.getNurse().getId().equals(userId))
-            .forEach(record -> {
-                record.setNurse(null);
-                vaccinationRecordRepository.save(record);
-            });
-        
-        // 8. Cập nhật appointments (set booked_by_user_id và booked_for_user_id = null)
-        // Lưu ý: Có thể cần xóa appointments hoặc set null tùy business logic
-        appointmentRepository.findByBookedByUserId(userId).forEach(appointment -> {
-            appointment.setBookedByUser(null);
-            appointmentRepository.save(appointment);
-        });
-        appointmentRepository.findByBookedForUserId(userId).forEach(appointment -> {
-            appointment.setBookedForUser(null);
-            appointmentRepository.save(appointment);
-        });
-        
-        // 9. Xóa StaffInfo nếu có
-        staffInfoRepository.findByUser(user).ifPresent(staffInfoRepository::delete);
+    public java.util.Map<String, Long> deleteUserByAdmin(Long userId) {
+        // Kiểm tra user tồn tại
+        getUserById(userId);
         
-        // 10. Cuối cùng mới xóa user
-        userRepository.delete(user);
+        return userPurgeService.purgeUsers(java.util.List.of(userId));
     }
 }
 
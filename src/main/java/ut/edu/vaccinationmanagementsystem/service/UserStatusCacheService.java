@@ -0,0 +1,120 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache trạng thái user cho UserStatusInterceptor
+ * - Mỗi request chỉ đọc trạng thái từ bộ nhớ, database chỉ được hỏi lại khi entry hết hạn (TTL ngắn, mặc định 10 giây)
+ * - Khi admin sửa/khóa/xóa user, entry bị xóa ngay sau khi transaction commit nên việc khóa tài khoản có hiệu lực tức thì
+ *   trên instance xử lý thao tác, và trong vòng TTL trên các instance khác
+ * - Mỗi entry có version: nếu entry bị đánh dấu cũ trong lúc đang đọc lại, trạng thái vừa đọc (có thể đã cũ) không được cache
+ */
+@Service
+public class UserStatusCacheService {
+
+    private final ConcurrentMap<Long, CachedStatus> statuses = new ConcurrentHashMap<>();
+
+    @Value("${app.user-status-cache.ttl-seconds:10}")
+    private long ttlSeconds;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Lấy trạng thái hiện tại của user (null nếu user không còn tồn tại)
+     */
+    public UserStatus getStatus(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedStatus cached = statuses.get(userId);
+        if (cached != null && cached.isValid(now)) {
+            return cached.status;
+        }
+        if (cached == null) {
+            // Giữ chỗ trước khi đọc để invalidate() trong lúc đọc có entry để tăng version
+            CachedStatus placeholder = new CachedStatus(null, false, 0, now + ttlSeconds * 1000);
+            cached = statuses.putIfAbsent(userId, placeholder);
+            if (cached == null) {
+                cached = placeholder;
+            }
+        }
+
+        long version = cached.version;
+        UserStatus status = userRepository.findStatusById(userId).orElse(null);
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        statuses.computeIfPresent(userId, (id, current) ->
+                current.version == version ? new CachedStatus(status, true, version, expiresAt) : current);
+        return status;
+    }
+
+    /**
+     * Kiểm tra user có đang bị khóa không
+     */
+    public boolean isLocked(Long userId) {
+        return userId != null && getStatus(userId) == UserStatus.LOCKED;
+    }
+
+    /**
+     * Đánh dấu trạng thái đã cache của user là cũ (gọi khi status thay đổi hoặc user bị xóa)
+     * Nếu đang trong transaction thì chỉ đánh dấu sau khi commit, tránh request khác đọc lại giá trị cũ chưa commit
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markStale(userId);
+                }
+            });
+        } else {
+            markStale(userId);
+        }
+    }
+
+    /**
+     * Chạy mỗi 5 phút để dọn các entry đã hết hạn (user không còn hoạt động)
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        statuses.values().removeIf(cached -> now >= cached.expiresAt);
+    }
+
+    private void markStale(Long userId) {
+        statuses.computeIfPresent(userId, (id, current) ->
+                new CachedStatus(null, false, current.version + 1, current.expiresAt));
+    }
+
+    /**
+     * Trạng thái user đã cache kèm thời điểm hết hạn (loaded = false nghĩa là cần đọc lại)
+     */
+    private static class CachedStatus {
+        private final UserStatus status;
+        private final boolean loaded;
+        private final long version;
+        private final long expiresAt;
+
+        CachedStatus(UserStatus status, boolean loaded, long version, long expiresAt) {
+            this.status = status;
+            this.loaded = loaded;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid(long now) {
+            return loaded && now < expiresAt;
+        }
+    }
+}
@@ -41,6 +41,21 @@ public class VaccinationRecordService {
     @Autowired
     private EmailService emailService;
     
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+    
+    @Autowired
+    private StaffActivityService staffActivityService;
+    
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
+    
+    @Autowired
+    private VaccineLotAllocationService vaccineLotAllocationService;
+    
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     /**
      * Tạo số chứng nhận tiêm chủng tự động
      * Format: CERT-YYYYMMDD-HHMMSS-XXXX (XXXX là số random 4 chữ số)
@@ -285,15 +300,8 @@ public class VaccinationRecordService {
         // Chỉ cần kiểm tra xem appointment có reservedVaccineLot không
         if (appointment.getReservedVaccineLot() == null) {
             // Nếu không có reserved lot (backward compatibility hoặc appointment cũ), vẫn trừ như cũ
-            // Trừ stock quantity tại trung tâm
-            int currentStock = centerVaccine.getStockQuantity();
-            centerVaccine.setStockQuantity(currentStock - 1);
-            centerVaccineRepository.save(centerVaccine);
-            
-            // Trừ remaining quantity của vaccine lot
-            int currentLotRemaining = vaccineLot.getRemainingQuantity();
-            vaccineLot.setRemainingQuantity(currentLotRemaining - 1);
-            vaccineLotRepository.save(vaccineLot);
+            // Trừ stock quantity tại trung tâm và remaining quantity của vaccine lot (UPDATE có điều kiện, không âm)
+            vaccineLotAllocationService.consume(vaccineLot, centerVaccine);
         } else {
             // Đã có reserved lot, không cần trừ nữa
             // Chỉ cần đảm bảo lot được sử dụng đúng
@@ -320,6 +328,14 @@ public class VaccinationRecordService {
         // Lưu VaccinationRecord
         VaccinationRecord savedRecord = vaccinationRecordRepository.save(record);
         
+        // Cập nhật thống kê dashboard
+        dashboardStatisticsService.recordAppointmentStatusChanged(appointment, oldStatus);
+        dashboardStatisticsService.recordInjection(savedRecord);
+        staffActivityService.recordInjection(savedRecord);
+        // Liều đã giữ chuyển thành đã tiêm (hoặc tồn kho vừa bị trừ nếu chưa giữ trước)
+        inventoryPositionService.vaccineChanged(appointment.getVaccine().getId());
+        patientTimelineService.vaccinationRecordChanged(savedRecord);
+        
         // Gửi email chứng nhận
         sendCertificateEmail(savedRecord);
         
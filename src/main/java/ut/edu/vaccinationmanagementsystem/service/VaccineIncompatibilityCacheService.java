@@ -0,0 +1,160 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineIncompatibilityRepository;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ma trận vaccine không tương thích giữ trong bộ nhớ (dùng khi kiểm tra đặt lịch)
+ * - Mỗi vaccine có một BitSet các vaccine không tương thích (theo chỉ số nội bộ) và số ngày cách nhau tối thiểu của từng cặp
+ * - Kiểm tra một lần đặt lịch là phép giao BitSet giữa vaccine mới và tập vaccine gần đây của người tiêm, không truy vấn database
+ * - Ma trận được đọc khi ứng dụng khởi động, đọc lại định kỳ và khi admin yêu cầu (reload)
+ * - Mỗi lần đọc tạo ma trận mới rồi thay thế, request đang kiểm tra luôn dùng một ma trận nhất quán
+ */
+@Service
+public class VaccineIncompatibilityCacheService {
+
+    private volatile Matrix matrix = Matrix.EMPTY;
+
+    @Autowired
+    private VaccineIncompatibilityRepository vaccineIncompatibilityRepository;
+
+    /**
+     * Đọc ma trận khi ứng dụng khởi động
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Chạy mỗi 10 phút: đọc lại ma trận để nhận các thay đổi ghi thẳng vào database hoặc từ instance khác
+     */
+    @Scheduled(fixedDelay = 600_000, initialDelay = 600_000)
+    public void refresh() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Failed to refresh vaccine incompatibility matrix: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc lại toàn bộ ma trận từ database
+     * @return Số cặp vaccine không tương thích
+     */
+    public int reload() {
+        List<Object[]> pairs = vaccineIncompatibilityRepository.findAllPairs();
+        matrix = Matrix.build(pairs);
+        return matrix.pairCount;
+    }
+
+    /**
+     * Các vaccine trong danh sách không tương thích với vaccine mới
+     * @param vaccineId Vaccine muốn đặt
+     * @param otherVaccineIds Vaccine trong các lịch hẹn gần đây của người tiêm
+     * @return vaccineId không tương thích → số ngày cách nhau tối thiểu (rỗng nếu tương thích với tất cả)
+     */
+    public Map<Long, Integer> findIncompatible(Long vaccineId, Collection<Long> otherVaccineIds) {
+        Matrix current = matrix;
+        Integer index = current.indexByVaccineId.get(vaccineId);
+        if (index == null || otherVaccineIds.isEmpty()) {
+            return Map.of();
+        }
+        BitSet others = new BitSet(current.vaccineIds.length);
+        for (Long otherVaccineId : otherVaccineIds) {
+            Integer otherIndex = current.indexByVaccineId.get(otherVaccineId);
+            if (otherIndex != null) {
+                others.set(otherIndex);
+            }
+        }
+        others.and(current.incompatible[index]);
+        if (others.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> result = new HashMap<>();
+        for (int other = others.nextSetBit(0); other >= 0; other = others.nextSetBit(other + 1)) {
+            result.put(current.vaccineIds[other], current.minDays.get(pairKey(index, other)));
+        }
+        return result;
+    }
+
+    private static long pairKey(int index1, int index2) {
+        return ((long) Math.min(index1, index2) << 32) | Math.max(index1, index2);
+    }
+
+    /**
+     * Ma trận không tương thích (không thay đổi sau khi tạo)
+     */
+    private static class Matrix {
+        private static final Matrix EMPTY = build(List.of());
+
+        private final Map<Long, Integer> indexByVaccineId;
+        private final long[] vaccineIds; // chỉ số → vaccineId
+        private final BitSet[] incompatible; // chỉ số → các chỉ số không tương thích
+        private final Map<Long, Integer> minDays; // pairKey → số ngày cách nhau tối thiểu
+        private final int pairCount;
+
+        private Matrix(Map<Long, Integer> indexByVaccineId, long[] vaccineIds, BitSet[] incompatible,
+                       Map<Long, Integer> minDays) {
+            this.indexByVaccineId = indexByVaccineId;
+            this.vaccineIds = vaccineIds;
+            this.incompatible = incompatible;
+            this.minDays = minDays;
+            this.pairCount = minDays.size();
+        }
+
+        /**
+         * Tạo ma trận từ các dòng [vaccine1Id, vaccine2Id, minDaysBetween]
+         * Cặp bị khai báo nhiều lần (kể cả theo chiều ngược lại) dùng số ngày lớn nhất
+         */
+        static Matrix build(List<Object[]> pairs) {
+            Map<Long, Integer> indexByVaccineId = new HashMap<>();
+            List<Long> vaccineIds = new ArrayList<>();
+            List<int[]> indexedPairs = new ArrayList<>();
+            for (Object[] pair : pairs) {
+                if (pair[0] == null || pair[1] == null) {
+                    continue;
+                }
+                int index1 = indexByVaccineId.computeIfAbsent((Long) pair[0], id -> {
+                    vaccineIds.add(id);
+                    return vaccineIds.size() - 1;
+                });
+                int index2 = indexByVaccineId.computeIfAbsent((Long) pair[1], id -> {
+                    vaccineIds.add(id);
+                    return vaccineIds.size() - 1;
+                });
+                int days = pair[2] != null ? ((Number) pair[2]).intValue() : 0;
+                indexedPairs.add(new int[] {index1, index2, days});
+            }
+
+            int size = vaccineIds.size();
+            BitSet[] incompatible = new BitSet[size];
+            for (int i = 0; i < size; i++) {
+                incompatible[i] = new BitSet(size);
+            }
+            Map<Long, Integer> minDays = new HashMap<>();
+            for (int[] pair : indexedPairs) {
+                incompatible[pair[0]].set(pair[1]);
+                incompatible[pair[1]].set(pair[0]);
+                minDays.merge(pairKey(pair[0], pair[1]), pair[2], Math::max);
+            }
+
+            long[] ids = new long[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = vaccineIds.get(i);
+            }
+            return new Matrix(indexByVaccineId, ids, incompatible, minDays);
+        }
+    }
+}
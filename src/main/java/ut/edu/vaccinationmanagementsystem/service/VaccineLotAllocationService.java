@@ -0,0 +1,290 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ut.edu.vaccinationmanagementsystem.entity.CenterVaccine;
+import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
+import ut.edu.vaccinationmanagementsystem.entity.VaccineLot;
+import ut.edu.vaccinationmanagementsystem.repository.CenterVaccineRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineLotRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cấp phát liều vaccine từ các lô theo FIFO (hết hạn trước)
+ * - Database là nguồn dữ liệu chính: tồn kho trung tâm và số liều của lô chỉ được trừ bằng câu UPDATE có điều kiện,
+ *   nên hai request đồng thời không thể lấy cùng một liều cuối cùng và số lượng không bao giờ âm
+ * - Mỗi vaccine có một hàng đợi ID lô trong bộ nhớ (đã sắp xếp FIFO) để không phải load toàn bộ lô mỗi lần đặt lịch,
+ *   hàng đợi được bảo vệ bởi khóa phân đoạn (striped lock) theo vaccine ID
+ * - Trạng thái EXPIRED/DEPLETED được cập nhật định kỳ bằng câu UPDATE hàng loạt thay vì trong luồng đặt lịch
+ */
+@Service
+@Transactional
+public class VaccineLotAllocationService {
+
+    private static final int LOCK_STRIPES = 32;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private final ConcurrentMap<Long, LotQueue> queues = new ConcurrentHashMap<>();
+
+    @Autowired
+    private VaccineLotRepository vaccineLotRepository;
+
+    @Autowired
+    private CenterVaccineRepository centerVaccineRepository;
+
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
+
+    public VaccineLotAllocationService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Giữ một liều vaccine cho lịch hẹn
+     * @return Lô vaccine đã được trừ
+     */
+    public VaccineLot allocateOne(CenterVaccine centerVaccine, Vaccine vaccine) {
+        return allocate(centerVaccine, vaccine, 1).get(0).getLot();
+    }
+
+    /**
+     * Giữ nhiều liều vaccine cùng lúc, lấy lần lượt từ các lô hết hạn sớm nhất
+     * Nếu transaction rollback, số lượng trong database được hoàn lại cùng transaction
+     * @throws RuntimeException nếu trung tâm hết hàng hoặc các lô không đủ số liều
+     */
+    public List<LotAllocation> allocate(CenterVaccine centerVaccine, Vaccine vaccine, int doses) {
+        if (doses <= 0) {
+            throw new RuntimeException("Số liều cần giữ phải lớn hơn 0");
+        }
+
+        // Trừ tồn kho tại trung tâm trước (một câu UPDATE có điều kiện)
+        if (centerVaccineRepository.decrementStock(centerVaccine.getId(), doses) == 0) {
+            throw new RuntimeException("Vaccine hiện đang hết hàng tại trung tâm này");
+        }
+        registerRollbackInvalidation(vaccine.getId());
+        inventoryPositionService.vaccineChanged(vaccine.getId());
+
+        LocalDate today = LocalDate.now();
+        List<LotAllocation> allocations = new ArrayList<>();
+        int needed = doses;
+
+        for (Long lotId : snapshotQueue(vaccine.getId(), today)) {
+            if (needed == 0) {
+                break;
+            }
+            Optional<Integer> remaining = vaccineLotRepository.findUsableRemainingQuantity(lotId, today);
+            if (remaining.isEmpty() || remaining.get() <= 0) {
+                // Lô đã hết hoặc không còn dùng được → bỏ khỏi hàng đợi
+                removeFromQueue(vaccine.getId(), lotId);
+                continue;
+            }
+
+            int take = Math.min(needed, remaining.get());
+            if (vaccineLotRepository.decrementRemainingQuantity(lotId, take, today) == 0) {
+                // Request khác vừa lấy lô này, thử lô tiếp theo và dựng lại hàng đợi sau transaction
+                invalidateAfterCompletion(vaccine.getId());
+                continue;
+            }
+            if (take == remaining.get()) {
+                removeFromQueue(vaccine.getId(), lotId);
+            }
+
+            needed -= take;
+            allocations.add(new LotAllocation(vaccineLotRepository.getReferenceById(lotId), take));
+        }
+
+        if (needed > 0) {
+            throw new RuntimeException("Không có lô vaccine nào khả dụng cho vaccine này. Vui lòng liên hệ quản trị viên.");
+        }
+        return allocations;
+    }
+
+    /**
+     * Trả lại số liều đã giữ vào lô và tồn kho trung tâm (khi hủy lịch hẹn đã giữ vaccine)
+     */
+    public void release(VaccineLot lot, CenterVaccine centerVaccine, int doses) {
+        if (lot != null) {
+            vaccineLotRepository.incrementRemainingQuantity(lot.getId(), doses);
+            if (lot.getVaccine() != null) {
+                invalidateAfterCompletion(lot.getVaccine().getId());
+                inventoryPositionService.vaccineChanged(lot.getVaccine().getId());
+            }
+        }
+        if (centerVaccine != null) {
+            centerVaccineRepository.incrementStock(centerVaccine.getId(), doses);
+            inventoryPositionService.vaccineChanged(centerVaccine.getVaccine().getId());
+        }
+    }
+
+    /**
+     * Trừ một liều từ lô do y tá chọn khi tiêm (lịch hẹn chưa giữ vaccine trước)
+     * @throws RuntimeException nếu trung tâm hoặc lô đã hết hàng
+     */
+    public void consume(VaccineLot lot, CenterVaccine centerVaccine) {
+        if (centerVaccineRepository.decrementStock(centerVaccine.getId(), 1) == 0) {
+            throw new RuntimeException("Vaccine is out of stock at this center");
+        }
+        if (vaccineLotRepository.consumeRemainingQuantity(lot.getId(), 1) == 0) {
+            throw new RuntimeException("Vaccine lot is out of stock");
+        }
+        if (lot.getVaccine() != null) {
+            invalidateAfterCompletion(lot.getVaccine().getId());
+        }
+        inventoryPositionService.vaccineChanged(centerVaccine.getVaccine().getId());
+    }
+
+    /**
+     * Xóa hàng đợi lô của vaccine (khi nhập/sửa/xóa lô) để lần sau đọc lại từ database, kèm tồn kho của vaccine
+     */
+    public void invalidate(Long vaccineId) {
+        if (vaccineId != null) {
+            invalidateAfterCompletion(vaccineId);
+            inventoryPositionService.vaccineChanged(vaccineId);
+        }
+    }
+
+    /**
+     * Chạy mỗi 10 phút (và ngay sau nửa đêm) để chuyển trạng thái lô hết hạn/hết hàng
+     */
+    @Scheduled(cron = "0 */10 * * * ?")
+    public void sweepLotStatuses() {
+        try {
+            updateLotStatuses();
+        } catch (Exception e) {
+            System.err.println("Failed to update vaccine lot statuses: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cập nhật trạng thái EXPIRED/DEPLETED cho tất cả lô bằng câu UPDATE hàng loạt
+     * @return Số lô đã được cập nhật
+     */
+    public int updateLotStatuses() {
+        int updated = vaccineLotRepository.markExpiredLots(LocalDate.now());
+        updated += vaccineLotRepository.markDepletedLots();
+        if (updated > 0) {
+            runAfterCompletion(queues::clear);
+            inventoryPositionService.allChanged();
+        }
+        return updated;
+    }
+
+    /**
+     * Lấy bản sao danh sách ID lô trong hàng đợi của vaccine, dựng lại từ database nếu chưa có hoặc đã sang ngày mới
+     */
+    private List<Long> snapshotQueue(Long vaccineId, LocalDate today) {
+        ReentrantLock lock = lockFor(vaccineId);
+        lock.lock();
+        try {
+            LotQueue queue = queues.get(vaccineId);
+            if (queue == null || !today.equals(queue.builtFor)) {
+                queue = new LotQueue(today,
+                        vaccineLotRepository.findAvailableLotIdsByVaccineIdOrderByExpiryDate(vaccineId, today));
+                queues.put(vaccineId, queue);
+            }
+            return new ArrayList<>(queue.lotIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeFromQueue(Long vaccineId, Long lotId) {
+        ReentrantLock lock = lockFor(vaccineId);
+        lock.lock();
+        try {
+            LotQueue queue = queues.get(vaccineId);
+            if (queue != null) {
+                queue.lotIds.remove(lotId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long vaccineId) {
+        return locks[Math.floorMod(vaccineId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Nếu transaction rollback, các lô đã bị bỏ khỏi hàng đợi có thể còn hàng trở lại → dựng lại hàng đợi
+     */
+    private void registerRollbackInvalidation(Long vaccineId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        queues.remove(vaccineId);
+                    }
+                }
+            });
+        }
+    }
+
+    private void invalidateAfterCompletion(Long vaccineId) {
+        runAfterCompletion(() -> queues.remove(vaccineId));
+    }
+
+    private void runAfterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Hàng đợi ID lô của một vaccine, dựng cho một ngày cụ thể (lô hết hạn theo ngày)
+     */
+    private static class LotQueue {
+        private final LocalDate builtFor;
+        private final Deque<Long> lotIds;
+
+        LotQueue(LocalDate builtFor, List<Long> lotIds) {
+            this.builtFor = builtFor;
+            this.lotIds = new ArrayDeque<>(lotIds);
+        }
+    }
+
+    /**
+     * Kết quả cấp phát: lô và số liều đã lấy từ lô đó
+     */
+    public static class LotAllocation {
+        private final VaccineLot lot;
+        private final int quantity;
+
+        public LotAllocation(VaccineLot lot, int quantity) {
+            this.lot = lot;
+            this.quantity = quantity;
+        }
+
+        public VaccineLot getLot() {
+            return lot;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
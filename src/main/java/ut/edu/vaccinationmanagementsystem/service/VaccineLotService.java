@@ -28,6 +28,9 @@ public class VaccineLotService {
     @Autowired
     private VaccineRepository vaccineRepository;
     
+    @Autowired
+    private VaccineLotAllocationService vaccineLotAllocationService;
+    
     // Lấy tất cả danh sách lô vaccine
     public List<VaccineLot> getAllVaccineLots() {
         return vaccineLotRepository.findAll();
@@ -123,7 +126,9 @@ public class VaccineLotService {
         updateLotStatusIfNeeded(vaccineLot);
         
         try {
-            return vaccineLotRepository.save(vaccineLot);
+            VaccineLot saved = vaccineLotRepository.save(vaccineLot);
+            vaccineLotAllocationService.invalidate(vaccine.getId());
+            return saved;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save vaccine lot: " + e.getMessage(), e);
         }
@@ -148,6 +153,9 @@ public class VaccineLotService {
             throw new RuntimeException("Expiry date must be after manufacturing date");
         }
         
+        // Hàng đợi cấp phát của vaccine cũ cũng cần dựng lại (nếu đổi vaccine)
+        vaccineLotAllocationService.invalidate(vaccineLot.getVaccine().getId());
+        
         // Cập nhật vaccine nếu có thay đổi
         if (dto.getVaccineId() != null && !vaccineLot.getVaccine().getId().equals(dto.getVaccineId())) {
             Vaccine vaccine = vaccineRepository.findById(dto.getVaccineId())
@@ -188,6 +196,7 @@ public class VaccineLotService {
         // Tự động cập nhật status nếu cần
         updateLotStatusIfNeeded(vaccineLot);
         
+        vaccineLotAllocationService.invalidate(vaccineLot.getVaccine().getId());
         return vaccineLotRepository.save(vaccineLot);
     }
     
@@ -201,6 +210,7 @@ public class VaccineLotService {
         }
         
         vaccineLotRepository.delete(vaccineLot);
+        vaccineLotAllocationService.invalidate(vaccineLot.getVaccine().getId());
     }
     
     // Tự động cập nhật status dựa trên expiryDate và remainingQuantity
@@ -258,18 +268,9 @@ public class VaccineLotService {
     }
     
     // Tự động cập nhật status cho tất cả lô vaccine (cron job có thể gọi)
+    // Dùng câu UPDATE hàng loạt, không load từng lô
     public void updateAllLotStatuses() {
-        LocalDate today = LocalDate.now();
-        
-        // Cập nhật lô đã hết hạn
-        List<VaccineLot> expiredLots = vaccineLotRepository.findExpiredLots(today);
-        expiredLots.forEach(lot -> lot.setStatus(VaccineLotStatus.EXPIRED));
-        vaccineLotRepository.saveAll(expiredLots);
-        
-        // Cập nhật lô đã hết
-        List<VaccineLot> depletedLots = vaccineLotRepository.findDepletedLots();
-        depletedLots.forEach(lot -> lot.setStatus(VaccineLotStatus.DEPLETED));
-        vaccineLotRepository.saveAll(depletedLots);
+        vaccineLotAllocationService.updateLotStatuses();
     }
     
     // Kiểm tra lô vaccine có tồn tại không
@@ -59,6 +59,9 @@ public class VaccineService {
     @Autowired
     private CenterVaccineService centerVaccineService;
     
+    @Autowired
+    private InventoryPositionService inventoryPositionService;
+    
     //Lấy tất cả danh sách vaccine
     public List<Vaccine> getAllVaccines() {
         return vaccineRepository.findAll();
@@ -124,6 +127,7 @@ public class VaccineService {
         
         try {
             Vaccine savedVaccine = vaccineRepository.save(vaccine);
+            inventoryPositionService.vaccineChanged(savedVaccine.getId());
             
             // Nếu có số lượng tồn kho, tự động tạo CenterVaccine cho trung tâm tổng (centerId = 1)
             if (dto.getStockQuantity() != null && dto.getStockQuantity() > 0) {
@@ -220,7 +224,9 @@ public class VaccineService {
         vaccine.setStatus(dto.getStatus());
         
         try {
-            return vaccineRepository.save(vaccine);
+            Vaccine savedVaccine = vaccineRepository.save(vaccine);
+            inventoryPositionService.vaccineChanged(savedVaccine.getId());
+            return savedVaccine;
         } catch (Exception e) {
             throw new RuntimeException("Failed to update vaccine: " + e.getMessage(), e);
         }
@@ -259,6 +265,7 @@ public class VaccineService {
         
         try {
             vaccineRepository.delete(vaccine);
+            inventoryPositionService.vaccineChanged(id);
         } catch (Exception e) {
             throw new RuntimeException("Không thể xóa vaccine: " + e.getMessage() + ". Vaccine này đang được sử dụng trong hệ thống. Vui lòng đổi trạng thái thành DISCONTINUED thay vì xóa.");
         }
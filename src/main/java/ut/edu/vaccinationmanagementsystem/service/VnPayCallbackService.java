@@ -0,0 +1,184 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.dto.VnPayCallbackResultDTO;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.Payment;
+import ut.edu.vaccinationmanagementsystem.entity.PaymentCallbackEvent;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentMethod;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.PaymentCallbackEventRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Xử lý callback VNPay (return URL của trình duyệt và IPN của VNPay) đúng một lần cho mỗi giao dịch
+ * - Chữ ký được kiểm tra trước, ngoài transaction; callback sai chữ ký không thay đổi dữ liệu
+ * - Mỗi (vnp_TxnRef, vnp_TransactionNo) được nhận bằng INSERT IGNORE vào payment_callback_events;
+ *   callback trùng (trình duyệt tải lại, VNPay gửi lại IPN, return URL và IPN đến cùng lúc) nhận lại kết quả đã lưu
+ * - Payment chuyển trạng thái bằng câu UPDATE có điều kiện (PaymentStatus.allowedSources), nên các giao dịch khác nhau
+ *   của cùng một đơn cũng chỉ làm payment chuyển trạng thái một lần; lịch hẹn chỉ bị xóa khi payment vừa chuyển sang FAILED
+ */
+@Service
+public class VnPayCallbackService {
+
+    public static final String SOURCE_RETURN = "RETURN";
+    public static final String SOURCE_IPN = "IPN";
+
+    /** Hậu tố vnp_TxnRef của thanh toán phí hủy */
+    public static final String CANCELLATION_FEE_SUFFIX = "-CANCEL";
+
+    @Value("${app.payment-callback.retention-days:90}")
+    private int retentionDays;
+
+    @Autowired
+    private PaymentCallbackEventRepository paymentCallbackEventRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private VnPayService vnPayService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Xử lý một callback VNPay
+     * @param params Tham số callback (đã decode)
+     * @param queryString Raw query string của request (dùng để kiểm tra chữ ký)
+     * @param source SOURCE_RETURN hoặc SOURCE_IPN
+     * @return Kết quả xử lý (hoặc kết quả đã lưu nếu callback trùng)
+     */
+    public VnPayCallbackResultDTO handle(Map<String, String> params, String queryString, String source) {
+        String txnRef = params.get("vnp_TxnRef");
+        if (txnRef == null || txnRef.isEmpty()) {
+            throw new RuntimeException("Invalid request: missing order ID");
+        }
+        boolean cancellationFee = txnRef.endsWith(CANCELLATION_FEE_SUFFIX);
+        String bookingCode = cancellationFee
+                ? txnRef.substring(0, txnRef.length() - CANCELLATION_FEE_SUFFIX.length())
+                : txnRef;
+        String responseCode = params.get("vnp_ResponseCode");
+
+        if (!vnPayService.verifySignatureFromQueryString(queryString)) {
+            return new VnPayCallbackResultDTO(false, false, cancellationFee, bookingCode, null, responseCode, null);
+        }
+
+        String transactionId = params.get("vnp_TransactionNo");
+        String transactionNo = transactionId != null ? transactionId : "";
+        return newTransaction().execute(status -> {
+            if (paymentCallbackEventRepository.claim(txnRef, transactionNo, responseCode, source) == 0) {
+                PaymentCallbackEvent event = paymentCallbackEventRepository
+                        .findByTxnRefAndTransactionNo(txnRef, transactionNo).orElse(null);
+                PaymentCallbackOutcome outcome = event != null && event.getOutcome() != null
+                        ? event.getOutcome() : PaymentCallbackOutcome.IGNORED;
+                return new VnPayCallbackResultDTO(true, true, cancellationFee, bookingCode,
+                        event != null ? event.getAppointmentId() : null, responseCode, outcome);
+            }
+
+            Appointment appointment = appointmentRepository.findByBookingCode(bookingCode).orElse(null);
+            Payment payment = appointment != null ? paymentService.findByAppointment(appointment) : null;
+            Long appointmentId = appointment != null ? appointment.getId() : null;
+            PaymentCallbackOutcome outcome = payment == null
+                    ? PaymentCallbackOutcome.ORDER_NOT_FOUND
+                    : apply(appointment, payment, cancellationFee, responseCode, transactionId, params.get("vnp_Amount"));
+
+            paymentCallbackEventRepository.recordOutcome(txnRef, transactionNo, outcome, appointmentId, LocalDateTime.now());
+            return new VnPayCallbackResultDTO(true, false, cancellationFee, bookingCode, appointmentId, responseCode, outcome);
+        });
+    }
+
+    /**
+     * Chạy lúc 3:45 sáng mỗi ngày: xóa các callback đã nhận quá app.payment-callback.retention-days ngày
+     * (VNPay chỉ gửi lại IPN trong thời gian ngắn nên khóa chống trùng cũ không còn cần)
+     */
+    @Scheduled(cron = "0 45 3 * * ?")
+    public void purgeExpired() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+            Integer rows = newTransaction().execute(status -> paymentCallbackEventRepository.deleteReceivedBefore(before));
+            System.out.println("Purged payment callback events: " + rows);
+        } catch (Exception e) {
+            System.err.println("Failed to purge payment callback events: " + e.getMessage());
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Áp dụng callback đã nhận lên payment/lịch hẹn
+     */
+    private PaymentCallbackOutcome apply(Appointment appointment, Payment payment, boolean cancellationFee,
+                                         String responseCode, String transactionId, String vnpAmount) {
+        if ("00".equals(responseCode)) {
+            BigDecimal expected = cancellationFee ? payment.getCancellationFee() : payment.getAmount();
+            if (!amountMatches(expected, vnpAmount)) {
+                return PaymentCallbackOutcome.AMOUNT_MISMATCH;
+            }
+            if (cancellationFee) {
+                return paymentService.markCancellationFeeAsPaid(payment)
+                        ? PaymentCallbackOutcome.CANCELLATION_FEE_PAID : PaymentCallbackOutcome.IGNORED;
+            }
+            return paymentService.markPaymentAsPaid(payment, transactionId)
+                    ? PaymentCallbackOutcome.PAID : PaymentCallbackOutcome.IGNORED;
+        }
+
+        // User cancel (24) hoặc user quit (null/empty), còn lại là thanh toán thất bại
+        PaymentCallbackOutcome outcome = "24".equals(responseCode) || responseCode == null || responseCode.isEmpty()
+                ? PaymentCallbackOutcome.USER_CANCELLED : PaymentCallbackOutcome.FAILED;
+        if (cancellationFee) {
+            // Với phí hủy, không thay đổi dữ liệu (người dùng có thể thanh toán lại)
+            return outcome;
+        }
+        if (!paymentService.markPaymentAsFailed(payment, transactionId)) {
+            return PaymentCallbackOutcome.IGNORED;
+        }
+        // Xóa lịch hẹn VNPay chưa thanh toán (rollback slot và xóa payment); nếu không xóa được thì payment giữ FAILED
+        if (payment.getPaymentMethod() == PaymentMethod.VNPAY
+                && (appointment.getStatus() == AppointmentStatus.PENDING
+                    || appointment.getStatus() == AppointmentStatus.CONFIRMED)) {
+            appointmentService.deleteAppointmentWhenPaymentFailed(appointment.getId());
+        }
+        return outcome;
+    }
+
+    /**
+     * So sánh vnp_Amount (số tiền x 100) với số tiền của payment; thiếu vnp_Amount thì coi là không khớp
+     */
+    private boolean amountMatches(BigDecimal expected, String vnpAmount) {
+        if (vnpAmount == null || vnpAmount.isEmpty() || expected == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(vnpAmount) == expected.longValue() * 100;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Transaction riêng cho mỗi callback (không tham gia transaction đang có của request)
+     */
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
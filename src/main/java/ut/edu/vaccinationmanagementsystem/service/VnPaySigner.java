@@ -0,0 +1,333 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ut.edu.vaccinationmanagementsystem.config.VnPayConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ký và kiểm tra chữ ký HMAC-SHA512 theo cách của VNPay
+ * - Mỗi thread giữ một Mac đã nạp sẵn vnpay.hashSecret (chỉ nạp lại khi secret đổi) và một buffer byte dùng lại
+ * - Query được URL-encode một lần vào buffer; vì tên tham số là ASCII nên chuỗi cần ký chính là query,
+ *   Mac đọc thẳng từ buffer rồi chữ ký được ghi tiếp vào cuối, chỉ tạo một String kết quả
+ * - Kiểm tra callback đọc thẳng các đoạn name=value trên raw query, không tách chuỗi hay dựng Map
+ * Giữ đúng cách ghép của VNPay: tham số rỗng bị bỏ qua nhưng dấu "&" sau tham số không rỗng
+ * vẫn được ghi nếu còn tham số phía sau (kể cả tham số rỗng)
+ */
+@Component
+public class VnPaySigner {
+
+    public static final String SECURE_HASH_PARAM = "vnp_SecureHash";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA512";
+    private static final int DIGEST_LENGTH = 64;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SECURE_HASH_PREFIX = ("&" + SECURE_HASH_PARAM + "=").getBytes(StandardCharsets.US_ASCII);
+
+    private final ThreadLocal<SigningState> states = ThreadLocal.withInitial(SigningState::new);
+
+    @Autowired
+    private VnPayConfig vnPayConfig;
+
+    /**
+     * Tạo query đã ký từ các cặp tên/giá trị đã sắp xếp tăng dần theo tên
+     * (dùng cho URL thanh toán, nơi tên tham số cố định nên không cần dựng Map rồi sắp xếp)
+     * @param namesAndValues name1, value1, name2, value2, ... (giá trị null/rỗng bị bỏ qua)
+     * @return Query string có vnp_SecureHash (chưa có dấu "?")
+     */
+    public String signSorted(String... namesAndValues) {
+        if (namesAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("namesAndValues must contain name/value pairs");
+        }
+        for (int i = 2; i < namesAndValues.length; i += 2) {
+            if (namesAndValues[i - 2].compareTo(namesAndValues[i]) >= 0) {
+                throw new IllegalArgumentException("Parameter names must be sorted: " + namesAndValues[i]);
+            }
+        }
+        SigningState state = states.get();
+        state.length = 0;
+        boolean separatorPending = false;
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            separatorPending = appendField(state, separatorPending, namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return finishSigned(state);
+    }
+
+    /**
+     * Tạo query đã ký từ Map tham số (sắp xếp theo tên trước khi ký)
+     * @return Query string có vnp_SecureHash (chưa có dấu "?")
+     */
+    public String sign(Map<String, String> params) {
+        String[] names = params.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        SigningState state = states.get();
+        state.length = 0;
+        boolean separatorPending = false;
+        for (String name : names) {
+            separatorPending = appendField(state, separatorPending, name, params.get(name));
+        }
+        return finishSigned(state);
+    }
+
+    /**
+     * Kiểm tra chữ ký của raw query string từ VNPay (giá trị giữ nguyên dạng đã encode của VNPay)
+     * @return true nếu vnp_SecureHash khớp với chữ ký của các tham số còn lại
+     */
+    public boolean verifyQueryString(String queryString) {
+        if (queryString == null || queryString.isEmpty()) {
+            return false;
+        }
+        byte[] query = queryString.getBytes(StandardCharsets.UTF_8);
+        byte[] secureHashName = SECURE_HASH_PARAM.getBytes(StandardCharsets.US_ASCII);
+
+        // Các đoạn name=value (chỉ lưu vị trí); tham số trùng tên lấy giá trị cuối cùng
+        List<int[]> fields = new ArrayList<>(24);
+        int hashStart = -1;
+        int hashEnd = -1;
+        int start = 0;
+        while (start <= query.length) {
+            int end = indexOf(query, (byte) '&', start);
+            int eq = indexOf(query, (byte) '=', start, end);
+            if (eq > start) {
+                if (rangeEquals(query, start, eq, secureHashName)) {
+                    hashStart = eq + 1;
+                    hashEnd = end;
+                } else {
+                    fields.add(new int[]{start, eq, end});
+                }
+            }
+            start = end + 1;
+        }
+        if (hashStart < 0 || hashStart == hashEnd) {
+            return false;
+        }
+        byte[] expected = decodeHex(query, hashStart, hashEnd);
+        if (expected == null) {
+            return false;
+        }
+
+        fields.sort((a, b) -> compareRanges(query, a[0], a[1], b[0], b[1]));
+        SigningState state = states.get();
+        Mac mac = state.mac(vnPayConfig.getHashSecret());
+        boolean separatorPending = false;
+        for (int i = 0; i < fields.size(); i++) {
+            int[] field = fields.get(i);
+            if (i + 1 < fields.size() && compareRanges(query, field[0], field[1], fields.get(i + 1)[0], fields.get(i + 1)[1]) == 0) {
+                continue; // Tham số trùng tên: dùng giá trị sau
+            }
+            if (separatorPending) {
+                mac.update((byte) '&');
+                separatorPending = false;
+            }
+            if (field[2] > field[1] + 1) {
+                mac.update(query, field[0], field[2] - field[0]);
+                separatorPending = true;
+            }
+        }
+        return MessageDigest.isEqual(doFinal(mac, state), expected);
+    }
+
+    /**
+     * Kiểm tra chữ ký từ Map tham số đã decode (giá trị được encode lại như khi tạo chữ ký)
+     */
+    public boolean verify(Map<String, String> params) {
+        String secureHash = params.get(SECURE_HASH_PARAM);
+        if (secureHash == null || secureHash.isEmpty() || !secureHash.equals(secureHash.toUpperCase(Locale.ROOT))) {
+            return false; // Giống cách cũ: chữ ký trong Map phải viết hoa
+        }
+        String[] names = params.keySet().stream()
+                .filter(name -> !SECURE_HASH_PARAM.equals(name))
+                .sorted()
+                .toArray(String[]::new);
+        SigningState state = states.get();
+        state.length = 0;
+        boolean separatorPending = false;
+        for (String name : names) {
+            separatorPending = appendField(state, separatorPending, name, params.get(name));
+        }
+        Mac mac = state.mac(vnPayConfig.getHashSecret());
+        mac.update(state.buffer, 0, state.length);
+        byte[] provided = secureHash.getBytes(StandardCharsets.US_ASCII);
+        byte[] expected = decodeHex(provided, 0, provided.length);
+        return expected != null && MessageDigest.isEqual(doFinal(mac, state), expected);
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Ghi một tham số vào buffer (bỏ qua nếu giá trị rỗng)
+     * @return true nếu vừa ghi tham số (cần "&" trước tham số tiếp theo)
+     */
+    private static boolean appendField(SigningState state, boolean separatorPending, String name, String value) {
+        if (separatorPending) {
+            state.write((byte) '&');
+        }
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        encode(state, name);
+        state.write((byte) '=');
+        encode(state, value);
+        return true;
+    }
+
+    /**
+     * Ký nội dung buffer và ghi "&vnp_SecureHash=<HEX>" vào cuối
+     */
+    private String finishSigned(SigningState state) {
+        Mac mac = state.mac(vnPayConfig.getHashSecret());
+        mac.update(state.buffer, 0, state.length);
+        byte[] digest = doFinal(mac, state);
+        state.ensureCapacity(SECURE_HASH_PREFIX.length + DIGEST_LENGTH * 2);
+        System.arraycopy(SECURE_HASH_PREFIX, 0, state.buffer, state.length, SECURE_HASH_PREFIX.length);
+        state.length += SECURE_HASH_PREFIX.length;
+        for (byte b : digest) {
+            state.buffer[state.length++] = HEX[(b >> 4) & 0x0F];
+            state.buffer[state.length++] = HEX[b & 0x0F];
+        }
+        // Buffer chỉ chứa ký tự ASCII (đã URL-encode)
+        return new String(state.buffer, 0, state.length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] doFinal(Mac mac, SigningState state) {
+        try {
+            mac.doFinal(state.digest, 0);
+            return state.digest;
+        } catch (Exception e) {
+            throw new RuntimeException("Error calculating HMAC SHA512", e);
+        }
+    }
+
+    /**
+     * URL-encode giống URLEncoder.encode(value, UTF-8): giữ chữ, số và ".-*_", khoảng trắng thành "+",
+     * còn lại là %XX của từng byte UTF-8
+     */
+    private static void encode(SigningState state, String value) {
+        int length = value.length();
+        state.ensureCapacity(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                state.write((byte) c);
+            } else if (c == ' ') {
+                state.write((byte) '+');
+            } else if (c < 0x80) {
+                writePercent(state, c);
+            } else if (c < 0x800) {
+                state.ensureCapacity(6);
+                writePercent(state, 0xC0 | (c >> 6));
+                writePercent(state, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                state.ensureCapacity(12);
+                writePercent(state, 0xF0 | (codePoint >> 18));
+                writePercent(state, 0x80 | ((codePoint >> 12) & 0x3F));
+                writePercent(state, 0x80 | ((codePoint >> 6) & 0x3F));
+                writePercent(state, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writePercent(state, '?'); // Surrogate lẻ: UTF-8 encoder thay bằng "?"
+            } else {
+                state.ensureCapacity(9);
+                writePercent(state, 0xE0 | (c >> 12));
+                writePercent(state, 0x80 | ((c >> 6) & 0x3F));
+                writePercent(state, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void writePercent(SigningState state, int b) {
+        state.ensureCapacity(3);
+        state.buffer[state.length++] = '%';
+        state.buffer[state.length++] = HEX[(b >> 4) & 0x0F];
+        state.buffer[state.length++] = HEX[b & 0x0F];
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        return indexOf(bytes, value, from, bytes.length);
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean rangeEquals(byte[] bytes, int start, int end, byte[] expected) {
+        return Arrays.equals(bytes, start, end, expected, 0, expected.length);
+    }
+
+    private static int compareRanges(byte[] bytes, int aStart, int aEnd, int bStart, int bEnd) {
+        return Arrays.compareUnsigned(bytes, aStart, aEnd, bytes, bStart, bEnd);
+    }
+
+    /**
+     * Giải mã chữ ký dạng hex (không phân biệt hoa thường)
+     * @return 64 byte chữ ký, null nếu độ dài hoặc ký tự không hợp lệ
+     */
+    private static byte[] decodeHex(byte[] bytes, int start, int end) {
+        if (end - start != DIGEST_LENGTH * 2) {
+            return null;
+        }
+        byte[] result = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int high = Character.digit(bytes[start + 2 * i], 16);
+            int low = Character.digit(bytes[start + 2 * i + 1], 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            result[i] = (byte) ((high << 4) | low);
+        }
+        return result;
+    }
+
+    /**
+     * Mac đã nạp secret, buffer query và buffer chữ ký của một thread
+     */
+    private static class SigningState {
+        private Mac mac;
+        private String secret;
+        private byte[] buffer = new byte[1024];
+        private int length;
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+
+        private Mac mac(String currentSecret) {
+            try {
+                if (mac == null) {
+                    mac = Mac.getInstance(HMAC_ALGORITHM);
+                }
+                if (secret == null || !secret.equals(currentSecret)) {
+                    mac.init(new SecretKeySpec(currentSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+                    secret = currentSecret;
+                }
+                return mac;
+            } catch (Exception e) {
+                secret = null;
+                throw new RuntimeException("Error calculating HMAC SHA512", e);
+            }
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buffer[length++] = b;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Font dùng trong mẫu chứng nhận PDF: mã hóa văn bản thành toán hạng của lệnh Tj, đo độ rộng và tạo các object font
+ */
+public interface CertificateFont {
+
+    /**
+     * Chuỗi PDF (toán hạng của Tj) của văn bản
+     * @param usedGlyphs Ghi nhận glyph đã dùng (glyph ID → code point) để tạo font con và bảng ToUnicode
+     */
+    String encode(String text, Map<Integer, Integer> usedGlyphs);
+
+    /**
+     * Độ rộng văn bản (point) ở cỡ chữ size
+     */
+    float width(String text, float size);
+
+    /**
+     * Số object PDF của font (ID liên tiếp, object đầu tiên là font được tham chiếu trong /Resources)
+     */
+    int objectCount();
+
+    /**
+     * Các object đã serialize của font cho một file PDF
+     */
+    List<byte[]> objects(Map<Integer, Integer> usedGlyphs);
+
+    /**
+     * Bỏ dấu tiếng Việt (dùng khi font không có ký tự)
+     */
+    static String stripDiacritics(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return decomposed.replace('đ', 'd').replace('Đ', 'D');
+    }
+}
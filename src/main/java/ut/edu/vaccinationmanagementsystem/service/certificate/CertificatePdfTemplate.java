@@ -0,0 +1,236 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import com.google.zxing.common.BitMatrix;
+import ut.edu.vaccinationmanagementsystem.dto.VaccinationCertificateDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Mẫu chứng nhận tiêm chủng PDF (A4, một trang) được dựng sẵn một lần
+ * - Font (kèm font con đã nén), khung viền, tiêu đề, nhãn các dòng và chân trang được tạo khi khởi tạo mẫu
+ * - Mỗi chứng nhận chỉ ghi thêm các giá trị, ảnh QR xác minh và ghép các object đã dựng sẵn
+ */
+public class CertificatePdfTemplate {
+
+    private static final int CATALOG_ID = 1;
+    private static final int PAGES_ID = 2;
+    private static final int PAGE_ID = 3;
+    private static final int CONTENT_ID = 4;
+    private static final int QR_IMAGE_ID = 5;
+    private static final int INFO_ID = 6;
+    private static final int FONT_ID = 7;
+
+    private static final float PAGE_WIDTH = 595;
+    private static final float PAGE_HEIGHT = 842;
+    private static final float LABEL_X = 80;
+    private static final float VALUE_X = 250;
+    private static final float VALUE_MAX_WIDTH = 270;
+    private static final float FIRST_ROW_Y = 610;
+    private static final float ROW_HEIGHT = 30;
+    private static final float QR_SIZE = 130;
+    private static final float QR_Y = 115;
+
+    private static final String[] LABELS = {
+            "Họ và tên", "Ngày sinh", "Vaccine", "Mũi tiêm", "Ngày giờ tiêm", "Số lô vaccine",
+            "Trung tâm tiêm chủng", "Người thực hiện", "Ngày tiêm mũi tiếp theo"
+    };
+
+    /** Ký tự có sẵn trong font con dựng sẵn: ASCII, Latin-1, chữ tiếng Việt và một số dấu câu */
+    private static final String DEFAULT_CHARACTERS = buildDefaultCharacters();
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter PDF_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final CertificateFont font;
+    private final byte[] catalogObject;
+    private final byte[] pagesObject;
+    private final byte[] pageObject;
+    private final String staticContent;
+    private final Map<Integer, Integer> staticGlyphs = new HashMap<>();
+
+    /**
+     * @param trueTypeFont Font nhúng (có tiếng Việt); null thì dùng Helvetica có sẵn của trình đọc PDF
+     */
+    public CertificatePdfTemplate(TrueTypeFont trueTypeFont) {
+        this.font = trueTypeFont != null
+                ? new EmbeddedCertificateFont(trueTypeFont, FONT_ID, DEFAULT_CHARACTERS)
+                : new StandardCertificateFont(FONT_ID);
+        this.catalogObject = PdfDocumentWriter.objectBytes(CATALOG_ID,
+                "<< /Type /Catalog /Pages " + PAGES_ID + " 0 R >>");
+        this.pagesObject = PdfDocumentWriter.objectBytes(PAGES_ID,
+                "<< /Type /Pages /Kids [" + PAGE_ID + " 0 R] /Count 1 >>");
+        this.pageObject = PdfDocumentWriter.objectBytes(PAGE_ID,
+                "<< /Type /Page /Parent " + PAGES_ID + " 0 R /MediaBox [0 0 " + num(PAGE_WIDTH) + " " + num(PAGE_HEIGHT) + "]" +
+                " /Resources << /Font << /F1 " + FONT_ID + " 0 R >> /XObject << /QR " + QR_IMAGE_ID + " 0 R >> >>" +
+                " /Contents " + CONTENT_ID + " 0 R >>");
+        this.staticContent = buildStaticContent();
+    }
+
+    /**
+     * Tạo file PDF của một chứng nhận
+     * @param qrModules Ma trận module của QR code xác minh
+     */
+    public byte[] render(VaccinationCertificateDTO certificate, BitMatrix qrModules) {
+        Map<Integer, Integer> usedGlyphs = new HashMap<>(staticGlyphs);
+        StringBuilder content = new StringBuilder(staticContent.length() + 2048).append(staticContent);
+
+        // Số chứng nhận (canh giữa dưới tiêu đề)
+        content.append("0.05 0.28 0.55 rg\n");
+        centeredText(content, "Số chứng nhận: " + valueOf(certificate.getCertificateNumber()), 13, 680, usedGlyphs);
+
+        String injection = formatDate(certificate.getInjectionDate());
+        if (certificate.getInjectionTime() != null) {
+            injection += " " + certificate.getInjectionTime().format(TIME_FORMAT);
+        }
+        String[] values = {
+                valueOf(certificate.getFullName()),
+                formatDate(certificate.getDateOfBirth()),
+                valueOf(certificate.getVaccineName()),
+                certificate.getDoseNumber() != null ? "Mũi " + certificate.getDoseNumber() : "-",
+                injection,
+                valueOf(certificate.getBatchNumber()),
+                valueOf(certificate.getCenterName()),
+                valueOf(certificate.getNurseName()),
+                certificate.getNextDoseDate() != null ? formatDate(certificate.getNextDoseDate()) : "Không có"
+        };
+        content.append("0 g\n");
+        for (int i = 0; i < values.length; i++) {
+            fittedText(content, values[i], VALUE_X, FIRST_ROW_Y - i * ROW_HEIGHT, usedGlyphs);
+        }
+
+        byte[] contentStream = PdfDocumentWriter.deflate(content.toString().getBytes(StandardCharsets.US_ASCII),
+                Deflater.BEST_SPEED);
+
+        PdfDocumentWriter pdf = new PdfDocumentWriter(FONT_ID + font.objectCount() - 1);
+        pdf.writeObject(CATALOG_ID, catalogObject);
+        pdf.writeObject(PAGES_ID, pagesObject);
+        pdf.writeObject(PAGE_ID, pageObject);
+        pdf.writeObject(CONTENT_ID, PdfDocumentWriter.streamBytes(CONTENT_ID, "/Filter /FlateDecode", contentStream));
+        pdf.writeObject(QR_IMAGE_ID, qrImageObject(qrModules));
+        pdf.writeObject(INFO_ID, PdfDocumentWriter.objectBytes(INFO_ID,
+                "<< /Title " + PdfDocumentWriter.textString("Chứng nhận tiêm chủng " + valueOf(certificate.getCertificateNumber())) +
+                " /Producer (Vaccination Management System)" +
+                " /CreationDate (D:" + LocalDateTime.now().format(PDF_DATE_FORMAT) + ") >>"));
+        int id = FONT_ID;
+        for (byte[] fontObject : font.objects(usedGlyphs)) {
+            pdf.writeObject(id++, fontObject);
+        }
+        return pdf.finish(CATALOG_ID, INFO_ID);
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Phần nội dung giống nhau ở mọi chứng nhận: khung viền, tiêu đề, nhãn, chú thích QR, chân trang, vị trí ảnh QR
+     */
+    private String buildStaticContent() {
+        StringBuilder content = new StringBuilder();
+        // Khung viền đôi
+        content.append("0.05 0.28 0.55 RG\n2 w 30 30 535 782 re S\n0.75 w 38 38 519 766 re S\n");
+        content.append("70 660 m 525 660 l S\n");
+
+        content.append("0.05 0.28 0.55 rg\n");
+        content.append("2 Tr 0.6 w\n"); // tô và viền chữ để tiêu đề đậm hơn
+        centeredText(content, "CHỨNG NHẬN TIÊM CHỦNG", 24, 740, staticGlyphs);
+        content.append("0 Tr\n");
+        centeredText(content, "VACCINATION CERTIFICATE", 12, 712, staticGlyphs);
+
+        content.append("0.35 g\n");
+        for (int i = 0; i < LABELS.length; i++) {
+            text(content, LABELS[i] + ":", 12, LABEL_X, FIRST_ROW_Y - i * ROW_HEIGHT, staticGlyphs);
+        }
+
+        // Ảnh QR xác minh (object /QR) và chú thích
+        float qrX = (PAGE_WIDTH - QR_SIZE) / 2;
+        content.append("q ").append(num(QR_SIZE)).append(" 0 0 ").append(num(QR_SIZE)).append(' ')
+                .append(num(qrX)).append(' ').append(num(QR_Y)).append(" cm /QR Do Q\n");
+        centeredText(content, "Quét mã QR để xác minh chứng nhận", 10, QR_Y - 15, staticGlyphs);
+        centeredText(content, "Chứng nhận này có giá trị pháp lý và được lưu trữ trong hệ thống.", 10, 60, staticGlyphs);
+        return content.toString();
+    }
+
+    /**
+     * Ghi giá trị, thu nhỏ cỡ chữ (tối thiểu 9) hoặc cắt bớt nếu vượt quá độ rộng cột
+     */
+    private void fittedText(StringBuilder content, String value, float x, float y, Map<Integer, Integer> usedGlyphs) {
+        float size = 13;
+        while (size > 9 && font.width(value, size) > VALUE_MAX_WIDTH) {
+            size -= 0.5f;
+        }
+        String fitted = value;
+        if (font.width(fitted, size) > VALUE_MAX_WIDTH) {
+            while (fitted.length() > 1 && font.width(fitted + "...", size) > VALUE_MAX_WIDTH) {
+                fitted = fitted.substring(0, fitted.length() - 1);
+            }
+            fitted = fitted + "...";
+        }
+        text(content, fitted, size, x, y, usedGlyphs);
+    }
+
+    private void centeredText(StringBuilder content, String value, float size, float y, Map<Integer, Integer> usedGlyphs) {
+        text(content, value, size, (PAGE_WIDTH - font.width(value, size)) / 2, y, usedGlyphs);
+    }
+
+    private void text(StringBuilder content, String value, float size, float x, float y, Map<Integer, Integer> usedGlyphs) {
+        content.append("BT /F1 ").append(num(size)).append(" Tf ").append(num(x)).append(' ').append(num(y))
+                .append(" Td ").append(font.encode(value, usedGlyphs)).append(" Tj ET\n");
+    }
+
+    /**
+     * Ảnh QR dạng grayscale 1 bit (bit 1 = trắng), mỗi module một pixel; trình đọc PDF phóng to không làm mờ (/Interpolate false)
+     */
+    private byte[] qrImageObject(BitMatrix modules) {
+        int size = modules.getWidth();
+        int rowBytes = (size + 7) / 8;
+        byte[] pixels = new byte[rowBytes * size];
+        Arrays.fill(pixels, (byte) 0xFF);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (modules.get(x, y)) {
+                    pixels[y * rowBytes + (x >> 3)] &= (byte) ~(0x80 >>> (x & 7));
+                }
+            }
+        }
+        return PdfDocumentWriter.streamBytes(QR_IMAGE_ID,
+                "/Type /XObject /Subtype /Image /Width " + size + " /Height " + size +
+                " /ColorSpace /DeviceGray /BitsPerComponent 1 /Interpolate false /Filter /FlateDecode",
+                PdfDocumentWriter.deflate(pixels, Deflater.BEST_SPEED));
+    }
+
+    private static String valueOf(String value) {
+        return value != null && !value.isBlank() ? value : "-";
+    }
+
+    private static String formatDate(LocalDate date) {
+        return date != null ? date.format(DATE_FORMAT) : "-";
+    }
+
+    private static String num(float value) {
+        return value == Math.rint(value) ? String.valueOf((int) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String buildDefaultCharacters() {
+        StringBuilder characters = new StringBuilder();
+        for (int c = 0x20; c <= 0x7E; c++) {
+            characters.append((char) c);
+        }
+        for (int c = 0xA0; c <= 0x17F; c++) { // Latin-1, Latin Extended-A (Ă, Đ, Ĩ, Ũ...)
+            characters.append((char) c);
+        }
+        characters.append("ƠơƯư");
+        for (int c = 0x1EA0; c <= 0x1EF9; c++) { // Chữ tiếng Việt có dấu (Ạ..ỹ)
+            characters.append((char) c);
+        }
+        characters.append("–—‘’“”…•№");
+        return characters.toString();
+    }
+}
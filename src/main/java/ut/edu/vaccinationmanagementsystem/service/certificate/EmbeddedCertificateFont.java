@@ -0,0 +1,160 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * Font TrueType nhúng vào PDF dạng Type0/CIDFontType2 (Identity-H, mỗi ký tự là 2 byte glyph ID), hiển thị đủ tiếng Việt
+ * Font con cho bộ ký tự mặc định (chữ Latin, tiếng Việt, số, dấu câu) được tạo và nén một lần khi khởi tạo;
+ * chỉ khi văn bản có ký tự ngoài bộ mặc định mới phải tạo font con riêng cho file đó
+ */
+public class EmbeddedCertificateFont implements CertificateFont {
+
+    private static final int OBJECT_COUNT = 5;
+
+    private final TrueTypeFont font;
+    private final int firstId;
+    private final Map<Integer, Integer> defaultGlyphs = new HashMap<>();
+    private final List<byte[]> defaultObjects;
+
+    /**
+     * @param firstId ID của object font đầu tiên trong file PDF
+     * @param defaultCharacters Bộ ký tự có sẵn trong font con dựng sẵn
+     */
+    public EmbeddedCertificateFont(TrueTypeFont font, int firstId, String defaultCharacters) {
+        this.font = font;
+        this.firstId = firstId;
+        defaultCharacters.codePoints().forEach(codePoint -> {
+            int glyphId = font.glyphId(codePoint);
+            if (glyphId != 0) {
+                defaultGlyphs.putIfAbsent(glyphId, codePoint);
+            }
+        });
+        this.defaultObjects = buildObjects(defaultGlyphs);
+    }
+
+    @Override
+    public String encode(String text, Map<Integer, Integer> usedGlyphs) {
+        StringBuilder hex = new StringBuilder("<");
+        Normalizer.normalize(text, Normalizer.Form.NFC).codePoints().forEach(codePoint -> {
+            int glyphId = glyphFor(codePoint);
+            usedGlyphs.putIfAbsent(glyphId, codePoint);
+            hex.append(String.format("%04X", glyphId));
+        });
+        return hex.append('>').toString();
+    }
+
+    @Override
+    public float width(String text, float size) {
+        int[] total = {0};
+        Normalizer.normalize(text, Normalizer.Form.NFC).codePoints()
+                .forEach(codePoint -> total[0] += font.advanceWidth(glyphFor(codePoint)));
+        return total[0] * size / 1000f;
+    }
+
+    @Override
+    public int objectCount() {
+        return OBJECT_COUNT;
+    }
+
+    @Override
+    public List<byte[]> objects(Map<Integer, Integer> usedGlyphs) {
+        if (defaultGlyphs.keySet().containsAll(usedGlyphs.keySet())) {
+            return defaultObjects;
+        }
+        Map<Integer, Integer> glyphs = new HashMap<>(defaultGlyphs);
+        usedGlyphs.forEach(glyphs::putIfAbsent);
+        return buildObjects(glyphs);
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Glyph của ký tự; ký tự không có trong font được thay bằng chữ bỏ dấu, cuối cùng là dấu '?'
+     */
+    private int glyphFor(int codePoint) {
+        int glyphId = font.glyphId(codePoint);
+        if (glyphId == 0) {
+            String stripped = CertificateFont.stripDiacritics(new String(Character.toChars(codePoint)));
+            glyphId = stripped.isEmpty() ? 0 : font.glyphId(stripped.codePointAt(0));
+        }
+        return glyphId != 0 ? glyphId : font.glyphId('?');
+    }
+
+    private List<byte[]> buildObjects(Map<Integer, Integer> glyphs) {
+        TreeMap<Integer, Integer> sorted = new TreeMap<>(glyphs);
+        String baseFont = subsetTag(sorted) + "+" + font.getName();
+        int cidFontId = firstId + 1;
+        int descriptorId = firstId + 2;
+        int fontFileId = firstId + 3;
+        int toUnicodeId = firstId + 4;
+
+        StringBuilder widths = new StringBuilder();
+        for (Integer glyphId : sorted.keySet()) {
+            widths.append(glyphId).append(" [").append(font.advanceWidth(glyphId)).append("] ");
+        }
+        int[] bbox = font.boundingBox();
+
+        byte[] fontFile = font.subset(sorted.keySet());
+        return List.of(
+                PdfDocumentWriter.objectBytes(firstId, "<< /Type /Font /Subtype /Type0 /BaseFont /" + baseFont +
+                        " /Encoding /Identity-H /DescendantFonts [" + cidFontId + " 0 R] /ToUnicode " + toUnicodeId + " 0 R >>"),
+                PdfDocumentWriter.objectBytes(cidFontId, "<< /Type /Font /Subtype /CIDFontType2 /BaseFont /" + baseFont +
+                        " /CIDSystemInfo << /Registry (Adobe) /Ordering (Identity) /Supplement 0 >>" +
+                        " /FontDescriptor " + descriptorId + " 0 R /DW 1000 /W [" + widths + "] /CIDToGIDMap /Identity >>"),
+                PdfDocumentWriter.objectBytes(descriptorId, "<< /Type /FontDescriptor /FontName /" + baseFont +
+                        " /Flags 32 /FontBBox [" + bbox[0] + " " + bbox[1] + " " + bbox[2] + " " + bbox[3] + "]" +
+                        " /ItalicAngle 0 /Ascent " + font.ascent() + " /Descent " + font.descent() +
+                        " /CapHeight " + font.ascent() + " /StemV 80 /FontFile2 " + fontFileId + " 0 R >>"),
+                PdfDocumentWriter.streamBytes(fontFileId, "/Filter /FlateDecode /Length1 " + fontFile.length,
+                        PdfDocumentWriter.deflate(fontFile, Deflater.BEST_COMPRESSION)),
+                PdfDocumentWriter.streamBytes(toUnicodeId, "/Filter /FlateDecode",
+                        PdfDocumentWriter.deflate(toUnicodeCMap(sorted), Deflater.BEST_COMPRESSION))
+        );
+    }
+
+    /**
+     * Bảng ToUnicode (glyph ID → ký tự) để copy/tìm kiếm được văn bản trong PDF
+     */
+    private byte[] toUnicodeCMap(TreeMap<Integer, Integer> glyphs) {
+        StringBuilder cmap = new StringBuilder();
+        cmap.append("/CIDInit /ProcSet findresource begin\n12 dict begin\nbegincmap\n")
+                .append("/CIDSystemInfo << /Registry (Adobe) /Ordering (UCS) /Supplement 0 >> def\n")
+                .append("/CMapName /Adobe-Identity-UCS def\n/CMapType 2 def\n")
+                .append("1 begincodespacerange\n<0000> <FFFF>\nendcodespacerange\n");
+        List<Map.Entry<Integer, Integer>> entries = List.copyOf(glyphs.entrySet());
+        // Mỗi khối bfchar tối đa 100 dòng
+        for (int start = 0; start < entries.size(); start += 100) {
+            int end = Math.min(start + 100, entries.size());
+            cmap.append(end - start).append(" beginbfchar\n");
+            for (Map.Entry<Integer, Integer> entry : entries.subList(start, end)) {
+                cmap.append(String.format("<%04X> <", entry.getKey()));
+                for (char c : Character.toChars(entry.getValue())) {
+                    cmap.append(String.format("%04X", (int) c));
+                }
+                cmap.append(">\n");
+            }
+            cmap.append("endbfchar\n");
+        }
+        cmap.append("endcmap\nCMapName currentdict /CMap defineresource pop\nend\nend\n");
+        return cmap.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Tiền tố 6 chữ in hoa của font con (theo chuẩn PDF), khác nhau theo bộ glyph
+     */
+    private String subsetTag(TreeMap<Integer, Integer> glyphs) {
+        int hash = glyphs.keySet().hashCode();
+        StringBuilder tag = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            tag.append((char) ('A' + Math.floorMod(hash, 26)));
+            hash /= 26;
+        }
+        return tag.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * Ghi file PDF tối giản: các object được đánh số trước, ghi theo thứ tự bất kỳ, cuối cùng là bảng xref và trailer
+ * Object có thể được serialize trước (objectBytes/streamBytes) và dùng lại cho nhiều file (font, phần tĩnh của mẫu)
+ */
+public class PdfDocumentWriter {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+    private final int[] offsets;
+
+    /**
+     * @param objectCount Số object của file (ID từ 1 đến objectCount)
+     */
+    public PdfDocumentWriter(int objectCount) {
+        this.offsets = new int[objectCount + 1];
+        // Dòng comment thứ hai chứa byte > 127 để công cụ khác nhận diện là file nhị phân
+        write("%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII));
+        write(new byte[] {'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'});
+    }
+
+    /**
+     * Ghi object đã serialize (kết quả của objectBytes/streamBytes)
+     */
+    public void writeObject(int id, byte[] serializedObject) {
+        offsets[id] = out.size();
+        write(serializedObject);
+    }
+
+    /**
+     * Ghi bảng xref, trailer và trả về nội dung file
+     */
+    public byte[] finish(int rootId, int infoId) {
+        int xrefOffset = out.size();
+        StringBuilder xref = new StringBuilder();
+        xref.append("xref\n0 ").append(offsets.length).append('\n');
+        xref.append("0000000000 65535 f \n");
+        for (int id = 1; id < offsets.length; id++) {
+            xref.append(String.format("%010d 00000 n \n", offsets[id]));
+        }
+        xref.append("trailer\n<< /Size ").append(offsets.length)
+                .append(" /Root ").append(rootId).append(" 0 R /Info ").append(infoId).append(" 0 R >>\n")
+                .append("startxref\n").append(xrefOffset).append("\n%%EOF\n");
+        write(xref.toString().getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    /**
+     * Serialize một object dạng dictionary/giá trị
+     */
+    public static byte[] objectBytes(int id, String body) {
+        return (id + " 0 obj\n" + body + "\nendobj\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serialize một stream object (dictionary không gồm /Length, được thêm tự động)
+     */
+    public static byte[] streamBytes(int id, String dictionary, byte[] streamData) {
+        byte[] head = (id + " 0 obj\n<< " + dictionary + " /Length " + streamData.length + " >>\nstream\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = "\nendstream\nendobj\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] result = new byte[head.length + streamData.length + tail.length];
+        System.arraycopy(head, 0, result, 0, head.length);
+        System.arraycopy(streamData, 0, result, head.length, streamData.length);
+        System.arraycopy(tail, 0, result, head.length + streamData.length, tail.length);
+        return result;
+    }
+
+    /**
+     * Nén dữ liệu stream (/Filter /FlateDecode)
+     */
+    public static byte[] deflate(byte[] input, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Chuỗi văn bản PDF (UTF-16BE có BOM, dạng hex) dùng cho /Title, /Author...
+     */
+    public static String textString(String text) {
+        StringBuilder hex = new StringBuilder("<FEFF");
+        for (char c : text.toCharArray()) {
+            hex.append(String.format("%04X", (int) c));
+        }
+        return hex.append('>').toString();
+    }
+
+    private void write(byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+}
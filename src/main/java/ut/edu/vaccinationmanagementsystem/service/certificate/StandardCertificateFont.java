@@ -0,0 +1,91 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Font Helvetica có sẵn trong mọi trình đọc PDF (không nhúng), dùng khi không tìm thấy file font TrueType
+ * Chỉ có các ký tự của bảng mã WinAnsi: chữ tiếng Việt ngoài bảng mã được bỏ dấu
+ */
+public class StandardCertificateFont implements CertificateFont {
+
+    /** Độ rộng Helvetica (1/1000 em) của các ký tự 32..126 */
+    private static final int[] ASCII_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+
+    private final List<byte[]> objects;
+
+    public StandardCertificateFont(int firstId) {
+        this.objects = List.of(PdfDocumentWriter.objectBytes(firstId,
+                "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>"));
+    }
+
+    @Override
+    public String encode(String text, Map<Integer, Integer> usedGlyphs) {
+        StringBuilder literal = new StringBuilder("(");
+        for (byte b : toWinAnsi(text)) {
+            int code = b & 0xFF;
+            if (code == '(' || code == ')' || code == '\\') {
+                literal.append('\\').append((char) code);
+            } else if (code < 32 || code > 126) {
+                literal.append(String.format("\\%03o", code));
+            } else {
+                literal.append((char) code);
+            }
+        }
+        return literal.append(')').toString();
+    }
+
+    @Override
+    public float width(String text, float size) {
+        int total = 0;
+        for (byte b : toWinAnsi(text)) {
+            int code = b & 0xFF;
+            if (code > 126) {
+                // Chữ có dấu rộng bằng chữ gốc
+                String stripped = CertificateFont.stripDiacritics(new String(new byte[] {b}, WIN_ANSI));
+                code = stripped.isEmpty() ? ' ' : stripped.charAt(0);
+            }
+            total += code >= 32 && code <= 126 ? ASCII_WIDTHS[code - 32] : 556;
+        }
+        return total * size / 1000f;
+    }
+
+    @Override
+    public int objectCount() {
+        return 1;
+    }
+
+    @Override
+    public List<byte[]> objects(Map<Integer, Integer> usedGlyphs) {
+        return objects;
+    }
+
+    /**
+     * Mã hóa sang WinAnsi, ký tự ngoài bảng mã được bỏ dấu (hoặc thay bằng '?')
+     */
+    private byte[] toWinAnsi(String text) {
+        CharsetEncoder encoder = WIN_ANSI.newEncoder();
+        StringBuilder encodable = new StringBuilder();
+        for (char c : Normalizer.normalize(text, Normalizer.Form.NFC).toCharArray()) {
+            if (encoder.canEncode(c)) {
+                encodable.append(c);
+            } else {
+                String stripped = CertificateFont.stripDiacritics(String.valueOf(c));
+                encodable.append(!stripped.isEmpty() && encoder.canEncode(stripped.charAt(0)) ? stripped.charAt(0) : '?');
+            }
+        }
+        return encodable.toString().getBytes(WIN_ANSI);
+    }
+}
@@ -0,0 +1,348 @@
+package ut.edu.vaccinationmanagementsystem.service.certificate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Đọc font TrueType (.ttf) để nhúng vào PDF
+ * - Chỉ đọc các bảng cần cho PDF: cmap (ký tự → glyph), độ rộng glyph (hmtx), vị trí glyph (loca/glyf)
+ * - subset() tạo font con chỉ chứa các glyph được dùng (giữ nguyên glyph ID, glyph không dùng có độ dài 0)
+ */
+public class TrueTypeFont {
+
+    /** Các bảng được chép sang font con (glyf và loca được tạo lại) */
+    private static final String[] SUBSET_TABLES = {"cvt ", "fpgm", "head", "hhea", "hmtx", "maxp", "prep"};
+
+    private final byte[] data;
+    private final Map<String, int[]> tables = new HashMap<>(); // tag → [offset, length]
+    private final Map<Integer, Integer> glyphIds = new HashMap<>(); // code point → glyph ID
+    private final String name;
+    private final int unitsPerEm;
+    private final int[] boundingBox;
+    private final int ascent;
+    private final int descent;
+    private final int numGlyphs;
+    private final int[] advanceWidths;
+    private final int[] glyphOffsets;
+
+    private TrueTypeFont(String name, byte[] data) throws IOException {
+        this.name = name;
+        this.data = data;
+
+        int version = u32(0);
+        if (version != 0x00010000 && version != 0x74727565) {
+            throw new IOException("Unsupported font format (only TrueType outlines are supported)");
+        }
+        int numTables = u16(4);
+        for (int i = 0; i < numTables; i++) {
+            int record = 12 + i * 16;
+            String tag = new String(data, record, 4, StandardCharsets.US_ASCII);
+            tables.put(tag, new int[] {u32(record + 8), u32(record + 12)});
+        }
+        for (String required : new String[] {"cmap", "glyf", "head", "hhea", "hmtx", "loca", "maxp"}) {
+            if (!tables.containsKey(required)) {
+                throw new IOException("Font is missing table " + required);
+            }
+        }
+
+        int head = tables.get("head")[0];
+        unitsPerEm = u16(head + 18);
+        boundingBox = new int[] {s16(head + 36), s16(head + 38), s16(head + 40), s16(head + 42)};
+        boolean longOffsets = s16(head + 50) == 1;
+
+        int hhea = tables.get("hhea")[0];
+        ascent = s16(hhea + 4);
+        descent = s16(hhea + 6);
+        int numberOfHMetrics = u16(hhea + 34);
+
+        numGlyphs = u16(tables.get("maxp")[0] + 4);
+
+        // Glyph sau numberOfHMetrics dùng độ rộng của glyph cuối trong bảng
+        int hmtx = tables.get("hmtx")[0];
+        advanceWidths = new int[numGlyphs];
+        for (int gid = 0; gid < numGlyphs; gid++) {
+            advanceWidths[gid] = u16(hmtx + Math.min(gid, numberOfHMetrics - 1) * 4);
+        }
+
+        int loca = tables.get("loca")[0];
+        glyphOffsets = new int[numGlyphs + 1];
+        for (int gid = 0; gid <= numGlyphs; gid++) {
+            glyphOffsets[gid] = longOffsets ? u32(loca + gid * 4) : u16(loca + gid * 2) * 2;
+        }
+
+        readCmap();
+    }
+
+    /**
+     * Đọc font từ file .ttf
+     */
+    public static TrueTypeFont load(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        String name = fileName.replaceAll("\\.[^.]*$", "").replaceAll("[^A-Za-z0-9-]", "");
+        return new TrueTypeFont(name.isEmpty() ? "Font" : name, Files.readAllBytes(path));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Glyph ID của ký tự (0 nếu font không có ký tự này)
+     */
+    public int glyphId(int codePoint) {
+        return glyphIds.getOrDefault(codePoint, 0);
+    }
+
+    /**
+     * Độ rộng glyph theo đơn vị 1/1000 em (đơn vị độ rộng của PDF)
+     */
+    public int advanceWidth(int glyphId) {
+        return advanceWidths[glyphId] * 1000 / unitsPerEm;
+    }
+
+    /**
+     * Khung bao của font theo đơn vị 1/1000 em [xMin, yMin, xMax, yMax]
+     */
+    public int[] boundingBox() {
+        return new int[] {scale(boundingBox[0]), scale(boundingBox[1]), scale(boundingBox[2]), scale(boundingBox[3])};
+    }
+
+    public int ascent() {
+        return scale(ascent);
+    }
+
+    public int descent() {
+        return scale(descent);
+    }
+
+    /**
+     * Tạo font con chỉ chứa các glyph cần dùng (kèm glyph .notdef và các glyph thành phần của glyph ghép)
+     * Glyph ID được giữ nguyên nên có thể dùng CIDToGIDMap /Identity trong PDF
+     */
+    public byte[] subset(Collection<Integer> usedGlyphIds) {
+        TreeSet<Integer> glyphs = new TreeSet<>();
+        Deque<Integer> pending = new ArrayDeque<>(usedGlyphIds);
+        pending.add(0);
+        int glyf = tables.get("glyf")[0];
+        while (!pending.isEmpty()) {
+            int gid = pending.pop();
+            if (gid < 0 || gid >= numGlyphs || !glyphs.add(gid)) {
+                continue;
+            }
+            int offset = glyf + glyphOffsets[gid];
+            if (glyphOffsets[gid + 1] > glyphOffsets[gid] && s16(offset) < 0) {
+                addComponentGlyphs(offset, pending);
+            }
+        }
+
+        // glyf mới: glyph không dùng có độ dài 0; loca dạng long (4 byte)
+        ByteArrayOutputStream newGlyf = new ByteArrayOutputStream();
+        byte[] newLoca = new byte[(numGlyphs + 1) * 4];
+        for (int gid = 0; gid < numGlyphs; gid++) {
+            putU32(newLoca, gid * 4, newGlyf.size());
+            if (glyphs.contains(gid)) {
+                int length = glyphOffsets[gid + 1] - glyphOffsets[gid];
+                newGlyf.write(data, glyf + glyphOffsets[gid], length);
+                while (newGlyf.size() % 4 != 0) {
+                    newGlyf.write(0);
+                }
+            }
+        }
+        putU32(newLoca, numGlyphs * 4, newGlyf.size());
+
+        TreeMap<String, byte[]> subsetTables = new TreeMap<>();
+        for (String tag : SUBSET_TABLES) {
+            int[] table = tables.get(tag);
+            if (table != null) {
+                byte[] copy = new byte[table[1]];
+                System.arraycopy(data, table[0], copy, 0, table[1]);
+                subsetTables.put(tag, copy);
+            }
+        }
+        byte[] head = subsetTables.get("head");
+        putU32(head, 8, 0); // checkSumAdjustment, tính lại sau
+        head[50] = 0;
+        head[51] = 1; // indexToLocFormat = long
+        subsetTables.put("glyf", newGlyf.toByteArray());
+        subsetTables.put("loca", newLoca);
+        return writeFont(subsetTables);
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Đọc bảng cmap: ưu tiên bảng Unicode đầy đủ (format 12), sau đó là bảng BMP (format 4)
+     */
+    private void readCmap() throws IOException {
+        int cmap = tables.get("cmap")[0];
+        int count = u16(cmap + 2);
+        int format4 = -1;
+        int format12 = -1;
+        for (int i = 0; i < count; i++) {
+            int record = cmap + 4 + i * 8;
+            int platformId = u16(record);
+            int encodingId = u16(record + 2);
+            int subtable = cmap + u32(record + 4);
+            boolean unicode = platformId == 0 || (platformId == 3 && (encodingId == 1 || encodingId == 10));
+            if (!unicode) {
+                continue;
+            }
+            int format = u16(subtable);
+            if (format == 12 && format12 < 0) {
+                format12 = subtable;
+            } else if (format == 4 && format4 < 0) {
+                format4 = subtable;
+            }
+        }
+
+        if (format12 >= 0) {
+            int groups = u32(format12 + 12);
+            for (int g = 0; g < groups; g++) {
+                int group = format12 + 16 + g * 12;
+                int start = u32(group);
+                int end = u32(group + 4);
+                int startGlyph = u32(group + 8);
+                for (int c = start; c <= end && c <= 0x10FFFF; c++) {
+                    glyphIds.put(c, startGlyph + c - start);
+                }
+            }
+        } else if (format4 >= 0) {
+            int segCount = u16(format4 + 6) / 2;
+            int endCodes = format4 + 14;
+            int startCodes = endCodes + segCount * 2 + 2;
+            int deltas = startCodes + segCount * 2;
+            int rangeOffsets = deltas + segCount * 2;
+            for (int s = 0; s < segCount; s++) {
+                int start = u16(startCodes + s * 2);
+                int end = u16(endCodes + s * 2);
+                int delta = u16(deltas + s * 2);
+                int rangeOffset = u16(rangeOffsets + s * 2);
+                for (int c = start; c <= end && c != 0xFFFF; c++) {
+                    int gid;
+                    if (rangeOffset == 0) {
+                        gid = (c + delta) & 0xFFFF;
+                    } else {
+                        gid = u16(rangeOffsets + s * 2 + rangeOffset + (c - start) * 2);
+                        if (gid != 0) {
+                            gid = (gid + delta) & 0xFFFF;
+                        }
+                    }
+                    if (gid != 0) {
+                        glyphIds.put(c, gid);
+                    }
+                }
+            }
+        } else {
+            throw new IOException("Font has no Unicode cmap");
+        }
+    }
+
+    /**
+     * Thêm các glyph thành phần của một glyph ghép (composite glyph)
+     */
+    private void addComponentGlyphs(int offset, Deque<Integer> pending) {
+        int position = offset + 10;
+        int flags;
+        do {
+            flags = u16(position);
+            pending.add(u16(position + 2));
+            position += 4;
+            position += (flags & 0x0001) != 0 ? 4 : 2; // ARG_1_AND_2_ARE_WORDS
+            if ((flags & 0x0008) != 0) { // WE_HAVE_A_SCALE
+                position += 2;
+            } else if ((flags & 0x0040) != 0) { // WE_HAVE_AN_X_AND_Y_SCALE
+                position += 4;
+            } else if ((flags & 0x0080) != 0) { // WE_HAVE_A_TWO_BY_TWO
+                position += 8;
+            }
+        } while ((flags & 0x0020) != 0); // MORE_COMPONENTS
+    }
+
+    /**
+     * Ghi file font từ các bảng (bảng sắp xếp theo tag, căn 4 byte, có checksum)
+     */
+    private byte[] writeFont(TreeMap<String, byte[]> fontTables) {
+        int numTables = fontTables.size();
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+        int searchRange = (1 << entrySelector) * 16;
+
+        int size = 12 + numTables * 16;
+        for (byte[] table : fontTables.values()) {
+            size += (table.length + 3) & ~3;
+        }
+        byte[] font = new byte[size];
+        putU32(font, 0, 0x00010000);
+        putU16(font, 4, numTables);
+        putU16(font, 6, searchRange);
+        putU16(font, 8, entrySelector);
+        putU16(font, 10, numTables * 16 - searchRange);
+
+        int record = 12;
+        int offset = 12 + numTables * 16;
+        int headOffset = -1;
+        for (Map.Entry<String, byte[]> entry : fontTables.entrySet()) {
+            byte[] table = entry.getValue();
+            byte[] tag = entry.getKey().getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(tag, 0, font, record, 4);
+            System.arraycopy(table, 0, font, offset, table.length);
+            putU32(font, record + 4, checksum(font, offset, table.length));
+            putU32(font, record + 8, offset);
+            putU32(font, record + 12, table.length);
+            if (entry.getKey().equals("head")) {
+                headOffset = offset;
+            }
+            record += 16;
+            offset += (table.length + 3) & ~3;
+        }
+        if (headOffset >= 0) {
+            putU32(font, headOffset + 8, 0xB1B0AFBA - checksum(font, 0, font.length));
+        }
+        return font;
+    }
+
+    private int checksum(byte[] bytes, int offset, int length) {
+        int sum = 0;
+        int end = offset + ((length + 3) & ~3);
+        for (int i = offset; i < end; i += 4) {
+            sum += ((bytes[i] & 0xFF) << 24) | ((bytes[i + 1] & 0xFF) << 16)
+                    | ((bytes[i + 2] & 0xFF) << 8) | (bytes[i + 3] & 0xFF);
+        }
+        return sum;
+    }
+
+    private int scale(int value) {
+        return value * 1000 / unitsPerEm;
+    }
+
+    private int u16(int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private int s16(int offset) {
+        return (short) u16(offset);
+    }
+
+    private int u32(int offset) {
+        return (u16(offset) << 16) | u16(offset + 2);
+    }
+
+    private static void putU16(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    private static void putU32(byte[] bytes, int offset, int value) {
+        putU16(bytes, offset, value >>> 16);
+        putU16(bytes, offset + 2, value);
+    }
+}
@@ -0,0 +1,75 @@
+package ut.edu.vaccinationmanagementsystem.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ghi báo cáo CSV (UTF-8 có BOM để Excel hiển thị đúng tiếng Việt)
+ * Chuỗi bắt đầu bằng =, +, -, @ (ví dụ: tên do người dùng nhập) được thêm dấu ' ở đầu để Excel không hiểu là công thức
+ */
+public class CsvReportWriter implements ReportRowWriter {
+
+    private final BufferedWriter writer;
+
+    public CsvReportWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeHeader(String... columns) throws IOException {
+        writer.write('\uFEFF'); // BOM
+        writeRow((Object[]) columns);
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Escape giá trị cho file CSV (bọc trong dấu nháy kép nếu có dấu phẩy, nháy kép hoặc xuống dòng)
+     */
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && isFormulaLike(text)) {
+            text = "'" + text;
+        }
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    /**
+     * Chuỗi mà Excel/LibreOffice sẽ hiểu là công thức khi mở file CSV
+     */
+    private static boolean isFormulaLike(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
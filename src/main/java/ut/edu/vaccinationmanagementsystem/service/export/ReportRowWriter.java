@@ -0,0 +1,30 @@
+package ut.edu.vaccinationmanagementsystem.service.export;
+
+import java.io.IOException;
+
+/**
+ * Ghi báo cáo dạng bảng theo từng dòng (CSV, XLSX) trực tiếp ra OutputStream
+ * Không giữ các dòng đã ghi trong bộ nhớ nên dùng được cho báo cáo hàng triệu dòng
+ */
+public interface ReportRowWriter {
+
+    /**
+     * Ghi dòng tiêu đề (gọi một lần trước các dòng dữ liệu)
+     */
+    void writeHeader(String... columns) throws IOException;
+
+    /**
+     * Ghi một dòng dữ liệu (Number được ghi dạng số, các giá trị khác dạng chuỗi, null là ô trống)
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Đẩy dữ liệu đã ghi xuống client
+     */
+    void flush() throws IOException;
+
+    /**
+     * Hoàn tất file (không đóng OutputStream bên dưới)
+     */
+    void finish() throws IOException;
+}
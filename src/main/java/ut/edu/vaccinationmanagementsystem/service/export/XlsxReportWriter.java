@@ -0,0 +1,227 @@
+package ut.edu.vaccinationmanagementsystem.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Ghi báo cáo XLSX dạng streaming (không cần Apache POI)
+ * - File XLSX là một file zip gồm các phần XML; mỗi sheet được ghi tuần tự thành một entry trong zip,
+ *   từng dòng được nén và đẩy ra ngay nên bộ nhớ sử dụng không phụ thuộc vào số dòng
+ * - Khi một sheet đạt giới hạn số dòng của Excel, các dòng tiếp theo được ghi sang sheet mới (lặp lại dòng tiêu đề)
+ * - workbook.xml và các phần mô tả được ghi sau cùng, khi đã biết số sheet
+ */
+public class XlsxReportWriter implements ReportRowWriter {
+
+    /** Số dòng tối đa của một sheet Excel (kể cả dòng tiêu đề) */
+    public static final int MAX_ROWS_PER_SHEET = 1_048_576;
+
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final String sheetName;
+    private final ZipOutputStream zip;
+    private final Writer writer;
+
+    private String[] header;
+    private int sheetCount = 0;
+    private int rowsInSheet = 0;
+    private boolean sheetOpen = false;
+
+    /**
+     * @param sheetName Tên sheet (các sheet tiếp theo được đánh số: "Tên (2)", "Tên (3)", ...)
+     */
+    public XlsxReportWriter(OutputStream outputStream, String sheetName) {
+        this.sheetName = sheetName;
+        this.zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        this.zip.setLevel(Deflater.BEST_SPEED);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeHeader(String... columns) throws IOException {
+        this.header = columns;
+        openSheet();
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (!sheetOpen) {
+            openSheet();
+        } else if (rowsInSheet >= MAX_ROWS_PER_SHEET) {
+            closeSheet();
+            openSheet();
+        }
+        writeCells(values, false);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+        zip.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!sheetOpen && sheetCount == 0) {
+            openSheet(); // Báo cáo rỗng vẫn cần ít nhất một sheet
+        }
+        if (sheetOpen) {
+            closeSheet();
+        }
+        writeEntry("[Content_Types].xml", contentTypes());
+        writeEntry("_rels/.rels",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS_NS + "\">" +
+                "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+                "</Relationships>");
+        writeEntry("xl/workbook.xml", workbook());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRelationships());
+        writeEntry("xl/styles.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<styleSheet xmlns=\"" + SPREADSHEET_NS + "\">" +
+                "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>" +
+                "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" +
+                "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" +
+                "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" +
+                "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" +
+                "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" +
+                "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>" +
+                "</styleSheet>");
+        zip.finish();
+        zip.flush();
+    }
+
+    private void openSheet() throws IOException {
+        sheetCount++;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetCount + ".xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        writer.write("<worksheet xmlns=\"" + SPREADSHEET_NS + "\"><sheetData>");
+        sheetOpen = true;
+        rowsInSheet = 0;
+        if (header != null) {
+            writeCells(header, true);
+        }
+    }
+
+    private void closeSheet() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void writeCells(Object[] values, boolean bold) throws IOException {
+        rowsInSheet++;
+        writer.write("<row r=\"" + rowsInSheet + "\">");
+        for (Object value : values) {
+            String style = bold ? " s=\"1\"" : "";
+            if (value == null) {
+                writer.write("<c" + style + "/>");
+            } else if (value instanceof Number && isFinite((Number) value)) {
+                writer.write("<c" + style + "><v>" + value + "</v></c>");
+            } else {
+                writer.write("<c" + style + " t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writer.write(escapeXml(value.toString()));
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private String contentTypes() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        sb.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        sb.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        sb.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        sb.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        sb.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+              .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        sb.append("</Types>");
+        return sb.toString();
+    }
+
+    private String workbook() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        sb.append("<workbook xmlns=\"").append(SPREADSHEET_NS).append("\" xmlns:r=\"").append(RELATIONSHIPS_NS).append("\"><sheets>");
+        for (int i = 1; i <= sheetCount; i++) {
+            String name = i == 1 ? sheetName : sheetName + " (" + i + ")";
+            sb.append("<sheet name=\"").append(escapeXml(name)).append("\" sheetId=\"").append(i)
+              .append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        sb.append("</sheets></workbook>");
+        return sb.toString();
+    }
+
+    private String workbookRelationships() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        sb.append("<Relationships xmlns=\"").append(PACKAGE_RELATIONSHIPS_NS).append("\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            sb.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(RELATIONSHIPS_NS)
+              .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(sheetCount + 1).append("\" Type=\"").append(RELATIONSHIPS_NS)
+          .append("/styles\" Target=\"styles.xml\"/>");
+        sb.append("</Relationships>");
+        return sb.toString();
+    }
+
+    private static boolean isFinite(Number value) {
+        if (value instanceof Double) {
+            return Double.isFinite((Double) value);
+        }
+        if (value instanceof Float) {
+            return Float.isFinite((Float) value);
+        }
+        return true;
+    }
+
+    /**
+     * Escape ký tự đặc biệt của XML và bỏ các ký tự điều khiển không hợp lệ trong XML
+     */
+    private static String escapeXml(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package ut.edu.vaccinationmanagementsystem.service.qr;
+
+import com.google.zxing.common.BitMatrix;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Ghi QR code thành PNG đen trắng 1 bit/pixel (grayscale, 8 pixel mỗi byte)
+ * Ghi trực tiếp các chunk PNG từ ma trận module, không tạo BufferedImage/Graphics2D và không qua ImageIO
+ */
+@Component
+public class PngQrCodeRenderer implements QrCodeRenderer {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Override
+    public String format() {
+        return "png";
+    }
+
+    @Override
+    public String contentType() {
+        return "image/png";
+    }
+
+    @Override
+    public byte[] render(BitMatrix modules, int size) throws IOException {
+        // Phóng to mỗi module thành khối scale x scale pixel và canh giữa trong ảnh (giống QRCodeWriter)
+        int moduleCount = modules.getWidth();
+        int scale = Math.max(1, size / moduleCount);
+        int width = Math.max(size, moduleCount * scale);
+        int padding = (width - moduleCount * scale) / 2;
+        int rowBytes = (width + 7) / 8;
+
+        // Mỗi dòng pixel gồm 1 byte filter (0 = None) và các byte dữ liệu; bit 1 = trắng, bit 0 = đen
+        byte[] blankRow = new byte[rowBytes + 1];
+        Arrays.fill(blankRow, 1, blankRow.length, (byte) 0xFF);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            for (int y = 0; y < padding; y++) {
+                out.write(blankRow);
+            }
+            for (int moduleY = 0; moduleY < moduleCount; moduleY++) {
+                // Đóng gói một dòng module một lần, ghi lại scale lần
+                byte[] row = blankRow.clone();
+                for (int moduleX = 0; moduleX < moduleCount; moduleX++) {
+                    if (modules.get(moduleX, moduleY)) {
+                        int start = padding + moduleX * scale;
+                        for (int x = start; x < start + scale; x++) {
+                            row[1 + (x >> 3)] &= (byte) ~(0x80 >>> (x & 7));
+                        }
+                    }
+                }
+                for (int i = 0; i < scale; i++) {
+                    out.write(row);
+                }
+            }
+            for (int y = padding + moduleCount * scale; y < width; y++) {
+                out.write(blankRow);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(compressed.size() + 64);
+        DataOutputStream data = new DataOutputStream(png);
+        data.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(width);
+        headerData.writeByte(1); // bit depth
+        headerData.writeByte(0); // grayscale
+        headerData.writeByte(0); // deflate
+        headerData.writeByte(0); // filter method
+        headerData.writeByte(0); // không interlace
+        writeChunk(data, "IHDR", header.toByteArray());
+        writeChunk(data, "IDAT", compressed.toByteArray());
+        writeChunk(data, "IEND", new byte[0]);
+        return png.toByteArray();
+    }
+
+    /**
+     * Ghi một chunk PNG: độ dài, loại, dữ liệu, CRC32 (tính trên loại + dữ liệu)
+     */
+    private void writeChunk(DataOutputStream out, String type, byte[] chunkData) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(chunkData);
+        out.writeInt(chunkData.length);
+        out.write(typeBytes);
+        out.write(chunkData);
+        out.writeInt((int) crc.getValue());
+    }
+}
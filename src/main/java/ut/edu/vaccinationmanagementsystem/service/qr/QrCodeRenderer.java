@@ -0,0 +1,29 @@
+package ut.edu.vaccinationmanagementsystem.service.qr;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+
+/**
+ * Chuyển ma trận module của QR code (mỗi bit là một module, đã gồm lề) thành file ảnh
+ * Mỗi định dạng là một bean, QrCodeService chọn renderer theo format()
+ */
+public interface QrCodeRenderer {
+
+    /**
+     * Tên định dạng dùng trong request (?format=...)
+     */
+    String format();
+
+    /**
+     * Content-Type của file ảnh
+     */
+    String contentType();
+
+    /**
+     * Vẽ QR code
+     * @param modules Ma trận module (true = module đen)
+     * @param size Kích thước ảnh mong muốn (pixel)
+     */
+    byte[] render(BitMatrix modules, int size) throws IOException;
+}
@@ -0,0 +1,54 @@
+package ut.edu.vaccinationmanagementsystem.service.qr;
+
+import com.google.zxing.common.BitMatrix;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ghi QR code thành SVG: mỗi đoạn module đen liên tiếp trên một dòng là một hình chữ nhật trong cùng một path
+ * Ảnh vector nên hiển thị sắc nét ở mọi kích thước màn hình
+ */
+@Component
+public class SvgQrCodeRenderer implements QrCodeRenderer {
+
+    @Override
+    public String format() {
+        return "svg";
+    }
+
+    @Override
+    public String contentType() {
+        return "image/svg+xml";
+    }
+
+    @Override
+    public byte[] render(BitMatrix modules, int size) {
+        int moduleCount = modules.getWidth();
+        StringBuilder svg = new StringBuilder(4096);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ")
+                .append(moduleCount).append(' ').append(moduleCount)
+                .append("\" width=\"").append(size).append("\" height=\"").append(size)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>")
+                .append("<path fill=\"#000\" d=\"");
+        for (int y = 0; y < moduleCount; y++) {
+            int x = 0;
+            while (x < moduleCount) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < moduleCount && modules.get(x, y)) {
+                    x++;
+                }
+                int length = x - start;
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(length).append("v1h-").append(length).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
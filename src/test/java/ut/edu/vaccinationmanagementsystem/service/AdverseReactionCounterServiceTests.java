@@ -0,0 +1,61 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.AdverseReactionCenterCounter;
+import ut.edu.vaccinationmanagementsystem.repository.AdverseReactionCenterCounterRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AdverseReactionCounterServiceTests {
+
+    @Autowired
+    private AdverseReactionCounterService counterService;
+
+    @Autowired
+    private AdverseReactionCenterCounterRepository counterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void rebuildRemovesCentersWithoutReactions() {
+        // Trung tâm không có phản ứng nào nhưng bộ đếm bị lệch
+        long centerId = 990_001L;
+        increment(centerId, 3, 2, 1);
+
+        counterService.rebuildAll();
+
+        assertEquals(0L, counterService.getSummary(centerId).get("total"));
+        assertTrue(counterRepository.findAll().stream().noneMatch(c -> c.getCenterId() == centerId));
+    }
+
+    @Test
+    void rebuildKeepsIncrementCommittedBetweenSnapshotAndCorrection() {
+        long centerId = 990_002L;
+        AdverseReactionCounterService target = AopTestUtils.getTargetObject(counterService);
+        increment(centerId, 3, 3, 0);
+
+        List<AdverseReactionCenterCounter> corrections = transactionTemplate.execute(status -> target.computeCorrections());
+        // Cộng dồn commit sau khi đối soát đã đọc snapshot: không bị ghi đè, dòng không bị xóa vì chưa về 0
+        increment(centerId, 2, 1, 1);
+        transactionTemplate.executeWithoutResult(status -> target.applyCorrections(corrections));
+
+        assertEquals(2L, counterService.getSummary(centerId).get("total"));
+        assertEquals(1L, counterService.getSummary(centerId).get("unresolved"));
+        assertEquals(1L, counterService.getSummary(centerId).get("severe"));
+    }
+
+    private void increment(long centerId, long total, long unresolved, long severe) {
+        transactionTemplate.executeWithoutResult(status -> counterRepository.increment(centerId, total, unresolved, severe));
+    }
+}
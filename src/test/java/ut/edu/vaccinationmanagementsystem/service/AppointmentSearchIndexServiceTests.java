@@ -0,0 +1,38 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.repository.JobCheckpointRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AppointmentSearchIndexServiceTests {
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void checkpointOnlyMovesForward() {
+        String name = "search-index-test";
+        advance(name, 500);
+        advance(name, 200);
+        assertEquals(Optional.of(500L), jobCheckpointRepository.findLastProcessedId(name));
+
+        advance(name, 800);
+        assertEquals(Optional.of(800L), jobCheckpointRepository.findLastProcessedId(name));
+    }
+
+    private void advance(String name, long lastProcessedId) {
+        transactionTemplate.executeWithoutResult(status -> jobCheckpointRepository.advance(name, lastProcessedId));
+    }
+}
@@ -0,0 +1,346 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.StaffInfo;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
+import ut.edu.vaccinationmanagementsystem.entity.VaccineLot;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AuthProvider;
+import ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.StaffInfoRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineLotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineRepository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CertificateServiceTests {
+
+    private static final String CERTIFICATE_NUMBER = "VC-TEST-000123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CertificateService certificateService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VaccineRepository vaccineRepository;
+
+    @Autowired
+    private VaccineLotRepository vaccineLotRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Autowired
+    private VaccinationCenterRepository vaccinationCenterRepository;
+
+    @Autowired
+    private StaffInfoRepository staffInfoRepository;
+
+    private User patient;
+    private VaccinationRecord record;
+
+    @BeforeEach
+    void createRecord() {
+        if (record != null) {
+            return;
+        }
+        patient = userRepository.findByEmail("cert-patient@test.vn").orElse(null);
+        if (patient != null) {
+            record = vaccinationRecordRepository.findAll().stream()
+                    .filter(r -> CERTIFICATE_NUMBER.equals(r.getCertificateNumber()))
+                    .findFirst().orElseThrow();
+            return;
+        }
+        patient = createUser("cert-patient@test.vn", "Nguyễn Thị Ánh Tuyết", Role.CUSTOMER);
+        User nurse = createUser("cert-nurse@test.vn", "Trần Văn Đức", Role.NURSE);
+        record = createVaccinationRecord(patient, nurse);
+    }
+
+    @Test
+    void certificateDownloadIsWellFormedPdf() throws Exception {
+        byte[] pdf = mockMvc.perform(get("/api/vaccination-records/" + record.getId() + "/certificate")
+                        .session(sessionOf(patient)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/pdf"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertWellFormedPdf(pdf);
+    }
+
+    @Test
+    void verificationLinkRoundTrips() throws Exception {
+        UriComponents link = verificationLink(CERTIFICATE_NUMBER);
+        assertEquals("/api/vaccination-records/verify", link.getPath());
+
+        mockMvc.perform(get(link.getPath())
+                        .param("cert", link.getQueryParams().getFirst("cert"))
+                        .param("sig", link.getQueryParams().getFirst("sig")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid").value(true))
+                .andExpect(jsonPath("$.certificateNumber").value(CERTIFICATE_NUMBER))
+                .andExpect(jsonPath("$.doseNumber").value(1));
+    }
+
+    @Test
+    void tamperedCertificateOrSignatureIsRejected() throws Exception {
+        String signature = verificationLink(CERTIFICATE_NUMBER).getQueryParams().getFirst("sig");
+        char last = signature.charAt(signature.length() - 1);
+        String tamperedSignature = signature.substring(0, signature.length() - 1) + (last == '0' ? '1' : '0');
+
+        mockMvc.perform(get("/api/vaccination-records/verify")
+                        .param("cert", CERTIFICATE_NUMBER)
+                        .param("sig", tamperedSignature))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.valid").value(false));
+
+        mockMvc.perform(get("/api/vaccination-records/verify")
+                        .param("cert", "VC-TEST-000124")
+                        .param("sig", signature))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.valid").value(false));
+
+        // Chữ ký đúng của một số chứng nhận không tồn tại cũng không được xác nhận
+        UriComponents unknown = verificationLink("VC-TEST-999999");
+        mockMvc.perform(get("/api/vaccination-records/verify")
+                        .param("cert", "VC-TEST-999999")
+                        .param("sig", unknown.getQueryParams().getFirst("sig")))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.valid").value(false));
+    }
+
+    @Test
+    void centerCertificatesAreScopedToStaffCenter() throws Exception {
+        VaccinationCenter ownCenter = createCenter("Cert center A");
+        VaccinationCenter otherCenter = createCenter("Cert center B");
+        User nurse = createUser("cert-center-nurse@test.vn", "Lê Thị Hoa", Role.NURSE);
+        StaffInfo staffInfo = new StaffInfo();
+        staffInfo.setUser(nurse);
+        staffInfo.setEmployeeId("CERT-NURSE-1");
+        staffInfo.setCenter(ownCenter);
+        staffInfoRepository.save(staffInfo);
+        User unassigned = createUser("cert-unassigned@test.vn", "Phạm Văn Nam", Role.RECEPTIONIST);
+        User admin = createUser("cert-admin@test.vn", "Admin", Role.ADMIN);
+
+        mockMvc.perform(get(centerZipPath(otherCenter)).session(sessionOf(nurse)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(centerZipPath(ownCenter)).session(sessionOf(unassigned)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(centerZipPath(ownCenter)).session(sessionOf(nurse)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(centerZipPath(otherCenter)).session(sessionOf(admin)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void missingSigningSecretDisablesCertificatesOnly() throws Exception {
+        CertificateService target = AopTestUtils.getTargetObject(certificateService);
+        Object secret = ReflectionTestUtils.getField(target, "signingSecret");
+        ReflectionTestUtils.setField(target, "signingSecret", "");
+        try {
+            mockMvc.perform(get("/api/vaccination-records/" + record.getId() + "/certificate")
+                            .session(sessionOf(patient)))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(get("/api/vaccination-records/certificates/zip").session(sessionOf(patient)))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/vaccination-records/verify")
+                            .param("cert", CERTIFICATE_NUMBER)
+                            .param("sig", "00"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.valid").value(false));
+        } finally {
+            ReflectionTestUtils.setField(target, "signingSecret", secret);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private String centerZipPath(VaccinationCenter center) {
+        return "/api/vaccination-records/certificates/center/" + center.getId() + "/zip";
+    }
+
+    private VaccinationCenter createCenter(String name) {
+        VaccinationCenter center = new VaccinationCenter();
+        center.setName(name);
+        center.setStatus(CenterStatus.ACTIVE);
+        center.setCreatedAt(LocalDateTime.now());
+        return vaccinationCenterRepository.save(center);
+    }
+
+    /**
+     * Link xác minh in trong QR code của chứng nhận
+     */
+    private UriComponents verificationLink(String certificateNumber) {
+        CertificateService target = AopTestUtils.getTargetObject(certificateService);
+        String url = ReflectionTestUtils.invokeMethod(target, "verificationUrl", certificateNumber);
+        return UriComponentsBuilder.fromUriString(url).build();
+    }
+
+    /**
+     * Kiểm tra cấu trúc PDF: header, bảng xref trỏ đúng vị trí từng object, /Length của stream và %%EOF
+     */
+    private void assertWellFormedPdf(byte[] pdf) {
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("%PDF-1."), "PDF header");
+        assertTrue(text.trim().endsWith("%%EOF"), "%%EOF trailer");
+
+        int startxref = text.lastIndexOf("startxref");
+        assertTrue(startxref > 0, "startxref");
+        int xrefOffset = Integer.parseInt(text.substring(startxref + "startxref".length()).trim().split("\\s+")[0]);
+        assertTrue(text.startsWith("xref", xrefOffset), "startxref points to xref table");
+
+        String[] lines = text.substring(xrefOffset).split("\r?\n");
+        String[] subsection = lines[1].trim().split(" ");
+        assertEquals("0", subsection[0]);
+        int objectCount = Integer.parseInt(subsection[1]);
+        assertTrue(objectCount > 1, "xref has objects");
+        for (int i = 1; i < objectCount; i++) {
+            String entry = lines[2 + i];
+            assertTrue(entry.trim().endsWith("n"), "xref entry " + i + " in use");
+            int offset = Integer.parseInt(entry.substring(0, 10));
+            assertTrue(text.startsWith(i + " 0 obj", offset), "xref offset of object " + i);
+        }
+        assertTrue(text.substring(xrefOffset).contains("/Size " + objectCount), "trailer /Size");
+
+        Matcher length = Pattern.compile("/Length (\\d+)").matcher(text);
+        while (length.find()) {
+            int stream = text.indexOf("stream", length.end());
+            int data = stream + "stream".length();
+            if (text.charAt(data) == '\r') {
+                data++;
+            }
+            if (text.charAt(data) == '\n') {
+                data++;
+            }
+            int end = data + Integer.parseInt(length.group(1));
+            assertTrue(text.substring(end, Math.min(text.length(), end + 12)).trim().startsWith("endstream"),
+                    "stream /Length " + length.group(1));
+        }
+    }
+
+    private MockHttpSession sessionOf(User user) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                user.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(authentication));
+        return session;
+    }
+
+    private User createUser(String email, String fullName, Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFullName(fullName);
+        user.setRole(role);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAuthProvider(AuthProvider.EMAIL);
+        user.setCreateAt(LocalDate.now());
+        user.setDayOfBirth(LocalDate.of(1990, 5, 2));
+        return userRepository.save(user);
+    }
+
+    private VaccinationRecord createVaccinationRecord(User patient, User nurse) {
+        Vaccine vaccine = new Vaccine();
+        vaccine.setName("Vắc xin phòng Viêm gan B (Engerix-B)");
+        vaccine.setCode("CERT-TEST");
+        vaccine.setManufacturer("Test");
+        vaccine.setPrice(BigDecimal.ONE);
+        vaccine.setMinAge(0);
+        vaccine.setDosesRequired(2);
+        vaccine.setStatus(VaccineStatus.AVAILABLE);
+        vaccine.setCreatedAt(LocalDateTime.now());
+        vaccine = vaccineRepository.save(vaccine);
+
+        VaccineLot lot = new VaccineLot();
+        lot.setLotNumber("CERT-LOT");
+        lot.setVaccine(vaccine);
+        lot.setQuantity(10);
+        lot.setRemainingQuantity(9);
+        lot.setManufacturingDate(LocalDate.now().minusMonths(3));
+        lot.setExpiryDate(LocalDate.now().plusMonths(3));
+        lot.setImportDate(LocalDate.now().minusMonths(1));
+        lot.setStatus(VaccineLotStatus.AVAILABLE);
+        lot.setCreatedAt(LocalDateTime.now());
+        lot = vaccineLotRepository.save(lot);
+
+        Appointment appointment = new Appointment();
+        appointment.setBookingCode("BK-CERT-1");
+        appointment.setBookedByUser(patient);
+        appointment.setVaccine(vaccine);
+        appointment.setAppointmentDate(LocalDate.now());
+        appointment.setAppointmentTime(LocalTime.of(9, 0));
+        appointment.setStatus(AppointmentStatus.COMPLETED);
+        appointment.setDoseNumber(1);
+        appointment.setRequiresConsultation(false);
+        appointment.setCreatedAt(LocalDateTime.now());
+        appointment.setUpdatedAt(LocalDateTime.now());
+        appointment = appointmentRepository.save(appointment);
+
+        VaccinationRecord vaccinationRecord = new VaccinationRecord();
+        vaccinationRecord.setAppointment(appointment);
+        vaccinationRecord.setUser(patient);
+        vaccinationRecord.setVaccine(vaccine);
+        vaccinationRecord.setVaccineLot(lot);
+        vaccinationRecord.setNurse(nurse);
+        vaccinationRecord.setInjectionDate(LocalDate.now());
+        vaccinationRecord.setInjectionTime(LocalTime.of(9, 15));
+        vaccinationRecord.setDoseNumber(1);
+        vaccinationRecord.setBatchNumber(lot.getLotNumber());
+        vaccinationRecord.setCertificateNumber(CERTIFICATE_NUMBER);
+        vaccinationRecord.setNextDoseDate(LocalDate.now().plusMonths(1));
+        vaccinationRecord.setCreatedAt(LocalDateTime.now());
+        return vaccinationRecordRepository.save(vaccinationRecord);
+    }
+}
@@ -0,0 +1,109 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.DailyStatistic;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AuthProvider;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticDimension;
+import ut.edu.vaccinationmanagementsystem.entity.enums.StatisticMetric;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.repository.DailyStatisticRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DashboardStatisticsServiceTests {
+
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Autowired
+    private DailyStatisticRepository dailyStatisticRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void rebuildCorrectsDriftAndRemovesStaleBuckets() {
+        LocalDate date = LocalDate.of(2001, 1, 1);
+        LocalDate staleDate = LocalDate.of(2001, 1, 2);
+        createUser("rollup-1@test.vn", date, Role.CUSTOMER);
+
+        dashboardStatisticsService.rebuildAll();
+        assertEquals(1, registrations(date));
+
+        // Sai lệch do ghi ngoài service và bucket không còn dữ liệu gốc
+        incrementRegistrations(date, 5);
+        incrementRegistrations(staleDate, 3);
+        dashboardStatisticsService.rebuildAll();
+
+        assertEquals(1, registrations(date));
+        assertEquals(0, registrations(staleDate));
+        assertFalse(dailyStatisticRepository.findAll().stream().anyMatch(s -> staleDate.equals(s.getStatDate())));
+    }
+
+    @Test
+    void rebuildKeepsIncrementCommittedBetweenSnapshotAndCorrection() {
+        LocalDate date = LocalDate.of(2001, 2, 1);
+        DashboardStatisticsService target = AopTestUtils.getTargetObject(dashboardStatisticsService);
+        // User ghi thẳng vào bảng: bộ đếm thiếu 1
+        createUser("rollup-snapshot-1@test.vn", date, Role.CUSTOMER);
+
+        List<DailyStatistic> corrections = transactionTemplate.execute(status -> target.computeCorrections());
+        // Một user khác được tạo (kèm cộng bộ đếm) sau khi đối soát đã đọc snapshot
+        transactionTemplate.executeWithoutResult(status -> dashboardStatisticsService.recordUserCreated(
+                createUser("rollup-snapshot-2@test.vn", date, Role.CUSTOMER)));
+        transactionTemplate.executeWithoutResult(status -> target.applyCorrections(corrections));
+
+        assertEquals(2, registrations(date));
+        dashboardStatisticsService.rebuildAll();
+        assertEquals(2, registrations(date));
+    }
+
+    @Test
+    void userCountByRoleCountsUsersTableDirectly() {
+        // User ghi thẳng vào bảng (không qua bộ đếm) vẫn được đếm
+        createUser("rollup-role@test.vn", LocalDate.of(2001, 3, 1), Role.RECEPTIONIST);
+
+        assertEquals(userRepository.countByRoleIn(List.of(Role.RECEPTIONIST)),
+                dashboardStatisticsService.getUserCountByRole().get(Role.RECEPTIONIST));
+    }
+
+    private long registrations(LocalDate date) {
+        return dashboardStatisticsService.getCountBetween(StatisticMetric.USER_REGISTRATIONS, date, date);
+    }
+
+    private void incrementRegistrations(LocalDate date, long delta) {
+        transactionTemplate.executeWithoutResult(status -> dailyStatisticRepository.increment(date,
+                StatisticMetric.USER_REGISTRATIONS.name(), StatisticDimension.ALL.name(),
+                DashboardStatisticsService.ALL_KEY, delta, BigDecimal.ZERO));
+    }
+
+    private User createUser(String email, LocalDate createAt, Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFullName(email);
+        user.setRole(role);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAuthProvider(AuthProvider.EMAIL);
+        user.setCreateAt(createAt);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,95 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.Notification;
+import ut.edu.vaccinationmanagementsystem.entity.NotificationDailyCounter;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.NotificationType;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationDailyCounterRepository;
+import ut.edu.vaccinationmanagementsystem.repository.NotificationRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NotificationCounterServiceTests {
+
+    @Autowired
+    private NotificationCounterService notificationCounterService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationDailyCounterRepository counterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void rebuildCorrectsDriftAndRemovesStaleBuckets() {
+        LocalDate date = LocalDate.of(2002, 1, 1);
+        LocalDate staleDate = LocalDate.of(2002, 1, 2);
+        createNotification(date, true);
+        createNotification(date, false);
+
+        notificationCounterService.rebuildAll();
+        assertArrayEquals(new long[] {2, 1}, totals(date));
+
+        // Sai lệch do ghi ngoài service và bucket không còn thông báo nào
+        increment(date, 4, 4);
+        increment(staleDate, 3, 0);
+        notificationCounterService.rebuildAll();
+
+        assertArrayEquals(new long[] {2, 1}, totals(date));
+        assertArrayEquals(new long[] {0, 0}, totals(staleDate));
+        assertFalse(counterRepository.findAll().stream().anyMatch(c -> staleDate.equals(c.getStatDate())));
+    }
+
+    @Test
+    void rebuildKeepsChangesCommittedBetweenSnapshotAndCorrection() {
+        LocalDate date = LocalDate.of(2002, 2, 1);
+        NotificationCounterService target = AopTestUtils.getTargetObject(notificationCounterService);
+        // Thông báo ghi thẳng vào bảng: bộ đếm thiếu 1
+        createNotification(date, false);
+
+        List<NotificationDailyCounter> corrections = transactionTemplate.execute(status -> target.computeCorrections());
+        // Một thông báo khác được tạo (kèm cộng bộ đếm) sau khi đối soát đã đọc snapshot
+        transactionTemplate.executeWithoutResult(status ->
+                notificationCounterService.recordCreated(createNotification(date, true)));
+        transactionTemplate.executeWithoutResult(status -> target.applyCorrections(corrections));
+
+        assertArrayEquals(new long[] {2, 1}, totals(date));
+        notificationCounterService.rebuildAll();
+        assertArrayEquals(new long[] {2, 1}, totals(date));
+    }
+
+    private long[] totals(LocalDate date) {
+        return notificationCounterService.getTotalsBetween(date, date);
+    }
+
+    private void increment(LocalDate date, long createdDelta, long readDelta) {
+        transactionTemplate.executeWithoutResult(status ->
+                counterRepository.increment(date, NotificationType.EMAIL.name(), createdDelta, readDelta));
+    }
+
+    private Notification createNotification(LocalDate date, boolean read) {
+        Notification notification = new Notification();
+        notification.setType(NotificationType.EMAIL);
+        notification.setTitle("Counter test");
+        notification.setContent("Counter test");
+        notification.setStatus(NotificationStatus.SENT);
+        notification.setCreatedAt(date.atTime(9, 0));
+        notification.setIsRead(read);
+        return notificationRepository.save(notification);
+    }
+}
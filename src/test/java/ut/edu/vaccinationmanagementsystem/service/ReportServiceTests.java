@@ -0,0 +1,79 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AuthProvider;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReportServiceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void streamingExportsAreWritten() throws Exception {
+        MockHttpSession session = sessionOf(createAdmin("report-admin@test.vn"));
+
+        byte[] csv = mockMvc.perform(get("/api/reports/vaccination/daily").session(session))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertTrue(csv.length > 0, "CSV header is written");
+
+        byte[] xlsx = mockMvc.perform(get("/api/reports/export")
+                        .param("type", "vaccine")
+                        .param("format", "xlsx")
+                        .session(session))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        // File XLSX là file ZIP (bắt đầu bằng "PK")
+        assertTrue(xlsx.length > 2 && xlsx[0] == 'P' && xlsx[1] == 'K', "XLSX is a ZIP archive");
+    }
+
+    private MockHttpSession sessionOf(User user) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                user.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(authentication));
+        return session;
+    }
+
+    private User createAdmin(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFullName("Report Admin");
+        user.setRole(Role.ADMIN);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAuthProvider(AuthProvider.EMAIL);
+        user.setCreateAt(LocalDate.now());
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,140 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.AppointmentSlot;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
+import ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentSlotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SlotReservationServiceTests {
+
+    @Autowired
+    private SlotReservationService slotReservationService;
+
+    @Autowired
+    private AppointmentSlotRepository appointmentSlotRepository;
+
+    @Autowired
+    private VaccinationCenterRepository vaccinationCenterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reserveStopsAtMaxCapacity() {
+        AppointmentSlot slot = createSlot(2);
+
+        reserve(slot);
+        reserve(slot);
+        assertThrows(RuntimeException.class, () -> reserve(slot));
+
+        AppointmentSlot stored = appointmentSlotRepository.findById(slot.getId()).orElseThrow();
+        assertEquals(2, stored.getCurrentBookings());
+        assertFalse(stored.getIsAvailable());
+    }
+
+    @Test
+    void rolledBackReservationReturnsSeatToGate() {
+        AppointmentSlot slot = createSlot(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            slotReservationService.reserve(slot);
+            status.setRollbackOnly();
+        });
+        // Chỗ trong database và quyền giữ chỗ trong cổng đều được trả lại
+        assertEquals(0, appointmentSlotRepository.findById(slot.getId()).orElseThrow().getCurrentBookings());
+        reserve(slot);
+        assertEquals(1, appointmentSlotRepository.findById(slot.getId()).orElseThrow().getCurrentBookings());
+    }
+
+    @Test
+    void releaseReopensFullSlot() {
+        AppointmentSlot slot = createSlot(1);
+        reserve(slot);
+        assertThrows(RuntimeException.class, () -> reserve(slot));
+
+        transactionTemplate.executeWithoutResult(status -> slotReservationService.release(slot));
+        // Cổng bị xóa sau commit nên lần giữ chỗ sau đọc lại số chỗ từ slot mới nhất
+        reserve(appointmentSlotRepository.findById(slot.getId()).orElseThrow());
+        assertEquals(1, appointmentSlotRepository.findById(slot.getId()).orElseThrow().getCurrentBookings());
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedCapacity() throws Exception {
+        AppointmentSlot slot = createSlot(3);
+        int threads = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        reserve(slot);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            assertEquals(3, accepted);
+            assertEquals(3, appointmentSlotRepository.findById(slot.getId()).orElseThrow().getCurrentBookings());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void reserve(AppointmentSlot slot) {
+        transactionTemplate.executeWithoutResult(status -> slotReservationService.reserve(slot));
+    }
+
+    private AppointmentSlot createSlot(int maxCapacity) {
+        VaccinationCenter center = new VaccinationCenter();
+        center.setName("Slot gate center");
+        center.setStatus(CenterStatus.ACTIVE);
+        center.setCreatedAt(LocalDateTime.now());
+        center = vaccinationCenterRepository.save(center);
+
+        AppointmentSlot slot = new AppointmentSlot();
+        slot.setCenter(center);
+        slot.setDate(LocalDate.now().plusDays(1));
+        slot.setStartTime(LocalTime.of(8, 0));
+        slot.setEndTime(LocalTime.of(8, 30));
+        slot.setMaxCapacity(maxCapacity);
+        slot.setCurrentBookings(0);
+        slot.setIsAvailable(true);
+        slot.setCreatedAt(LocalDateTime.now());
+        return appointmentSlotRepository.save(slot);
+    }
+}
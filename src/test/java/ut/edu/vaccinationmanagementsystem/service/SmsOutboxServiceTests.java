@@ -0,0 +1,152 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.SmsOutboxMessage;
+import ut.edu.vaccinationmanagementsystem.entity.enums.SmsOutboxStatus;
+import ut.edu.vaccinationmanagementsystem.repository.SmsOutboxMessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SmsOutboxServiceTests {
+
+    @Autowired
+    private SmsOutboxService smsOutboxService;
+
+    @Autowired
+    private SmsOutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void phoneCooldownRejectsSecondRequest() throws Exception {
+        String phone = "+84900000001";
+        smsOutboxService.enqueue(phone, "OTP 1", SmsOutboxService.PURPOSE_PHONE_VERIFICATION, null);
+
+        assertThrows(SmsRateLimitException.class, () ->
+                smsOutboxService.enqueue(phone, "OTP 2", SmsOutboxService.PURPOSE_PHONE_VERIFICATION, null));
+    }
+
+    @Test
+    void concurrentRequestsForOnePhoneAreSerialized() throws Exception {
+        String phone = "+84900000002";
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        smsOutboxService.enqueue(phone, "OTP " + n, SmsOutboxService.PURPOSE_PHONE_VERIFICATION, null);
+                        return true;
+                    } catch (SmsRateLimitException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            assertEquals(1, accepted);
+            assertEquals(1L, outboxRepository.findAll().stream()
+                    .filter(m -> phone.equals(m.getPhoneNumber())).count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void sentMessageContentIsRedacted() throws Exception {
+        String phone = "+84900000004";
+        Long id = smsOutboxService.enqueue(phone, "Ma xac thuc cua ban la 123456",
+                SmsOutboxService.PURPOSE_PHONE_VERIFICATION, LocalDateTime.now().plusMinutes(5)).getId();
+
+        // Dispatcher gửi tin sau khi enqueue commit (SmsService giả lập)
+        SmsOutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        for (int i = 0; i < 100 && stored.getStatus() != SmsOutboxStatus.SENT; i++) {
+            Thread.sleep(100);
+            stored = outboxRepository.findById(id).orElseThrow();
+        }
+
+        assertEquals(SmsOutboxStatus.SENT, stored.getStatus());
+        assertEquals(SmsOutboxService.REDACTED_CONTENT, stored.getContent());
+    }
+
+    @Test
+    void purgeRedactsFinishedMessagesOnly() {
+        Long finished = saveMessage("+84900000005", SmsOutboxStatus.FAILED, "Ma xac thuc 111111");
+        Long pending = saveMessage("+84900000006", SmsOutboxStatus.PENDING, "Ma xac thuc 222222");
+
+        smsOutboxService.purgeFinished();
+
+        assertEquals(SmsOutboxService.REDACTED_CONTENT, outboxRepository.findById(finished).orElseThrow().getContent());
+        assertEquals("Ma xac thuc 222222", outboxRepository.findById(pending).orElseThrow().getContent());
+    }
+
+    @Test
+    void staleClaimCannotRecordResult() {
+        SmsOutboxMessage message = new SmsOutboxMessage();
+        message.setPhoneNumber("+84900000003");
+        message.setContent("OTP");
+        message.setPurpose(SmsOutboxService.PURPOSE_PHONE_VERIFICATION);
+        message.setStatus(SmsOutboxStatus.PENDING);
+        message.setAttempts(0);
+        // Chưa tới hạn gửi nên dispatcher của ứng dụng không nhận tin này
+        message.setNextAttemptAt(LocalDateTime.now().plusDays(1));
+        message.setCreatedAt(LocalDateTime.now());
+        Long id = outboxRepository.save(message).getId();
+
+        LocalDateTime claimTime = LocalDateTime.now().plusDays(2);
+        // Worker cũ nhận tin, quá hạn giữ, worker mới nhận lại với token khác
+        assertEquals(1, (int) transactionTemplate.execute(status ->
+                outboxRepository.claim(id, claimTime, claimTime.plusSeconds(60), "old-token")));
+        assertEquals(1, (int) transactionTemplate.execute(status ->
+                outboxRepository.claim(id, claimTime.plusSeconds(120), claimTime.plusSeconds(180), "new-token")));
+
+        assertEquals(0, (int) transactionTemplate.execute(status -> outboxRepository.recordAttempt(
+                id, "old-token", SmsOutboxStatus.FAILED, 1, claimTime, "timeout", null, null)));
+        assertEquals(1, (int) transactionTemplate.execute(status -> outboxRepository.recordAttempt(
+                id, "new-token", SmsOutboxStatus.SENT, 1, claimTime, null, claimTime, null)));
+
+        SmsOutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertEquals(SmsOutboxStatus.SENT, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+    }
+
+    private Long saveMessage(String phone, SmsOutboxStatus status, String content) {
+        SmsOutboxMessage message = new SmsOutboxMessage();
+        message.setPhoneNumber(phone);
+        message.setContent(content);
+        message.setPurpose(SmsOutboxService.PURPOSE_PHONE_VERIFICATION);
+        message.setStatus(status);
+        message.setAttempts(0);
+        // Chưa tới hạn gửi nên dispatcher của ứng dụng không nhận tin này
+        message.setNextAttemptAt(LocalDateTime.now().plusDays(1));
+        message.setCreatedAt(LocalDateTime.now());
+        return outboxRepository.save(message).getId();
+    }
+}
@@ -0,0 +1,71 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.StaffDailyActivity;
+import ut.edu.vaccinationmanagementsystem.repository.StaffDailyActivityRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StaffActivityServiceTests {
+
+    @Autowired
+    private StaffActivityService staffActivityService;
+
+    @Autowired
+    private StaffDailyActivityRepository activityRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void rebuildRemovesRowsWithoutActivity() {
+        // Nhân viên không có phiếu khám/hồ sơ tiêm/lịch sử nào nhưng bảng hiệu suất bị lệch
+        long staffId = 990_101L;
+        LocalDate date = LocalDate.of(2003, 1, 1);
+        increment(staffId, date, 2, 1, 3);
+
+        staffActivityService.rebuildAll();
+
+        assertFalse(activity(date).containsKey(staffId));
+        assertFalse(activityRepository.findAll().stream().anyMatch(a -> a.getStaffId() == staffId));
+    }
+
+    @Test
+    void rebuildKeepsIncrementCommittedBetweenSnapshotAndCorrection() {
+        long staffId = 990_102L;
+        LocalDate date = LocalDate.of(2003, 2, 1);
+        StaffActivityService target = AopTestUtils.getTargetObject(staffActivityService);
+        increment(staffId, date, 3, 0, 1);
+
+        List<StaffDailyActivity> corrections = transactionTemplate.execute(status -> target.computeCorrections());
+        // Cộng dồn commit sau khi đối soát đã đọc snapshot: không bị ghi đè, dòng không bị xóa vì chưa về 0
+        increment(staffId, date, 1, 2, 0);
+        transactionTemplate.executeWithoutResult(status -> target.applyCorrections(corrections));
+
+        Map<String, Long> counts = activity(date).get(staffId);
+        assertEquals(1L, counts.get("screenings"));
+        assertEquals(2L, counts.get("injections"));
+        assertEquals(0L, counts.get("receptions"));
+    }
+
+    private Map<Long, Map<String, Long>> activity(LocalDate date) {
+        return staffActivityService.getActivityBetween(date, date);
+    }
+
+    private void increment(long staffId, LocalDate date, long screenings, long injections, long receptions) {
+        transactionTemplate.executeWithoutResult(status ->
+                activityRepository.increment(staffId, date, screenings, injections, receptions));
+    }
+}
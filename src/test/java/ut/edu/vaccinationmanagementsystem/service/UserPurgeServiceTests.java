@@ -0,0 +1,141 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.User;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationRecord;
+import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
+import ut.edu.vaccinationmanagementsystem.entity.VaccineLot;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AuthProvider;
+import ut.edu.vaccinationmanagementsystem.entity.enums.Role;
+import ut.edu.vaccinationmanagementsystem.entity.enums.UserStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.UserRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationRecordRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineLotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserPurgeServiceTests {
+
+    @Autowired
+    private UserPurgeService userPurgeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VaccineRepository vaccineRepository;
+
+    @Autowired
+    private VaccineLotRepository vaccineLotRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private VaccinationRecordRepository vaccinationRecordRepository;
+
+    @Test
+    void purgeNurseKeepsInjectionRecordsWithoutNurse() {
+        User nurse = createUser("purge-nurse@test.vn", Role.NURSE);
+        User patient = createUser("purge-patient@test.vn", Role.CUSTOMER);
+        VaccinationRecord record = createRecord(patient, nurse);
+
+        assertEquals(1L, userPurgeService.countAffected(List.of(nurse.getId())).get("vaccinationRecordsNurseCleared"));
+
+        Map<String, Long> counts = userPurgeService.purgeUsers(List.of(nurse.getId()));
+
+        assertEquals(1L, counts.get("users"));
+        assertEquals(1L, counts.get("vaccinationRecordsNurseCleared"));
+        assertEquals(0L, counts.get("vaccinationRecords"));
+        assertFalse(userRepository.existsById(nurse.getId()));
+        assertTrue(userRepository.existsById(patient.getId()));
+
+        VaccinationRecord kept = vaccinationRecordRepository.findById(record.getId()).orElseThrow();
+        assertNull(kept.getNurse());
+        assertEquals(patient.getId(), kept.getUser().getId());
+    }
+
+    private User createUser(String email, Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFullName(email);
+        user.setRole(role);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAuthProvider(AuthProvider.EMAIL);
+        user.setCreateAt(LocalDate.now());
+        return userRepository.save(user);
+    }
+
+    private VaccinationRecord createRecord(User patient, User nurse) {
+        Vaccine vaccine = new Vaccine();
+        vaccine.setName("Purge test vaccine");
+        vaccine.setCode("PURGE-TEST");
+        vaccine.setManufacturer("Test");
+        vaccine.setPrice(BigDecimal.ONE);
+        vaccine.setMinAge(0);
+        vaccine.setDosesRequired(1);
+        vaccine.setStatus(VaccineStatus.AVAILABLE);
+        vaccine.setCreatedAt(LocalDateTime.now());
+        vaccine = vaccineRepository.save(vaccine);
+
+        VaccineLot lot = new VaccineLot();
+        lot.setLotNumber("PURGE-LOT");
+        lot.setVaccine(vaccine);
+        lot.setQuantity(10);
+        lot.setRemainingQuantity(9);
+        lot.setManufacturingDate(LocalDate.now().minusMonths(3));
+        lot.setExpiryDate(LocalDate.now().plusMonths(3));
+        lot.setImportDate(LocalDate.now().minusMonths(1));
+        lot.setStatus(VaccineLotStatus.AVAILABLE);
+        lot.setCreatedAt(LocalDateTime.now());
+        lot = vaccineLotRepository.save(lot);
+
+        Appointment appointment = new Appointment();
+        appointment.setBookingCode("BK-PURGE-1");
+        appointment.setBookedByUser(patient);
+        appointment.setVaccine(vaccine);
+        appointment.setAppointmentDate(LocalDate.now());
+        appointment.setAppointmentTime(LocalTime.of(9, 0));
+        appointment.setStatus(AppointmentStatus.COMPLETED);
+        appointment.setDoseNumber(1);
+        appointment.setRequiresConsultation(false);
+        appointment.setCreatedAt(LocalDateTime.now());
+        appointment.setUpdatedAt(LocalDateTime.now());
+        appointment = appointmentRepository.save(appointment);
+
+        VaccinationRecord record = new VaccinationRecord();
+        record.setAppointment(appointment);
+        record.setUser(patient);
+        record.setVaccine(vaccine);
+        record.setVaccineLot(lot);
+        record.setNurse(nurse);
+        record.setInjectionDate(LocalDate.now());
+        record.setInjectionTime(LocalTime.of(9, 15));
+        record.setDoseNumber(1);
+        record.setBatchNumber(lot.getLotNumber());
+        record.setCreatedAt(LocalDateTime.now());
+        return vaccinationRecordRepository.save(record);
+    }
+}
@@ -0,0 +1,146 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ut.edu.vaccinationmanagementsystem.entity.CenterVaccine;
+import ut.edu.vaccinationmanagementsystem.entity.VaccinationCenter;
+import ut.edu.vaccinationmanagementsystem.entity.Vaccine;
+import ut.edu.vaccinationmanagementsystem.entity.VaccineLot;
+import ut.edu.vaccinationmanagementsystem.entity.enums.CenterStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineLotStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.VaccineStatus;
+import ut.edu.vaccinationmanagementsystem.repository.CenterVaccineRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccinationCenterRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineLotRepository;
+import ut.edu.vaccinationmanagementsystem.repository.VaccineRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class VaccineLotAllocationServiceTests {
+
+    @Autowired
+    private VaccineLotAllocationService allocationService;
+
+    @Autowired
+    private VaccineRepository vaccineRepository;
+
+    @Autowired
+    private VaccineLotRepository vaccineLotRepository;
+
+    @Autowired
+    private VaccinationCenterRepository vaccinationCenterRepository;
+
+    @Autowired
+    private CenterVaccineRepository centerVaccineRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void allocateTakesEarliestExpiringLotsFirst() {
+        Vaccine vaccine = createVaccine("FIFO-1");
+        CenterVaccine centerVaccine = createCenterVaccine(vaccine, 10);
+        VaccineLot later = createLot(vaccine, "FIFO-1-B", 5, LocalDate.now().plusMonths(6));
+        VaccineLot earlier = createLot(vaccine, "FIFO-1-A", 2, LocalDate.now().plusMonths(1));
+        // Lô đã quá hạn nhưng chưa được quét sang EXPIRED thì không được cấp phát
+        VaccineLot expired = createLot(vaccine, "FIFO-1-X", 5, LocalDate.now().minusDays(1));
+
+        List<VaccineLotAllocationService.LotAllocation> allocations = transactionTemplate.execute(status ->
+                allocationService.allocate(centerVaccine, vaccine, 3));
+
+        assertEquals(2, allocations.size());
+        assertEquals(earlier.getId(), allocations.get(0).getLot().getId());
+        assertEquals(2, allocations.get(0).getQuantity());
+        assertEquals(later.getId(), allocations.get(1).getLot().getId());
+        assertEquals(1, allocations.get(1).getQuantity());
+
+        assertEquals(0, remaining(earlier));
+        assertEquals(4, remaining(later));
+        assertEquals(5, remaining(expired));
+        assertEquals(7, centerVaccineRepository.findById(centerVaccine.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void failedAllocationRollsBackAndQueueIsRebuilt() {
+        Vaccine vaccine = createVaccine("FIFO-2");
+        CenterVaccine centerVaccine = createCenterVaccine(vaccine, 10);
+        VaccineLot lot = createLot(vaccine, "FIFO-2-A", 2, LocalDate.now().plusMonths(1));
+
+        // Lô chỉ còn 2 liều → lấy hết lô rồi báo thiếu, transaction rollback
+        assertThrows(RuntimeException.class, () -> transactionTemplate.execute(status ->
+                allocationService.allocate(centerVaccine, vaccine, 3)));
+        assertEquals(2, remaining(lot));
+        assertEquals(10, centerVaccineRepository.findById(centerVaccine.getId()).orElseThrow().getStockQuantity());
+
+        // Lô đã bị bỏ khỏi hàng đợi trong lần lỗi phải được cấp phát lại
+        VaccineLot allocated = transactionTemplate.execute(status -> allocationService.allocateOne(centerVaccine, vaccine));
+        assertEquals(lot.getId(), allocated.getId());
+        assertEquals(1, remaining(lot));
+    }
+
+    @Test
+    void allocateRejectsWhenCenterStockIsShort() {
+        Vaccine vaccine = createVaccine("FIFO-3");
+        CenterVaccine centerVaccine = createCenterVaccine(vaccine, 1);
+        VaccineLot lot = createLot(vaccine, "FIFO-3-A", 5, LocalDate.now().plusMonths(1));
+
+        assertThrows(RuntimeException.class, () -> transactionTemplate.execute(status ->
+                allocationService.allocate(centerVaccine, vaccine, 2)));
+        assertEquals(5, remaining(lot));
+        assertEquals(1, centerVaccineRepository.findById(centerVaccine.getId()).orElseThrow().getStockQuantity());
+    }
+
+    private int remaining(VaccineLot lot) {
+        return vaccineLotRepository.findById(lot.getId()).orElseThrow().getRemainingQuantity();
+    }
+
+    private Vaccine createVaccine(String code) {
+        Vaccine vaccine = new Vaccine();
+        vaccine.setName("Vaccine " + code);
+        vaccine.setCode(code);
+        vaccine.setPrice(new BigDecimal("100000"));
+        vaccine.setDosesRequired(1);
+        vaccine.setStatus(VaccineStatus.AVAILABLE);
+        vaccine.setCreatedAt(LocalDateTime.now());
+        return vaccineRepository.save(vaccine);
+    }
+
+    private CenterVaccine createCenterVaccine(Vaccine vaccine, int stock) {
+        VaccinationCenter center = new VaccinationCenter();
+        center.setName("Lot allocation center");
+        center.setStatus(CenterStatus.ACTIVE);
+        center.setCreatedAt(LocalDateTime.now());
+        center = vaccinationCenterRepository.save(center);
+
+        CenterVaccine centerVaccine = new CenterVaccine();
+        centerVaccine.setCenter(center);
+        centerVaccine.setVaccine(vaccine);
+        centerVaccine.setStockQuantity(stock);
+        return centerVaccineRepository.save(centerVaccine);
+    }
+
+    private VaccineLot createLot(Vaccine vaccine, String lotNumber, int quantity, LocalDate expiryDate) {
+        VaccineLot lot = new VaccineLot();
+        lot.setLotNumber(lotNumber);
+        lot.setVaccine(vaccine);
+        lot.setQuantity(quantity);
+        lot.setRemainingQuantity(quantity);
+        lot.setManufacturingDate(LocalDate.now().minusYears(1));
+        lot.setExpiryDate(expiryDate);
+        lot.setImportDate(LocalDate.now().minusMonths(1));
+        lot.setStatus(VaccineLotStatus.AVAILABLE);
+        lot.setCreatedAt(LocalDateTime.now());
+        return vaccineLotRepository.save(lot);
+    }
+}
@@ -0,0 +1,198 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ut.edu.vaccinationmanagementsystem.dto.VnPayCallbackResultDTO;
+import ut.edu.vaccinationmanagementsystem.entity.Appointment;
+import ut.edu.vaccinationmanagementsystem.entity.Payment;
+import ut.edu.vaccinationmanagementsystem.entity.enums.AppointmentStatus;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentCallbackOutcome;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentMethod;
+import ut.edu.vaccinationmanagementsystem.entity.enums.PaymentStatus;
+import ut.edu.vaccinationmanagementsystem.repository.AppointmentRepository;
+import ut.edu.vaccinationmanagementsystem.repository.PaymentCallbackEventRepository;
+import ut.edu.vaccinationmanagementsystem.repository.PaymentRepository;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "dev"})
+@TestPropertySource(properties = "vnpay.simulator.enabled=true")
+class VnPayCallbackServiceTests {
+
+    @Autowired
+    private VnPayCallbackService vnPayCallbackService;
+
+    @Autowired
+    private VnPayService vnPayService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentCallbackEventRepository paymentCallbackEventRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void duplicateCallbacksAreProcessedOnce() {
+        Payment payment = createPendingPayment("BK-CB-DUP");
+        String query = signedCallback("BK-CB-DUP", "9000001");
+
+        // Return URL của trình duyệt rồi IPN của VNPay cho cùng giao dịch
+        VnPayCallbackResultDTO first = handle(query, VnPayCallbackService.SOURCE_RETURN);
+        VnPayCallbackResultDTO second = handle(query, VnPayCallbackService.SOURCE_IPN);
+
+        assertFalse(first.isDuplicate());
+        assertEquals(PaymentCallbackOutcome.PAID, first.getOutcome());
+        assertTrue(second.isDuplicate());
+        assertEquals(PaymentCallbackOutcome.PAID, second.getOutcome());
+
+        // Giao dịch khác của cùng đơn: được nhận nhưng payment không chuyển trạng thái lần nữa
+        VnPayCallbackResultDTO other = handle(signedCallback("BK-CB-DUP", "9000002"), VnPayCallbackService.SOURCE_IPN);
+        assertFalse(other.isDuplicate());
+        assertEquals(PaymentCallbackOutcome.IGNORED, other.getOutcome());
+
+        Payment paid = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertEquals(PaymentStatus.PAID, paid.getPaymentStatus());
+        assertEquals("9000001", paid.getTransactionId());
+    }
+
+    @Test
+    void concurrentCallbacksAreProcessedOnce() throws Exception {
+        int callbacks = 8;
+        Payment payment = createPendingPayment("BK-CB-CONC");
+        String query = signedCallback("BK-CB-CONC", "9000003");
+
+        ExecutorService executor = Executors.newFixedThreadPool(callbacks);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<VnPayCallbackResultDTO>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < callbacks; i++) {
+                String source = i % 2 == 0 ? VnPayCallbackService.SOURCE_RETURN : VnPayCallbackService.SOURCE_IPN;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return handle(query, source);
+                }));
+            }
+            start.countDown();
+
+            int processed = 0;
+            for (Future<VnPayCallbackResultDTO> future : futures) {
+                VnPayCallbackResultDTO result = future.get();
+                if (!result.isDuplicate()) {
+                    processed++;
+                }
+                assertEquals(PaymentCallbackOutcome.PAID, result.getOutcome());
+            }
+            assertEquals(1, processed);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(PaymentStatus.PAID, paymentRepository.findById(payment.getId()).orElseThrow().getPaymentStatus());
+        assertTrue(paymentCallbackEventRepository.findByTxnRefAndTransactionNo("BK-CB-CONC", "9000003").isPresent());
+    }
+
+    @Test
+    void simulatorCallbackRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/api/payment/simulator/callback")
+                        .param("txnRef", "BK-CB-SIM")
+                        .header("X-Requested-With", "XMLHttpRequest")
+                        .session(sessionOf("ROLE_CUSTOMER")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/payment/simulator/callback").param("txnRef", "BK-CB-SIM").session(sessionOf("ROLE_ADMIN")))
+                .andExpect(status().isOk());
+    }
+
+    // ==================== Helpers ====================
+
+    private VnPayCallbackResultDTO handle(String query, String source) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+        return vnPayCallbackService.handle(params, query, source);
+    }
+
+    private String signedCallback(String txnRef, String transactionNo) {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_TmnCode", "TESTTMN");
+        params.put("vnp_TxnRef", txnRef);
+        params.put("vnp_Amount", "10000000");
+        params.put("vnp_OrderInfo", "Thanh toan " + txnRef);
+        params.put("vnp_ResponseCode", "00");
+        params.put("vnp_TransactionStatus", "00");
+        params.put("vnp_TransactionNo", transactionNo);
+        params.put("vnp_BankCode", "NCB");
+        params.put("vnp_PayDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")));
+        return vnPayService.buildSignedQuery(params);
+    }
+
+    private Payment createPendingPayment(String bookingCode) {
+        Appointment appointment = new Appointment();
+        appointment.setBookingCode(bookingCode);
+        appointment.setGuestFullName("Callback Test");
+        appointment.setAppointmentDate(LocalDate.now().plusDays(1));
+        appointment.setAppointmentTime(LocalTime.of(9, 0));
+        appointment.setStatus(AppointmentStatus.PENDING);
+        appointment.setDoseNumber(1);
+        appointment.setRequiresConsultation(false);
+        appointment.setCreatedAt(LocalDateTime.now());
+        appointment.setUpdatedAt(LocalDateTime.now());
+        appointment = appointmentRepository.save(appointment);
+
+        Payment payment = new Payment();
+        payment.setAppointment(appointment);
+        payment.setAmount(new BigDecimal("100000"));
+        payment.setPaymentMethod(PaymentMethod.VNPAY);
+        payment.setPaymentStatus(PaymentStatus.PENDING);
+        return paymentRepository.save(payment);
+    }
+
+    private MockHttpSession sessionOf(String role) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                "simulator-" + role.toLowerCase() + "@test.vn", null, List.of(new SimpleGrantedAuthority(role)));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(authentication));
+        return session;
+    }
+}
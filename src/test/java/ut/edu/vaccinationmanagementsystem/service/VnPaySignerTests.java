@@ -0,0 +1,429 @@
+package ut.edu.vaccinationmanagementsystem.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import ut.edu.vaccinationmanagementsystem.config.VnPayConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * So sánh VnPaySigner với cách ký cũ (URLEncoder + HMAC-SHA512 trên chuỗi ghép, xem LegacySigner)
+ * trên các bộ tham số thanh toán/callback VNPay thật và ngẫu nhiên.
+ * Benchmark thời gian đơn giản (JMH không có trong repository Maven của build), chỉ chạy khi bật:
+ * mvn test -Dtest=VnPaySignerTests -Dvnpay.benchmark=true
+ */
+class VnPaySignerTests {
+
+    private static final String SECRET = "TESTSECRET";
+
+    private static final int BENCHMARK_WARMUP = 50_000;
+    private static final int BENCHMARK_ITERATIONS = 100_000;
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    private VnPaySigner signer;
+    private LegacySigner legacy;
+
+    @BeforeEach
+    void setUp() {
+        VnPayConfig config = new VnPayConfig();
+        config.setHashSecret(SECRET);
+        signer = new VnPaySigner();
+        ReflectionTestUtils.setField(signer, "vnPayConfig", config);
+        legacy = new LegacySigner(SECRET);
+    }
+
+    @Test
+    void paymentUrlMatchesLegacy() {
+        Map<String, String> params = paymentParams("Thanh toan lich hen BK-20260118-0042");
+
+        String expected = legacy.buildSignedQuery(params);
+        assertEquals(expected, signer.sign(params));
+        assertEquals(expected, signer.signSorted(sortedPairs(params)));
+    }
+
+    @Test
+    void nonAsciiAndReservedCharactersMatchLegacy() {
+        for (String orderInfo : List.of(
+                "Thanh toán vắc xin Nguyễn Văn Đức - mũi 2",
+                "Phí hủy lịch: 50.000đ & hoàn tiền = 90% (xem /chinh-sach?id=1#phi)",
+                "a+b c~d'e\"f<g>h",
+                "Đặt lịch 💉 cho bé 👶",
+                "lone \uD83D surrogate")) {
+            Map<String, String> params = paymentParams(orderInfo);
+            String expected = legacy.buildSignedQuery(params);
+            assertEquals(expected, signer.sign(params), orderInfo);
+            assertEquals(expected, signer.signSorted(sortedPairs(params)), orderInfo);
+        }
+    }
+
+    @Test
+    void emptyValuesKeepLegacySeparatorQuirk() {
+        // Tham số rỗng bị bỏ qua nhưng "&" sau tham số không rỗng vẫn được ghi nếu còn tham số phía sau
+        Map<String, String> params = paymentParams("Thanh toan");
+        params.put("vnp_BankCode", "");
+        params.put("vnp_Bill_Mobile", null);
+        params.put("vnp_Version", "");
+
+        String expected = legacy.buildSignedQuery(params);
+        assertTrue(expected.contains("&&vnp_SecureHash="), expected);
+        assertEquals(expected, signer.sign(params));
+        assertEquals(expected, signer.signSorted(sortedPairs(params)));
+    }
+
+    @Test
+    void callbackQueryMatchesLegacy() {
+        String query = legacy.buildSignedQuery(callbackParams());
+
+        assertVerifyMatches(query, true);
+        assertVerifyMatches(lowerCaseHash(query), true);
+        assertVerifyMatches(query.replace("vnp_Amount=15000000", "vnp_Amount=100"), false);
+        assertVerifyMatches(query.replace("vnp_ResponseCode=00", "vnp_ResponseCode=24"), false);
+        assertVerifyMatches(query.substring(0, query.length() - 2), false);
+        assertVerifyMatches(query.substring(0, query.indexOf("&vnp_SecureHash=")), false);
+        assertVerifyMatches(query.replaceAll("vnp_SecureHash=[0-9A-F]+", "vnp_SecureHash="), false);
+        // Đoạn rỗng, đoạn không có "=" và "&" thừa ở cuối bị bỏ qua
+        assertVerifyMatches("&&foo&=bar&" + query + "&", true);
+    }
+
+    @Test
+    void callbackWithEmptyValueMatchesLegacy() {
+        Map<String, String> params = callbackParams();
+        params.put("vnp_BankTranNo", "");
+        String query = legacy.buildSignedQuery(params).replace("vnp_BankCode=NCB", "vnp_BankCode=NCB&vnp_BankTranNo=");
+
+        assertVerifyMatches(query, true);
+    }
+
+    @Test
+    void duplicateCallbackParametersMatchLegacy() {
+        String query = legacy.buildSignedQuery(callbackParams());
+
+        // Cả hai cách đều lấy giá trị cuối cùng của tham số trùng tên
+        assertVerifyMatches("vnp_Amount=100&" + query, true);
+        assertVerifyMatches(query + "&vnp_Amount=100", false);
+        assertVerifyMatches("vnp_SecureHash=00&" + query, true);
+        assertVerifyMatches(query + "&vnp_SecureHash=00", false);
+    }
+
+    @Test
+    void decodedParamsMatchLegacy() {
+        Map<String, String> params = callbackParams();
+        params.put("vnp_OrderInfo", "Thanh toán vắc xin Nguyễn Văn Đức 💉 & phí = 0");
+        String hash = signatureOf(legacy.buildSignedQuery(params));
+
+        params.put(VnPaySigner.SECURE_HASH_PARAM, hash);
+        assertVerifyMapMatches(params, true);
+        params.put(VnPaySigner.SECURE_HASH_PARAM, hash.toLowerCase(Locale.ROOT));
+        assertVerifyMapMatches(params, false);
+        params.put(VnPaySigner.SECURE_HASH_PARAM, hash.substring(2));
+        assertVerifyMapMatches(params, false);
+        params.put(VnPaySigner.SECURE_HASH_PARAM, hash);
+        params.put("vnp_Amount", "100");
+        assertVerifyMapMatches(params, false);
+        params.remove(VnPaySigner.SECURE_HASH_PARAM);
+        assertVerifyMapMatches(params, false);
+    }
+
+    @Test
+    void randomParameterSetsMatchLegacy() {
+        Random random = new Random(20260118L);
+        for (int i = 0; i < 2000; i++) {
+            Map<String, String> params = new HashMap<>();
+            int count = 1 + random.nextInt(14);
+            for (int j = 0; j < count; j++) {
+                params.put("vnp_" + (char) ('A' + random.nextInt(26)) + random.nextInt(10), randomValue(random));
+            }
+
+            String expected = legacy.buildSignedQuery(params);
+            assertEquals(expected, signer.sign(params), expected);
+            assertEquals(expected, signer.signSorted(sortedPairs(params)), expected);
+
+            assertVerifyMatches(expected, legacy.verifyQueryString(expected));
+            assertVerifyMatches(lowerCaseHash(expected), legacy.verifyQueryString(expected));
+
+            Map<String, String> decoded = new HashMap<>(params);
+            decoded.put(VnPaySigner.SECURE_HASH_PARAM, signatureOf(expected));
+            assertVerifyMapMatches(decoded, legacy.verify(decoded));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "vnpay.benchmark", matches = "true")
+    void benchmarkAgainstLegacy() {
+        Map<String, String> payment = paymentParams("Thanh toán vắc xin Nguyễn Văn Đức - mũi 2");
+        String callback = legacy.buildSignedQuery(callbackParams());
+
+        double legacySign = nanosPerOp(p -> legacy.buildSignedQuery(p).length(), payment);
+        double signerSign = nanosPerOp(p -> signer.sign(p).length(), payment);
+        double legacyVerify = nanosPerOp(q -> legacy.verifyQueryString(q) ? 1 : 0, callback);
+        double signerVerify = nanosPerOp(q -> signer.verifyQueryString(q) ? 1 : 0, callback);
+
+        System.out.printf(Locale.ROOT, "VnPaySigner benchmark (best of %d x %d ops)%n", BENCHMARK_ROUNDS, BENCHMARK_ITERATIONS);
+        System.out.printf(Locale.ROOT, "  sign:   legacy %.0f ns/op, VnPaySigner %.0f ns/op (%.2fx)%n",
+                legacySign, signerSign, legacySign / signerSign);
+        System.out.printf(Locale.ROOT, "  verify: legacy %.0f ns/op, VnPaySigner %.0f ns/op (%.2fx)%n",
+                legacyVerify, signerVerify, legacyVerify / signerVerify);
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Thời gian trung bình (ns) của một lần gọi, lấy vòng nhanh nhất sau khi khởi động JIT
+     */
+    private static <T> double nanosPerOp(ToIntFunction<T> operation, T input) {
+        long sink = 0;
+        for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+            sink += operation.applyAsInt(input);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                sink += operation.applyAsInt(input);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        // Dùng kết quả để JIT không bỏ qua phép tính
+        assertTrue(sink >= 0);
+        return (double) best / BENCHMARK_ITERATIONS;
+    }
+
+    private void assertVerifyMatches(String query, boolean expected) {
+        assertEquals(expected, legacy.verifyQueryString(query), query);
+        assertEquals(expected, signer.verifyQueryString(query), query);
+    }
+
+    private void assertVerifyMapMatches(Map<String, String> params, boolean expected) {
+        assertEquals(expected, legacy.verify(params), params.toString());
+        assertEquals(expected, signer.verify(params), params.toString());
+    }
+
+    private static Map<String, String> paymentParams(String orderInfo) {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "TESTTMN");
+        params.put("vnp_Amount", "15000000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "APT42_1768712345678");
+        params.put("vnp_OrderInfo", orderInfo);
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8080/api/payment/vnpay-return");
+        params.put("vnp_IpAddr", "0:0:0:0:0:0:0:1");
+        params.put("vnp_CreateDate", "20260118093000");
+        params.put("vnp_ExpireDate", "20260118094500");
+        return params;
+    }
+
+    private static Map<String, String> callbackParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Amount", "15000000");
+        params.put("vnp_BankCode", "NCB");
+        params.put("vnp_CardType", "ATM");
+        params.put("vnp_OrderInfo", "Thanh toan lich hen BK-20260118-0042");
+        params.put("vnp_PayDate", "20260118093512");
+        params.put("vnp_ResponseCode", "00");
+        params.put("vnp_TmnCode", "TESTTMN");
+        params.put("vnp_TransactionNo", "14812345");
+        params.put("vnp_TransactionStatus", "00");
+        params.put("vnp_TxnRef", "APT42_1768712345678");
+        return params;
+    }
+
+    private static String[] sortedPairs(Map<String, String> params) {
+        List<String> pairs = new ArrayList<>();
+        new TreeMap<>(params).forEach((name, value) -> {
+            pairs.add(name);
+            pairs.add(value);
+        });
+        return pairs.toArray(new String[0]);
+    }
+
+    private static String signatureOf(String query) {
+        return query.substring(query.indexOf("vnp_SecureHash=") + "vnp_SecureHash=".length());
+    }
+
+    private static String lowerCaseHash(String query) {
+        String hash = signatureOf(query);
+        return query.substring(0, query.length() - hash.length()) + hash.toLowerCase(Locale.ROOT);
+    }
+
+    private static String randomValue(Random random) {
+        String[] pool = {"a", "Z", "9", " ", "&", "=", "+", "%", "/", "?", "#", ".", "-", "*", "_", "~",
+                "ă", "đ", "ệ", "Ư", "€", "💉", "\uD83D"};
+        int length = random.nextInt(5) == 0 ? 0 : random.nextInt(20);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            value.append(pool[random.nextInt(pool.length)]);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Cách ký trước VnPaySigner (VnPayService.buildSignedQuery / verifySignatureFromQueryString / verifySignature),
+     * giữ nguyên để so sánh
+     */
+    private static class LegacySigner {
+
+        private final String secret;
+
+        private LegacySigner(String secret) {
+            this.secret = secret;
+        }
+
+        String buildSignedQuery(Map<String, String> vnp_Params) {
+            List<String> fieldNames = new ArrayList<>(vnp_Params.keySet());
+            Collections.sort(fieldNames);
+
+            StringBuilder hashData = new StringBuilder();
+            StringBuilder query = new StringBuilder();
+
+            Iterator<String> itr = fieldNames.iterator();
+            while (itr.hasNext()) {
+                String fieldName = itr.next();
+                String fieldValue = vnp_Params.get(fieldName);
+                if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                    hashData.append(fieldName);
+                    hashData.append('=');
+                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8));
+
+                    query.append(URLEncoder.encode(fieldName, StandardCharsets.UTF_8));
+                    query.append('=');
+                    query.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8));
+
+                    if (itr.hasNext()) {
+                        query.append('&');
+                        hashData.append('&');
+                    }
+                }
+            }
+
+            String queryUrl = query.toString();
+            String vnp_SecureHash = hmacSha512(secret, hashData.toString()).toUpperCase();
+            queryUrl += "&vnp_SecureHash=" + vnp_SecureHash;
+            return queryUrl;
+        }
+
+        boolean verifyQueryString(String queryString) {
+            if (queryString == null || queryString.isEmpty()) {
+                return false;
+            }
+
+            Map<String, String> params = new HashMap<>();
+            String[] pairs = queryString.split("&");
+            String vnp_SecureHash = null;
+
+            for (String pair : pairs) {
+                int idx = pair.indexOf("=");
+                if (idx > 0) {
+                    String key = pair.substring(0, idx);
+                    String value = pair.substring(idx + 1);
+
+                    if ("vnp_SecureHash".equals(key)) {
+                        vnp_SecureHash = value;
+                    } else {
+                        params.put(key, value);
+                    }
+                }
+            }
+
+            if (vnp_SecureHash == null || vnp_SecureHash.isEmpty()) {
+                return false;
+            }
+
+            List<String> fieldNames = new ArrayList<>(params.keySet());
+            Collections.sort(fieldNames);
+
+            StringBuilder hashData = new StringBuilder();
+            Iterator<String> itr = fieldNames.iterator();
+            while (itr.hasNext()) {
+                String fieldName = itr.next();
+                String fieldValue = params.get(fieldName);
+                if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                    hashData.append(fieldName);
+                    hashData.append('=');
+                    hashData.append(fieldValue);
+                    if (itr.hasNext()) {
+                        hashData.append('&');
+                    }
+                }
+            }
+
+            String calculatedHash = hmacSha512(secret, hashData.toString()).toUpperCase();
+            return calculatedHash.equals(vnp_SecureHash.toUpperCase());
+        }
+
+        boolean verify(Map<String, String> params) {
+            String vnp_SecureHash = params.get("vnp_SecureHash");
+            if (vnp_SecureHash == null || vnp_SecureHash.isEmpty()) {
+                return false;
+            }
+
+            Map<String, String> paramsForHash = new LinkedHashMap<>(params);
+            paramsForHash.remove("vnp_SecureHash");
+
+            List<String> fieldNames = new ArrayList<>(paramsForHash.keySet());
+            Collections.sort(fieldNames);
+
+            StringBuilder hashData = new StringBuilder();
+            Iterator<String> itr = fieldNames.iterator();
+            while (itr.hasNext()) {
+                String fieldName = itr.next();
+                String fieldValue = paramsForHash.get(fieldName);
+                if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                    hashData.append(fieldName);
+                    hashData.append('=');
+                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8));
+                    if (itr.hasNext()) {
+                        hashData.append('&');
+                    }
+                }
+            }
+
+            String calculatedHash = hmacSha512(secret, hashData.toString()).toUpperCase();
+            return calculatedHash.equals(vnp_SecureHash);
+        }
+
+        private static String hmacSha512(String key, String data) {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA512");
+                SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+                mac.init(secretKeySpec);
+                byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+
+                StringBuilder hexString = new StringBuilder();
+                for (byte b : hash) {
+                    String hex = Integer.toHexString(0xff & b);
+                    if (hex.length() == 1) {
+                        hexString.append('0');
+                    }
+                    hexString.append(hex);
+                }
+                return hexString.toString();
+            } catch (Exception e) {
+                throw new RuntimeException("Error calculating HMAC SHA512", e);
+            }
+        }
+    }
+}